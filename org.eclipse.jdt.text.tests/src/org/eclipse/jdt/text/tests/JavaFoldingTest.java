@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.text.tests.performance.DisplayHelper;
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+
+/**
+ * Tests that the folding structure of the Java editor follows edits that the reconciler only
+ * reports as content changes of the compilation unit.
+ *
+ * @since 3.13
+ */
+public class JavaFoldingTest extends TestCase {
+
+	private static final String CU_CONTENTS= "package p;\n" +
+			"\n" +
+			"public class A {\n" +
+			"	/**\n" +
+			"	 * Javadoc of foo.\n" +
+			"	 */\n" +
+			"	void foo() { }\n" +
+			"\n" +
+			"	void bar() { }\n" +
+			"}\n";
+
+	private static final int JAVADOC_LINE= 3;
+	private static final int BAR_LINE= 8;
+
+	private IJavaProject fProject;
+	private JavaEditor fEditor;
+	private IDocument fDocument;
+	private ProjectionAnnotationModel fModel;
+	private boolean fWasFoldingEnabled;
+
+	public static Test suite() {
+		return new TestSuite(JavaFoldingTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fWasFoldingEnabled= EditorTestHelper.enableFolding(true);
+		fProject= JavaProjectHelper.createJavaProject(getName(), "bin");
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fProject, "src");
+		IPackageFragment pack= root.createPackageFragment("p", true, null);
+		ICompilationUnit cu= pack.createCompilationUnit("A.java", CU_CONTENTS, true, null);
+
+		fEditor= (JavaEditor) EditorTestHelper.openInEditor((IFile) cu.getResource(), true);
+		assertNotNull(fEditor);
+		fDocument= fEditor.getDocumentProvider().getDocument(fEditor.getEditorInput());
+		fModel= fEditor.getAdapter(ProjectionAnnotationModel.class);
+		assertNotNull(fModel);
+		assertFolding(JAVADOC_LINE, true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EditorTestHelper.closeEditor(fEditor);
+		fEditor= null;
+		if (fProject != null) {
+			JavaProjectHelper.delete(fProject);
+			fProject= null;
+		}
+		EditorTestHelper.enableFolding(fWasFoldingEnabled);
+	}
+
+	private Set<Integer> getFoldingStartLines() {
+		Set<Integer> lines= new HashSet<>();
+		Iterator<Annotation> iter= fModel.getAnnotationIterator();
+		while (iter.hasNext()) {
+			Annotation annotation= iter.next();
+			Position position= fModel.getPosition(annotation);
+			if (annotation instanceof ProjectionAnnotation && position != null) {
+				try {
+					lines.add(Integer.valueOf(fDocument.getLineOfOffset(position.getOffset())));
+				} catch (BadLocationException e) {
+					// not a line
+				}
+			}
+		}
+		return lines;
+	}
+
+	private void assertFolding(final int line, final boolean expected) {
+		DisplayHelper helper= new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return getFoldingStartLines().contains(Integer.valueOf(line)) == expected;
+			}
+		};
+		assertTrue("folding at line " + line, helper.waitForCondition(EditorTestHelper.getActiveDisplay(), 10000));
+	}
+
+	public void testMethodBodyEdit() throws Exception {
+		assertFolding(BAR_LINE, false);
+
+		// the method body grows to several lines
+		int offset= fDocument.getLineOffset(BAR_LINE) + "\tvoid bar() {".length();
+		fDocument.replace(offset, 1, "\n\t\tfoo();\n\t");
+		assertFolding(BAR_LINE, true);
+	}
+
+	public void testJavadocAdded() throws Exception {
+		assertFolding(BAR_LINE, false);
+
+		fDocument.replace(fDocument.getLineOffset(BAR_LINE), 0, "\t/**\n\t * Javadoc of bar.\n\t */\n");
+		assertFolding(BAR_LINE, true);
+	}
+
+	public void testJavadocRemoved() throws Exception {
+		int offset= fDocument.getLineOffset(JAVADOC_LINE);
+		fDocument.replace(offset, fDocument.getLineOffset(JAVADOC_LINE + 3) - offset, "");
+		assertFolding(JAVADOC_LINE, false);
+	}
+}
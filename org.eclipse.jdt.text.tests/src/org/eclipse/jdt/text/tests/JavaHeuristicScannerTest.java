@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,7 @@ import org.eclipse.jdt.ui.text.IJavaPartitions;
 import org.eclipse.jdt.internal.ui.text.FastJavaPartitionScanner;
 import org.eclipse.jdt.internal.ui.text.JavaHeuristicScanner;
 import org.eclipse.jdt.internal.ui.text.JavaIndenter;
+import org.eclipse.jdt.internal.ui.text.Symbols;
 
 /**
  * SmartSemicolonAutoEditStrategyTest
@@ -1142,4 +1143,73 @@ public class JavaHeuristicScannerTest extends TestCase {
 		String indent= fScanner.computeIndentation(offset).toString();
 		assertEquals("\t", indent);
 	}
+
+	public void testScannerFollowsModifications() throws Exception {
+		fDocument.set("class A {\n\tvoid foo() {\n\t}\n}\n");
+		int end= fDocument.get().lastIndexOf('}');
+		assertEquals(8, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+		assertEquals(Symbols.TokenCLASS, fHeuristicScanner.nextToken(0, JavaHeuristicScanner.UNBOUND));
+
+		fDocument.replace(0, 0, "/* { */ ");
+		end= fDocument.get().lastIndexOf('}');
+		assertEquals(16, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+		assertFalse(fHeuristicScanner.isDefaultPartition(3));
+		assertEquals(Symbols.TokenCLASS, fHeuristicScanner.nextToken(0, JavaHeuristicScanner.UNBOUND));
+
+		fDocument.replace(0, 8, "//");
+		assertEquals(Symbols.TokenIDENT, fHeuristicScanner.nextToken(0, JavaHeuristicScanner.UNBOUND));
+		end= fDocument.get().lastIndexOf('}');
+		assertEquals(JavaHeuristicScanner.NOT_FOUND, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+	}
+
+	public void testScannerKeepsScopesBeforeModification() throws Exception {
+		fDocument.set("class A {\n\tvoid a() {\n\t}\n\tvoid b() {\n\t}\n}\n");
+		int end= fDocument.get().lastIndexOf('}');
+		assertEquals(8, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+
+		// the scope of a() precedes the modification
+		int b= fDocument.get().indexOf("b() {") + 4;
+		fDocument.replace(b + 1, 0, "{");
+		end= fDocument.get().lastIndexOf('}');
+		assertEquals(b, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+		int a= fDocument.get().indexOf("a() {") + 4;
+		assertEquals(a, fHeuristicScanner.findOpeningPeer(fDocument.get().indexOf('}') - 1, '{', '}'));
+	}
+
+	public void testScannerAfterSeveralModifications() throws Exception {
+		fDocument.set("class A {\n\tvoid a() {\n\t}\n\tvoid b() {\n\t}\n}\n");
+		int end= fDocument.get().lastIndexOf('}');
+		assertEquals(8, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+
+		// only the first modification is known, the second one precedes it
+		fDocument.replace(fDocument.getLength(), 0, "\n");
+		int a= fDocument.get().indexOf("a() {") + 4;
+		fDocument.replace(a + 1, 0, "{");
+		end= fDocument.get().lastIndexOf('}');
+		assertEquals(a, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+	}
+
+	public void testScannerOnLargeDocument() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("class A {\n");
+		for (int i= 0; i < 1000; i++)
+			buf.append("\tvoid foo" + i + "() { String s= \"}\"; /* ( */ }\n");
+		buf.append("}\n");
+		fDocument.set(buf.toString());
+
+		int end= buf.lastIndexOf("}");
+		assertEquals(8, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+		// the scopes are known now
+		assertEquals(8, fHeuristicScanner.findOpeningPeer(end - 1, '{', '}'));
+		assertEquals(JavaHeuristicScanner.NOT_FOUND, fHeuristicScanner.findOpeningPeer(end - 1, 10, '{', '}'));
+		assertEquals(end, fHeuristicScanner.findClosingPeer(9, '{', '}'));
+
+		int method= buf.indexOf("void foo500");
+		assertEquals(Symbols.TokenRBRACE, fHeuristicScanner.previousToken(method - 1, JavaHeuristicScanner.UNBOUND));
+		assertEquals(Symbols.TokenIDENT, fHeuristicScanner.nextToken(method + 4, JavaHeuristicScanner.UNBOUND));
+		assertEquals(Symbols.TokenLPAREN, fHeuristicScanner.nextToken(fHeuristicScanner.getPosition(), JavaHeuristicScanner.UNBOUND));
+
+		String indent= fScanner.computeIndentation(buf.indexOf("void foo999")).toString();
+		assertEquals("\t", indent);
+	}
 }
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TreeItem;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IParent;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+
+import org.eclipse.jdt.internal.ui.javaeditor.JavaOutlineUpdater;
+
+/**
+ * Tests the incremental updates of the Java outline.
+ *
+ * @since 3.13
+ */
+public class JavaOutlineUpdaterTest extends TestCase {
+
+	private static final long LABEL_FLAGS= JavaElementLabels.M_APP_RETURNTYPE;
+
+	private static class ChildrenProvider implements ITreeContentProvider {
+		@Override
+		public Object[] getElements(Object inputElement) {
+			return getChildren(inputElement);
+		}
+
+		@Override
+		public Object[] getChildren(Object parentElement) {
+			if (parentElement instanceof IParent) {
+				try {
+					return ((IParent) parentElement).getChildren();
+				} catch (JavaModelException e) {
+					// no children
+				}
+			}
+			return new Object[0];
+		}
+
+		@Override
+		public Object getParent(Object element) {
+			return ((IJavaElement) element).getParent();
+		}
+
+		@Override
+		public boolean hasChildren(Object element) {
+			return getChildren(element).length > 0;
+		}
+
+		@Override
+		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		}
+
+		@Override
+		public void dispose() {
+		}
+	}
+
+	private static final class LazyChildrenProvider extends ChildrenProvider implements ILazyTreeContentProvider {
+		private TreeViewer fTreeViewer;
+
+		@Override
+		public void updateElement(Object parent, int index) {
+			Object element= getChildren(parent)[index];
+			fTreeViewer.replace(parent, index, element);
+			updateChildCount(element, -1);
+		}
+
+		@Override
+		public void updateChildCount(Object element, int currentChildCount) {
+			fTreeViewer.setChildCount(element, getChildren(element).length);
+		}
+
+		@Override
+		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+			fTreeViewer= (TreeViewer) viewer;
+		}
+	}
+
+	private static final class ElementLabelProvider extends LabelProvider {
+		@Override
+		public String getText(Object element) {
+			return JavaElementLabels.getTextLabel(element, LABEL_FLAGS);
+		}
+	}
+
+	private IJavaProject fProject;
+	private ICompilationUnit fWorkingCopy;
+	private Shell fShell;
+	private TreeViewer fViewer;
+
+	public static Test suite() {
+		return new TestSuite(JavaOutlineUpdaterTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= JavaProjectHelper.createJavaProject(getName(), "bin");
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fProject, "src");
+		IPackageFragment pack= root.createPackageFragment("p", true, null);
+		ICompilationUnit cu= pack.createCompilationUnit("A.java", getContents("a", "b", "c"), true, null);
+		fWorkingCopy= cu.getWorkingCopy(null);
+		fShell= new Shell(Display.getDefault());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fShell.dispose();
+		fWorkingCopy.discardWorkingCopy();
+		JavaProjectHelper.delete(fProject);
+	}
+
+	private static String getContents(String... methods) {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package p;\n");
+		buf.append("public class A {\n");
+		for (int i= 0; i < methods.length; i++) {
+			buf.append("    ").append(methods[i]).append(methods[i].indexOf('(') == -1 ? "() {}\n" : "\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	private JavaOutlineUpdater createUpdater(long timeBudget) {
+		return createUpdater(SWT.MULTI, new ChildrenProvider(), timeBudget);
+	}
+
+	private JavaOutlineUpdater createUpdater(int style, ChildrenProvider provider, long timeBudget) {
+		fViewer= new TreeViewer(fShell, style);
+		fViewer.setUseHashlookup(true);
+		fViewer.setContentProvider(provider);
+		fViewer.setLabelProvider(new ElementLabelProvider());
+		fViewer.setInput(fWorkingCopy);
+		fViewer.expandAll();
+		return new JavaOutlineUpdater(fViewer, timeBudget);
+	}
+
+	private IJavaElementDelta reconcile(String contents) throws JavaModelException {
+		final IJavaElementDelta[] result= new IJavaElementDelta[1];
+		IElementChangedListener listener= new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				result[0]= event.getDelta();
+			}
+		};
+		fWorkingCopy.getBuffer().setContents(contents);
+		JavaCore.addElementChangedListener(listener, ElementChangedEvent.POST_RECONCILE);
+		try {
+			fWorkingCopy.reconcile(ICompilationUnit.NO_AST, false, null, null);
+		} finally {
+			JavaCore.removeElementChangedListener(listener);
+		}
+		assertNotNull(result[0]);
+		assertTrue((result[0].getFlags() & IJavaElementDelta.F_FINE_GRAINED) != 0);
+		return result[0];
+	}
+
+	/**
+	 * Runs the event loop until fewer than the given number of steps are pending.
+	 *
+	 * @param updater the updater
+	 * @param count the number of pending steps
+	 */
+	private static void runUntilFewerSteps(JavaOutlineUpdater updater, int count) {
+		Display display= Display.getDefault();
+		long end= System.currentTimeMillis() + 10000;
+		while (updater.getPendingStepCount() >= count) {
+			assertTrue(System.currentTimeMillis() < end);
+			display.readAndDispatch();
+		}
+	}
+
+	private List<String> getShownMethods() {
+		IType type= fWorkingCopy.getType("A");
+		TreeItem typeItem= (TreeItem) fViewer.testFindItem(type);
+		assertNotNull(typeItem);
+		List<String> names= new ArrayList<>();
+		TreeItem[] items= typeItem.getItems();
+		for (int i= 0; i < items.length; i++) {
+			names.add(((IJavaElement) items[i].getData()).getElementName());
+		}
+		return names;
+	}
+
+	public void testAddRemove() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(JavaOutlineUpdater.TIME_BUDGET);
+		IJavaElementDelta delta= reconcile(getContents("a", "c", "d"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		runUntilFewerSteps(updater, 1);
+
+		assertEquals(Arrays.asList("a", "c", "d"), getShownMethods());
+	}
+
+	public void testReorder() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(JavaOutlineUpdater.TIME_BUDGET);
+		IJavaElementDelta delta= reconcile(getContents("c", "a", "b"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		runUntilFewerSteps(updater, 1);
+
+		assertEquals(Arrays.asList("c", "a", "b"), getShownMethods());
+	}
+
+	public void testChangedLabel() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(JavaOutlineUpdater.TIME_BUDGET);
+		IMethod method= fWorkingCopy.getType("A").getMethod("b", new String[0]);
+		TreeItem item= (TreeItem) fViewer.testFindItem(method);
+		String oldLabel= item.getText();
+
+		IJavaElementDelta delta= reconcile(getContents("a", "int b() { return 0; }", "c"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		runUntilFewerSteps(updater, 1);
+
+		assertFalse(oldLabel.equals(item.getText()));
+		assertEquals(JavaElementLabels.getTextLabel(method, LABEL_FLAGS), item.getText());
+	}
+
+	public void testSteps() throws Exception {
+		// each runnable applies one step
+		JavaOutlineUpdater updater= createUpdater(0);
+		String[] methods= new String[3 + JavaOutlineUpdater.MAX_STEP_SIZE * 2 + 50];
+		for (int i= 0; i < methods.length; i++) {
+			methods[i]= i < 3 ? String.valueOf((char) ('a' + i)) : "m" + i;
+		}
+		IJavaElementDelta delta= reconcile(getContents(methods));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		assertEquals(3, updater.getPendingStepCount());
+
+		runUntilFewerSteps(updater, 3);
+		assertEquals(2, updater.getPendingStepCount());
+		assertEquals(3 + JavaOutlineUpdater.MAX_STEP_SIZE, getShownMethods().size());
+
+		runUntilFewerSteps(updater, 1);
+		assertEquals(methods.length, getShownMethods().size());
+	}
+
+	public void testTimeBudget() throws Exception {
+		// one runnable applies all steps
+		JavaOutlineUpdater updater= createUpdater(Long.MAX_VALUE / 2);
+		String[] methods= new String[3 + JavaOutlineUpdater.MAX_STEP_SIZE * 2];
+		for (int i= 0; i < methods.length; i++) {
+			methods[i]= i < 3 ? String.valueOf((char) ('a' + i)) : "m" + i;
+		}
+		IJavaElementDelta delta= reconcile(getContents(methods));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		assertEquals(2, updater.getPendingStepCount());
+
+		runUntilFewerSteps(updater, 2);
+		assertEquals(0, updater.getPendingStepCount());
+		assertEquals(methods.length, getShownMethods().size());
+	}
+
+	public void testRefreshDropsPendingSteps() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(JavaOutlineUpdater.TIME_BUDGET);
+		IJavaElementDelta delta= reconcile(getContents("a", "b", "d"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		assertEquals(2, updater.getPendingStepCount());
+		updater.scheduleRefresh();
+		assertEquals(1, updater.getPendingStepCount());
+		runUntilFewerSteps(updater, 1);
+
+		assertEquals(Arrays.asList("a", "b", "d"), getShownMethods());
+	}
+
+	public void testVirtualTreeAddsItems() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(SWT.MULTI | SWT.VIRTUAL, new ChildrenProvider(), JavaOutlineUpdater.TIME_BUDGET);
+		IJavaElementDelta delta= reconcile(getContents("a", "b", "c", "d", "e"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		runUntilFewerSteps(updater, 1);
+
+		// without a lazy content provider, the items of a virtual tree are associated with their elements
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), getShownMethods());
+	}
+
+	public void testLazyContentProviderRefreshesParents() throws Exception {
+		JavaOutlineUpdater updater= createUpdater(SWT.MULTI | SWT.VIRTUAL, new LazyChildrenProvider(), JavaOutlineUpdater.TIME_BUDGET);
+		IJavaElementDelta delta= reconcile(getContents("a", "c", "d", "e"));
+		updater.scheduleUpdate(delta, fWorkingCopy);
+		assertEquals(2, updater.getPendingStepCount());
+		runUntilFewerSteps(updater, 1);
+
+		// the removals and additions refresh the type instead of removing and adding items
+		fViewer.expandAll();
+		assertEquals(4, fViewer.getTree().getItem(1).getItemCount());
+		assertEquals(Arrays.asList("a", "c", "d", "e"), getShownMethods());
+	}
+}
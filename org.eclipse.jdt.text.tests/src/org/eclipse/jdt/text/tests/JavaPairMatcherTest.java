@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -194,5 +194,60 @@ public class JavaPairMatcherTest extends AbstractPairMatcherTest {
 		assertTrue(match.getOffset() == 0 && match.getLength() == 5);
 	}
 
+	public void testMatchAfterModifications() throws Exception {
+		fDocument.set("x(a(b)c)x");
+		IRegion match= fPairMatcher.match(fDocument, 1);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 1 && match.getLength() == 7);
+		assertEquals(ICharacterPairMatcher.LEFT, fPairMatcher.getAnchor());
+
+		fDocument.replace(0, 0, "yy");
+		match= fPairMatcher.match(fDocument, 3);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 3 && match.getLength() == 7);
+
+		fDocument.replace(4, 0, "//");
+		assertNull(fPairMatcher.match(fDocument, 3));
+
+		fDocument.replace(4, 2, "");
+		match= fPairMatcher.match(fDocument, 10);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 3 && match.getLength() == 7);
+		assertEquals(ICharacterPairMatcher.RIGHT, fPairMatcher.getAnchor());
+
+		fDocument.replace(5, 3, "");
+		match= fPairMatcher.match(fDocument, 3);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 3 && match.getLength() == 4);
+
+		fDocument.replace(4, 0, "\")\"");
+		match= fPairMatcher.match(fDocument, 3);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 3 && match.getLength() == 7);
+	}
+
+	public void testMatchInLargeDocument() throws Exception {
+		int depth= 5000;
+		StringBuffer buffer= new StringBuffer();
+		for (int i= 0; i < depth; i++)
+			buffer.append("(/*(*/");
+		for (int i= 0; i < depth; i++)
+			buffer.append(')');
+		fDocument.set(buffer.toString());
+		int end= fDocument.getLength();
+
+		IRegion match= fPairMatcher.match(fDocument, 0);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 0 && match.getLength() == end);
 
+		match= fPairMatcher.match(fDocument, end - depth);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 6 * (depth - 1) && match.getLength() == 7);
+
+		fDocument.replace(end - depth, 0, "(");
+		assertNull(fPairMatcher.match(fDocument, 0));
+		match= fPairMatcher.match(fDocument, end + 1);
+		assertNotNull(match);
+		assertTrue(match.getOffset() == 6 && match.getLength() == end - 5);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.text.tests;
 
+import java.util.Arrays;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -799,4 +801,30 @@ public class JavaPartitionerTest extends TestCase {
 			assertTrue(false);
 		}
 	}
+
+	private static String repeat(char ch, int count) {
+		char[] chars= new char[count];
+		Arrays.fill(chars, ch);
+		return new String(chars);
+	}
+
+	public void testPartitionsLongerThanScannerBuffer() {
+		try {
+			String code= repeat('x', 5000);
+			fDocument.set(code + '"' + repeat('y', 5000) + '"' + code + "/*" + repeat('z', 5000) + "*/" + code + "//" + repeat('/', 5000) + '\n');
+
+			ITypedRegion[] result= fDocument.computePartitioning(0, fDocument.getLength());
+			TypedRegion[] expectation= {
+				new TypedRegion(0, 5000, IDocument.DEFAULT_CONTENT_TYPE),
+				new TypedRegion(5000, 5002, IJavaPartitions.JAVA_STRING),
+				new TypedRegion(10002, 5000, IDocument.DEFAULT_CONTENT_TYPE),
+				new TypedRegion(15002, 5004, IJavaPartitions.JAVA_MULTI_LINE_COMMENT),
+				new TypedRegion(20006, 5000, IDocument.DEFAULT_CONTENT_TYPE),
+				new TypedRegion(25006, 5003, IJavaPartitions.JAVA_SINGLE_LINE_COMMENT)
+			};
+			checkPartitioning(expectation, result);
+		} catch (BadLocationException x) {
+			assertTrue(false);
+		}
+	}
 }
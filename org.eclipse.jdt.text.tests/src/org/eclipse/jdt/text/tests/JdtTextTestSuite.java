@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,6 +56,8 @@ public class JdtTextTestSuite {
 						"org.eclipse.test.performance"
 				});
 		suite.addTest(BracketInserterTest.suite());
+		suite.addTest(JavaFoldingTest.suite());
+		suite.addTest(JavaOutlineUpdaterTest.suite());
 		suite.addTest(SpellingTestSuite.suite());
 		suite.addTest(SemanticHighlightingTest.suite());
 		suite.addTest(AutoboxingSemanticHighlightingTest.suite());
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.internal.ui.text.java.ConcurrentComputation;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class ConcurrentComputationTest extends TestCase {
+	private static final Class<ConcurrentComputationTest> THIS= ConcurrentComputationTest.class;
+
+	private static final String FAST= "fast";
+	private static final String SLOW= "slow";
+	private static final String FAILING= "failing";
+
+	/** The deadline of the slow task */
+	private static final long DEADLINE= 200;
+	/** The deadline of the other tasks, long enough to start a job */
+	private static final long LONG_DEADLINE= 10000;
+
+	/**
+	 * Computes one proposal per task. The slow task waits until it is released.
+	 */
+	private static final class TestComputation extends ConcurrentComputation<String> {
+		private final Object fLock= new Object();
+		private boolean fIsReleased;
+		private boolean fWasCanceled;
+		private int fLateNotifications;
+
+		TestComputation(String... tasks) {
+			super(Arrays.asList(tasks));
+		}
+
+		@Override
+		protected String getName(String task) {
+			return task;
+		}
+
+		@Override
+		protected long getDeadline(String task) {
+			return SLOW.equals(task) ? DEADLINE : LONG_DEADLINE;
+		}
+
+		@Override
+		protected List<ICompletionProposal> compute(String task, IProgressMonitor monitor) {
+			if (SLOW.equals(task)) {
+				synchronized (fLock) {
+					try {
+						while (!fIsReleased && !monitor.isCanceled())
+							fLock.wait(10);
+					} catch (InterruptedException e) {
+						// compute the proposal
+					}
+					fWasCanceled= monitor.isCanceled();
+				}
+			}
+			if (FAILING.equals(task)) {
+				setErrorMessage(task, "error");
+				return Collections.emptyList();
+			}
+			return Collections.<ICompletionProposal> singletonList(new CompletionProposal(task, 0, 0, task.length()));
+		}
+
+		@Override
+		protected synchronized void lateProposalsAvailable() {
+			fLateNotifications++;
+			notifyAll();
+		}
+
+		void release() {
+			synchronized (fLock) {
+				fIsReleased= true;
+				fLock.notifyAll();
+			}
+		}
+
+		synchronized void waitForLateNotification() throws InterruptedException {
+			long end= System.currentTimeMillis() + 5000;
+			while (fLateNotifications == 0 && System.currentTimeMillis() < end)
+				wait(100);
+		}
+
+		synchronized int getLateNotifications() {
+			return fLateNotifications;
+		}
+
+		boolean wasCanceled() {
+			synchronized (fLock) {
+				return fWasCanceled;
+			}
+		}
+	}
+
+	public ConcurrentComputationTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS, "ConcurrentComputationTest");
+	}
+
+	private static void assertProposal(String expected, List<ICompletionProposal> proposals) {
+		assertNotNull(proposals);
+		assertEquals(1, proposals.size());
+		assertEquals(expected, proposals.get(0).getDisplayString());
+	}
+
+	public void testAllBeforeDeadline() throws Exception {
+		TestComputation computation= new TestComputation(FAST, FAILING);
+		computation.schedule();
+		computation.await();
+
+		assertProposal(FAST, computation.getResult(FAST));
+		assertEquals(0, computation.getResult(FAILING).size());
+		assertEquals("error", computation.getErrorMessage(FAILING));
+		assertNull(computation.getErrorMessage(FAST));
+		assertTrue(computation.takeLateTasks().isEmpty());
+	}
+
+	public void testDeadline() throws Exception {
+		TestComputation computation= new TestComputation(FAST, SLOW);
+		long start= System.currentTimeMillis();
+		computation.schedule();
+		computation.await();
+		long waited= System.currentTimeMillis() - start;
+
+		// waits until the deadline of the slow task, and returns the partial result
+		assertTrue(waited >= DEADLINE - 10);
+		assertTrue(waited < LONG_DEADLINE);
+		assertProposal(FAST, computation.getResult(FAST));
+		assertNull(computation.getResult(SLOW));
+		assertTrue(computation.takeLateTasks().isEmpty());
+		computation.cancel();
+	}
+
+	public void testLateProposals() throws Exception {
+		TestComputation computation= new TestComputation(FAST, SLOW);
+		computation.schedule();
+		computation.await();
+		assertNull(computation.getResult(SLOW));
+
+		computation.release();
+		computation.waitForLateNotification();
+		assertEquals(1, computation.getLateNotifications());
+		assertEquals(Collections.singletonList(SLOW), computation.takeLateTasks());
+		assertProposal(SLOW, computation.getResult(SLOW));
+		// late tasks are only taken once
+		assertTrue(computation.takeLateTasks().isEmpty());
+	}
+
+	public void testCancel() throws Exception {
+		TestComputation computation= new TestComputation(SLOW);
+		computation.schedule();
+		computation.await();
+		computation.cancel();
+
+		long end= System.currentTimeMillis() + 5000;
+		while (computation.getResult(SLOW) == null && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertTrue(computation.wasCanceled());
+		// canceled computations do not report late proposals
+		assertEquals(0, computation.getLateNotifications());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2014 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,11 +27,14 @@ public class ContentAssistTestSuite {
 		suite.addTest(CamelCaseCompletionTest.suite());
 		suite.addTest(JavadocCompletionTest.suite());
 		suite.addTest(ContentAssistHistoryTest.suite());
+		suite.addTest(ConcurrentComputationTest.suite());
+		suite.addTest(LatencyHistogramTest.suite());
 		suite.addTest(MethodInsertCompletionTest.suite());
 		suite.addTest(MethodInsertionFormattedCompletionTest.suite());
 		suite.addTest(MethodOverwriteCompletionTest.suite());
 		suite.addTest(MethodParamsCompletionTest.suite());
 		suite.addTest(MethodParameterGuessingCompletionTest.suite());
+		suite.addTest(ProposalMatchingTest.suite());
 		suite.addTest(TypeCompletionTest.suite());
 		suite.addTest(TypeCompletionTest17.suite());
 		suite.addTest(SpecialMethodsCompletionTest.suite());
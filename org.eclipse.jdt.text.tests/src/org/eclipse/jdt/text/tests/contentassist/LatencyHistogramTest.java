@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import org.eclipse.jdt.internal.ui.text.java.LatencyHistogram;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class LatencyHistogramTest extends TestCase {
+	private static final Class<LatencyHistogramTest> THIS= LatencyHistogramTest.class;
+
+	public LatencyHistogramTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS, "LatencyHistogramTest");
+	}
+
+	public void testBuckets() throws Exception {
+		LatencyHistogram histogram= new LatencyHistogram();
+		histogram.record(0);
+		histogram.record(1);
+		histogram.record(3);
+		histogram.record(100);
+		histogram.record(100000);
+
+		long[] counts= histogram.getCounts();
+		assertEquals(1, counts[0]); // 0 ms
+		assertEquals(1, counts[1]); // 1 ms
+		assertEquals(1, counts[2]); // 2-3 ms
+		assertEquals(1, counts[7]); // 64-127 ms
+		assertEquals(1, counts[LatencyHistogram.BUCKET_COUNT - 1]);
+		assertEquals(5, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(64, LatencyHistogram.getLowerBound(7));
+	}
+
+	public void testPercentile() throws Exception {
+		LatencyHistogram histogram= new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(90));
+		for (int i= 0; i < 9; i++)
+			histogram.record(5);
+		histogram.record(700);
+
+		assertEquals(7, histogram.getPercentile(50));
+		assertEquals(7, histogram.getPercentile(90));
+		assertEquals(700, histogram.getPercentile(100));
+		assertEquals(74, histogram.getAverage());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.Hashtable;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProposal;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that proposals are matched the same way while the user types and deletes characters.
+ *
+ * @since 3.13
+ */
+public class ProposalMatchingTest extends TestCase {
+	private static final Class<ProposalMatchingTest> THIS= ProposalMatchingTest.class;
+
+	private Hashtable<String, String> fOptions;
+
+	public ProposalMatchingTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS, "ProposalMatchingTest");
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fOptions= JavaCore.getOptions();
+		setMatchingOptions(true, true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaCore.setOptions(fOptions);
+	}
+
+	private static void setMatchingOptions(boolean camelCase, boolean substring) {
+		Hashtable<String, String> options= JavaCore.getOptions();
+		options.put(JavaCore.CODEASSIST_CAMEL_CASE_MATCH, camelCase ? JavaCore.ENABLED : JavaCore.DISABLED);
+		options.put(JavaCore.CODEASSIST_SUBSTRING_MATCH, substring ? JavaCore.ENABLED : JavaCore.DISABLED);
+		JavaCore.setOptions(options);
+	}
+
+	private static JavaCompletionProposal createProposal(String name) {
+		return new JavaCompletionProposal(name, 0, 0, null, name, 100);
+	}
+
+	private static boolean type(JavaCompletionProposal proposal, IDocument document, String text) {
+		document.set(text);
+		return proposal.validate(document, text.length(), null);
+	}
+
+	public void testTypeAndDelete() throws Exception {
+		JavaCompletionProposal proposal= createProposal("NullPointerException");
+		IDocument document= new Document();
+
+		assertTrue(type(proposal, document, ""));
+		assertTrue(type(proposal, document, "n"));
+		assertTrue(type(proposal, document, "nu"));
+		assertFalse(type(proposal, document, "nux"));
+		assertFalse(type(proposal, document, "nuxy"));
+		assertTrue(type(proposal, document, "nu"));
+		assertTrue(type(proposal, document, "n"));
+		assertTrue(type(proposal, document, "NPE"));
+		assertEquals(100, proposal.getRelevance());
+		assertTrue(type(proposal, document, "NP"));
+		assertFalse(type(proposal, document, "NPx"));
+		assertTrue(type(proposal, document, "NP"));
+	}
+
+	public void testFixedCase() throws Exception {
+		JavaCompletionProposal proposal= createProposal("NullPointerException");
+		IDocument document= new Document();
+
+		assertFalse(type(proposal, document, "nP"));
+		assertFalse(type(proposal, document, "nPE"));
+		// CamelCase matching is case sensitive
+		assertTrue(type(proposal, document, "NPE"));
+		assertFalse(type(proposal, document, "nP"));
+		assertTrue(type(proposal, document, "NP"));
+	}
+
+	public void testSubstringRelevance() throws Exception {
+		JavaCompletionProposal proposal= createProposal("NullPointerException");
+		IDocument document= new Document();
+
+		assertTrue(type(proposal, document, "poi"));
+		assertEquals(-300, proposal.getRelevance());
+		assertTrue(type(proposal, document, "pointer"));
+		assertEquals(-300, proposal.getRelevance());
+		assertTrue(type(proposal, document, "Null"));
+		assertEquals(100, proposal.getRelevance());
+		assertTrue(type(proposal, document, "Nu"));
+		assertEquals(100, proposal.getRelevance());
+	}
+
+	public void testOptionsChange() throws Exception {
+		JavaCompletionProposal proposal= createProposal("NullPointerException");
+		IDocument document= new Document();
+
+		assertTrue(type(proposal, document, "NPE"));
+		assertTrue(type(proposal, document, "Pointer"));
+
+		setMatchingOptions(false, false);
+		assertFalse(type(proposal, document, "NPE"));
+		assertFalse(type(proposal, document, "Pointer"));
+		assertTrue(type(proposal, document, "Null"));
+
+		setMatchingOptions(true, false);
+		assertTrue(type(proposal, document, "NPE"));
+		assertFalse(type(proposal, document, "Pointer"));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,12 @@ public class JavaIndenterTest extends TextPerformanceTestCase {
 
 	private static final int[] CTRL_END= new int[] { SWT.CTRL, SWT.END };
 
+	/** The first line of the block measured by {@link #testSmartPaste()} */
+	private static final int PASTE_START_LINE= 168;
+
+	/** The line after the block measured by {@link #testSmartPaste()} */
+	private static final int PASTE_END_LINE= 343;
+
 	private ITextEditor fEditor;
 
 	public static Test suite() {
@@ -73,6 +79,71 @@ public class JavaIndenterTest extends TextPerformanceTestCase {
 		assertAllPerformance();
 	}
 
+	/**
+	 * Measures Correct Indentation of the whole file.
+	 *
+	 * @since 3.13
+	 */
+	public void testCorrectIndentation() {
+		// uncomment the file commented by the set up
+		runAction(fEditor.getAction(ITextEditorActionConstants.SELECT_ALL));
+		runAction(fEditor.getAction("ToggleComment"));
+
+		measureCorrectIndentation(getNullPerformanceMeter(), getWarmUpRuns());
+		measureCorrectIndentation(createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureCorrectIndentation(PerformanceMeter performanceMeter, int runs) {
+		IAction selectAll= fEditor.getAction(ITextEditorActionConstants.SELECT_ALL);
+		IAction indent= fEditor.getAction("Indent");
+		IAction undo= fEditor.getAction(ITextEditorActionConstants.UNDO);
+		for (int i= 0; i < runs; i++) {
+			runAction(selectAll);
+			performanceMeter.start();
+			runAction(indent);
+			performanceMeter.stop();
+			runAction(undo);
+		}
+	}
+
+	/**
+	 * Measures smart paste of a block of the file, which indents the pasted lines with the
+	 * heuristic scanner of the pasted text and the one of the document. This replaces
+	 * {@link JavaSmartPasteTest}, which is disabled because its results vary too much.
+	 *
+	 * @throws Exception if the document cannot be accessed
+	 * @since 3.13
+	 */
+	public void testSmartPaste() throws Exception {
+		// uncomment the file commented by the set up
+		runAction(fEditor.getAction(ITextEditorActionConstants.SELECT_ALL));
+		runAction(fEditor.getAction("ToggleComment"));
+
+		IDocument document= EditorTestHelper.getDocument(fEditor);
+		int offset= document.getLineOffset(PASTE_START_LINE);
+		fEditor.selectAndReveal(offset, document.getLineOffset(PASTE_END_LINE) - offset);
+		runAction(fEditor.getAction(ITextEditorActionConstants.COPY));
+
+		measureSmartPaste(offset, getNullPerformanceMeter(), getWarmUpRuns());
+		measureSmartPaste(offset, createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureSmartPaste(int offset, PerformanceMeter performanceMeter, int runs) {
+		IAction paste= fEditor.getAction(ITextEditorActionConstants.PASTE);
+		IAction undo= fEditor.getAction(ITextEditorActionConstants.UNDO);
+		for (int i= 0; i < runs; i++) {
+			fEditor.selectAndReveal(offset, 0);
+			performanceMeter.start();
+			runAction(paste);
+			performanceMeter.stop();
+			runAction(undo);
+		}
+	}
+
 	private void measureJavaIndenter(PerformanceMeter performanceMeter, int runs) {
 		final IDocument document= EditorTestHelper.getDocument(fEditor);
 		Display display= EditorTestHelper.getActiveDisplay();
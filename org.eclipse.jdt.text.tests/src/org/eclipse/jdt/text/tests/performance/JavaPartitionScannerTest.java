@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+
+import org.eclipse.jdt.internal.ui.text.FastJavaPartitionScanner;
+
+
+/**
+ * Measures the time to scan the partitions of large Java files.
+ *
+ * @since 3.13
+ */
+public class JavaPartitionScannerTest extends TextPerformanceTestCase {
+
+	private static final Class<JavaPartitionScannerTest> THIS= JavaPartitionScannerTest.class;
+
+	private static final int WARM_UP_RUNS= 5;
+
+	private static final int MEASURED_RUNS= 5;
+
+	private static final int ITERATIONS= 200;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		EditorTestHelper.joinBackgroundActivities();
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	/**
+	 * Measures scanning <code>TextLayout.java</code>.
+	 *
+	 * @throws Exception if measure fails
+	 */
+	public void testTextLayout() throws Exception {
+		measure(PerformanceTestSetup.TEXT_LAYOUT);
+	}
+
+	/**
+	 * Measures scanning <code>StyledText.java</code>.
+	 *
+	 * @throws Exception if measure fails
+	 */
+	public void testStyledText() throws Exception {
+		measure(PerformanceTestSetup.STYLED_TEXT);
+	}
+
+	private void measure(String file) throws Exception {
+		IDocument document= new Document(ResourceTestHelper.read(file).toString());
+		IPartitionTokenScanner scanner= new FastJavaPartitionScanner();
+		measure(scanner, document, getNullPerformanceMeter(), getWarmUpRuns());
+		measure(scanner, document, createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measure(IPartitionTokenScanner scanner, IDocument document, PerformanceMeter performanceMeter, int runs) {
+		for (int i= 0; i < runs; i++) {
+			int tokens= 0;
+			performanceMeter.start();
+			for (int j= 0; j < ITERATIONS; j++) {
+				scanner.setRange(document, 0, document.getLength());
+				while (!scanner.nextToken().isEOF())
+					tokens++;
+			}
+			performanceMeter.stop();
+			assertTrue(tokens > 0);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.rules.FastPartitioner;
+
+import org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector;
+import org.eclipse.ui.texteditor.spelling.SpellingProblem;
+
+import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+import org.eclipse.jdt.internal.ui.text.FastJavaPartitionScanner;
+import org.eclipse.jdt.internal.ui.text.spelling.JavaSpellingEngine;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultSpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellCheckIterator;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the Java spelling engine only checks the partitions that changed.
+ *
+ * @since 3.13
+ */
+public class JavaSpellingEngineTest extends TestCase {
+
+	/**
+	 * Counts the checked partitions. Without dictionaries, each word is a problem.
+	 */
+	private static final class CountingSpellChecker extends DefaultSpellChecker {
+		int fExecutions;
+
+		CountingSpellChecker() {
+			super(PreferenceConstants.getPreferenceStore(), Locale.US);
+		}
+
+		@Override
+		public void execute(ISpellEventListener listener, ISpellCheckIterator iterator) {
+			fExecutions++;
+			super.execute(listener, iterator);
+		}
+	}
+
+	private static final class TestEngine extends JavaSpellingEngine {
+		List<Integer> check(IDocument document, CountingSpellChecker checker) {
+			final List<Integer> offsets= new ArrayList<>();
+			ISpellingProblemCollector collector= new ISpellingProblemCollector() {
+				@Override
+				public void accept(SpellingProblem problem) {
+					offsets.add(Integer.valueOf(problem.getOffset()));
+				}
+
+				@Override
+				public void beginCollecting() {
+				}
+
+				@Override
+				public void endCollecting() {
+				}
+			};
+			check(document, new IRegion[] { new Region(0, document.getLength()) }, checker, collector, null);
+			return offsets;
+		}
+	}
+
+	private Document fDocument;
+	private CountingSpellChecker fChecker;
+	private TestEngine fEngine;
+
+	public JavaSpellingEngineTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(JavaSpellingEngineTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDocument= new Document("/** helo */\nclass A {\n}\n/** wrld */\n");
+		String[] types= new String[] {
+				IJavaPartitions.JAVA_DOC,
+				IJavaPartitions.JAVA_MULTI_LINE_COMMENT,
+				IJavaPartitions.JAVA_SINGLE_LINE_COMMENT,
+				IJavaPartitions.JAVA_STRING,
+				IJavaPartitions.JAVA_CHARACTER,
+				IDocument.DEFAULT_CONTENT_TYPE
+		};
+		FastPartitioner partitioner= new FastPartitioner(new FastJavaPartitionScanner(), types);
+		partitioner.connect(fDocument);
+		fDocument.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, partitioner);
+
+		fChecker= new CountingSpellChecker();
+		fEngine= new TestEngine();
+		assertEquals(offsets("helo", "wrld"), fEngine.check(fDocument, fChecker));
+		assertEquals(2, fChecker.fExecutions);
+		fChecker.fExecutions= 0;
+	}
+
+	private List<Integer> offsets(String... words) {
+		List<Integer> offsets= new ArrayList<>();
+		for (int i= 0; i < words.length; i++)
+			offsets.add(Integer.valueOf(fDocument.get().indexOf(words[i])));
+		return offsets;
+	}
+
+	public void testUnchangedPartitionsMoved() throws Exception {
+		fDocument.replace(fDocument.get().indexOf('}'), 0, "\tint x;\n");
+
+		assertEquals(offsets("helo", "wrld"), fEngine.check(fDocument, fChecker));
+		assertEquals(0, fChecker.fExecutions);
+	}
+
+	public void testChangedPartitionChecked() throws Exception {
+		fDocument.replace(fDocument.get().indexOf("wrld"), 4, "wurld");
+
+		assertEquals(offsets("helo", "wurld"), fEngine.check(fDocument, fChecker));
+		assertEquals(1, fChecker.fExecutions);
+	}
+
+	public void testCheckerChanged() throws Exception {
+		CountingSpellChecker checker= new CountingSpellChecker();
+
+		// the partitions are checked again by another checker
+		assertEquals(offsets("helo", "wrld"), fEngine.check(fDocument, checker));
+		assertEquals(2, checker.fExecutions);
+	}
+}
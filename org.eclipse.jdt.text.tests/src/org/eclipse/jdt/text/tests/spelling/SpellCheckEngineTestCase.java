@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -178,6 +178,31 @@ public class SpellCheckEngineTestCase extends TestCase {
 		assertFalse(checker.isCorrect(LORRY));
 	}
 
+	public void testCachedWordResults() {
+		final TestDictionary dictionary= new TestDictionary();
+
+		assertFalse(dictionary.isCorrect(TRUCK));
+		dictionary.addWord(TRUCK);
+		assertTrue(dictionary.isCorrect(TRUCK));
+		dictionary.unload();
+		assertFalse(dictionary.isCorrect(TRUCK));
+	}
+
+	public void testModificationStamp() {
+		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.US.toString());
+		final ISpellChecker checker= fEngine.getSpellChecker();
+		assertNotNull(checker);
+
+		long stamp= checker.getModificationStamp();
+		checker.ignoreWord(LORRY);
+		assertTrue(stamp != checker.getModificationStamp());
+
+		stamp= checker.getModificationStamp();
+		fUSDictionary.addWord(LORRY);
+		assertTrue(stamp != checker.getModificationStamp());
+		checker.checkWord(LORRY);
+	}
+
 	public void testUKSpellChecker() {
 		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.UK.toString());
 		final ISpellChecker checker= fEngine.getSpellChecker();
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.SpellDictionaryIndex;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the memory-mapped phonetic index of spelling dictionaries.
+ *
+ * @since 3.13
+ */
+public class SpellDictionaryIndexTest extends TestCase {
+
+	private static class IndexedDictionary extends AbstractSpellDictionary {
+
+		private final File fWords;
+		private final File fIndex;
+
+		public IndexedDictionary(File words, File index) {
+			fWords= words;
+			fIndex= index;
+		}
+
+		@Override
+		protected URL getURL() throws MalformedURLException {
+			return fWords.toURI().toURL();
+		}
+
+		@Override
+		protected File getIndexFile() {
+			return fIndex;
+		}
+
+		@Override
+		protected String getEncoding() {
+			return "UTF-8"; //$NON-NLS-1$
+		}
+	}
+
+	private File fFolder;
+
+	public SpellDictionaryIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(SpellDictionaryIndexTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFolder= File.createTempFile("spelling", null); //$NON-NLS-1$
+		fFolder.delete();
+		fFolder.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files= fFolder.listFiles();
+		if (files != null) {
+			for (int i= 0; i < files.length; i++)
+				files[i].delete();
+		}
+		fFolder.delete();
+	}
+
+	private File writeWords(String... words) throws IOException {
+		File file= new File(fFolder, "words.dictionary"); //$NON-NLS-1$
+		try (Writer writer= new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) { //$NON-NLS-1$
+			for (int i= 0; i < words.length; i++)
+				writer.write(words[i] + '\n');
+		}
+		return file;
+	}
+
+	public void testWriteAndOpen() throws Exception {
+		Map<String, List<String>> buckets= new LinkedHashMap<>();
+		buckets.put("TRK", new ArrayList<>(Arrays.asList("truck", "track", "trick"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		buckets.put("LR", new ArrayList<>(Arrays.asList("lorry"))); //$NON-NLS-1$ //$NON-NLS-2$
+		buckets.put("\u00C4P", new ArrayList<>(Arrays.asList("\u00E4pfel"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		File file= new File(fFolder, "test.index"); //$NON-NLS-1$
+		SpellDictionaryIndex.write(file, "key", buckets); //$NON-NLS-1$
+		SpellDictionaryIndex index= SpellDictionaryIndex.open(file, "key"); //$NON-NLS-1$
+		assertNotNull(index);
+		assertEquals(3, index.getHashCount());
+
+		int bucket= index.find("TRK"); //$NON-NLS-1$
+		assertTrue(bucket >= 0);
+		assertEquals(3, index.getWordCount(bucket));
+		assertEquals("truck", index.getWord(bucket, 0)); //$NON-NLS-1$
+		assertEquals("trick", index.getWord(bucket, 2)); //$NON-NLS-1$
+		assertTrue(index.contains(bucket, "track")); //$NON-NLS-1$
+		assertFalse(index.contains(bucket, "lorry")); //$NON-NLS-1$
+
+		bucket= index.find("\u00C4P"); //$NON-NLS-1$
+		assertEquals("\u00E4pfel", index.getWord(bucket, 0)); //$NON-NLS-1$
+
+		assertEquals(-1, index.find("TR")); //$NON-NLS-1$
+		assertEquals(-1, index.find("")); //$NON-NLS-1$
+	}
+
+	public void testOutdatedIndex() throws Exception {
+		Map<String, List<String>> buckets= new LinkedHashMap<>();
+		buckets.put("LR", new ArrayList<>(Arrays.asList("lorry"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		File file= new File(fFolder, "test.index"); //$NON-NLS-1$
+		SpellDictionaryIndex.write(file, "key", buckets); //$NON-NLS-1$
+		assertNull(SpellDictionaryIndex.open(file, "other")); //$NON-NLS-1$
+		assertNull(SpellDictionaryIndex.open(new File(fFolder, "missing.index"), "key")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// the outdated index is not mapped and can be replaced
+		SpellDictionaryIndex.write(file, "other", buckets); //$NON-NLS-1$
+		assertNotNull(SpellDictionaryIndex.open(file, "other")); //$NON-NLS-1$
+		assertNull(SpellDictionaryIndex.open(file, "key")); //$NON-NLS-1$
+	}
+
+	public void testTruncatedIndex() throws Exception {
+		Map<String, List<String>> buckets= new LinkedHashMap<>();
+		buckets.put("LR", new ArrayList<>(Arrays.asList("lorry"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		File file= new File(fFolder, "test.index"); //$NON-NLS-1$
+		SpellDictionaryIndex.write(file, "key", buckets); //$NON-NLS-1$
+		try (RandomAccessFile stream= new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+			stream.setLength(stream.length() - 2);
+		}
+		assertNull(SpellDictionaryIndex.open(file, "key")); //$NON-NLS-1$
+		try (RandomAccessFile stream= new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+			stream.setLength(10);
+		}
+		assertNull(SpellDictionaryIndex.open(file, "key")); //$NON-NLS-1$
+	}
+
+	public void testDictionaryUsesIndex() throws Exception {
+		File words= writeWords("truck", "track", "lorry", "sentence"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		File index= new File(fFolder, "words.index"); //$NON-NLS-1$
+
+		IndexedDictionary dictionary= new IndexedDictionary(words, index);
+		assertTrue(dictionary.isCorrect("truck")); //$NON-NLS-1$
+		assertTrue(index.isFile());
+
+		// the second dictionary does not need the word list
+		words.delete();
+		dictionary= new IndexedDictionary(words, index);
+		assertTrue(dictionary.isCorrect("truck")); //$NON-NLS-1$
+		assertTrue(dictionary.isCorrect("Lorry")); //$NON-NLS-1$
+		assertFalse(dictionary.isCorrect("trucks")); //$NON-NLS-1$
+		assertFalse(dictionary.getProposals("truk", false).isEmpty()); //$NON-NLS-1$
+	}
+}
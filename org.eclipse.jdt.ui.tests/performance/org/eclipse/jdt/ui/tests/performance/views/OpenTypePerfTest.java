@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,8 +19,11 @@ import org.eclipse.test.performance.Dimension;
 import org.eclipse.test.performance.Performance;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -43,6 +46,7 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 
 	private SelectionDialog fOpenTypeDialog;
 	private Shell fShell;
+	private int fNextPattern;
 
 	private static class MyTestSetup extends TestSetup {
 		private SWTTestProject fTestProject;
@@ -75,6 +79,7 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 					"testWarmException",
 					"testWarmException10",
 					"testWarmS10",
+					"testWarmRefine10",
 					"testWarmOpenSWT",
 					"testWarmOpenSWTHistory10",
 				});
@@ -145,6 +150,19 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 		}
 	}
 
+	public void testWarmRefine10() throws Exception {
+		//warm, repeated, refine and widen the pattern in an open dialog
+		joinBackgroudActivities();
+		try {
+			for (int i= 0; i < 10; i++) {
+				measureOpenTypeRefine(new String[] { "S", "Sh", "She", "Shell", "She", "Sh", "S", "E", "Ev", "Eve", "Event", "E" });
+			}
+		} finally {
+			commitMeasurements();
+			assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+		}
+	}
+
 	public void testWarmOpenSWT() throws Exception {
 		//warm, add SWT to history
 		joinBackgroudActivities();
@@ -218,6 +236,83 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 		}
 	}
 
+	/**
+	 * Opens the dialog with the first pattern, and types the next pattern into the pattern
+	 * field whenever the result of the previous pattern has been selected.
+	 *
+	 * @param patterns the patterns, must not be empty
+	 * @throws Exception if the dialog fails
+	 */
+	private void measureOpenTypeRefine(final String[] patterns) throws Exception {
+		fShell= JavaPlugin.getActiveWorkbenchShell();
+		fNextPattern= 1;
+
+		startMeasuring();
+
+		fOpenTypeDialog= JavaUI.createTypeDialog(
+				fShell,
+				JavaPlugin.getActiveWorkbenchWindow(),
+				SearchEngine.createWorkspaceScope(),
+				IJavaElementSearchConstants.CONSIDER_ALL_TYPES,
+				false,
+				patterns[0],
+				new TypeSelectionExtension() {
+					@Override
+					public ISelectionStatusValidator getSelectionValidator() {
+						return new ISelectionStatusValidator() {
+							@Override
+							public IStatus validate(Object[] selection) {
+								if (fOpenTypeDialog != null && fNextPattern < patterns.length) {
+									final Text patternText= findText(fOpenTypeDialog.getShell());
+									final String pattern= patterns[fNextPattern++];
+									fShell.getDisplay().asyncExec(new Runnable() {
+										@Override
+										public void run() {
+											if (!patternText.isDisposed())
+												patternText.setText(pattern);
+										}
+									});
+								} else {
+									finish(false);
+								}
+								return Status.OK_STATUS;
+							}
+						};
+					}
+				});
+
+		try {
+			fOpenTypeDialog.setBlockOnOpen(false);
+			fOpenTypeDialog.open();
+			new DisplayHelper() {
+				@Override
+				protected boolean condition() {
+					return fOpenTypeDialog == null;
+				}
+			}.waitForCondition(fShell.getDisplay(), 60 * 1000, 10 * 1000);
+
+		} finally {
+			if (fOpenTypeDialog != null) {
+				finish(false);
+				fail("took too long");
+			}
+		}
+	}
+
+	private static Text findText(Composite composite) {
+		Control[] children= composite.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (children[i] instanceof Text)
+				return (Text) children[i];
+			if (children[i] instanceof Composite) {
+				Text text= findText((Composite) children[i]);
+				if (text != null)
+					return text;
+			}
+		}
+		return null;
+	}
+
 	private void finish(final boolean openFirst) {
 		final SelectionDialog openTypeDialog= fOpenTypeDialog;
 		fOpenTypeDialog= null;
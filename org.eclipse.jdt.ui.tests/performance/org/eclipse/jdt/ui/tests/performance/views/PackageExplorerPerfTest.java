@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,12 @@ import junit.framework.TestSuite;
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.JavaTestPlugin;
 import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.TreeItem;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -53,6 +59,7 @@ public class PackageExplorerPerfTest extends JdtPerformanceTestCase {
 		public static final String SRC_CONTAINER= "src";
 
 		public static IJavaProject fJProject1;
+		public static IPackageFragmentRoot fRtRoot;
 
 		public MyTestSetup(Test test) {
 			super(test);
@@ -61,7 +68,8 @@ public class PackageExplorerPerfTest extends JdtPerformanceTestCase {
 		protected void setUp() throws Exception {
 			fJProject1= JavaProjectHelper.createJavaProject("Testing", "bin");
 			// we must make sure that the performance test are compatible to 2.1.3 & 3.0 so use rt13
-			assertTrue("rt not found", JavaProjectHelper.addRTJar13(fJProject1) != null);
+			fRtRoot= JavaProjectHelper.addRTJar13(fJProject1);
+			assertTrue("rt not found", fRtRoot != null);
 			File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
 			JavaProjectHelper.addSourceContainerWithImport(fJProject1, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
 		}
@@ -74,7 +82,7 @@ public class PackageExplorerPerfTest extends JdtPerformanceTestCase {
 
 	public static Test suite() {
 		TestSuite suite= new OrderedTestSuite(PackageExplorerPerfTest.class, new String[] {
-			"testOpen", "testSelect", "testExpand",
+			"testOpen", "testSelect", "testExpand", "testExpandArchive",
 			"testRefreshClassFolder"
 		});
 		return new MyTestSetup(suite);
@@ -116,6 +124,27 @@ public class PackageExplorerPerfTest extends JdtPerformanceTestCase {
 		finishMeasurements();
 	}
 
+	public void testExpandArchive() throws Exception {
+		joinBackgroudActivities();
+		TreeViewer viewer= getViewer();
+		viewer.reveal(MyTestSetup.fRtRoot);
+		MyTestSetup.fRtRoot.close();
+		TreeItem item= (TreeItem) viewer.testFindItem(MyTestSetup.fRtRoot);
+		assertNotNull(item);
+		Event event= new Event();
+		event.item= item;
+		startMeasuring();
+		item.getParent().notifyListeners(SWT.Expand, event);
+		item.setExpanded(true);
+		stopMeasuring();
+		commitMeasurements();
+		// the archive is opened in the background, expanding it must not block the display thread
+		Performance.getDefault().assertPerformanceInAbsoluteBand(fPerformanceMeter, Dimension.ELAPSED_PROCESS, 0, 100);
+
+		joinBackgroudActivities();
+		assertTrue(item.getItemCount() > 1);
+	}
+
 	// test for Bug 311212: [package explorer] Performance problem with refreshing external class folders
 	public void testRefreshClassFolder() throws Throwable {
 		// Import rtstubs a few times. Caveat: Only import class files, but not META-INF.
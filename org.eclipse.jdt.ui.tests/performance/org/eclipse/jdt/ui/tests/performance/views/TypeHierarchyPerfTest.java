@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,6 +35,7 @@ import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.typehierarchy.SubtypeCache;
 import org.eclipse.jdt.internal.ui.typehierarchy.TypeHierarchyViewPart;
 import org.eclipse.jdt.internal.ui.util.OpenTypeHierarchyUtil;
 
@@ -73,6 +74,8 @@ public class TypeHierarchyPerfTest extends JdtPerformanceTestCase {
 					"testOpenObjectHierarchy",
 					"testOpenCollHierarchy",
 					"testOpenObjectHierarchy2",
+					"testOpenSerializableHierarchyLazy",
+					"testOpenSerializableHierarchyLazy2",
 				});
 		return new MyTestSetup(testSuite);
 	}
@@ -127,6 +130,51 @@ public class TypeHierarchyPerfTest extends JdtPerformanceTestCase {
 		assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
 	}
 
+	public void testOpenSerializableHierarchyLazy() throws Exception {
+		//cold, subtypes computed on demand
+		IJavaElement element= MyTestSetup.fJProject1.findType("java.io.Serializable");
+		IWorkbenchWindow workbenchWindow= JavaPlugin.getActiveWorkbenchWindow();
+
+		TypeHierarchyViewPart viewPart= OpenTypeHierarchyUtil.open(MyTestSetup.fJProject1.findType("java.lang.String"), workbenchWindow);
+		viewPart.setLazySubtypes(true);
+		try {
+			SubtypeCache.getDefault().clear();
+			measureOpenHierarchy(element);
+			Performance.getDefault().assertPerformanceInAbsoluteBand(fPerformanceMeter, Dimension.ELAPSED_PROCESS, 0, 1000);
+		} finally {
+			viewPart= OpenTypeHierarchyUtil.open(element, workbenchWindow);
+			viewPart.setLazySubtypes(false);
+		}
+	}
+
+	public void testOpenSerializableHierarchyLazy2() throws Exception {
+		//warm, the subtypes are cached across re-opens of the view
+		IJavaElement element= MyTestSetup.fJProject1.findType("java.io.Serializable");
+		IWorkbenchWindow workbenchWindow= JavaPlugin.getActiveWorkbenchWindow();
+
+		TypeHierarchyViewPart viewPart= OpenTypeHierarchyUtil.open(element, workbenchWindow);
+		viewPart.setLazySubtypes(true);
+		try {
+			for (int i= 0; i < 10; i++) {
+				viewPart.setInputElement(MyTestSetup.fJProject1.findType("java.lang.String"));
+				viewPart.getSite().getPage().hideView(viewPart);
+
+				joinBackgroudActivities();
+				SubtypeCache.getDefault().resetCounters();
+				startMeasuring();
+				viewPart= OpenTypeHierarchyUtil.open(element, workbenchWindow);
+				stopMeasuring();
+				joinBackgroudActivities();
+				assertEquals(0, SubtypeCache.getDefault().getSearchCount());
+			}
+
+			commitMeasurements();
+			assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+		} finally {
+			viewPart.setLazySubtypes(false);
+		}
+	}
+
 	private void measureOpenHierarchy(IJavaElement element) throws Exception {
 		IWorkbenchWindow activeWorkbenchWindow= JavaPlugin.getActiveWorkbenchWindow();
 		joinBackgroudActivities();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -20,12 +26,16 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IInitializer;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallGraphExporter;
 import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerMethodWrapper;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 
 import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyTestHelper;
@@ -92,6 +102,116 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedSecondLevelMethods, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testExpandCallers() throws Exception {
+        helper.createSimpleClasses();
+
+        CallerMethodWrapper wrapper= (CallerMethodWrapper) getSingleCallerRoot(helper.getMethod1());
+        CallHierarchy.getDefault().expandCallers(new CallerMethodWrapper[] { wrapper }, 3, new NullProgressMonitor());
+
+        MethodWrapper[] calls= wrapper.getCalls(new NullProgressMonitor());
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, calls);
+
+        MethodWrapper method2Wrapper= helper.findMethodWrapper(helper.getMethod2(), calls);
+        helper.assertCalls(new IMember[] { helper.getMethod3() }, method2Wrapper.getCalls(new NullProgressMonitor()));
+
+        MethodWrapper method3Wrapper= helper.findMethodWrapper(helper.getMethod3(), calls);
+        MethodWrapper[] method3Calls= method3Wrapper.getCalls(new NullProgressMonitor());
+        helper.assertCalls(new IMember[] { helper.getMethod4() }, method3Calls);
+
+        helper.assertCalls(new IMember[0], method3Calls[0].getCalls(new NullProgressMonitor()));
+    }
+
+    private static Set<String> readEdges(byte[] bytes, boolean callers) throws Exception {
+        DataInputStream input= new DataInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(CallGraphExporter.MAGIC, input.readInt());
+        assertEquals(CallGraphExporter.VERSION, input.readInt());
+        assertEquals(callers, input.readBoolean());
+        input.readInt();
+        List<String> nodes= new ArrayList<>();
+        Set<String> edges= new HashSet<>();
+        while (true) {
+            byte tag= input.readByte();
+            if (tag == CallGraphExporter.TAG_STRING) {
+                nodes.add(input.readUTF());
+            } else if (tag == CallGraphExporter.TAG_ROOT) {
+                input.readInt();
+            } else if (tag == CallGraphExporter.TAG_EDGE) {
+                String caller= nodes.get(input.readInt());
+                String callee= nodes.get(input.readInt());
+                assertTrue(input.readInt() > 0);
+                edges.add(caller + " -> " + callee);
+            } else {
+                assertEquals(CallGraphExporter.TAG_END, tag);
+                assertEquals(nodes.size(), input.readInt());
+                assertEquals(edges.size(), input.readInt());
+                return edges;
+            }
+        }
+    }
+
+    private static String edge(IMember caller, IMember callee) {
+        return caller.getHandleIdentifier() + " -> " + callee.getHandleIdentifier();
+    }
+
+    public void testExportCallers() throws Exception {
+        helper.createSimpleClasses();
+
+        ByteArrayOutputStream output= new ByteArrayOutputStream();
+        new CallGraphExporter(true, 5).export(new IMember[] { helper.getMethod1() }, output, new NullProgressMonitor());
+
+        Set<String> expected= new HashSet<>();
+        expected.add(edge(helper.getMethod2(), helper.getMethod1()));
+        expected.add(edge(helper.getMethod3(), helper.getMethod1()));
+        expected.add(edge(helper.getMethod3(), helper.getMethod2()));
+        expected.add(edge(helper.getMethod4(), helper.getMethod3()));
+        assertEquals(expected, readEdges(output.toByteArray(), true));
+    }
+
+    public void testExportCallees() throws Exception {
+        helper.createSimpleClasses();
+
+        ByteArrayOutputStream output= new ByteArrayOutputStream();
+        new CallGraphExporter(false, 1).export(new IMember[] { helper.getMethod4() }, output, new NullProgressMonitor());
+
+        Set<String> expected= new HashSet<>();
+        expected.add(edge(helper.getMethod4(), helper.getMethod3()));
+        assertEquals(expected, readEdges(output.toByteArray(), false));
+    }
+
+    public void testCallersAfterChange() throws Exception {
+        helper.createSimpleClasses();
+
+        MethodWrapper wrapper= getSingleCallerRoot(helper.getMethod4());
+        helper.assertCalls(new IMember[0], wrapper.getCalls(new NullProgressMonitor()));
+
+        IMethod method5= helper.getType2().createMethod("public void method5() { method4(); }\n", null, true, null);
+
+        wrapper= getSingleCallerRoot(helper.getMethod4());
+        helper.assertCalls(new IMember[] { method5 }, wrapper.getCalls(new NullProgressMonitor()));
+    }
+
+    public void testCallersAfterWorkingCopyChange() throws Exception {
+        helper.createSimpleClasses();
+
+        MethodWrapper wrapper= getSingleCallerRoot(helper.getMethod4());
+        helper.assertCalls(new IMember[0], wrapper.getCalls(new NullProgressMonitor()));
+
+        // unsaved changes are found once they are reconciled
+        ICompilationUnit cu= helper.getType2().getCompilationUnit();
+        cu.becomeWorkingCopy(null);
+        try {
+            IBuffer buffer= cu.getBuffer();
+            buffer.replace(buffer.getContents().lastIndexOf('}'), 0, "public void method5() { method4(); }\n");
+            cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+
+            wrapper= getSingleCallerRoot(helper.getMethod4());
+            IMethod method5= helper.getType2().getMethod("method5", new String[0]);
+            helper.assertCalls(new IMember[] { method5 }, wrapper.getCalls(new NullProgressMonitor()));
+        } finally {
+            cu.discardWorkingCopy();
+        }
+    }
+
     public void testCallersNoResults() throws Exception {
         helper.createSimpleClasses();
 
@@ -134,6 +254,18 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedMethodsTo3, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testCalleesAfterChange() throws Exception {
+        helper.createSimpleClasses();
+
+        MethodWrapper wrapper= getSingleCalleeRoot(helper.getMethod3());
+        helper.assertCalls(new IMember[] { helper.getMethod1(), helper.getMethod2() }, wrapper.getCalls(new NullProgressMonitor()));
+
+        IMethod method5= helper.getType2().createMethod("public void method5() { method4(); method3(); }\n", null, true, null);
+
+        wrapper= getSingleCalleeRoot(method5);
+        helper.assertCalls(new IMember[] { helper.getMethod4(), helper.getMethod3() }, wrapper.getCalls(new NullProgressMonitor()));
+    }
+
     public void testCalleesNoResults() throws Exception {
         helper.createSimpleClasses();
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,6 +47,9 @@ public class CoreTests extends TestCase {
 		suite.addTest(ImportOrganizeTest18.suite());
 		suite.addTest(JavaElementLabelsTest.suite());
 		suite.addTest(JavaElementLabelsTest18.suite());
+		suite.addTest(JavaElementLabelCacheTest.suite());
+		suite.addTest(ProblemMarkerManagerTest.suite());
+		suite.addTest(JavadocContentCacheTest.suite());
 		suite.addTest(BindingLabelsTest.suite());
 		suite.addTest(BindingLabels18Test.suite());
 		suite.addTest(JavaElementPropertyTesterTest.suite());
@@ -61,6 +64,7 @@ public class CoreTests extends TestCase {
 		suite.addTest(TypeHierarchyTest.suite());
 		suite.addTest(TypeRulesTest.suite());
 		suite.addTest(TypeInfoTest.suite());
+		suite.addTest(TypeNameIndexTest.suite());
 		suite.addTest(StringsTest.suite());
 		suite.addTest(IndentManipulationTest.suite());
 		suite.addTest(SelectionHistoryTest.suite());
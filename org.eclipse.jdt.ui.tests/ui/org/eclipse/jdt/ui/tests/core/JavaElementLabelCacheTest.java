@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+
+import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLabelCache;
+
+
+public class JavaElementLabelCacheTest extends CoreTests {
+
+	private static final Class<JavaElementLabelCacheTest> THIS= JavaElementLabelCacheTest.class;
+
+	private static final long FLAGS= JavaElementLabels.M_PARAMETER_TYPES | JavaElementLabels.M_APP_RETURNTYPE;
+
+	private IJavaProject fJProject1;
+
+	public JavaElementLabelCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		JavaElementLabelCache.getDefault().clear();
+		JavaElementLabelCache.getDefault().resetCounters();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit createOuter(String returnType) throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= sourceFolder.createPackageFragment("org.test", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.test;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    public " + returnType + " foo(int i) {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		return pack1.createCompilationUnit("Outer.java", buf.toString(), false, null);
+	}
+
+	public void testLabelIsCached() throws Exception {
+		ICompilationUnit cu= createOuter("void");
+		IMethod method= cu.getType("Outer").getMethod("foo", new String[] { "I" });
+
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		assertEqualString(cache.getTextLabel(method, FLAGS), "foo(int) : void");
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+
+		assertEqualString(cache.getTextLabel(method, FLAGS), "foo(int) : void");
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		// other flags are a different entry
+		assertEqualString(cache.getTextLabel(method, JavaElementLabels.M_PARAMETER_TYPES), "foo(int)");
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testLabelInvalidatedByChange() throws Exception {
+		ICompilationUnit cu= createOuter("void");
+		IMethod method= cu.getType("Outer").getMethod("foo", new String[] { "I" });
+
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		assertEqualString(cache.getTextLabel(method, FLAGS), "foo(int) : void");
+
+		String content= cu.getSource().replace("void", "int");
+		cu.getBuffer().setContents(content);
+		cu.save(null, true);
+
+		assertEqualString(cache.getTextLabel(method, FLAGS), "foo(int) : int");
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testStyledLabelIsCopied() throws Exception {
+		ICompilationUnit cu= createOuter("void");
+		IMethod method= cu.getType("Outer").getMethod("foo", new String[] { "I" });
+
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		cache.getStyledTextLabel(method, FLAGS).append(" - modified");
+		assertEqualString(cache.getStyledTextLabel(method, FLAGS).getString(), "foo(int) : void");
+		assertEquals(1, cache.getHitCount());
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
+
+
+public class JavadocContentCacheTest extends CoreTests {
+
+	private static final Class<JavadocContentCacheTest> THIS= JavadocContentCacheTest.class;
+
+	private IJavaProject fJProject1;
+
+	public JavadocContentCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		JavadocContentCache.getDefault().clear();
+		JavadocContentCache.getDefault().resetCounters();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit createOuter(String comment) throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= sourceFolder.createPackageFragment("org.test", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.test;\n");
+		buf.append("public class Outer {\n");
+		buf.append("    /** " + comment + " */\n");
+		buf.append("    public void foo(int i) {\n");
+		buf.append("    }\n");
+		buf.append("    public void bar() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		return pack1.createCompilationUnit("Outer.java", buf.toString(), false, null);
+	}
+
+	public void testContentIsCached() throws Exception {
+		ICompilationUnit cu= createOuter("Does foo.");
+		IMethod method= cu.getType("Outer").getMethod("foo", new String[] { "I" });
+
+		JavadocContentCache cache= JavadocContentCache.getDefault();
+		String content= cache.getHTMLContent(method, true);
+		assertTrue(content, content.indexOf("Does foo.") != -1);
+		assertEquals(1, cache.getMissCount());
+		assertTrue(cache.isCached(method, true));
+		assertFalse(cache.isCached(method, false));
+
+		assertSame(content, cache.getHTMLContent(method, true));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	public void testMissingJavadocIsCached() throws Exception {
+		ICompilationUnit cu= createOuter("Does foo.");
+		IMethod method= cu.getType("Outer").getMethod("bar", new String[0]);
+
+		JavadocContentCache cache= JavadocContentCache.getDefault();
+		assertNull(cache.getHTMLContent(method, true));
+		assertNull(cache.getHTMLContent(method, true));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	public void testContentInvalidatedByChange() throws Exception {
+		ICompilationUnit cu= createOuter("Does foo.");
+		IMethod method= cu.getType("Outer").getMethod("foo", new String[] { "I" });
+
+		JavadocContentCache cache= JavadocContentCache.getDefault();
+		assertTrue(cache.getHTMLContent(method, true).indexOf("Does foo.") != -1);
+
+		String content= cu.getSource().replace("Does foo.", "Does nothing.");
+		cu.getBuffer().setContents(content);
+		cu.save(null, true);
+
+		assertFalse(cache.isCached(method, true));
+		assertTrue(cache.getHTMLContent(method, true).indexOf("Does nothing.") != -1);
+		assertEquals(2, cache.getMissCount());
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.util.DisplayHelper;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerManager;
+
+public class ProblemMarkerManagerTest extends TestCase {
+
+	private static final Class<ProblemMarkerManagerTest> THIS= ProblemMarkerManagerTest.class;
+
+	private static final class Listener implements IProblemChangedListener {
+		final List<IResource[]> fMarkerChanges= new ArrayList<>();
+
+		@Override
+		public void problemsChanged(IResource[] changedResources, boolean isMarkerChange) {
+			if (isMarkerChange)
+				fMarkerChanges.add(changedResources);
+		}
+	}
+
+	private IProject fProject;
+	private ProblemMarkerManager fManager;
+	private Listener fListener;
+
+	public ProblemMarkerManagerTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject("TestProject1");
+		fProject.create(null);
+		fProject.open(null);
+		fManager= new ProblemMarkerManager();
+		fListener= new Listener();
+		fManager.addListener(fListener);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fManager.removeListener(fListener);
+		JavaProjectHelper.delete(fProject);
+	}
+
+	private IFile createFile(String name) throws CoreException {
+		IFile file= fProject.getFile(name);
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		return file;
+	}
+
+	private static IMarker createProblem(IResource resource, int severity) throws CoreException {
+		IMarker marker= resource.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	private void waitForNotifications(long millis) {
+		final Display display= Display.getDefault();
+		new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return false;
+			}
+		}.waitForCondition(display, millis);
+	}
+
+	public void testNotificationsAreBatched() throws Exception {
+		IFile file1= createFile("a.txt");
+		IFile file2= createFile("b.txt");
+		IFile file3= createFile("c.txt");
+		fManager.setNotificationLatency(ProblemMarkerManager.DEFAULT_NOTIFICATION_LATENCY);
+		waitForNotifications(ProblemMarkerManager.DEFAULT_NOTIFICATION_LATENCY * 5);
+		fListener.fMarkerChanges.clear();
+
+		createProblem(file1, IMarker.SEVERITY_ERROR);
+		createProblem(file2, IMarker.SEVERITY_WARNING);
+		createProblem(file3, IMarker.SEVERITY_ERROR);
+		waitForNotifications(ProblemMarkerManager.DEFAULT_NOTIFICATION_LATENCY * 5);
+
+		assertEquals(1, fListener.fMarkerChanges.size());
+		List<IResource> changed= Arrays.asList(fListener.fMarkerChanges.get(0));
+		assertTrue(changed.contains(file1));
+		assertTrue(changed.contains(file2));
+		assertTrue(changed.contains(file3));
+		assertTrue(changed.contains(fProject));
+	}
+
+	public void testSeverityCache() throws Exception {
+		IFile file= createFile("a.txt");
+		assertEquals(-1, fManager.findMaxProblemSeverity(file, IResource.DEPTH_ZERO));
+		assertEquals(-1, fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+
+		// cached severities are updated by the marker changes
+		IMarker warning= createProblem(file, IMarker.SEVERITY_WARNING);
+		assertEquals(IMarker.SEVERITY_WARNING, fManager.findMaxProblemSeverity(file, IResource.DEPTH_ZERO));
+		assertEquals(IMarker.SEVERITY_WARNING, fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+		assertEquals(-1, fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_ZERO));
+
+		IMarker error= createProblem(file, IMarker.SEVERITY_ERROR);
+		assertEquals(IMarker.SEVERITY_ERROR, fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+
+		error.delete();
+		assertEquals(IMarker.SEVERITY_WARNING, fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+		warning.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		assertEquals(IMarker.SEVERITY_ERROR, fManager.findMaxProblemSeverity(file, IResource.DEPTH_ZERO));
+
+		// closing the project drops its cached severities
+		fProject.close(null);
+		try {
+			fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE);
+			fail("severity of a closed project");
+		} catch (CoreException e) {
+			// expected
+		}
+		fProject.open(null);
+		assertEquals(fProject.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE), fManager.findMaxProblemSeverity(fProject, IResource.DEPTH_INFINITE));
+	}
+}
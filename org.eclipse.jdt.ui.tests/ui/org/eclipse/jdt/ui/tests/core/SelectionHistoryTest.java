@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,20 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.File;
 import java.text.Collator;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.w3c.dom.Element;
 
 import org.eclipse.jdt.internal.corext.util.History;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -131,6 +137,102 @@ public class SelectionHistoryTest extends TestCase {
 
 	}
 
+	private static final String PERSISTENT_HISTORY_FILE= "SelectionHistoryTest.xml";
+
+	private static final class PersistentTestHistory extends History<String, String> {
+		/** The objects created from elements and not discarded */
+		private final Set<String> fCreated= new HashSet<>();
+
+		public PersistentTestHistory() {
+			super(PERSISTENT_HISTORY_FILE);
+			load();
+		}
+		@Override
+		protected void setAttributes(Object object, Element element) {
+			element.setAttribute("name", (String) object);
+		}
+		@Override
+		protected String createFromElement(Element element) {
+			String name= element.getAttribute("name");
+			fCreated.add(name);
+			return name;
+		}
+		@Override
+		protected void discarded(String object) {
+			fCreated.remove(object);
+		}
+		@Override
+		protected String getKey(String object) {return object;}
+
+	}
+
+	private static File getJournalFile() {
+		return JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest.bin").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getJournalFile().delete();
+		super.tearDown();
+	}
+
+	public void testPersistentHistory() throws Exception {
+		getJournalFile().delete();
+		History<String, String> history= new PersistentTestHistory();
+		history.accessed("a");
+		history.accessed("b");
+		history.accessed("c");
+		history.save();
+		long length= getJournalFile().length();
+
+		history= new PersistentTestHistory();
+		assertEquals(0, history.getPosition("a"));
+		assertEquals(1, history.getPosition("b"));
+		assertEquals(2, history.getPosition("c"));
+
+		history.remove("b");
+		history.accessed("a");
+		history.save();
+		assertTrue("journal not appended", getJournalFile().length() > length);
+
+		history= new PersistentTestHistory();
+		assertFalse(history.containsKey("b"));
+		assertEquals(0, history.getPosition("c"));
+		assertEquals(1, history.getPosition("a"));
+	}
+
+	public void testPersistentHistoryDiscardsRemoved() throws Exception {
+		getJournalFile().delete();
+		PersistentTestHistory history= new PersistentTestHistory();
+		history.accessed("a");
+		history.accessed("b");
+		history.save();
+		history.remove("b");
+		history.save();
+
+		history= new PersistentTestHistory();
+		assertTrue(history.containsKey("a"));
+		assertFalse(history.containsKey("b"));
+		assertEquals(Collections.singleton("a"), history.fCreated);
+	}
+
+	public void testPersistentHistoryCompaction() throws Exception {
+		getJournalFile().delete();
+		History<String, String> history= new PersistentTestHistory();
+		for (int i= 0; i < 1000; i++) {
+			history.accessed(String.valueOf(i % 10));
+			if (i % 50 == 0)
+				history.save();
+		}
+		history.save();
+		assertTrue("journal not compacted", getJournalFile().length() < 10000);
+
+		history= new PersistentTestHistory();
+		for (int i= 0; i < 10; i++) {
+			assertEquals(i, history.getPosition(String.valueOf(i)));
+		}
+	}
+
 	public void testOrganizeImportHistory01() throws Exception {
 		History<String, String> history= new TestHistory();
 		Comparator<String> comparator= new TestHistoryComparator(history);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -34,6 +38,7 @@ import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.typehierarchy.SubtypeCache;
 
 
 public class TypeHierarchyTest extends TestCase {
@@ -291,7 +296,50 @@ public class TypeHierarchyTest extends TestCase {
 
 	}
 
+	private static void assertSubtypes(IType type, IType[] expected) throws Exception {
+		IType[] subtypes= SubtypeCache.getDefault().getSubtypes(type, null);
+		assertEquals(type.getElementName(), new HashSet<>(Arrays.asList(expected)), new HashSet<>(Arrays.asList(subtypes)));
+	}
 
+	public void testLazySubtypes() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
 
+		IType a= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType b= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+		IType c= pack1.getCompilationUnit("C.java").createType("public class C extends pack1.B {\n}\n", null, true, null);
+		IType i= pack1.getCompilationUnit("I.java").createType("public interface I {\n}\n", null, true, null);
+		IType d= pack1.getCompilationUnit("D.java").createType("public class D implements I {\n}\n", null, true, null);
+		IType e= pack1.getCompilationUnit("E.java").createType("public class E extends A implements I {\n}\n", null, true, null);
+		IType j= pack1.getCompilationUnit("J.java").createType("public interface J extends I {\n}\n", null, true, null);
+		// references to A that don't make a subclass
+		pack1.getCompilationUnit("F.java").createType("public class F extends java.util.ArrayList<A> {\n\tA fA;\n}\n", null, true, null);
+
+		SubtypeCache.getDefault().clear();
+		assertSubtypes(a, new IType[] { b, e });
+		assertSubtypes(b, new IType[] { c });
+		assertSubtypes(c, new IType[0]);
+		assertSubtypes(i, new IType[] { d, e, j });
+	}
 
+	public void testLazySubtypesOfObject() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+
+		IType a= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType b= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+		IType c= pack1.getCompilationUnit("C.java").createType("public class C extends Object {\n}\n", null, true, null);
+		IType i= pack1.getCompilationUnit("I.java").createType("public interface I {\n}\n", null, true, null);
+		IType d= pack1.getCompilationUnit("D.java").createType("public class D implements I {\n}\n", null, true, null);
+
+		SubtypeCache.getDefault().clear();
+		IType object= fJavaProject1.findType("java.lang.Object");
+		List<IType> subtypes= Arrays.asList(SubtypeCache.getDefault().getSubtypes(object, null));
+		// classes with an implicit superclass have no reference to Object
+		assertTrue(subtypes.contains(a));
+		assertTrue(subtypes.contains(c));
+		assertTrue(subtypes.contains(d));
+		assertFalse(subtypes.contains(b));
+		assertFalse(subtypes.contains(i));
+	}
 }
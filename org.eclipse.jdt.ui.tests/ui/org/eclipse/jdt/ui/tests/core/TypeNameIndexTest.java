@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.ui.dialogs.TypeNameIndex;
+
+public class TypeNameIndexTest extends TestCase {
+
+	private static final Class<TypeNameIndexTest> THIS= TypeNameIndexTest.class;
+
+	private static final String[] NAMES= { "Alpha", "alphabet", "AlphaBeta", "ALPHAx", "AlBundy", "Beta", "Bet", "Gamma" };
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPack;
+	private IJavaSearchScope fScope;
+
+	public TypeNameIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new ProjectTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack= root.createPackageFragment("p", true, null);
+		for (int i= 0; i < NAMES.length; i++) {
+			fPack.createCompilationUnit(NAMES[i] + ".java", "package p;\npublic class " + NAMES[i] + " {\n}\n", true, null);
+		}
+		fScope= SearchEngine.createJavaSearchScope(new IJavaElement[] { root });
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+	}
+
+	private static List<String> getNames(TypeNameIndex.Candidates candidates) {
+		List<String> names= new ArrayList<>();
+		while (candidates.next()) {
+			names.add(candidates.getSimpleTypeName());
+		}
+		return names;
+	}
+
+	private void assertCandidates(TypeNameIndex index, String pattern, int matchRule, String[] expected) {
+		TypeNameIndex.Candidates candidates= index.getCandidates(pattern, matchRule);
+		assertEquals(pattern, expected.length, candidates.size());
+		assertEquals(pattern, Arrays.asList(expected), getNames(candidates));
+	}
+
+	private static void assertMatch(TypeNameIndex index, TypeNameMatch expected) {
+		String name= expected.getFullyQualifiedName();
+		// the candidates of a pattern are all names with its prefix
+		TypeNameIndex.Candidates candidates= index.getCandidates(expected.getSimpleTypeName(), SearchPattern.R_EXACT_MATCH);
+		do {
+			assertTrue(name, candidates.next());
+		} while (!name.equals(candidates.getFullyQualifiedName()));
+		assertEquals(name, expected.getSimpleTypeName(), candidates.getSimpleTypeName());
+		assertEquals(name, expected.getPackageName(), candidates.getPackageName());
+		assertEquals(name, expected.getTypeQualifiedName(), candidates.getTypeQualifiedName());
+		assertEquals(name, expected.getTypeContainerName(), candidates.getTypeContainerName());
+		assertEquals(name, expected.getFullyQualifiedName(), candidates.getFullyQualifiedName());
+		assertEquals(name, expected.getPackageFragmentRoot(), candidates.getPackageFragmentRoot());
+		assertEquals(name, expected.getModifiers(), candidates.getModifiers());
+		assertEquals(name, expected.getAccessibility(), candidates.getAccessibility());
+		assertEquals(name, expected.getType(), candidates.getType());
+		assertEquals(name, expected, candidates.createMatch());
+	}
+
+	public void testCandidates() throws Exception {
+		TypeNameIndex index= TypeNameIndex.create(fScope, IJavaSearchConstants.TYPE, null);
+		assertEquals(NAMES.length, index.size());
+
+		// all names, sorted case-insensitively
+		assertCandidates(index, "", SearchPattern.R_PREFIX_MATCH,
+				new String[] { "AlBundy", "Alpha", "alphabet", "AlphaBeta", "ALPHAx", "Bet", "Beta", "Gamma" });
+		assertCandidates(index, "alpha", SearchPattern.R_PREFIX_MATCH,
+				new String[] { "Alpha", "alphabet", "AlphaBeta", "ALPHAx" });
+		assertCandidates(index, "alphab", SearchPattern.R_PREFIX_MATCH,
+				new String[] { "alphabet", "AlphaBeta" });
+		assertCandidates(index, "Beta", SearchPattern.R_EXACT_MATCH,
+				new String[] { "Beta" });
+		assertCandidates(index, "x", SearchPattern.R_PREFIX_MATCH,
+				new String[0]);
+	}
+
+	public void testPatternCandidates() throws Exception {
+		TypeNameIndex index= TypeNameIndex.create(fScope, IJavaSearchConstants.TYPE, null);
+
+		// narrowed by the literal prefix of the pattern
+		assertCandidates(index, "Be*a", SearchPattern.R_PATTERN_MATCH,
+				new String[] { "Bet", "Beta" });
+		assertCandidates(index, "*a", SearchPattern.R_PATTERN_MATCH,
+				new String[] { "AlBundy", "Alpha", "alphabet", "AlphaBeta", "ALPHAx", "Bet", "Beta", "Gamma" });
+		// camel case patterns only fix the first character
+		assertCandidates(index, "AB", SearchPattern.R_CAMELCASE_MATCH,
+				new String[] { "AlBundy", "Alpha", "alphabet", "AlphaBeta", "ALPHAx" });
+	}
+
+	public void testMatches() throws Exception {
+		fPack.createCompilationUnit("Outer.java", "package p;\npublic class Outer {\n\tpublic static class Inner {\n\t\tinterface Innermost {}\n\t}\n}\nclass Secondary {\n}\n", true, null);
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB);
+		assertTrue("lib does not exist", lib != null && lib.exists());
+		IPackageFragmentRoot libRoot= JavaProjectHelper.addLibraryWithImport(fJProject1, Path.fromOSString(lib.getPath()), null, null);
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { fPack.getParent(), libRoot });
+
+		final List<TypeNameMatch> matches= new ArrayList<>();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, null, SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE, scope, new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				matches.add(match);
+			}
+		}, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		// the types of the source folder, the member and secondary types, and the types of the library
+		assertEquals(NAMES.length + 4 + JavaProjectHelper.COUNT_CLASSES_MYLIB, matches.size());
+
+		TypeNameIndex index= TypeNameIndex.create(scope, IJavaSearchConstants.TYPE, null);
+		assertEquals(matches.size(), index.size());
+		for (int i= 0; i < matches.size(); i++) {
+			assertMatch(index, matches.get(i));
+		}
+	}
+
+	public void testIndexIsKept() throws Exception {
+		TypeNameIndex index= TypeNameIndex.create(fScope, IJavaSearchConstants.TYPE, null);
+		assertSame(index, TypeNameIndex.getIndex(fScope, IJavaSearchConstants.TYPE));
+		assertNull(TypeNameIndex.getIndex(fScope, IJavaSearchConstants.CLASS));
+
+		// changes inside of types keep the index
+		ICompilationUnit cu= fPack.getCompilationUnit("Gamma.java");
+		cu.becomeWorkingCopy(null);
+		try {
+			cu.getBuffer().setContents("package p;\npublic class Gamma {\n\tvoid foo() {}\n}\n");
+			cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+		} finally {
+			cu.discardWorkingCopy();
+		}
+		assertSame(index, TypeNameIndex.getIndex(fScope, IJavaSearchConstants.TYPE));
+
+		// new types drop it
+		fPack.createCompilationUnit("Delta.java", "package p;\npublic class Delta {\n}\n", true, null);
+		assertNull(TypeNameIndex.getIndex(fScope, IJavaSearchConstants.TYPE));
+		index= TypeNameIndex.create(fScope, IJavaSearchConstants.TYPE, null);
+		assertCandidates(index, "d", SearchPattern.R_PREFIX_MATCH, new String[] { "Delta" });
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -43,6 +43,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerContentProvider;
 import org.eclipse.jdt.internal.ui.util.CoreUtility;
 import org.eclipse.jdt.internal.ui.wizards.buildpaths.CPListElement;
 
@@ -266,6 +267,36 @@ public class ContentProviderTests1 extends TestCase {
 		assertEquals("No refreshes", 0, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
 	}
 
+	public void testCoalesceUpdatesOfSeveralDeltas() throws Exception {
+		final IElementChangedListener listener= (IElementChangedListener) fProvider;
+		PackageExplorerContentProvider provider= (PackageExplorerContentProvider) fProvider;
+		provider.resetCounters();
+		fMyPart.clear();
+
+		//send the deltas from a background thread, like the Java model does
+		Thread thread= new Thread(new Runnable() {
+			@Override
+			public void run() {
+				IJavaElementDelta delta= TestDelta.createCUDelta(new ICompilationUnit[] { fCU2 }, fPack6, IJavaElementDelta.REMOVED);
+				listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+				delta= TestDelta.createCUDelta(new ICompilationUnit[] { fCU2, fCU3 }, fPack6, IJavaElementDelta.REMOVED);
+				listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+				delta= TestDelta.createCUDelta(new ICompilationUnit[] { fCU3 }, fPack6, IJavaElementDelta.REMOVED);
+				listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+			}
+		});
+		thread.start();
+		thread.join();
+		provider.runPendingUpdates();
+
+		// the removes are covered by the refresh
+		assertEquals("One refresh", 1, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
+		assertFalse("No remove happened", fMyPart.hasRemoveHappened()); //$NON-NLS-1$
+		assertEquals("Received deltas", 3, provider.getReceivedDeltaCount()); //$NON-NLS-1$
+		assertTrue("Posted updates", provider.getPostedUpdateCount() >= 3); //$NON-NLS-1$
+		assertEquals("Viewer operations", 1, provider.getViewerOperationCount()); //$NON-NLS-1$
+	}
+
 	public void testBug65240() throws Exception {
 		IClasspathEntry[] rawClasspath= fJProject2.getRawClasspath();
 		IClasspathEntry src1= rawClasspath[0];
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+/**
+ * Caches the callers found by {@link CallerMethodWrapper} across call hierarchy nodes and
+ * views. The results are kept per search scope and per member and search mode.
+ * <p>
+ * When compilation units change, including the unsaved changes of primary working copies
+ * reported on reconcile, the callers found in them are removed from the cached
+ * results, and the units are recorded as changed, so that only they have to be searched
+ * again, see {@link #getChangedUnits(IJavaSearchScope, String)}. Other changes that can
+ * add or remove references, e.g. classpath changes, and changes of the call hierarchy
+ * filters clear the cache.
+ * </p>
+ * <p>
+ * A result is only stored if no change has been reported since the corresponding search
+ * started, see {@link #getGeneration()}.
+ * </p>
+ */
+final class CallGraphCache {
+
+	private static final class Entry {
+		/** The callers by handle identifier */
+		final Map<String, MethodCall> fCallers;
+		/** The compilation units that changed since the callers were searched */
+		final Set<ICompilationUnit> fChangedUnits= new HashSet<>();
+
+		Entry(Map<String, MethodCall> callers) {
+			fCallers= new HashMap<>(callers);
+		}
+	}
+
+	/** Maximal number of members whose callers are cached per search scope */
+	private static final int MAX_ENTRIES= 2000;
+
+	private static final int CHANGE_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_MODIFIERS
+			| IJavaElementDelta.F_SUPER_TYPES | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	private static CallGraphCache fgInstance;
+
+	private final Map<IJavaSearchScope, Map<String, Entry>> fCallers= new WeakHashMap<>();
+	private long fGeneration;
+
+	private final IElementChangedListener fListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			Set<ICompilationUnit> units= new HashSet<>();
+			if (collectChangedUnits(event.getDelta(), units))
+				invalidate(units);
+			else
+				clear();
+		}
+	};
+
+	private CallGraphCache() {
+		// the search engine sees the content of primary working copies
+		JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	public static synchronized CallGraphCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new CallGraphCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Removes the cache and its element changed listener.
+	 */
+	static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fListener);
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * Returns the key for the callers of the given member.
+	 *
+	 * @param member the member
+	 * @param limitTo the search mode, see {@link org.eclipse.jdt.core.search.IJavaSearchConstants}
+	 * @return the key
+	 */
+	public static String getKey(IMember member, int limitTo) {
+		return member.getHandleIdentifier() + '|' + limitTo;
+	}
+
+	/**
+	 * Returns the generation of the cache. The generation changes whenever cached callers
+	 * get removed.
+	 *
+	 * @return the current generation
+	 */
+	public synchronized long getGeneration() {
+		return fGeneration;
+	}
+
+	/**
+	 * Returns the cached callers.
+	 *
+	 * @param scope the search scope
+	 * @param key the key, see {@link #getKey(IMember, int)}
+	 * @return a map from handle identifier to {@link MethodCall}, or <code>null</code>
+	 *  if the callers are not cached or compilation units have changed since they were
+	 *  searched
+	 */
+	public synchronized Map<String, MethodCall> get(IJavaSearchScope scope, String key) {
+		Entry entry= getEntry(scope, key);
+		return entry != null && entry.fChangedUnits.isEmpty() ? new HashMap<>(entry.fCallers) : null;
+	}
+
+	/**
+	 * Returns the compilation units that changed since the cached callers were searched.
+	 * The callers in these units have been removed from the cached result and can be
+	 * added again by {@link #update(IJavaSearchScope, String, ICompilationUnit[], Map, long)}.
+	 *
+	 * @param scope the search scope
+	 * @param key the key, see {@link #getKey(IMember, int)}
+	 * @return the changed compilation units, or <code>null</code> if the callers are not cached
+	 */
+	public synchronized ICompilationUnit[] getChangedUnits(IJavaSearchScope scope, String key) {
+		Entry entry= getEntry(scope, key);
+		return entry != null ? entry.fChangedUnits.toArray(new ICompilationUnit[entry.fChangedUnits.size()]) : null;
+	}
+
+	/**
+	 * Adds the callers found in changed compilation units to the cached callers, unless
+	 * cached callers have been removed in the meantime.
+	 *
+	 * @param scope the search scope
+	 * @param key the key, see {@link #getKey(IMember, int)}
+	 * @param units the searched compilation units, see {@link #getChangedUnits(IJavaSearchScope, String)}
+	 * @param result the callers found in <code>units</code>
+	 * @param generation the generation of the cache when the search started
+	 * @return all callers, or <code>null</code> if the cache has changed since the search started
+	 */
+	public synchronized Map<String, MethodCall> update(IJavaSearchScope scope, String key, ICompilationUnit[] units, Map<String, MethodCall> result, long generation) {
+		Entry entry= getEntry(scope, key);
+		if (generation != fGeneration || entry == null)
+			return null;
+		entry.fCallers.putAll(result);
+		for (int i= 0; i < units.length; i++) {
+			entry.fChangedUnits.remove(units[i]);
+		}
+		return new HashMap<>(entry.fCallers);
+	}
+
+	private Entry getEntry(IJavaSearchScope scope, String key) {
+		Map<String, Entry> entries= fCallers.get(scope);
+		return entries != null ? entries.get(key) : null;
+	}
+
+	/**
+	 * Stores callers in the cache, unless the cache has been cleared in the meantime.
+	 *
+	 * @param scope the search scope
+	 * @param key the key, see {@link #getKey(IMember, int)}
+	 * @param result a map from handle identifier to {@link MethodCall}
+	 * @param generation the generation of the cache when the search started
+	 */
+	public synchronized void put(IJavaSearchScope scope, String key, Map<String, MethodCall> result, long generation) {
+		if (generation != fGeneration)
+			return;
+		Map<String, Entry> entries= fCallers.get(scope);
+		if (entries == null) {
+			entries= new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+				private static final long serialVersionUID= 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+					return size() > MAX_ENTRIES;
+				}
+			};
+			fCallers.put(scope, entries);
+		}
+		entries.put(key, new Entry(result));
+	}
+
+	/**
+	 * Removes the callers in the given compilation units and records the units as changed.
+	 *
+	 * @param units the changed compilation units
+	 */
+	private synchronized void invalidate(Set<ICompilationUnit> units) {
+		if (units.isEmpty())
+			return;
+		for (Map.Entry<IJavaSearchScope, Map<String, Entry>> scopeEntries : fCallers.entrySet()) {
+			IJavaSearchScope scope= scopeEntries.getKey();
+			for (Entry entry : scopeEntries.getValue().values()) {
+				for (Iterator<MethodCall> iter= entry.fCallers.values().iterator(); iter.hasNext();) {
+					ICompilationUnit unit= iter.next().getMember().getCompilationUnit();
+					if (unit != null && units.contains(unit.getPrimary()))
+						iter.remove();
+				}
+				for (ICompilationUnit unit : units) {
+					if (scope.encloses(unit))
+						entry.fChangedUnits.add(unit);
+				}
+			}
+		}
+		fGeneration++;
+	}
+
+	/**
+	 * Removes all cached callers.
+	 */
+	public synchronized void clear() {
+		fCallers.clear();
+		fGeneration++;
+	}
+
+	/**
+	 * Collects the compilation units whose content changed.
+	 *
+	 * @param delta the delta
+	 * @param units the set to add the compilation units to
+	 * @return <code>false</code> if the delta contains changes other than changes of
+	 *  compilation units that can add or remove references
+	 */
+	private static boolean collectChangedUnits(IJavaElementDelta delta, Set<ICompilationUnit> units) {
+		IJavaElement element= delta.getElement();
+		if (element.getElementType() == IJavaElement.COMPILATION_UNIT) {
+			// the search engine only sees primary working copies
+			ICompilationUnit unit= (ICompilationUnit) element;
+			if (unit.getPrimary().equals(unit) && (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN)) != 0))
+				units.add(unit);
+			return true;
+		}
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CHANGE_FLAGS) != 0)
+			return false;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!collectChangedUnits(children[i], units))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the given delta can add or remove references between members.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if references may have changed
+	 */
+	static boolean affectsReferences(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CHANGE_FLAGS) != 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (affectsReferences(children[i]))
+				return true;
+		}
+		return false;
+	}
+}
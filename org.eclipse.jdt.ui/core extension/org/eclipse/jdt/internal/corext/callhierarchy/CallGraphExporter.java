@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+import org.eclipse.jdt.core.IMember;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Computes the transitive callers or callees of a set of members without building a call
+ * hierarchy tree, and streams the resulting graph to an output stream.
+ * <p>
+ * The graph is computed level by level. Every member is expanded at most once, so the
+ * result is a graph rather than a tree. The callers of one level are searched together
+ * by {@link CallerSearchBatch}, and the calls of the members of one level are computed by
+ * a bounded number of jobs.
+ * </p>
+ * <p>
+ * The stream is written with {@link DataOutputStream} and has the following format:
+ * </p>
+ * <pre>
+ * int     MAGIC
+ * int     VERSION
+ * boolean callers    (true if the callers have been computed, false for the callees)
+ * int     depth
+ * records, each starting with a byte tag:
+ *   TAG_STRING  UTF handle identifier of the next node. Nodes are numbered in the order
+ *               of their string records, starting with 0.
+ *   TAG_ROOT    int node
+ *   TAG_EDGE    int caller node, int callee node, int number of call locations
+ *   TAG_END     int number of nodes, int number of edges
+ * </pre>
+ * <p>
+ * A string record always precedes the first record referring to its node. Edges always
+ * point from the caller to the callee, regardless of the direction of the computation.
+ * </p>
+ */
+public final class CallGraphExporter {
+
+	/** The first int of the stream */
+	public static final int MAGIC= 0x4A434746;
+
+	/** The version of the stream format */
+	public static final int VERSION= 1;
+
+	public static final byte TAG_END= 0;
+	public static final byte TAG_STRING= 1;
+	public static final byte TAG_ROOT= 2;
+	public static final byte TAG_EDGE= 3;
+
+	private static final int MAX_WORKERS= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Computes the calls of the wrappers of one level, in worker jobs and in the calling
+	 * thread.
+	 */
+	private static final class LevelComputation {
+		private final MethodWrapper[] fWrappers;
+		private final MethodWrapper[][] fCalls;
+		private final IProgressMonitor fMonitor;
+		private int fNext;
+
+		LevelComputation(MethodWrapper[] wrappers, final IProgressMonitor parent) {
+			fWrappers= wrappers;
+			fCalls= new MethodWrapper[wrappers.length][];
+			fMonitor= new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return super.isCanceled() || parent.isCanceled();
+				}
+			};
+		}
+
+		MethodWrapper[][] compute() {
+			int workers= Math.min(MAX_WORKERS, fWrappers.length) - 1;
+			JobGroup group= null;
+			if (workers > 0) {
+				String name= CallHierarchyMessages.CallGraphExporter_job_name;
+				group= new JobGroup(name, workers, workers);
+				for (int i= 0; i < workers; i++) {
+					Job worker= new Job(name) {
+						@Override
+						protected IStatus run(IProgressMonitor monitor) {
+							processQueue();
+							return Status.OK_STATUS;
+						}
+					};
+					worker.setSystem(true);
+					worker.setJobGroup(group);
+					worker.schedule();
+				}
+			}
+			processQueue();
+			if (group != null) {
+				try {
+					group.join(0, fMonitor);
+				} catch (InterruptedException e) {
+					fMonitor.setCanceled(true);
+				}
+			}
+			if (fMonitor.isCanceled())
+				throw new OperationCanceledException();
+			return fCalls;
+		}
+
+		private void processQueue() {
+			while (true) {
+				int index;
+				synchronized (this) {
+					if (fNext == fWrappers.length || fMonitor.isCanceled())
+						return;
+					index= fNext++;
+				}
+				MethodWrapper[] calls;
+				try {
+					calls= fWrappers[index].getCalls(fMonitor);
+				} catch (OperationCanceledException e) {
+					// stops the other workers, the level is incomplete and compute() throws
+					fMonitor.setCanceled(true);
+					return;
+				} catch (RuntimeException e) {
+					JavaPlugin.log(e);
+					calls= new MethodWrapper[0];
+				}
+				synchronized (this) {
+					fCalls[index]= calls;
+				}
+			}
+		}
+	}
+
+	private final boolean fCallers;
+	private final int fDepth;
+	private final Map<String, Integer> fNodes= new HashMap<>();
+	private final Set<String> fExpanded= new HashSet<>();
+	private int fEdges;
+	private DataOutputStream fOutput;
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param callers <code>true</code> to compute the callers, <code>false</code> to compute
+	 *            the callees
+	 * @param depth the number of levels to compute
+	 */
+	public CallGraphExporter(boolean callers, int depth) {
+		fCallers= callers;
+		fDepth= depth;
+	}
+
+	/**
+	 * Computes the call graph of the given members and writes it to the given stream. Types
+	 * are replaced by their constructors, like in the call hierarchy. The stream is flushed
+	 * but not closed.
+	 *
+	 * @param members the members to start with
+	 * @param output the stream to write to
+	 * @param progressMonitor the progress monitor, or <code>null</code>
+	 * @throws IOException if writing to the stream fails
+	 * @throws OperationCanceledException if the progress monitor has been canceled
+	 */
+	public void export(IMember[] members, OutputStream output, IProgressMonitor progressMonitor) throws IOException {
+		if (progressMonitor == null)
+			progressMonitor= new NullProgressMonitor();
+		fNodes.clear();
+		fExpanded.clear();
+		fEdges= 0;
+		fOutput= new DataOutputStream(new BufferedOutputStream(output));
+		progressMonitor.beginTask(CallHierarchyMessages.CallGraphExporter_taskname, 2 * fDepth);
+		try {
+			fOutput.writeInt(MAGIC);
+			fOutput.writeInt(VERSION);
+			fOutput.writeBoolean(fCallers);
+			fOutput.writeInt(fDepth);
+
+			CallHierarchy callHierarchy= CallHierarchy.getDefault();
+			MethodWrapper[] roots= fCallers ? callHierarchy.getCallerRoots(members) : callHierarchy.getCalleeRoots(members);
+			List<IMember> level= new ArrayList<>();
+			for (int i= 0; i < roots.length; i++) {
+				IMember member= roots[i].getMember();
+				fOutput.writeByte(TAG_ROOT);
+				fOutput.writeInt(getNode(member));
+				if (fExpanded.add(member.getHandleIdentifier()))
+					level.add(member);
+			}
+
+			for (int i= 0; i < fDepth && !level.isEmpty(); i++) {
+				level= expand(level, progressMonitor);
+			}
+
+			fOutput.writeByte(TAG_END);
+			fOutput.writeInt(fNodes.size());
+			fOutput.writeInt(fEdges);
+			fOutput.flush();
+		} finally {
+			fOutput= null;
+			progressMonitor.done();
+		}
+	}
+
+	private List<IMember> expand(List<IMember> level, IProgressMonitor progressMonitor) throws IOException {
+		List<MethodWrapper> wrappers= new ArrayList<>(level.size());
+		List<CallerMethodWrapper> callerWrappers= new ArrayList<>();
+		for (IMember member : level) {
+			MethodWrapper wrapper;
+			if (fCallers) {
+				CallerMethodWrapper callerWrapper= new CallerMethodWrapper(null, new MethodCall(member));
+				callerWrappers.add(callerWrapper);
+				wrapper= callerWrapper;
+			} else {
+				wrapper= new CalleeMethodWrapper(null, new MethodCall(member));
+			}
+			if (wrapper.canHaveChildren())
+				wrappers.add(wrapper);
+		}
+		if (fCallers)
+			CallerSearchBatch.search(callerWrappers, new SubProgressMonitor(progressMonitor, 1));
+		else
+			progressMonitor.worked(1);
+
+		MethodWrapper[] levelWrappers= wrappers.toArray(new MethodWrapper[wrappers.size()]);
+		MethodWrapper[][] calls= new LevelComputation(levelWrappers, progressMonitor).compute();
+		progressMonitor.worked(1);
+
+		List<IMember> next= new ArrayList<>();
+		for (int i= 0; i < levelWrappers.length; i++) {
+			int node= getNode(levelWrappers[i].getMember());
+			for (int j= 0; j < calls[i].length; j++) {
+				MethodCall call= calls[i][j].getMethodCall();
+				IMember member= call.getMember();
+				int other= getNode(member);
+				fOutput.writeByte(TAG_EDGE);
+				fOutput.writeInt(fCallers ? other : node);
+				fOutput.writeInt(fCallers ? node : other);
+				fOutput.writeInt(call.getCallLocations().size());
+				fEdges++;
+				if (fExpanded.add(member.getHandleIdentifier()))
+					next.add(member);
+			}
+		}
+		return next;
+	}
+
+	private int getNode(IMember member) throws IOException {
+		String handle= member.getHandleIdentifier();
+		Integer node= fNodes.get(handle);
+		if (node == null) {
+			node= Integer.valueOf(fNodes.size());
+			fNodes.put(handle, node);
+			fOutput.writeByte(TAG_STRING);
+			fOutput.writeUTF(handle);
+		}
+		return node.intValue();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,7 +20,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -59,6 +61,14 @@ public class CallHierarchy {
         return fgInstance;
     }
 
+    /**
+     * Releases the caches of the call hierarchy. Called when the plug-in is stopped.
+     */
+    public static void shutdown() {
+        CallGraphCache.shutdown();
+        CalleeIndex.shutdown();
+    }
+
     public boolean isSearchUsingImplementorsEnabled() {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
@@ -177,6 +187,48 @@ public class CallHierarchy {
         this.fSearchScope = searchScope;
     }
 
+	/**
+	 * Computes the callers of the given wrappers down to the given number of levels. The
+	 * callers of all wrappers of one level are searched together, see {@link CallerSearchBatch},
+	 * so that the search engine only needs to go through the search scope once per level.
+	 * Afterwards, {@link MethodWrapper#getCalls(IProgressMonitor)} returns the computed
+	 * callers of these levels without searching again, as long as the Java model has not
+	 * changed in the meantime.
+	 *
+	 * @param roots the wrappers to expand
+	 * @param levels the number of levels to expand
+	 * @param progressMonitor the progress monitor, or <code>null</code>
+	 */
+	public void expandCallers(CallerMethodWrapper[] roots, int levels, IProgressMonitor progressMonitor) {
+		if (progressMonitor == null)
+			progressMonitor= new NullProgressMonitor();
+		progressMonitor.beginTask("", 2 * levels); //$NON-NLS-1$
+		try {
+			List<CallerMethodWrapper> level= new ArrayList<>(Arrays.asList(roots));
+			for (int i= 0; i < levels && !level.isEmpty(); i++) {
+				CallerSearchBatch.search(level, new SubProgressMonitor(progressMonitor, 1));
+				IProgressMonitor callsMonitor= new SubProgressMonitor(progressMonitor, 1);
+				callsMonitor.beginTask("", level.size()); //$NON-NLS-1$
+				List<CallerMethodWrapper> next= new ArrayList<>();
+				for (CallerMethodWrapper wrapper : level) {
+					if (wrapper.isRecursive() || !wrapper.canHaveChildren()) {
+						callsMonitor.worked(1);
+						continue;
+					}
+					MethodWrapper[] calls= wrapper.getCalls(new SubProgressMonitor(callsMonitor, 1));
+					for (int j= 0; j < calls.length; j++) {
+						if (calls[j] instanceof CallerMethodWrapper)
+							next.add((CallerMethodWrapper) calls[j]);
+					}
+				}
+				callsMonitor.done();
+				level= next;
+			}
+		} finally {
+			progressMonitor.done();
+		}
+	}
+
 	/**
 	 * Checks whether the fully qualified name is ignored by the set filters.
 	 *
@@ -204,6 +256,9 @@ public class CallHierarchy {
     }
 
     public void setFilterEnabled(boolean filterEnabled) {
+        fFilters = null;
+        CallGraphCache.getDefault().clear();
+
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
     }
@@ -220,6 +275,7 @@ public class CallHierarchy {
 
     public void setFilters(String filters) {
         fFilters = null;
+        CallGraphCache.getDefault().clear();
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
@@ -281,7 +337,10 @@ public class CallHierarchy {
     }
 
     static CompilationUnit getCompilationUnitNode(IMember member, boolean resolveBindings) {
-    	ITypeRoot typeRoot= member.getTypeRoot();
+    	return getCompilationUnitNode(member.getTypeRoot(), resolveBindings);
+    }
+
+    static CompilationUnit getCompilationUnitNode(ITypeRoot typeRoot, boolean resolveBindings) {
         try {
 	    	if (typeRoot.exists() && typeRoot.getBuffer() != null) {
 				ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -236,36 +236,9 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
             if (calledMethodBinding != null) {
                 fProgressMonitor.worked(1);
 
-                ITypeBinding calledTypeBinding = calledMethodBinding.getDeclaringClass();
-                IType calledType = null;
-
-                if (!calledTypeBinding.isAnonymous()) {
-                    calledType = (IType) calledTypeBinding.getJavaElement();
-                } else {
-                    if (!"java.lang.Object".equals(calledTypeBinding.getSuperclass().getQualifiedName())) { //$NON-NLS-1$
-                        calledType= (IType) calledTypeBinding.getSuperclass().getJavaElement();
-                    } else {
-                        calledType = (IType) calledTypeBinding.getInterfaces()[0].getJavaElement();
-                    }
-                }
-
-                IMethod calledMethod = findIncludingSupertypes(calledMethodBinding,
-                        calledType, fProgressMonitor);
-
-                IMember referencedMember= null;
-                if (calledMethod == null) {
-                    if (calledMethodBinding.isConstructor() && calledMethodBinding.getParameterTypes().length == 0) {
-                        referencedMember= calledType;
-                    }
-                } else {
-                    if (calledType.isInterface()) {
-                        calledMethod = findImplementingMethods(calledMethod);
-                    }
-
-                    if (!isIgnoredBySearchScope(calledMethod)) {
-                        referencedMember= calledMethod;
-                    }
-                }
+                IType calledType= getCalledType(calledMethodBinding);
+                IMember calledMember= findCalledMember(calledMethodBinding, calledType, fProgressMonitor);
+                IMember referencedMember= getReferencedMember(calledMember, calledMember instanceof IMethod && calledType.isInterface());
                 final int position= node.getStartPosition();
 				final int number= fCompilationUnit.getLineNumber(position);
 				fSearchResults.addMember(fMember, referencedMember, position, position + node.getLength(), number < 1 ? 1 : number);
@@ -275,6 +248,63 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
         }
     }
 
+	/**
+	 * Returns the type declaring the called method. For methods of anonymous types, this is
+	 * the super type of the anonymous type.
+	 *
+	 * @param calledMethodBinding the binding of the called method
+	 * @return the declaring type
+	 */
+	static IType getCalledType(IMethodBinding calledMethodBinding) {
+		ITypeBinding calledTypeBinding= calledMethodBinding.getDeclaringClass();
+		if (!calledTypeBinding.isAnonymous()) {
+			return (IType) calledTypeBinding.getJavaElement();
+		} else if (!"java.lang.Object".equals(calledTypeBinding.getSuperclass().getQualifiedName())) { //$NON-NLS-1$
+			return (IType) calledTypeBinding.getSuperclass().getJavaElement();
+		} else {
+			return (IType) calledTypeBinding.getInterfaces()[0].getJavaElement();
+		}
+	}
+
+	/**
+	 * Finds the called member, before implementors and the search scope are taken into
+	 * account, see {@link #getReferencedMember(IMember, boolean)}.
+	 *
+	 * @param calledMethodBinding the binding of the called method
+	 * @param calledType the declaring type, see {@link #getCalledType(IMethodBinding)}
+	 * @param pm the progress monitor
+	 * @return the called method, the called type for implicit default constructors, or
+	 *         <code>null</code> if the called method cannot be found
+	 * @throws JavaModelException if the super types of the called type cannot be determined
+	 */
+	static IMember findCalledMember(IMethodBinding calledMethodBinding, IType calledType, IProgressMonitor pm) throws JavaModelException {
+		IMethod calledMethod= findIncludingSupertypes(calledMethodBinding, calledType, pm);
+		if (calledMethod != null)
+			return calledMethod;
+		if (calledMethodBinding.isConstructor() && calledMethodBinding.getParameterTypes().length == 0)
+			return calledType;
+		return null;
+	}
+
+	/**
+	 * Returns the member to be shown as callee for the given called member.
+	 *
+	 * @param calledMember the called member, see {@link #findCalledMember(IMethodBinding, IType, IProgressMonitor)}
+	 * @param isInterface whether the called method is declared in an interface
+	 * @return the single implementation of an interface method if implementors are to be
+	 *         searched, the called member, or <code>null</code> if the called method is not
+	 *         in the search scope
+	 */
+	static IMember getReferencedMember(IMember calledMember, boolean isInterface) {
+		if (!(calledMember instanceof IMethod))
+			return calledMember;
+		IMethod calledMethod= (IMethod) calledMember;
+		if (isInterface) {
+			calledMethod= findImplementingMethods(calledMethod);
+		}
+		return isIgnoredBySearchScope(calledMethod) ? null : calledMethod;
+	}
+
     private static IMethod findIncludingSupertypes(IMethodBinding method, IType type, IProgressMonitor pm) throws JavaModelException {
 		IMethod inThisType= Bindings.findMethod(method, type);
 		if (inThisType != null)
@@ -288,7 +318,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
 		return null;
 	}
 
-    private boolean isIgnoredBySearchScope(IMethod enclosingElement) {
+    private static boolean isIgnoredBySearchScope(IMethod enclosingElement) {
         if (enclosingElement != null) {
             return !getSearchScope().encloses(enclosingElement);
         } else {
@@ -296,7 +326,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
         }
     }
 
-    private IJavaSearchScope getSearchScope() {
+    private static IJavaSearchScope getSearchScope() {
         return CallHierarchy.getDefault().getSearchScope();
     }
 
@@ -330,7 +360,7 @@ class CalleeAnalyzerVisitor extends HierarchicalASTVisitor {
         return isNodeWithinMethod(node) || isNodeEnclosingMethod(node);
     }
 
-    private IMethod findImplementingMethods(IMethod calledMethod) {
+    private static IMethod findImplementingMethods(IMethod calledMethod) {
         Collection<IJavaElement> implementingMethods = CallHierarchy.getDefault()
                                                         .getImplementingMethods(calledMethod);
 
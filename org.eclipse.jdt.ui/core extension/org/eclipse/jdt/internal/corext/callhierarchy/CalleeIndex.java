@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+
+import org.eclipse.jdt.internal.corext.dom.HierarchicalASTVisitor;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * An index of the calls made by the methods of a type root. The index of a type root is
+ * built by a single pass over its AST and is then used for the callees of all methods of
+ * the type root, so that expanding several methods of the same type root does not parse
+ * it again. The indexes are dropped on any Java element change that can add or remove
+ * references.
+ * <p>
+ * The index stores the called members as found in the AST. The implementors of interface
+ * methods and the search scope are taken into account when the callees are looked up,
+ * since they depend on the call hierarchy settings. Callees of members other than methods
+ * are not indexed, see {@link CalleeAnalyzerVisitor}.
+ * </p>
+ */
+final class CalleeIndex {
+
+	/** Maximal number of type roots whose index is kept */
+	private static final int MAX_TYPE_ROOTS= 50;
+
+	private static final class Call {
+		final IMember fCalledMember;
+		final boolean fInterface;
+		final int fStart;
+		final int fEnd;
+		final int fLine;
+
+		Call(IMember calledMember, boolean isInterface, int start, int end, int line) {
+			fCalledMember= calledMember;
+			fInterface= isInterface;
+			fStart= start;
+			fEnd= end;
+			fLine= line;
+		}
+	}
+
+	/**
+	 * Collects the calls of all methods declared in a compilation unit, following the
+	 * rules of {@link CalleeAnalyzerVisitor}: calls in anonymous and local types belong to
+	 * the methods of these types, and the constructors of local types are called by the
+	 * enclosing method.
+	 */
+	private static final class IndexBuilder extends HierarchicalASTVisitor {
+		private final CompilationUnit fCompilationUnit;
+		private final IProgressMonitor fProgressMonitor;
+		private final Map<String, List<Call>> fIndex= new HashMap<>();
+		/** Calls of the enclosing methods, <code>null</code> for type bodies */
+		private final LinkedList<List<Call>> fCalls= new LinkedList<>();
+		/** Resolved calls by binding key, shared by all call sites of a method */
+		private final Map<String, Call> fResolved= new HashMap<>();
+
+		IndexBuilder(CompilationUnit compilationUnit, IProgressMonitor progressMonitor) {
+			fCompilationUnit= compilationUnit;
+			fProgressMonitor= progressMonitor;
+			fCalls.add(null);
+		}
+
+		Map<String, List<Call>> getIndex() {
+			return fIndex;
+		}
+
+		@Override
+		public boolean visit(AbstractTypeDeclaration node) {
+			List<Call> calls= fCalls.getLast();
+			if (calls != null) {
+				for (Iterator<BodyDeclaration> iter= node.bodyDeclarations().iterator(); iter.hasNext();) {
+					BodyDeclaration bodyDeclaration= iter.next();
+					if (bodyDeclaration instanceof MethodDeclaration && ((MethodDeclaration) bodyDeclaration).isConstructor()) {
+						MethodDeclaration constructor= (MethodDeclaration) bodyDeclaration;
+						addCall(calls, constructor.resolveBinding(), constructor.getName());
+					}
+				}
+			}
+			fCalls.add(null);
+			return true;
+		}
+
+		@Override
+		public void endVisit(AbstractTypeDeclaration node) {
+			fCalls.removeLast();
+		}
+
+		@Override
+		public boolean visit(AnonymousClassDeclaration node) {
+			fCalls.add(null);
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnonymousClassDeclaration node) {
+			fCalls.removeLast();
+		}
+
+		@Override
+		public boolean visit(MethodDeclaration node) {
+			if (fProgressMonitor.isCanceled())
+				throw new OperationCanceledException();
+			List<Call> calls= null;
+			IMethodBinding binding= node.resolveBinding();
+			IJavaElement method= binding != null ? binding.getJavaElement() : null;
+			if (method instanceof IMethod) {
+				calls= new ArrayList<>();
+				fIndex.put(method.getHandleIdentifier(), calls);
+			}
+			fCalls.add(calls);
+			return true;
+		}
+
+		@Override
+		public void endVisit(MethodDeclaration node) {
+			fCalls.removeLast();
+		}
+
+		@Override
+		public boolean visit(ClassInstanceCreation node) {
+			addCall(fCalls.getLast(), node.resolveConstructorBinding(), node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(ConstructorInvocation node) {
+			addCall(fCalls.getLast(), node.resolveConstructorBinding(), node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperConstructorInvocation node) {
+			addCall(fCalls.getLast(), node.resolveConstructorBinding(), node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(MethodInvocation node) {
+			addCall(fCalls.getLast(), node.resolveMethodBinding(), node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodInvocation node) {
+			addCall(fCalls.getLast(), node.resolveMethodBinding(), node);
+			return true;
+		}
+
+		private void addCall(List<Call> calls, IMethodBinding calledMethodBinding, ASTNode node) {
+			if (calls == null || calledMethodBinding == null)
+				return;
+			String key= calledMethodBinding.getKey();
+			Call resolved= fResolved.get(key);
+			if (resolved == null && !fResolved.containsKey(key)) {
+				try {
+					IType calledType= CalleeAnalyzerVisitor.getCalledType(calledMethodBinding);
+					IMember calledMember= CalleeAnalyzerVisitor.findCalledMember(calledMethodBinding, calledType, fProgressMonitor);
+					if (calledMember != null)
+						resolved= new Call(calledMember, calledMember instanceof IMethod && calledType.isInterface(), 0, 0, 0);
+				} catch (JavaModelException e) {
+					JavaPlugin.log(e);
+				}
+				fResolved.put(key, resolved);
+			}
+			if (resolved != null) {
+				int position= node.getStartPosition();
+				int line= fCompilationUnit.getLineNumber(position);
+				calls.add(new Call(resolved.fCalledMember, resolved.fInterface, position, position + node.getLength(), line < 1 ? 1 : line));
+			}
+		}
+	}
+
+	private static CalleeIndex fgInstance;
+
+	private final Map<String, Map<String, List<Call>>> fIndexes= new LinkedHashMap<String, Map<String, List<Call>>>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<String, List<Call>>> eldest) {
+			return size() > MAX_TYPE_ROOTS;
+		}
+	};
+
+	private long fGeneration;
+
+	private final IElementChangedListener fListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (CallGraphCache.affectsReferences(event.getDelta()))
+				clear();
+		}
+	};
+
+	private CalleeIndex() {
+		JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	public static synchronized CalleeIndex getDefault() {
+		if (fgInstance == null)
+			fgInstance= new CalleeIndex();
+		return fgInstance;
+	}
+
+	/**
+	 * Removes the index and its element changed listener.
+	 */
+	static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fListener);
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * Returns the callees of the given member, building the index of its type root if
+	 * necessary.
+	 *
+	 * @param member the member
+	 * @param progressMonitor the progress monitor, or <code>null</code>
+	 * @return a map from handle identifier to {@link MethodCall}, or <code>null</code> if the
+	 *         member is not indexed
+	 */
+	public Map<String, MethodCall> getCallees(IMember member, IProgressMonitor progressMonitor) {
+		if (!(member instanceof IMethod))
+			return null;
+		ITypeRoot typeRoot= member.getTypeRoot();
+		if (typeRoot == null)
+			return null;
+		Map<String, List<Call>> index= getIndex(typeRoot, progressMonitor != null ? progressMonitor : new NullProgressMonitor());
+		List<Call> calls= index != null ? index.get(member.getHandleIdentifier()) : null;
+		if (calls == null)
+			return null;
+
+		CallSearchResultCollector collector= new CallSearchResultCollector();
+		for (Iterator<Call> iter= calls.iterator(); iter.hasNext();) {
+			Call call= iter.next();
+			IMember referencedMember= CalleeAnalyzerVisitor.getReferencedMember(call.fCalledMember, call.fInterface);
+			collector.addMember(member, referencedMember, call.fStart, call.fEnd, call.fLine);
+		}
+		return collector.getCallers();
+	}
+
+	/**
+	 * Removes all indexes.
+	 */
+	public synchronized void clear() {
+		fIndexes.clear();
+		fGeneration++;
+	}
+
+	private Map<String, List<Call>> getIndex(ITypeRoot typeRoot, IProgressMonitor progressMonitor) {
+		String key= typeRoot.getHandleIdentifier();
+		long generation;
+		synchronized (this) {
+			Map<String, List<Call>> index= fIndexes.get(key);
+			if (index != null)
+				return index;
+			generation= fGeneration;
+		}
+		CompilationUnit cu= CallHierarchy.getCompilationUnitNode(typeRoot, true);
+		if (cu == null)
+			return null;
+		IndexBuilder builder= new IndexBuilder(cu, progressMonitor);
+		cu.accept(builder);
+		Map<String, List<Call>> index= builder.getIndex();
+		synchronized (this) {
+			if (generation == fGeneration)
+				fIndexes.put(key, index);
+		}
+		return index;
+	}
+}
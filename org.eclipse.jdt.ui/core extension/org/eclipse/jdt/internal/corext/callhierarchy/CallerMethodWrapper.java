@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,7 +13,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
@@ -21,6 +23,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IInitializer;
 import org.eclipse.jdt.core.IJavaElement;
@@ -134,24 +137,44 @@ public class CallerMethodWrapper extends MethodWrapper {
 							SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 				}
 			}
+			int limitTo= getLimitTo();
 			if (pattern == null) {
-				int limitTo= IJavaSearchConstants.REFERENCES;
-				if (member.getElementType() == IJavaElement.FIELD)
-					limitTo= getFieldSearchMode();
 				pattern= SearchPattern.createPattern(member, limitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 			}
 			if (pattern == null) { // e.g. for initializers
 				return new HashMap<>(0);
 			}
 
+			IJavaSearchScope defaultSearchScope= getSearchScope();
+			CallGraphCache cache= CallGraphCache.getDefault();
+			String cacheKey= CallGraphCache.getKey(member, limitTo);
+			Map<String, MethodCall> cachedCallers= cache.get(defaultSearchScope, cacheKey);
+			if (cachedCallers != null) {
+				return cachedCallers;
+			}
+			long generation= cache.getGeneration();
+
 			SearchEngine searchEngine= new SearchEngine();
+			ICompilationUnit[] changedUnits= cache.getChangedUnits(defaultSearchScope, cacheKey);
+			if (changedUnits != null) {
+				// only the compilation units that changed since the callers were cached are searched again
+				MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
+				searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+						SearchEngine.createJavaSearchScope(getExistingUnits(changedUnits)), searchRequestor, monitor);
+				Map<String, MethodCall> callers= cache.update(defaultSearchScope, cacheKey, changedUnits, searchRequestor.getCallers(), generation);
+				if (callers != null) {
+					return callers;
+				}
+			}
+
 			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
-			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
 			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
 			searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
 					monitor);
-			return searchRequestor.getCallers();
+			Map<String, MethodCall> callers= searchRequestor.getCallers();
+			cache.put(defaultSearchScope, cacheKey, callers, generation);
+			return callers;
 
 		} catch (CoreException e) {
 			JavaPlugin.log(e);
@@ -159,6 +182,47 @@ public class CallerMethodWrapper extends MethodWrapper {
 		}
 	}
 
+	private static IJavaElement[] getExistingUnits(ICompilationUnit[] units) {
+		List<IJavaElement> existing= new ArrayList<>(units.length);
+		for (int i= 0; i < units.length; i++) {
+			if (units[i].exists()) {
+				existing.add(units[i]);
+			}
+		}
+		return existing.toArray(new IJavaElement[existing.size()]);
+	}
+
+	/**
+	 * Returns the search mode used to find the callers of the member.
+	 *
+	 * @return {@link IJavaSearchConstants#REFERENCES} for methods, or the field search mode for fields
+	 */
+	int getLimitTo() {
+		if (getMember().getElementType() == IJavaElement.FIELD)
+			return getFieldSearchMode();
+		return IJavaSearchConstants.REFERENCES;
+	}
+
+	/**
+	 * Tells whether the callers of the member can be searched together with the callers of
+	 * other members, see {@link CallerSearchBatch}. This is the case for methods and fields
+	 * that are neither private nor constructors, since their references are found in the
+	 * default search scope and can be told apart by the name of the referenced member.
+	 *
+	 * @return <code>true</code> if the callers can be searched in a batch
+	 * @throws JavaModelException if the member does not exist
+	 */
+	boolean isBatchable() throws JavaModelException {
+		IMember member= getMember();
+		if (member instanceof IMethod) {
+			if (((IMethod) member).isConstructor())
+				return false;
+		} else if (!(member instanceof IField)) {
+			return false;
+		}
+		return !JdtFlags.isPrivate(member) && getSearchScope() == CallHierarchy.getDefault().getSearchScope();
+	}
+
 	private IJavaSearchScope getAccurateSearchScope(IJavaSearchScope defaultSearchScope, IMember member) throws JavaModelException {
 		if (! JdtFlags.isPrivate(member))
 			return defaultSearchScope;
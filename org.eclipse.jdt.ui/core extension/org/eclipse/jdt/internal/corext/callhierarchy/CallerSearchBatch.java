@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodReference;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.SearchUtils;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Searches the callers of several members with a single search engine query. The patterns
+ * of all members with the same search mode are combined by
+ * {@link SearchPattern#createOrPattern(SearchPattern, SearchPattern)}, and every match is
+ * attributed to the searched member that the name at the match's position resolves to.
+ * Overloaded methods of a type can be searched in the same batch. Members whose names are
+ * also used by members of other types in a batch are left out, since a reference to an
+ * overriding method is also a match for the overridden one. Members that are not
+ * {@link CallerMethodWrapper#isBatchable() batchable} are left out as well.
+ * <p>
+ * The results are stored in the {@link CallGraphCache}, so that a subsequent
+ * {@link MethodWrapper#getCalls(IProgressMonitor)} finds them without searching again.
+ * If a match cannot be attributed, no result of the corresponding batch is stored and
+ * the callers are searched one by one as usual.
+ * </p>
+ */
+final class CallerSearchBatch {
+
+	private static final class BatchRequestor extends SearchRequestor {
+		private final Map<ITypeRoot, List<SearchMatch>> fMatches= new LinkedHashMap<>();
+
+		@Override
+		public void acceptSearchMatch(SearchMatch match) throws CoreException {
+			// same filtering as MethodReferencesSearchRequestor
+			if (match.getAccuracy() != SearchMatch.A_ACCURATE || match.isInsideDocComment())
+				return;
+			if (!(match.getElement() instanceof IMember))
+				return;
+			IMember member= (IMember) match.getElement();
+			switch (member.getElementType()) {
+				case IJavaElement.METHOD:
+				case IJavaElement.TYPE:
+				case IJavaElement.FIELD:
+				case IJavaElement.INITIALIZER:
+					ITypeRoot typeRoot= member.getTypeRoot();
+					List<SearchMatch> matches= fMatches.get(typeRoot);
+					if (matches == null) {
+						matches= new ArrayList<>();
+						fMatches.put(typeRoot, matches);
+					}
+					matches.add(match);
+					break;
+			}
+		}
+
+		/**
+		 * Attributes the accepted matches to the searched members. The type roots containing
+		 * matches are parsed with bindings to resolve the referenced members.
+		 *
+		 * @param members the searched members
+		 * @param monitor the progress monitor
+		 * @return the callers of each member, or <code>null</code> if a match cannot be attributed
+		 */
+		Map<IMember, CallSearchResultCollector> attribute(List<IMember> members, IProgressMonitor monitor) {
+			Map<IMember, CallSearchResultCollector> collectors= new HashMap<>();
+			for (IMember member : members) {
+				collectors.put(member, new CallSearchResultCollector());
+			}
+			monitor.beginTask("", fMatches.size()); //$NON-NLS-1$
+			try {
+				for (Map.Entry<ITypeRoot, List<SearchMatch>> entry : fMatches.entrySet()) {
+					CompilationUnit root= CallHierarchy.getCompilationUnitNode(entry.getKey(), true);
+					if (root == null)
+						return null;
+					for (SearchMatch match : entry.getValue()) {
+						CallSearchResultCollector collector= collectors.get(getReferencedMember(root, match));
+						if (collector == null)
+							return null;
+						IMember member= (IMember) match.getElement();
+						collector.addMember(member, member, match.getOffset(), match.getOffset() + match.getLength());
+					}
+					monitor.worked(1);
+				}
+				return collectors;
+			} finally {
+				monitor.done();
+			}
+		}
+
+		private static IJavaElement getReferencedMember(CompilationUnit root, SearchMatch match) {
+			ASTNode node= NodeFinder.perform(root, match.getOffset(), 1);
+			if (!(node instanceof SimpleName) || node.getStartPosition() != match.getOffset() || node.getParent() instanceof MethodReference)
+				return null;
+			IBinding binding= ((SimpleName) node).resolveBinding();
+			if (binding instanceof IMethodBinding)
+				binding= ((IMethodBinding) binding).getMethodDeclaration();
+			else if (binding instanceof IVariableBinding)
+				binding= ((IVariableBinding) binding).getVariableDeclaration();
+			return binding != null ? binding.getJavaElement() : null;
+		}
+	}
+
+	private CallerSearchBatch() {
+	}
+
+	/**
+	 * Searches the callers of the given wrappers in batches and stores them in the
+	 * {@link CallGraphCache}. Wrappers whose callers are already cached or cannot be
+	 * searched in a batch are skipped.
+	 *
+	 * @param wrappers the wrappers whose callers to search
+	 * @param progressMonitor the progress monitor
+	 */
+	static void search(List<CallerMethodWrapper> wrappers, IProgressMonitor progressMonitor) {
+		IJavaSearchScope scope= CallHierarchy.getDefault().getSearchScope();
+		CallGraphCache cache= CallGraphCache.getDefault();
+		long generation= cache.getGeneration();
+
+		// search mode -> members
+		Map<Integer, Set<IMember>> batches= new LinkedHashMap<>();
+		// search mode -> name -> declaring type
+		Map<Integer, Map<String, IType>> declaringTypes= new HashMap<>();
+		// search mode -> names of members of different types
+		Map<Integer, Set<String>> ambiguous= new HashMap<>();
+		for (CallerMethodWrapper wrapper : wrappers) {
+			try {
+				if (!wrapper.canHaveChildren() || !wrapper.isBatchable())
+					continue;
+			} catch (JavaModelException e) {
+				continue; // searched individually, which will report the problem
+			}
+			IMember member= wrapper.getMember();
+			int limitTo= wrapper.getLimitTo();
+			if (cache.get(scope, CallGraphCache.getKey(member, limitTo)) != null)
+				continue;
+			Integer mode= Integer.valueOf(limitTo);
+			Set<IMember> batch= batches.get(mode);
+			if (batch == null) {
+				batch= new LinkedHashSet<>();
+				batches.put(mode, batch);
+				declaringTypes.put(mode, new HashMap<String, IType>());
+				ambiguous.put(mode, new HashSet<String>());
+			}
+			batch.add(member);
+			String name= member.getElementName();
+			IType declaringType= declaringTypes.get(mode).get(name);
+			if (declaringType == null)
+				declaringTypes.get(mode).put(name, member.getDeclaringType());
+			else if (!declaringType.equals(member.getDeclaringType()))
+				ambiguous.get(mode).add(name);
+		}
+
+		progressMonitor.beginTask("", batches.size()); //$NON-NLS-1$
+		try {
+			for (Map.Entry<Integer, Set<IMember>> entry : batches.entrySet()) {
+				int limitTo= entry.getKey().intValue();
+				List<IMember> batch= new ArrayList<>();
+				for (IMember member : entry.getValue()) {
+					if (!ambiguous.get(entry.getKey()).contains(member.getElementName()))
+						batch.add(member);
+				}
+				if (batch.size() < 2) {
+					progressMonitor.worked(1);
+					continue; // nothing to gain
+				}
+				search(batch, limitTo, scope, generation, new SubProgressMonitor(progressMonitor, 1));
+			}
+		} finally {
+			progressMonitor.done();
+		}
+	}
+
+	private static void search(List<IMember> batch, int limitTo, IJavaSearchScope scope, long generation, IProgressMonitor monitor) {
+		SearchPattern pattern= null;
+		List<IMember> members= new ArrayList<>(batch.size());
+		for (IMember member : batch) {
+			SearchPattern memberPattern= SearchPattern.createPattern(member, limitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
+			if (memberPattern == null)
+				continue;
+			pattern= pattern == null ? memberPattern : SearchPattern.createOrPattern(pattern, memberPattern);
+			members.add(member);
+		}
+		if (members.size() < 2) {
+			monitor.done();
+			return;
+		}
+		monitor.beginTask("", 2); //$NON-NLS-1$
+		try {
+			BatchRequestor requestor= new BatchRequestor();
+			try {
+				new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, scope, requestor, new SubProgressMonitor(monitor, 1));
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+				return;
+			}
+			Map<IMember, CallSearchResultCollector> collectors= requestor.attribute(members, new SubProgressMonitor(monitor, 1));
+			if (collectors == null)
+				return;
+			CallGraphCache cache= CallGraphCache.getDefault();
+			for (IMember member : members) {
+				cache.put(scope, CallGraphCache.getKey(member, limitTo), collectors.get(member).getCallers(), generation);
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,7 +41,9 @@ public abstract class MethodWrapper extends PlatformObject {
     /*
      * A cache of previously found methods. This cache should be searched
      * before adding a "new" method object reference to the list of elements.
-     * This way previously found methods won't be searched again.
+     * This way previously found methods won't be searched again. The cache is
+     * shared by all wrappers of a tree, which can be expanded concurrently, so
+     * accesses are synchronized on the cache.
      */
     private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
@@ -204,8 +206,14 @@ public abstract class MethodWrapper extends PlatformObject {
     protected abstract String getTaskName();
 
     private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
+        synchronized (fMethodCache) {
+            Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
+            if (cachedCalls == null) {
+                cachedCalls = new HashMap<>();
+                fMethodCache.put(getMethodCall().getKey(), cachedCalls);
+            }
+            cachedCalls.put(methodCall.getKey(), methodCall);
+        }
     }
 
 	/**
@@ -217,11 +225,16 @@ public abstract class MethodWrapper extends PlatformObject {
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
     private void doFindChildren(IProgressMonitor progressMonitor) {
-        Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
+        Map<String, MethodCall> existingResults = null;
+        synchronized (fMethodCache) {
+            Map<String, MethodCall> cachedCalls = lookupMethod(getMethodCall());
+            if (cachedCalls != null && !cachedCalls.isEmpty()) {
+                existingResults = new HashMap<>(cachedCalls);
+            }
+        }
 
-        if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<>();
-            fElements.putAll(existingResults);
+        if (existingResults != null) {
+            fElements = existingResults;
         } else {
             initCalls();
 
@@ -315,7 +328,9 @@ public abstract class MethodWrapper extends PlatformObject {
 
     private void initCacheForMethod() {
         Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
+        synchronized (fMethodCache) {
+            getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
+        }
     }
 
     /**
@@ -367,6 +382,8 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
 	public void removeFromCache() {
 		fElements= null;
-		fMethodCache.remove(getMethodCall().getKey());
+		synchronized (fMethodCache) {
+			fMethodCache.remove(getMethodCall().getKey());
+		}
 	}
 }
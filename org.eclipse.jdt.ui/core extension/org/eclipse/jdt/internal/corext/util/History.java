@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,27 +12,20 @@ package org.eclipse.jdt.internal.corext.util;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -40,6 +33,7 @@ import org.xml.sax.helpers.DefaultHandler;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -59,7 +53,14 @@ import org.eclipse.jdt.internal.ui.viewsupport.BasicElementLabels;
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
  *
- * The history can be stored to/loaded from an xml file.
+ * The history is stored in a binary {@link HistoryJournal} in the plug-in's state location.
+ * Only the changes since the last save are appended to the journal, and the journal is
+ * loaded on the first access after {@link #load()}. Histories stored in the xml format
+ * of earlier versions are read if there is no journal yet.
+ * <p>
+ * The entries are converted to and from the journal through the attributes of DOM
+ * elements, see {@link #setAttributes(Object, Element)} and {@link #createFromElement(Element)}.
+ * </p>
  * 
  * @param <K> key type
  * @param <V> value type
@@ -69,6 +70,10 @@ public abstract class History<K, V> {
 	private static final String DEFAULT_ROOT_NODE_NAME= "histroyRootNode"; //$NON-NLS-1$
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
+	/** Number of operations in the journal after which it is rewritten on save */
+	private static final int MAX_JOURNAL_SIZE= 4 * MAX_HISTORY_SIZE;
+	private static final String XML_EXTENSION= ".xml"; //$NON-NLS-1$
+	private static final String JOURNAL_EXTENSION= ".bin"; //$NON-NLS-1$
 
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
@@ -80,6 +85,12 @@ public abstract class History<K, V> {
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
 
+	private HistoryJournal fJournal;
+	private final List<HistoryJournal.Operation> fPendingOperations= new ArrayList<>();
+	private Document fDocument;
+	private boolean fLoadPending;
+	private boolean fNeedsRewrite;
+
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<K, V>(80, 0.75f, true) {
 			private static final long serialVersionUID= 1L;
@@ -99,34 +110,57 @@ public abstract class History<K, V> {
 	}
 
 	public synchronized void accessed(V object) {
+		ensureLoaded();
 		fHistory.put(getKey(object), object);
 		rebuildPositions();
+		record(HistoryJournal.ACCESSED, object);
 	}
 
 	public synchronized boolean contains(V object) {
+		ensureLoaded();
 		return fHistory.containsKey(getKey(object));
 	}
 
 	public synchronized boolean containsKey(K key) {
+		ensureLoaded();
 		return fHistory.containsKey(key);
 	}
 
 	public synchronized boolean isEmpty() {
+		ensureLoaded();
 		return fHistory.isEmpty();
 	}
 
 	public synchronized Object remove(V object) {
-		Object removed= fHistory.remove(getKey(object));
+		ensureLoaded();
+		V removed= fHistory.remove(getKey(object));
 		rebuildPositions();
+		if (removed != null)
+			record(HistoryJournal.REMOVED, removed);
 		return removed;
 	}
 
 	public synchronized Object removeKey(Object key) {
-		Object removed= fHistory.remove(key);
+		ensureLoaded();
+		V removed= fHistory.remove(key);
 		rebuildPositions();
+		if (removed != null)
+			record(HistoryJournal.REMOVED, removed);
 		return removed;
 	}
 
+	/**
+	 * Records that the attributes of the given entry have changed. The entry keeps its
+	 * position in the history.
+	 *
+	 * @param object the changed entry
+	 */
+	protected synchronized void updated(V object) {
+		ensureLoaded();
+		if (fHistory.containsKey(getKey(object)))
+			record(HistoryJournal.UPDATED, object);
+	}
+
 	/**
 	 * Normalized position in history of object denoted by key.
 	 * The position is a value between zero and one where zero
@@ -161,60 +195,73 @@ public abstract class History<K, V> {
 		return fPositions.get(key).intValue();
 	}
 
+	/**
+	 * Requests to load the history. The history is loaded on the first access.
+	 */
 	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		if (file.exists()) {
-			InputStreamReader reader= null;
-	        try {
-				reader = new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
-				load(new InputSource(reader));
+		fHistory.clear();
+		fPositions.clear();
+		fPendingOperations.clear();
+		fLoadPending= true;
+	}
+
+	/**
+	 * Loads the history now if {@link #load()} has been called before.
+	 */
+	protected synchronized void ensureLoaded() {
+		if (!fLoadPending)
+			return;
+		fLoadPending= false;
+		HistoryJournal journal= getJournal();
+		if (journal.exists()) {
+			try {
+				replay(journal.read());
 			} catch (IOException e) {
 				JavaPlugin.log(e);
-			} catch (CoreException e) {
-				JavaPlugin.log(e);
-			} finally {
-				try {
-					if (reader != null)
-						reader.close();
-				} catch (IOException e) {
-					JavaPlugin.log(e);
-				}
+				fNeedsRewrite= true;
 			}
+			if (journal.getOperationCount() > MAX_JOURNAL_SIZE)
+				fNeedsRewrite= true;
+		} else {
+			loadXML();
+			fNeedsRewrite= true;
 		}
+		rebuildPositions();
 	}
 
+	/**
+	 * Saves the history. Only the changes since the last save are appended to the journal,
+	 * unless the journal has become too large and is rewritten.
+	 */
 	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
+		if (fLoadPending)
+			return; // not loaded, so not changed
+		if (!fNeedsRewrite && fPendingOperations.isEmpty())
+			return;
+		HistoryJournal journal= getJournal();
 		try {
-			out= new FileOutputStream(file);
-			save(out);
-		} catch (IOException e) {
-			JavaPlugin.log(e);
-		} catch (CoreException e) {
-			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
+			if (fNeedsRewrite || journal.getOperationCount() + fPendingOperations.size() > MAX_JOURNAL_SIZE
+					|| !journal.append(fPendingOperations)) {
+				List<HistoryJournal.Operation> operations= new ArrayList<>(fHistory.size());
+				for (Iterator<V> iter= getValues().iterator(); iter.hasNext();) {
+					operations.add(createOperation(HistoryJournal.ACCESSED, iter.next()));
 				}
-			} catch (IOException e) {
-				JavaPlugin.log(e);
+				journal.rewrite(operations);
 			}
+			fPendingOperations.clear();
+			fNeedsRewrite= false;
+		} catch (IOException e) {
+			JavaPlugin.log(e);
 		}
 	}
 
 	protected Set<K> getKeys() {
+		ensureLoaded();
 		return fHistory.keySet();
 	}
 
 	protected Collection<V> getValues() {
+		ensureLoaded();
 		return fHistory.values();
 	}
 
@@ -234,6 +281,16 @@ public abstract class History<K, V> {
 	 */
 	protected abstract V createFromElement(Element element);
 
+	/**
+	 * Called for an object created by {@link #createFromElement(Element)} that is not added
+	 * to the history, because the journal records its removal. Subclasses release the state
+	 * they keep for the object. The default implementation does nothing.
+	 *
+	 * @param object the discarded object
+	 */
+	protected void discarded(V object) {
+	}
+
 	/**
 	 * Get key for object
 	 *
@@ -253,7 +310,93 @@ public abstract class History<K, V> {
 		}
 	}
 
-	private void load(InputSource inputSource) throws CoreException {
+	private HistoryJournal getJournal() {
+		if (fJournal == null) {
+			String name= fFileName.endsWith(XML_EXTENSION) ? fFileName.substring(0, fFileName.length() - XML_EXTENSION.length()) : fFileName;
+			fJournal= new HistoryJournal(JavaPlugin.getDefault().getStateLocation().append(name + JOURNAL_EXTENSION).toFile());
+		}
+		return fJournal;
+	}
+
+	private void record(byte kind, V object) {
+		if (fLoadPending)
+			return;
+		fPendingOperations.add(createOperation(kind, object));
+		if (fPendingOperations.size() > MAX_JOURNAL_SIZE) {
+			// the history will be rewritten anyway
+			fPendingOperations.clear();
+			fNeedsRewrite= true;
+		}
+	}
+
+	private HistoryJournal.Operation createOperation(byte kind, Object object) {
+		Element element= createElement();
+		setAttributes(object, element);
+		NamedNodeMap nodes= element.getAttributes();
+		Map<String, String> attributes= new LinkedHashMap<>(nodes.getLength());
+		for (int i= 0; i < nodes.getLength(); i++) {
+			Node node= nodes.item(i);
+			attributes.put(node.getNodeName(), node.getNodeValue());
+		}
+		return new HistoryJournal.Operation(kind, attributes);
+	}
+
+	private Element createElement() {
+		if (fDocument == null) {
+			try {
+				fDocument= DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return fDocument.createElement(fInfoNodeName);
+	}
+
+	private void replay(List<HistoryJournal.Operation> operations) {
+		for (Iterator<HistoryJournal.Operation> iter= operations.iterator(); iter.hasNext();) {
+			HistoryJournal.Operation operation= iter.next();
+			Element element= createElement();
+			for (Iterator<Map.Entry<String, String>> attributes= operation.fAttributes.entrySet().iterator(); attributes.hasNext();) {
+				Map.Entry<String, String> attribute= attributes.next();
+				element.setAttribute(attribute.getKey(), attribute.getValue());
+			}
+			// creating the object also restores the updated attributes
+			V object= createFromElement(element);
+			if (object == null)
+				continue;
+			if (operation.fKind == HistoryJournal.ACCESSED) {
+				fHistory.put(getKey(object), object);
+			} else if (operation.fKind == HistoryJournal.REMOVED) {
+				fHistory.remove(getKey(object));
+				discarded(object);
+			}
+		}
+	}
+
+	private void loadXML() {
+		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
+		File file= stateLocation.toFile();
+		if (file.exists()) {
+			InputStreamReader reader= null;
+	        try {
+				reader = new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
+				loadXML(new InputSource(reader));
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+			} finally {
+				try {
+					if (reader != null)
+						reader.close();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	private void loadXML(InputSource inputSource) throws CoreException {
 		Element root;
 		try {
 			DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
@@ -285,39 +428,6 @@ public abstract class History<K, V> {
 				}
 			}
 		}
-		rebuildPositions();
-	}
-
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<V> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
 	}
 
 }
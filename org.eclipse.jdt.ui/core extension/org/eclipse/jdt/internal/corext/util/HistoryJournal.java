@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary file storing the operations performed on a {@link History}. New
+ * operations are appended to the file, so that saving a history only writes the changes
+ * since the last save. The file is rewritten with the current content of the history
+ * once it contains too many operations, see {@link History#save()}.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by operations. An
+ * operation consists of its kind and the attributes of the history entry, written as
+ * number of attributes and pairs of UTF strings. A truncated operation at the end of the
+ * file is ignored.
+ * </p>
+ */
+final class HistoryJournal {
+
+	static final int MAGIC= 0x4A484A31;
+	static final int VERSION= 1;
+
+	/** The entry has been added or accessed */
+	static final byte ACCESSED= 1;
+	/** The entry has been removed */
+	static final byte REMOVED= 2;
+	/** The attributes of the entry have changed, without an access */
+	static final byte UPDATED= 3;
+
+	static final class Operation {
+		final byte fKind;
+		final Map<String, String> fAttributes;
+
+		Operation(byte kind, Map<String, String> attributes) {
+			fKind= kind;
+			fAttributes= attributes;
+		}
+	}
+
+	private final File fFile;
+	private long fLength= -1;
+	private int fOperationCount;
+
+	HistoryJournal(File file) {
+		fFile= file;
+	}
+
+	boolean exists() {
+		return fFile.isFile();
+	}
+
+	/**
+	 * Returns the number of operations in the file.
+	 *
+	 * @return the number of operations read, appended or rewritten
+	 */
+	int getOperationCount() {
+		return fOperationCount;
+	}
+
+	/**
+	 * Reads all operations from the file.
+	 *
+	 * @return the operations
+	 * @throws IOException if the file cannot be read or is not a history journal
+	 */
+	List<Operation> read() throws IOException {
+		List<Operation> result= new ArrayList<>();
+		fLength= -1;
+		fOperationCount= 0;
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Unknown history format: " + fFile); //$NON-NLS-1$
+			long length= 8;
+			while (true) {
+				Operation operation;
+				long operationLength;
+				try {
+					int kind= in.read();
+					if (kind == -1)
+						break;
+					int count= in.readInt();
+					operationLength= 5;
+					Map<String, String> attributes= new LinkedHashMap<>(count);
+					for (int i= 0; i < count; i++) {
+						String name= in.readUTF();
+						String value= in.readUTF();
+						attributes.put(name, value);
+						operationLength+= getUTFLength(name) + getUTFLength(value);
+					}
+					operation= new Operation((byte) kind, attributes);
+				} catch (EOFException e) {
+					break; // truncated operation, ignore
+				}
+				result.add(operation);
+				length+= operationLength;
+			}
+			fLength= length;
+			fOperationCount= result.size();
+		}
+		return result;
+	}
+
+	/**
+	 * Appends operations to the file. The operations are only appended if the file is
+	 * known to be consistent, that is, if it has been read or written before and has not
+	 * changed since.
+	 *
+	 * @param operations the operations to append
+	 * @return <code>true</code> if the operations have been appended, <code>false</code> if
+	 *         the file has to be rewritten
+	 * @throws IOException if writing fails
+	 */
+	boolean append(List<Operation> operations) throws IOException {
+		if (fLength < 0 || !fFile.isFile() || fFile.length() != fLength)
+			return false;
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile, true)))) {
+			write(out, operations);
+		}
+		fLength= fFile.length();
+		fOperationCount+= operations.size();
+		return true;
+	}
+
+	/**
+	 * Replaces the content of the file by the given operations.
+	 *
+	 * @param operations the operations to write
+	 * @throws IOException if writing fails
+	 */
+	void rewrite(List<Operation> operations) throws IOException {
+		File temp= new File(fFile.getPath() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			write(out, operations);
+		}
+		if (!temp.renameTo(fFile)) {
+			fFile.delete();
+			if (!temp.renameTo(fFile))
+				throw new IOException("Cannot rename " + temp + " to " + fFile); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		fLength= fFile.length();
+		fOperationCount= operations.size();
+	}
+
+	private static void write(DataOutputStream out, List<Operation> operations) throws IOException {
+		for (Iterator<Operation> iter= operations.iterator(); iter.hasNext();) {
+			Operation operation= iter.next();
+			out.writeByte(operation.fKind);
+			out.writeInt(operation.fAttributes.size());
+			for (Iterator<Map.Entry<String, String>> attributes= operation.fAttributes.entrySet().iterator(); attributes.hasNext();) {
+				Map.Entry<String, String> attribute= attributes.next();
+				out.writeUTF(attribute.getKey());
+				out.writeUTF(attribute.getValue());
+			}
+		}
+	}
+
+	private static int getUTFLength(String string) {
+		int length= 2;
+		for (int i= 0; i < string.length(); i++) {
+			char c= string.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F)
+				length+= 1;
+			else if (c > 0x07FF)
+				length+= 3;
+			else
+				length+= 2;
+		}
+		return length;
+	}
+}
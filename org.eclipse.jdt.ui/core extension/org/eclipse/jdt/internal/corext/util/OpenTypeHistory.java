@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -207,6 +207,8 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		// https://bugs.eclipse.org/bugs/show_bug.cgi?id=135278
 		// for details.
 		fUpdateJob.setPriority(Job.SHORT);
+		// load and revalidate the history in the background, before the dialog needs it
+		fUpdateJob.schedule();
 	}
 
 	public void markAsInconsistent() {
@@ -246,6 +248,7 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 
 	@Override
 	public synchronized void accessed(TypeNameMatch info) {
+		ensureLoaded();
 		// Fetching the timestamp might not be cheap (remote file system
 		// external Jars. So check if we alreay have one.
 		if (!fTimestampMapping.containsKey(info)) {
@@ -256,11 +259,13 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 
 	@Override
 	public synchronized TypeNameMatch remove(TypeNameMatch info) {
+		ensureLoaded();
 		fTimestampMapping.remove(info);
 		return (TypeNameMatch)super.remove(info);
 	}
 
 	public synchronized void replace(TypeNameMatch old, TypeNameMatch newMatch) {
+		ensureLoaded();
 		fTimestampMapping.remove(old);
 		fTimestampMapping.put(newMatch, new Long(getContainerTimestamp(newMatch)));
 		super.remove(old);
@@ -320,7 +325,9 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 					if (modifiers != type.getModifiers()) {
 						replace(type, SearchEngine.createTypeNameMatch(jType, modifiers));
 					} else {
-						fTimestampMapping.put(type, new Long(currentTimestamp));
+						Long timestamp= new Long(currentTimestamp);
+						if (!timestamp.equals(fTimestampMapping.put(type, timestamp)))
+							updated(type);
 					}
 				}
 			} catch (JavaModelException e) {
@@ -418,6 +425,11 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		return info;
 	}
 
+	@Override
+	protected void discarded(TypeNameMatch object) {
+		fTimestampMapping.remove(object);
+	}
+
 	@Override
 	protected void setAttributes(Object object, Element typeElement) {
 		TypeNameMatch type= (TypeNameMatch) object;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -62,6 +62,11 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
 
     private DeferredTreeContentManager fManager;
     private CallHierarchyViewPart fPart;
+    /**
+     * Number of running fetch jobs. Children of different method wrappers can be fetched
+     * concurrently, see {@link DeferredMethodWrapper#getRule(Object)}.
+     */
+    private int fFetching;
 
     private class MethodWrapperRunnable implements IRunnableWithProgress {
         private MethodWrapper fMethodWrapper;
@@ -463,18 +468,21 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
     }
 
     /**
-     *
+     * Called when a fetch job has finished. Disables the cancel action when the last
+     * running fetch job has finished.
      */
-    public void doneFetching() {
-        if (fPart != null) {
+    public synchronized void doneFetching() {
+        fFetching= Math.max(0, fFetching - 1);
+        if (fPart != null && fFetching == 0) {
             fPart.setCancelEnabled(false);
         }
     }
 
     /**
-     *
+     * Called when a fetch job starts. Enables the cancel action.
      */
-    public void startFetching() {
+    public synchronized void startFetching() {
+        fFetching++;
         if (fPart != null) {
             fPart.setCancelEnabled(true);
         }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,14 @@ import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter implements IDeferredWorkbenchAdapter {
+    /**
+     * Number of expansions that may run concurrently. The method wrappers share their
+     * caches, so siblings don't have to wait for each other.
+     */
+    private static final int MAX_CONCURRENT_FETCHES= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static int fgNextRule;
+
     private final CallHierarchyContentProvider fProvider;
 
     /**
@@ -100,7 +108,13 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
 
     @Override
 	public ISchedulingRule getRule(Object o) {
-        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper"); //$NON-NLS-1$
+        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper" + getNextRuleIndex()); //$NON-NLS-1$
+    }
+
+    private static synchronized int getNextRuleIndex() {
+        int index= fgNextRule;
+        fgNextRule= (fgNextRule + 1) % MAX_CONCURRENT_FETCHES;
+        return index;
     }
 
     @Override
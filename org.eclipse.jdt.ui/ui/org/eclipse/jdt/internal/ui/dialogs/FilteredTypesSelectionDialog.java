@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -180,6 +181,14 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 
 	private TypeItemsFilter fFilter;
 
+	/**
+	 * The job building the index of the types in the current search scope, or
+	 * <code>null</code>. Guarded by <code>this</code>.
+	 */
+	private TypeNameIndexJob fTypeNameIndexJob;
+
+	private boolean fTypeNameIndexEnabled;
+
 	/**
 	 * Creates new FilteredTypesSelectionDialog instance
 	 *
@@ -449,6 +458,22 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		if (patternControl instanceof Text) {
 			TextFieldNavigationHandler.install((Text) patternControl);
 		}
+		synchronized (this) {
+			fTypeNameIndexEnabled= true;
+		}
+		scheduleTypeNameIndexJob(fSearchScope);
+	}
+
+	@Override
+	public boolean close() {
+		synchronized (this) {
+			fTypeNameIndexEnabled= false;
+			if (fTypeNameIndexJob != null) {
+				fTypeNameIndexJob.cancel();
+				fTypeNameIndexJob= null;
+			}
+		}
+		return super.close();
 	}
 
 	@Override
@@ -504,6 +529,12 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		String packPattern= typeSearchFilter.getPackagePattern();
 		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
 
+		TypeNameIndex index= getTypeNameIndex(typeSearchFilter);
+		if (index != null) {
+			fillContentProvider(provider, typeSearchFilter, index, progressMonitor);
+			return;
+		}
+
 		/*
 		 * Setting the filter into match everything mode avoids filtering twice
 		 * by the same pattern (the search engine only provides filtered
@@ -530,6 +561,75 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		}
 	}
 
+	/**
+	 * Fills the content provider with the types of the index that match the given filter.
+	 *
+	 * @param provider the content provider
+	 * @param typeSearchFilter the filter
+	 * @param index the index of the filter's search scope
+	 * @param progressMonitor the progress monitor
+	 */
+	private void fillContentProvider(AbstractContentProvider provider, TypeItemsFilter typeSearchFilter, TypeNameIndex index, IProgressMonitor progressMonitor) {
+		TypeNameIndex.Candidates candidates= index.getCandidates(typeSearchFilter.getNamePattern(), typeSearchFilter.getMatchRule());
+		int size= candidates.size();
+		progressMonitor.beginTask(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName, size);
+		typeSearchFilter.setMatchEverythingMode(true);
+		try {
+			for (int i= 0; candidates.next(); i++) {
+				if (i % 1000 == 0) {
+					if (progressMonitor.isCanceled())
+						return;
+					progressMonitor.worked(Math.min(1000, size - i));
+				}
+				// the handles of the types are only created for the matches
+				if (!TypeFilter.isFiltered(candidates) && typeSearchFilter.matchesCachedResult(candidates))
+					provider.add(candidates.createMatch(), typeSearchFilter);
+			}
+		} finally {
+			typeSearchFilter.setMatchEverythingMode(false);
+			progressMonitor.done();
+		}
+	}
+
+	/**
+	 * Returns the index of the types in the search scope of the given filter. If the index
+	 * is not available, e.g. because types have changed, it is built again in the
+	 * background.
+	 *
+	 * @param filter the filter
+	 * @return the index, or <code>null</code> if the index is not available
+	 */
+	private TypeNameIndex getTypeNameIndex(TypeItemsFilter filter) {
+		if (filter.getElementKind() != fElementKinds)
+			return null;
+		TypeNameIndex index= TypeNameIndex.getIndex(filter.getSearchScope(), fElementKinds);
+		if (index == null)
+			scheduleTypeNameIndexJob(filter.getSearchScope());
+		return index;
+	}
+
+	/**
+	 * Starts building the index of the types in the given search scope, unless the index is
+	 * available or being built. Until the index is available, the types are searched by the
+	 * search engine.
+	 *
+	 * @param scope the search scope
+	 */
+	private synchronized void scheduleTypeNameIndexJob(IJavaSearchScope scope) {
+		if (!fTypeNameIndexEnabled)
+			return; // not created yet, or closed
+		if (fTypeNameIndexJob != null) {
+			if (fTypeNameIndexJob.fScope.equals(scope))
+				return;
+			fTypeNameIndexJob.cancel();
+			fTypeNameIndexJob= null;
+		}
+		if (TypeNameIndex.getIndex(scope, fElementKinds) != null)
+			return;
+		fTypeNameIndexJob= new TypeNameIndexJob(scope);
+		fTypeNameIndexJob.schedule();
+	}
+
 	@Override
 	protected Comparator getItemsComparator() {
 		return fTypeItemsComparator;
@@ -567,6 +667,39 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	 */
 	private void setSearchScope(IJavaSearchScope scope) {
 		fSearchScope= scope;
+		scheduleTypeNameIndexJob(scope);
+	}
+
+	/**
+	 * Builds the {@link TypeNameIndex} of a search scope in the background. The index is kept
+	 * by {@link TypeNameIndex} for subsequent queries and dialogs.
+	 */
+	private class TypeNameIndexJob extends Job {
+
+		private final IJavaSearchScope fScope;
+
+		public TypeNameIndexJob(IJavaSearchScope scope) {
+			super(JavaUIMessages.FilteredTypesSelectionDialog_indexJob_name);
+			fScope= scope;
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				TypeNameIndex.create(fScope, fElementKinds, monitor);
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} finally {
+				synchronized (FilteredTypesSelectionDialog.this) {
+					if (fTypeNameIndexJob == this)
+						fTypeNameIndexJob= null;
+				}
+			}
+			return Status.OK_STATUS;
+		}
 	}
 
 	/*
@@ -1063,6 +1196,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.matchesFilterExtension(type);
 		}
 
+		public boolean matchesCachedResult(TypeNameMatch type) {
+			return fTypeInfoFilter.matchesCachedResult(type);
+		}
+
 		/**
 		 * Set filter to "match everything" mode.
 		 *
@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.dialogs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+/**
+ * An in-memory index of all types of a search scope, used by the
+ * {@link FilteredTypesSelectionDialog} to answer queries without running the search engine
+ * again.
+ * <p>
+ * The distinct simple type names are packed into one character array sorted
+ * case-insensitively, and the types are grouped by simple name. A type is stored as the index
+ * of its package, its modifiers and its accessibility. The names of its enclosing types and of
+ * its compilation unit or class file are only stored if they can not be derived from its simple
+ * name. A query looks up the range of names with the literal prefix of the pattern by binary
+ * search, and returns the types of these names as {@link Candidates}. The candidates still have
+ * to be matched against the full pattern, the package pattern and the type filters, and a
+ * {@link TypeNameMatch} with the handle of the type is only created for the matching
+ * candidates.
+ * </p>
+ * <p>
+ * The indexes of the most recently used scopes are kept for the session, see
+ * {@link #getIndex(IJavaSearchScope, int)}. An index is a snapshot of its scope, and the
+ * kept indexes are dropped on any Java element change that can add, remove or rename
+ * types or change their modifiers. Changes inside of types, e.g. of method bodies, keep
+ * the indexes.
+ * </p>
+ */
+public final class TypeNameIndex {
+
+	/** The number of indexes kept */
+	private static final int MAX_INDEXES= 3;
+
+	private static final int CHANGE_FLAGS= IJavaElementDelta.F_MODIFIERS | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+			| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+	/** The kept indexes, the most recently used last */
+	private static final List<TypeNameIndex> fgIndexes= new LinkedList<>();
+
+	/** Incremented whenever the kept indexes are dropped */
+	private static long fgGeneration;
+
+	private static IElementChangedListener fgListener;
+
+	/**
+	 * Sorts names case-insensitively. Names that only differ in case are sorted by
+	 * {@link String#compareTo(String)}, so that the order is total.
+	 */
+	private static final Comparator<String> NAME_ORDER= new Comparator<String>() {
+		@Override
+		public int compare(String left, String right) {
+			int result= String.CASE_INSENSITIVE_ORDER.compare(left, right);
+			return result != 0 ? result : left.compareTo(right);
+		}
+	};
+
+	/** The flag of binary types, stored with the accessibility */
+	private static final byte BINARY= 0x10;
+
+	/** The mask of the accessibility, see {@link TypeNameMatch#getAccessibility()} */
+	private static final byte ACCESSIBILITY= 0x0f;
+
+	/**
+	 * A type found by the search engine, kept until the index is created.
+	 */
+	private static final class Entry {
+		final int fPackage;
+		final int fModifiers;
+		final byte fFlags;
+		final String fEnclosingName;
+		final String fTypeRootName;
+
+		Entry(int pack, int modifiers, byte flags, String enclosingName, String typeRootName) {
+			fPackage= pack;
+			fModifiers= modifiers;
+			fFlags= flags;
+			fEnclosingName= enclosingName;
+			fTypeRootName= typeRootName;
+		}
+	}
+
+	private static final class Collector extends TypeNameMatchRequestor {
+		private final Map<String, List<Entry>> fEntries= new HashMap<>();
+		private final Map<IPackageFragment, Integer> fPackageIndexes= new HashMap<>();
+		private final List<IPackageFragment> fPackages= new ArrayList<>();
+		private int fCount;
+
+		@Override
+		public void acceptTypeNameMatch(TypeNameMatch match) {
+			IType type= match.getType();
+			String name= type.getElementName();
+			String qualifiedName= type.getTypeQualifiedName('.');
+			String enclosingName= null;
+			if (qualifiedName.length() > name.length())
+				enclosingName= qualifiedName.substring(0, qualifiedName.length() - name.length() - 1);
+			boolean binary= type.isBinary();
+			String typeRootName= type.getTypeRoot().getElementName();
+			if (typeRootName.equals(getTypeRootName(name, enclosingName, binary)))
+				typeRootName= null;
+
+			IPackageFragment pack= type.getPackageFragment();
+			Integer packageIndex= fPackageIndexes.get(pack);
+			if (packageIndex == null) {
+				packageIndex= Integer.valueOf(fPackages.size());
+				fPackageIndexes.put(pack, packageIndex);
+				fPackages.add(pack);
+			}
+			byte flags= (byte) (match.getAccessibility() & ACCESSIBILITY | (binary ? BINARY : 0));
+
+			List<Entry> entries= fEntries.get(name);
+			if (entries == null) {
+				entries= new ArrayList<>(1);
+				fEntries.put(name, entries);
+			}
+			entries.add(new Entry(packageIndex.intValue(), match.getModifiers(), flags, enclosingName, typeRootName));
+			fCount++;
+		}
+	}
+
+	/**
+	 * The types of an index that may match a name pattern, see
+	 * {@link TypeNameIndex#getCandidates(String, int)}. The candidates are visited with
+	 * {@link #next()}, and describe the current type without creating its handle.
+	 * <p>
+	 * The candidates must not be kept or passed to other threads, {@link #createMatch()}
+	 * creates a match of the current type for that.
+	 * </p>
+	 */
+	public final class Candidates extends TypeNameMatch {
+		private final int fStart;
+		private final int fEnd;
+		private int fNameIndex;
+		private String fName;
+		private int fCurrent;
+
+		private Candidates(int fromName, int toName) {
+			fNameIndex= fromName;
+			fStart= fStarts[fromName];
+			fEnd= fStarts[toName];
+			fCurrent= fStart - 1;
+		}
+
+		/**
+		 * Returns the number of candidates.
+		 *
+		 * @return the number of candidates
+		 */
+		public int size() {
+			return fEnd - fStart;
+		}
+
+		/**
+		 * Moves to the next candidate.
+		 *
+		 * @return <code>false</code> if there are no more candidates
+		 */
+		public boolean next() {
+			if (fCurrent + 1 >= fEnd)
+				return false;
+			fCurrent++;
+			while (fStarts[fNameIndex + 1] <= fCurrent) {
+				fNameIndex++;
+				fName= null;
+			}
+			if (fName == null)
+				fName= getName(fNameIndex);
+			return true;
+		}
+
+		/**
+		 * Creates a match of the current candidate, with the handle of the type.
+		 *
+		 * @return the match
+		 */
+		public TypeNameMatch createMatch() {
+			return SearchEngine.createTypeNameMatch(getType(), fModifiers[fCurrent]);
+		}
+
+		@Override
+		public int getAccessibility() {
+			return fFlags[fCurrent] & ACCESSIBILITY;
+		}
+
+		@Override
+		public int getModifiers() {
+			return fModifiers[fCurrent];
+		}
+
+		@Override
+		public IType getType() {
+			IPackageFragment pack= fPackages[fPackageIndexes[fCurrent]];
+			boolean binary= (fFlags[fCurrent] & BINARY) != 0;
+			String enclosingName= fEnclosingNames[fCurrent];
+			String typeRootName= fTypeRootNames[fCurrent];
+			if (typeRootName == null)
+				typeRootName= getTypeRootName(fName, enclosingName, binary);
+			if (binary)
+				return pack.getClassFile(typeRootName).getType();
+
+			ICompilationUnit cu= pack.getCompilationUnit(typeRootName);
+			if (enclosingName == null)
+				return cu.getType(fName);
+			String[] enclosingNames= enclosingName.split("\\."); //$NON-NLS-1$
+			IType type= cu.getType(enclosingNames[0]);
+			for (int i= 1; i < enclosingNames.length; i++) {
+				type= type.getType(enclosingNames[i]);
+			}
+			return type.getType(fName);
+		}
+
+		@Override
+		public IPackageFragmentRoot getPackageFragmentRoot() {
+			return (IPackageFragmentRoot) fPackages[fPackageIndexes[fCurrent]].getParent();
+		}
+
+		@Override
+		public String getPackageName() {
+			return fPackages[fPackageIndexes[fCurrent]].getElementName();
+		}
+
+		@Override
+		public String getSimpleTypeName() {
+			return fName;
+		}
+
+		@Override
+		public String getTypeQualifiedName() {
+			String enclosingName= fEnclosingNames[fCurrent];
+			return enclosingName == null ? fName : enclosingName + '.' + fName;
+		}
+
+		@Override
+		public String getTypeContainerName() {
+			String packageName= getPackageName();
+			String enclosingName= fEnclosingNames[fCurrent];
+			if (enclosingName == null)
+				return packageName;
+			return packageName.length() == 0 ? enclosingName : packageName + '.' + enclosingName;
+		}
+
+		@Override
+		public String getFullyQualifiedName() {
+			String containerName= getTypeContainerName();
+			return containerName.length() == 0 ? fName : containerName + '.' + fName;
+		}
+	}
+
+	private final IJavaSearchScope fScope;
+	private final int fElementKind;
+
+	/** The distinct simple type names, sorted by {@link #NAME_ORDER} */
+	private final char[] fNameChars;
+
+	/** The name <code>i</code> is stored in <code>fNameChars</code> from <code>fNameStarts[i]</code> to <code>fNameStarts[i + 1]</code> */
+	private final int[] fNameStarts;
+
+	/** The types of the name <code>i</code> are the types <code>fStarts[i]</code> to <code>fStarts[i + 1] - 1</code> */
+	private final int[] fStarts;
+
+	/** The distinct packages of the types */
+	private final IPackageFragment[] fPackages;
+
+	/** The index of the package of each type in {@link #fPackages} */
+	private final int[] fPackageIndexes;
+
+	private final int[] fModifiers;
+
+	/** The accessibility of each type, and whether it is binary */
+	private final byte[] fFlags;
+
+	/** The type qualified name of the enclosing type of each type, <code>null</code> for top-level types */
+	private final String[] fEnclosingNames;
+
+	/**
+	 * The name of the compilation unit or class file of each type, <code>null</code> if it is
+	 * derived from the names of the type, see {@link #getTypeRootName(String, String, boolean)}
+	 */
+	private final String[] fTypeRootNames;
+
+	private TypeNameIndex(IJavaSearchScope scope, int elementKind, Collector collector) {
+		fScope= scope;
+		fElementKind= elementKind;
+		String[] names= collector.fEntries.keySet().toArray(new String[collector.fEntries.size()]);
+		Arrays.sort(names, NAME_ORDER);
+		fNameStarts= new int[names.length + 1];
+		int length= 0;
+		for (int i= 0; i < names.length; i++) {
+			length+= names[i].length();
+		}
+		fNameChars= new char[length];
+		fStarts= new int[names.length + 1];
+		fPackages= collector.fPackages.toArray(new IPackageFragment[collector.fPackages.size()]);
+		fPackageIndexes= new int[collector.fCount];
+		fModifiers= new int[collector.fCount];
+		fFlags= new byte[collector.fCount];
+		fEnclosingNames= new String[collector.fCount];
+		fTypeRootNames= new String[collector.fCount];
+		int nextChar= 0;
+		int next= 0;
+		for (int i= 0; i < names.length; i++) {
+			fNameStarts[i]= nextChar;
+			names[i].getChars(0, names[i].length(), fNameChars, nextChar);
+			nextChar+= names[i].length();
+			fStarts[i]= next;
+			List<Entry> entries= collector.fEntries.get(names[i]);
+			for (int j= 0; j < entries.size(); j++) {
+				Entry entry= entries.get(j);
+				fPackageIndexes[next]= entry.fPackage;
+				fModifiers[next]= entry.fModifiers;
+				fFlags[next]= entry.fFlags;
+				fEnclosingNames[next]= entry.fEnclosingName;
+				fTypeRootNames[next]= entry.fTypeRootName;
+				next++;
+			}
+		}
+		fNameStarts[names.length]= nextChar;
+		fStarts[names.length]= next;
+	}
+
+	/**
+	 * Returns the name of the compilation unit or class file of a type, if it is not a
+	 * secondary type.
+	 *
+	 * @param name the simple name of the type
+	 * @param enclosingName the type qualified name of the enclosing type, or <code>null</code>
+	 * @param binary <code>true</code> if the type is binary
+	 * @return the name of the compilation unit or class file
+	 */
+	private static String getTypeRootName(String name, String enclosingName, boolean binary) {
+		if (binary)
+			return (enclosingName == null ? name : enclosingName.replace('.', '$') + '$' + name) + ".class"; //$NON-NLS-1$
+		if (enclosingName == null)
+			return name + ".java"; //$NON-NLS-1$
+		int end= enclosingName.indexOf('.');
+		return (end == -1 ? enclosingName : enclosingName.substring(0, end)) + ".java"; //$NON-NLS-1$
+	}
+
+	private String getName(int index) {
+		return new String(fNameChars, fNameStarts[index], fNameStarts[index + 1] - fNameStarts[index]);
+	}
+
+	/**
+	 * Creates the index of all types of the given kind in the given scope.
+	 *
+	 * @param scope the search scope
+	 * @param elementKind the kind of types, see
+	 *            {@link SearchEngine#searchAllTypeNames(char[], int, char[], int, int, IJavaSearchScope, TypeNameMatchRequestor, int, IProgressMonitor)}
+	 * @param monitor the progress monitor
+	 * @return the index
+	 * @throws JavaModelException if the search fails
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the monitor has been
+	 *             canceled
+	 */
+	public static TypeNameIndex create(IJavaSearchScope scope, int elementKind, IProgressMonitor monitor) throws JavaModelException {
+		long generation;
+		synchronized (TypeNameIndex.class) {
+			if (fgListener == null) {
+				fgListener= new IElementChangedListener() {
+					@Override
+					public void elementChanged(ElementChangedEvent event) {
+						if (affectsTypes(event.getDelta()))
+							invalidate();
+					}
+				};
+				JavaCore.addElementChangedListener(fgListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+			}
+			generation= fgGeneration;
+		}
+		Collector collector= new Collector();
+		new SearchEngine((WorkingCopyOwner) null).searchAllTypeNames(
+				null,
+				SearchPattern.R_EXACT_MATCH,
+				null,
+				SearchPattern.R_PREFIX_MATCH,
+				elementKind,
+				scope,
+				collector,
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				monitor);
+		TypeNameIndex index= new TypeNameIndex(scope, elementKind, collector);
+		synchronized (TypeNameIndex.class) {
+			// an index that may miss changes is used by the caller, but not kept
+			if (generation == fgGeneration) {
+				removeIndex(scope, elementKind);
+				fgIndexes.add(index);
+				if (fgIndexes.size() > MAX_INDEXES)
+					fgIndexes.remove(0);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the kept index of the given scope and kind of types.
+	 *
+	 * @param scope the search scope
+	 * @param elementKind the kind of types
+	 * @return the index, or <code>null</code> if there is no up to date index
+	 */
+	public static synchronized TypeNameIndex getIndex(IJavaSearchScope scope, int elementKind) {
+		TypeNameIndex index= removeIndex(scope, elementKind);
+		if (index != null)
+			fgIndexes.add(index);
+		return index;
+	}
+
+	private static TypeNameIndex removeIndex(IJavaSearchScope scope, int elementKind) {
+		for (Iterator<TypeNameIndex> iter= fgIndexes.iterator(); iter.hasNext();) {
+			TypeNameIndex index= iter.next();
+			if (index.fScope.equals(scope) && index.fElementKind == elementKind) {
+				iter.remove();
+				return index;
+			}
+		}
+		return null;
+	}
+
+	private static synchronized void invalidate() {
+		fgIndexes.clear();
+		fgGeneration++;
+	}
+
+	/**
+	 * Drops the kept indexes and removes the element changed listener.
+	 */
+	public static synchronized void shutdown() {
+		if (fgListener != null) {
+			JavaCore.removeElementChangedListener(fgListener);
+			fgListener= null;
+		}
+		invalidate();
+	}
+
+	/**
+	 * Tells whether the given delta can add, remove or rename types or change their
+	 * modifiers.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if the indexes may be out of date
+	 */
+	static boolean affectsTypes(IJavaElementDelta delta) {
+		switch (delta.getElement().getElementType()) {
+			case IJavaElement.FIELD:
+			case IJavaElement.METHOD:
+			case IJavaElement.INITIALIZER:
+			case IJavaElement.IMPORT_CONTAINER:
+			case IJavaElement.IMPORT_DECLARATION:
+				return false;
+			case IJavaElement.COMPILATION_UNIT:
+				// a content change without details can affect any type of the unit
+				if ((delta.getFlags() & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED)) == IJavaElementDelta.F_CONTENT)
+					return true;
+				break;
+		}
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CHANGE_FLAGS) != 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (affectsTypes(children[i]))
+				return true;
+		}
+		return false;
+	}
+
+	public IJavaSearchScope getSearchScope() {
+		return fScope;
+	}
+
+	public int getElementKind() {
+		return fElementKind;
+	}
+
+	/**
+	 * Returns the number of types in the index.
+	 *
+	 * @return the number of types
+	 */
+	public int size() {
+		return fModifiers.length;
+	}
+
+	/**
+	 * Returns the types that may match the given name pattern. The candidates contain all
+	 * types matching the pattern, but may contain types that don't match. The types are
+	 * sorted case-insensitively by simple name.
+	 *
+	 * @param namePattern the simple name pattern, see
+	 *            {@link org.eclipse.jdt.internal.ui.util.PatternMatcher#getPattern()}
+	 * @param matchRule the match kind of the pattern, see
+	 *            {@link org.eclipse.jdt.internal.ui.util.PatternMatcher#getMatchKind()}
+	 * @return the candidates
+	 */
+	public Candidates getCandidates(String namePattern, int matchRule) {
+		String prefix= getPrefix(namePattern, matchRule);
+		return new Candidates(findFirst(prefix, false), findFirst(prefix, true));
+	}
+
+	/**
+	 * Returns the part of the pattern that every matching name starts with, ignoring case.
+	 *
+	 * @param namePattern the simple name pattern
+	 * @param matchRule the match kind of the pattern
+	 * @return the prefix, may be empty
+	 */
+	private static String getPrefix(String namePattern, int matchRule) {
+		switch (matchRule) {
+			case SearchPattern.R_PATTERN_MATCH:
+				for (int i= 0; i < namePattern.length(); i++) {
+					char ch= namePattern.charAt(i);
+					if (ch == '*' || ch == '?')
+						return namePattern.substring(0, i);
+				}
+				return namePattern;
+			case SearchPattern.R_CAMELCASE_MATCH:
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				// the first character of a camel case pattern has to match exactly,
+				// the prefix fallback of camel case patterns ignores case
+				return namePattern.length() > 0 ? namePattern.substring(0, 1) : namePattern;
+			default:
+				return namePattern;
+		}
+	}
+
+	/**
+	 * Returns the index of the first name that starts with the given prefix, or the index of
+	 * the first name that sorts after all names starting with the prefix.
+	 *
+	 * @param prefix the prefix
+	 * @param after <code>false</code> to find the start of the range of names with the
+	 *            prefix, <code>true</code> to find the end of the range
+	 * @return the index of the name
+	 */
+	private int findFirst(String prefix, boolean after) {
+		int low= 0;
+		int high= fNameStarts.length - 1;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			int result= comparePrefix(mid, prefix);
+			if (result < 0 || after && result == 0)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Compares the start of the name with the prefix, ignoring case in the same way as
+	 * {@link String#CASE_INSENSITIVE_ORDER}.
+	 *
+	 * @param index the index of the name
+	 * @param prefix the prefix
+	 * @return <code>0</code> if the name starts with the prefix, otherwise a negative or
+	 *         positive value if the name sorts before or after all names with the prefix
+	 */
+	private int comparePrefix(int index, String prefix) {
+		int start= fNameStarts[index];
+		int nameLength= fNameStarts[index + 1] - start;
+		int length= Math.min(nameLength, prefix.length());
+		for (int i= 0; i < length; i++) {
+			char c1= fNameChars[start + i];
+			char c2= prefix.charAt(i);
+			if (c1 != c2) {
+				c1= Character.toUpperCase(c1);
+				c2= Character.toUpperCase(c2);
+				if (c1 != c2) {
+					c1= Character.toLowerCase(c1);
+					c2= Character.toLowerCase(c2);
+					if (c1 != c2)
+						return c1 - c2;
+				}
+			}
+		}
+		return nameLength < prefix.length() ? -1 : 0;
+	}
+}
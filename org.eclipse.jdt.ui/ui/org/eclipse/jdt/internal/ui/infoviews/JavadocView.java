@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -149,6 +149,7 @@ import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover.FallbackInformationPresenter;
 import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentAccess2;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
 import org.eclipse.jdt.internal.ui.viewsupport.BasicElementLabels;
 import org.eclipse.jdt.internal.ui.viewsupport.BindingLinkedLabelComposer;
 import org.eclipse.jdt.internal.ui.viewsupport.JavaElementLinks;
@@ -1007,10 +1008,10 @@ public class JavadocView extends AbstractInfoView {
 							// no annotations this time...
 						}
 
-						content= JavadocContentAccess2.getHTMLContent((IPackageDeclaration) curr);
+						content= JavadocContentCache.getDefault().getHTMLContent(curr, true);
 					} else if (curr instanceof IPackageFragment) {
 						JavadocHover.addAnnotations(buffer, curr, null, null);
-						content= JavadocContentAccess2.getHTMLContent((IPackageFragment) curr);
+						content= JavadocContentCache.getDefault().getHTMLContent(curr, true);
 					}
 				} catch (CoreException e) {
 					reader= new StringReader(JavaDocLocations.handleFailedJavadocFetch(e));
@@ -1070,7 +1071,7 @@ public class JavadocView extends AbstractInfoView {
 
 				Reader reader= null;
 				try {
-					String content= JavadocContentAccess2.getHTMLContent(element, true);
+					String content= JavadocContentCache.getDefault().getHTMLContent(element, true);
 					IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
 					if (content != null) {
 						IMember member;
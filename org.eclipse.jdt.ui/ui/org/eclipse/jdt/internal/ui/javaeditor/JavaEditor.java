@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -231,6 +231,7 @@ import org.eclipse.jdt.internal.ui.text.JavaWordIterator;
 import org.eclipse.jdt.internal.ui.text.PreferencesAdapter;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavaExpandHover;
 import org.eclipse.jdt.internal.ui.text.java.hover.SourceViewerInformationControl;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
 import org.eclipse.jdt.internal.ui.util.ElementValidator;
 import org.eclipse.jdt.internal.ui.util.JavaUIHelp;
 import org.eclipse.jdt.internal.ui.viewsupport.ISelectionListenerWithAST;
@@ -2264,6 +2265,22 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		if (!fSelectionChangedViaGotoAnnotation)
 			updateStatusLine();
 		fSelectionChangedViaGotoAnnotation= false;
+		prefetchJavadoc();
+	}
+
+	/**
+	 * Computes the Javadoc of the element at the caret in the background, so that hovering over
+	 * it shows the Javadoc without delay.
+	 *
+	 * @since 3.13
+	 */
+	private void prefetchJavadoc() {
+		ITypeRoot input= getInputJavaElement();
+		ISelection selection= getSelectionProvider().getSelection();
+		if (input != null && selection instanceof ITextSelection) {
+			ITextSelection textSelection= (ITextSelection) selection;
+			JavadocContentCache.getDefault().prefetch(input, textSelection.getOffset(), textSelection.getLength());
+		}
 	}
 
 	protected void setSelection(ISourceReference reference, boolean moveCursor) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.jdt.internal.ui.javaeditor;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -23,9 +24,9 @@ import java.util.Vector;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.BusyIndicator;
+import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Item;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Tree;
@@ -54,6 +55,8 @@ import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.IBaseLabelProvider;
+import org.eclipse.jface.viewers.IContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
 import org.eclipse.jface.viewers.IPostSelectionProvider;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
@@ -64,6 +67,8 @@ import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -164,30 +169,31 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 				@Override
 				public void elementChanged(final ElementChangedEvent e) {
 
-					if (getControl() == null)
+					JavaOutlineViewer viewer= fOutlineViewer;
+					IJavaElement input= fInput;
+					if (viewer == null || !(input instanceof ICompilationUnit))
 						return;
 
-					Display d= getControl().getDisplay();
-					if (d != null) {
-						d.asyncExec(new Runnable() {
-							@Override
-							public void run() {
-								ICompilationUnit cu= (ICompilationUnit) fInput;
-								IJavaElement base= cu;
-								if (fTopLevelTypeOnly) {
-									base= cu.findPrimaryType();
-									if (base == null) {
-										if (fOutlineViewer != null)
-											fOutlineViewer.refresh(true);
-										return;
-									}
-								}
-								IJavaElementDelta delta= findElement(base, e.getDelta());
-								if (delta != null && fOutlineViewer != null) {
-									fOutlineViewer.reconcile(delta);
-								}
-							}
-						});
+					// the changes are computed here and applied in the UI thread by the viewer
+					ICompilationUnit cu= (ICompilationUnit) input;
+					IJavaElementDelta delta= findElement(cu, e.getDelta());
+					if (delta == null)
+						return;
+					// only the delta of the compilation unit tells whether the delta is fine-grained
+					if ((delta.getFlags() & IJavaElementDelta.F_FINE_GRAINED) == 0) {
+						viewer.refreshLater();
+						return;
+					}
+					if (fTopLevelTypeOnly) {
+						IType type= cu.findPrimaryType();
+						if (type == null) {
+							viewer.refreshLater();
+							return;
+						}
+						delta= findElement(type, delta);
+					}
+					if (delta != null) {
+						viewer.reconcile(delta);
 					}
 				}
 
@@ -380,6 +386,103 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 				}
 			}
 
+			/**
+			 * Content provider for inputs with many elements. The items of the virtual tree are
+			 * only associated with their elements when they are shown. The filters and the
+			 * comparator of the viewer are applied by the content provider.
+			 *
+			 * @since 3.13
+			 */
+			protected class LazyChildrenProvider extends ChildrenProvider implements ILazyTreeContentProvider {
+
+				private TreeViewer fViewer;
+				/** The filtered and sorted children by parent. */
+				private final Map<Object, Object[]> fSortedChildren= new HashMap<>();
+
+				@Override
+				public void updateElement(Object parent, int index) {
+					Object[] children= getSortedChildren(parent);
+					if (index < children.length) {
+						Object element= children[index];
+						fViewer.replace(parent, index, element);
+						updateChildCount(element, -1);
+					}
+				}
+
+				@Override
+				public void updateChildCount(Object element, int currentChildCount) {
+					int count= getSortedChildren(element).length;
+					if (count != currentChildCount)
+						fViewer.setChildCount(element, count);
+				}
+
+				@Override
+				public Object getParent(Object child) {
+					Object parent= super.getParent(child);
+					if (fTopLevelTypeOnly && parent instanceof IType && ((IType) parent).getParent() instanceof ITypeRoot) {
+						// the members of the top-level type are shown at the top level
+						return ((IType) parent).getParent();
+					}
+					return parent;
+				}
+
+				@Override
+				public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+					super.inputChanged(viewer, oldInput, newInput);
+					fViewer= (TreeViewer) viewer;
+					fSortedChildren.clear();
+				}
+
+				/**
+				 * Forgets the children computed so far. Called when the viewer is refreshed.
+				 */
+				void clearChildren() {
+					fSortedChildren.clear();
+				}
+
+				Object[] getSortedChildren(Object parent) {
+					Object[] children= fSortedChildren.get(parent);
+					if (children == null) {
+						if (parent != null && parent.equals(fViewer.getInput()))
+							children= getElements(parent);
+						else
+							children= getChildren(parent);
+						ViewerFilter[] filters= fViewer.getFilters();
+						for (int i= 0; i < filters.length; i++) {
+							children= filters[i].filter(fViewer, parent, children);
+						}
+						ViewerComparator comparator= fViewer.getComparator();
+						if (comparator != null) {
+							// the children can be the array of the Java model
+							children= children.clone();
+							comparator.sort(fViewer, children);
+						}
+						fSortedChildren.put(parent, children);
+					}
+					return children;
+				}
+
+				/**
+				 * Associates the item of the given element and of its parents, so that the viewer
+				 * does not have to associate all their siblings to find them.
+				 *
+				 * @param element the element
+				 * @return <code>true</code> if the element is shown
+				 */
+				boolean associate(Object element) {
+					if (element.equals(fViewer.getInput()) || fViewer.testFindItem(element) != null)
+						return true;
+					Object parent= getParent(element);
+					if (parent == null || !associate(parent))
+						return false;
+					int index= Arrays.asList(getSortedChildren(parent)).indexOf(element);
+					if (index == -1)
+						return false;
+					updateElement(parent, index);
+					return true;
+				}
+			}
+
 			/**
 			 * The tree viewer used for displaying the outline.
 			 *
@@ -387,20 +490,90 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 			 */
 			protected class JavaOutlineViewer extends TreeViewer {
 
+				private final JavaOutlineUpdater fUpdater;
+
 				public JavaOutlineViewer(Tree tree) {
 					super(tree);
 					setAutoExpandLevel(ALL_LEVELS);
 					setUseHashlookup(true);
+					fUpdater= new JavaOutlineUpdater(this);
+				}
+
+				/**
+				 * Sets the input of the outline. Inputs with at least
+				 * {@link JavaOutlinePage#LAZY_THRESHOLD} elements are shown with a
+				 * {@link LazyChildrenProvider}, and only their top-level types are expanded.
+				 *
+				 * @param input the input
+				 * @since 3.13
+				 */
+				void setOutlineInput(IJavaElement input) {
+					boolean lazy= countElements(input, LAZY_THRESHOLD) >= LAZY_THRESHOLD;
+					if (lazy != getContentProvider() instanceof LazyChildrenProvider) {
+						// setting the content provider refreshes the old input
+						setInput(null);
+						setAutoExpandLevel(lazy ? 0 : ALL_LEVELS);
+						setContentProvider(lazy ? new LazyChildrenProvider() : new ChildrenProvider());
+					}
+					setInput(input);
+					if (lazy && !fTopLevelTypeOnly)
+						expandTypes(((LazyChildrenProvider) getContentProvider()).getSortedChildren(input));
+				}
+
+				private void expandTypes(Object[] elements) {
+					for (int i= 0; i < elements.length; i++) {
+						if (elements[i] instanceof IType) {
+							Widget item= internalExpand(elements[i], false);
+							if (item instanceof Item)
+								internalExpandToLevel(item, 1);
+						}
+					}
+				}
+
+				@Override
+				public void setSelection(ISelection selection, boolean reveal) {
+					IContentProvider provider= getContentProvider();
+					if (provider instanceof LazyChildrenProvider && selection instanceof IStructuredSelection) {
+						for (Iterator<?> iter= ((IStructuredSelection) selection).iterator(); iter.hasNext();) {
+							((LazyChildrenProvider) provider).associate(iter.next());
+						}
+					}
+					super.setSelection(selection, reveal);
+				}
+
+				@Override
+				protected void internalRefresh(Object element, boolean updateLabels) {
+					IContentProvider provider= getContentProvider();
+					if (provider instanceof LazyChildrenProvider)
+						((LazyChildrenProvider) provider).clearChildren();
+					super.internalRefresh(element, updateLabels);
 				}
 
 				/**
 				 * Investigates the given element change event and if affected
-				 * incrementally updates the Java outline.
+				 * incrementally updates the Java outline. The changes are computed
+				 * in the calling thread and applied later in the UI thread.
 				 *
-				 * @param delta the Java element delta used to reconcile the Java outline
+				 * @param delta the Java element delta used to reconcile the Java outline,
+				 *            part of a fine-grained delta of the compilation unit
 				 */
 				public void reconcile(IJavaElementDelta delta) {
-					refresh(true);
+					fUpdater.scheduleUpdate(delta, getInput());
+				}
+
+				/**
+				 * Refreshes the Java outline later in the UI thread. Can be called from any thread.
+				 *
+				 * @since 3.13
+				 */
+				void refreshLater() {
+					fUpdater.scheduleRefresh();
+				}
+
+				@Override
+				protected void handleDispose(DisposeEvent event) {
+					fUpdater.dispose();
+					super.handleDispose(event);
 				}
 
 				/*
@@ -426,7 +599,8 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 				 */
 				@Override
 				public boolean isExpandable(Object element) {
-					if (hasFilters()) {
+					// the lazy content provider applies the filters itself
+					if (hasFilters() && !(getContentProvider() instanceof LazyChildrenProvider)) {
 						return getFilteredChildren(element).length > 0;
 					}
 					return super.isExpandable(element);
@@ -762,6 +936,13 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 
 
 
+	/**
+	 * The number of elements from which the outline uses a {@link LazyChildrenProvider}.
+	 *
+	 * @since 3.13
+	 */
+	private static final int LAZY_THRESHOLD= 1000;
+
 	/** A flag to show contents of top level type only */
 	private boolean fTopLevelTypeOnly;
 
@@ -949,7 +1130,8 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 	@Override
 	public void createControl(Composite parent) {
 
-		Tree tree= new Tree(parent, SWT.MULTI);
+		// only the lazy content provider of large inputs uses the virtual items
+		Tree tree= new Tree(parent, SWT.MULTI | SWT.VIRTUAL);
 
 		AppearanceAwareLabelProvider lprovider= new AppearanceAwareLabelProvider(
 			AppearanceAwareLabelProvider.DEFAULT_TEXTFLAGS |  JavaElementLabels.F_APP_TYPE_SIGNATURE | JavaElementLabels.ALL_CATEGORY,
@@ -1054,7 +1236,7 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 		handlerService.activateHandler(CollapseAllHandler.COMMAND_ID, new ActionHandler(fCollapseAllAction));
 
 
-		fOutlineViewer.setInput(fInput);
+		fOutlineViewer.setOutlineInput(fInput);
 	}
 
 	/*
@@ -1132,7 +1314,7 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 	public void setInput(IJavaElement inputElement) {
 		fInput= inputElement;
 		if (fOutlineViewer != null) {
-			fOutlineViewer.setInput(fInput);
+			fOutlineViewer.setOutlineInput(fInput);
 			updateSelectionProvider(getSite());
 		}
 		if (fCategoryFilterActionGroup != null)
@@ -1231,6 +1413,32 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 			fOutlineViewer.getControl().setFocus();
 	}
 
+	/**
+	 * Counts the children of the given element and the members of its types, up to the given
+	 * maximum.
+	 *
+	 * @param element the element
+	 * @param max the number of elements after which counting stops
+	 * @return the number of elements, at least <code>max</code> if there are more
+	 * @since 3.13
+	 */
+	private static int countElements(IJavaElement element, int max) {
+		if (!(element instanceof IParent))
+			return 0;
+		try {
+			IJavaElement[] children= ((IParent) element).getChildren();
+			int count= children.length;
+			for (int i= 0; i < children.length && count < max; i++) {
+				if (children[i] instanceof IType)
+					count+= countElements(children[i], max - count);
+			}
+			return count;
+		} catch (JavaModelException e) {
+			// the outline shows no children
+			return 0;
+		}
+	}
+
 	/**
 	 * Checks whether a given Java element is an inner type.
 	 *
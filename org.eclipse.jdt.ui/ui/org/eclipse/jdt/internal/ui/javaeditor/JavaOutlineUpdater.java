@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+
+
+/**
+ * Updates the tree of the {@link JavaOutlinePage} from Java element deltas.
+ * <p>
+ * The changes of the outline are computed from a delta in the thread that reports it: the
+ * removed elements, the added elements by parent, the elements whose label changed and the
+ * parents whose children have to be re-sorted. The changes are applied in the UI thread in steps
+ * of at most {@link #MAX_STEP_SIZE} elements, and the steps run by one runnable take about
+ * {@link #TIME_BUDGET} ms at most, so that updating the outline of a very large type does not
+ * block typing in the editor.
+ * </p>
+ * <p>
+ * With an {@link ILazyTreeContentProvider}, the items of the virtual tree are only associated with
+ * their elements when they are shown. Additions and removals then refresh the parent, which only
+ * updates the number of its children and clears the shown items.
+ * </p>
+ * <p>
+ * This class is <code>public</code> for test purposes only.
+ * </p>
+ *
+ * @since 3.13
+ */
+public final class JavaOutlineUpdater {
+
+	/**
+	 * The time in milliseconds after which the update yields the UI thread.
+	 */
+	public static final long TIME_BUDGET= 30;
+
+	/**
+	 * The maximal number of elements added, removed or updated by one step.
+	 */
+	public static final int MAX_STEP_SIZE= 200;
+
+	private static final int REFRESH_ALL= 0;
+	private static final int REMOVE= 1;
+	private static final int ADD= 2;
+	private static final int REFRESH= 3;
+	private static final int UPDATE= 4;
+
+	/**
+	 * A change of the outline tree.
+	 */
+	private static final class Step {
+		final int fKind;
+		final Object fParent;
+		final Object[] fElements;
+
+		Step(int kind, Object parent, Object[] elements) {
+			fKind= kind;
+			fParent= parent;
+			fElements= elements;
+		}
+	}
+
+	private final TreeViewer fViewer;
+	private final long fTimeBudget;
+	private final LinkedList<Step> fSteps= new LinkedList<>();
+	private boolean fScheduled;
+
+	private final Runnable fRunnable= new Runnable() {
+		@Override
+		public void run() {
+			applySteps();
+		}
+	};
+
+	/**
+	 * Creates a new updater.
+	 *
+	 * @param viewer the viewer of the outline
+	 */
+	public JavaOutlineUpdater(TreeViewer viewer) {
+		this(viewer, TIME_BUDGET);
+	}
+
+	/**
+	 * Creates a new updater with the given time budget.
+	 * <p>
+	 * This constructor is for testing purpose only.
+	 * </p>
+	 *
+	 * @param viewer the viewer of the outline
+	 * @param timeBudget the time in milliseconds after which the update yields the UI thread
+	 */
+	public JavaOutlineUpdater(TreeViewer viewer, long timeBudget) {
+		fViewer= viewer;
+		fTimeBudget= timeBudget;
+	}
+
+	/**
+	 * Schedules the changes described by the given delta. Can be called from any thread.
+	 * <p>
+	 * The delta must be part of a fine-grained delta of the compilation unit, since the
+	 * {@link IJavaElementDelta#F_FINE_GRAINED} flag is only set on the delta of the compilation
+	 * unit.
+	 * </p>
+	 *
+	 * @param delta the delta of the element whose children are shown at the top level of the
+	 *            outline
+	 * @param input the input of the outline
+	 */
+	public void scheduleUpdate(IJavaElementDelta delta, Object input) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED) {
+			scheduleRefresh();
+			return;
+		}
+
+		Map<Object, List<IJavaElement>> removed= new LinkedHashMap<>();
+		Map<Object, List<IJavaElement>> added= new LinkedHashMap<>();
+		Set<Object> reordered= new LinkedHashSet<>();
+		Set<IJavaElement> changed= new LinkedHashSet<>();
+		collectChanges(delta, input, removed, added, reordered, changed);
+
+		List<Step> steps= new ArrayList<>();
+		for (Map.Entry<Object, List<IJavaElement>> entry : removed.entrySet()) {
+			addSteps(steps, REMOVE, entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<Object, List<IJavaElement>> entry : added.entrySet()) {
+			addSteps(steps, ADD, entry.getKey(), entry.getValue());
+		}
+		for (Object parent : reordered) {
+			steps.add(new Step(REFRESH, parent, null));
+		}
+		addSteps(steps, UPDATE, null, new ArrayList<>(changed));
+
+		if (steps.isEmpty())
+			return;
+		synchronized (fSteps) {
+			fSteps.addAll(steps);
+			schedule();
+		}
+	}
+
+	/**
+	 * Schedules a full refresh of the outline. Pending changes are dropped. Can be called from any
+	 * thread.
+	 */
+	public void scheduleRefresh() {
+		synchronized (fSteps) {
+			fSteps.clear();
+			fSteps.add(new Step(REFRESH_ALL, null, null));
+			schedule();
+		}
+	}
+
+	/**
+	 * Drops the pending changes.
+	 */
+	public void dispose() {
+		synchronized (fSteps) {
+			fSteps.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of changes that have not been applied yet.
+	 *
+	 * @return the number of pending steps
+	 */
+	public int getPendingStepCount() {
+		synchronized (fSteps) {
+			return fSteps.size();
+		}
+	}
+
+	private void schedule() {
+		if (fScheduled)
+			return;
+		Control control= fViewer.getControl();
+		if (control == null || control.isDisposed()) {
+			fSteps.clear();
+			return;
+		}
+		Display display= control.getDisplay();
+		fScheduled= true;
+		display.asyncExec(fRunnable);
+	}
+
+	private static void collectChanges(IJavaElementDelta delta, Object parent, Map<Object, List<IJavaElement>> removed, Map<Object, List<IJavaElement>> added, Set<Object> reordered, Set<IJavaElement> changed) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			IJavaElement element= child.getElement();
+			switch (child.getKind()) {
+				case IJavaElementDelta.ADDED:
+					addElement(added, parent, element);
+					break;
+				case IJavaElementDelta.REMOVED:
+					addElement(removed, parent, element);
+					break;
+				default:
+					int flags= child.getFlags();
+					if ((flags & (IJavaElementDelta.F_REORDER | IJavaElementDelta.F_MODIFIERS | IJavaElementDelta.F_CATEGORIES)) != 0) {
+						// the position of the element changes if the outline is sorted
+						reordered.add(parent);
+					}
+					if ((flags & ~IJavaElementDelta.F_CHILDREN) != 0)
+						changed.add(element);
+					if ((flags & IJavaElementDelta.F_CHILDREN) != 0)
+						collectChanges(child, element, removed, added, reordered, changed);
+					break;
+			}
+		}
+	}
+
+	private static void addElement(Map<Object, List<IJavaElement>> elements, Object parent, IJavaElement element) {
+		List<IJavaElement> list= elements.get(parent);
+		if (list == null) {
+			list= new ArrayList<>();
+			elements.put(parent, list);
+		}
+		list.add(element);
+	}
+
+	private static void addSteps(List<Step> steps, int kind, Object parent, List<IJavaElement> elements) {
+		for (int i= 0; i < elements.size(); i+= MAX_STEP_SIZE) {
+			List<IJavaElement> chunk= elements.subList(i, Math.min(i + MAX_STEP_SIZE, elements.size()));
+			steps.add(new Step(kind, parent, chunk.toArray()));
+		}
+	}
+
+	private void applySteps() {
+		Control control= fViewer.getControl();
+		if (control == null || control.isDisposed()) {
+			dispose();
+			return;
+		}
+
+		long end= System.currentTimeMillis() + fTimeBudget;
+		control.setRedraw(false);
+		try {
+			while (true) {
+				Step step;
+				synchronized (fSteps) {
+					step= fSteps.poll();
+					if (step == null) {
+						fScheduled= false;
+						return;
+					}
+				}
+				apply(step);
+				if (System.currentTimeMillis() >= end)
+					break;
+			}
+		} finally {
+			control.setRedraw(true);
+		}
+
+		synchronized (fSteps) {
+			if (fSteps.isEmpty()) {
+				fScheduled= false;
+			} else {
+				control.getDisplay().asyncExec(fRunnable);
+			}
+		}
+	}
+
+	private void apply(Step step) {
+		// the content provider can change with the input of the viewer
+		boolean lazy= fViewer.getContentProvider() instanceof ILazyTreeContentProvider;
+		switch (step.fKind) {
+			case REFRESH_ALL:
+				fViewer.refresh(true);
+				break;
+			case REMOVE:
+				if (lazy)
+					fViewer.refresh(step.fParent, false);
+				else
+					fViewer.remove(step.fElements);
+				break;
+			case ADD:
+				if (lazy) {
+					fViewer.refresh(step.fParent, false);
+					break;
+				}
+				List<Object> missing= new ArrayList<>(step.fElements.length);
+				for (int i= 0; i < step.fElements.length; i++) {
+					// the element is already shown if the viewer has been refreshed after the delta
+					if (fViewer.testFindItem(step.fElements[i]) == null)
+						missing.add(step.fElements[i]);
+				}
+				if (!missing.isEmpty())
+					fViewer.add(step.fParent, missing.toArray());
+				break;
+			case REFRESH:
+				fViewer.refresh(step.fParent, false);
+				break;
+			case UPDATE:
+				fViewer.update(step.fElements, null);
+				break;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,7 @@ public class ClassPathContainer extends PackageFragmentRootContainer {
 
 	private IClasspathEntry fClassPathEntry;
 	private IClasspathContainer fContainer;
+	private boolean fContainerResolved;
 
 	public static class RequiredProjectWrapper implements IAdaptable, IWorkbenchAdapter {
 
@@ -99,11 +100,24 @@ public class ClassPathContainer extends PackageFragmentRootContainer {
 	public ClassPathContainer(IJavaProject parent, IClasspathEntry entry) {
 		super(parent);
 		fClassPathEntry= entry;
-		try {
-			fContainer= JavaCore.getClasspathContainer(entry.getPath(), parent);
-		} catch (JavaModelException e) {
-			fContainer= null;
+	}
+
+	/**
+	 * Returns the classpath container. The container is resolved on first access, since
+	 * container nodes are also created to compute the parent of package fragment roots.
+	 *
+	 * @return the container or <code>null</code>
+	 */
+	private IClasspathContainer getContainer() {
+		if (!fContainerResolved) {
+			try {
+				fContainer= JavaCore.getClasspathContainer(fClassPathEntry.getPath(), getJavaProject());
+			} catch (JavaModelException e) {
+				fContainer= null;
+			}
+			fContainerResolved= true;
 		}
+		return fContainer;
 	}
 
 	@Override
@@ -136,11 +150,12 @@ public class ClassPathContainer extends PackageFragmentRootContainer {
 		for (int i= 0; i < roots.length; i++) {
 			list.add(roots[i]);
 		}
-		if (fContainer != null) {
-			IClasspathEntry[] classpathEntries= fContainer.getClasspathEntries();
+		IClasspathContainer container= getContainer();
+		if (container != null) {
+			IClasspathEntry[] classpathEntries= container.getClasspathEntries();
 			if (classpathEntries == null) {
 				// invalid implementation of a classpath container
-				JavaPlugin.log(new IllegalArgumentException("Invalid classpath container implementation: getClasspathEntries() returns null. " + fContainer.getPath())); //$NON-NLS-1$
+				JavaPlugin.log(new IllegalArgumentException("Invalid classpath container implementation: getClasspathEntries() returns null. " + container.getPath())); //$NON-NLS-1$
 			} else {
 				IWorkspaceRoot root= ResourcesPlugin.getWorkspace().getRoot();
 				for (int i= 0; i < classpathEntries.length; i++) {
@@ -163,8 +178,9 @@ public class ClassPathContainer extends PackageFragmentRootContainer {
 
 	@Override
 	public String getLabel() {
-		if (fContainer != null)
-			return fContainer.getDescription();
+		IClasspathContainer container= getContainer();
+		if (container != null)
+			return container.getDescription();
 
 		IPath path= fClassPathEntry.getPath();
 		String containerId= path.segment(0);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,12 @@ package org.eclipse.jdt.internal.ui.packageview;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
@@ -24,6 +28,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -37,6 +42,7 @@ import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 
 import org.eclipse.ui.IWorkingSet;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
 import org.eclipse.ui.progress.UIJob;
 
 import org.eclipse.jdt.core.ElementChangedEvent;
@@ -47,6 +53,7 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaModel;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IOpenable;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
@@ -58,6 +65,7 @@ import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.StandardJavaElementContentProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.viewsupport.JavaUILabelProvider;
 import org.eclipse.jdt.internal.ui.workingsets.WorkingSetModel;
 
 /**
@@ -87,6 +95,188 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 
 	private UIJob fUpdateJob;
 
+	/**
+	 * The element that is being expanded by the user, or <code>null</code>. Only accessed in
+	 * the display thread.
+	 */
+	private Object fBackgroundFetchParent;
+
+	/** Elements whose children are being fetched in the background. Guarded by <code>this</code>. */
+	private final Set<Object> fPendingFetches= new HashSet<>();
+
+	/** Children fetched in the background, not yet shown. Guarded by <code>this</code>. */
+	private final Map<Object, Object[]> fFetchedChildren= new HashMap<>();
+
+	/** Incremented on every element change, see {@link FetchChildrenJob}. Guarded by <code>this</code>. */
+	private long fFetchGeneration;
+
+	/** The label provider whose labels are computed together with fetched children, or <code>null</code> */
+	private volatile JavaUILabelProvider fPrefetchLabelProvider;
+
+	/**
+	 * Delay in milliseconds before updates posted from a background thread are applied, so
+	 * that the updates of several deltas are applied as one batch.
+	 */
+	private static final int UPDATE_DELAY= 50;
+
+	/** Number of element changed events received. Guarded by <code>this</code>. */
+	private int fReceivedDeltaCount;
+
+	/** Number of updates posted before coalescing. Guarded by <code>this</code>. */
+	private int fPostedUpdateCount;
+
+	/** Number of refresh, add, remove and update calls issued to the viewer. Guarded by <code>this</code>. */
+	private int fViewerOperationCount;
+
+	/**
+	 * Fetches the children of an element in the background, together with the information
+	 * whether these children have children themselves. When done, the element is refreshed
+	 * in the viewer together with the other pending updates, which replaces the placeholder
+	 * by the fetched children.
+	 */
+	private class FetchChildrenJob extends Job {
+
+		private final Object fParent;
+
+		public FetchChildrenJob(Object parent) {
+			super(PackagesMessages.PackageExplorerContentProvider_fetch_job_name);
+			fParent= parent;
+			setSystem(true);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == PackageExplorerContentProvider.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			long generation;
+			synchronized (PackageExplorerContentProvider.this) {
+				generation= fFetchGeneration;
+			}
+			Object[] children= null;
+			try {
+				children= internalGetChildren(fParent);
+				for (int i= 0; i < children.length; i++) {
+					if (monitor.isCanceled()) {
+						children= null;
+						break;
+					}
+					hasChildren(children[i]); // opens the children, such as the archives in a container
+				}
+				JavaUILabelProvider labelProvider= fPrefetchLabelProvider;
+				if (children != null && labelProvider != null)
+					labelProvider.prefetchLabels(children);
+			} finally {
+				synchronized (PackageExplorerContentProvider.this) {
+					fPendingFetches.remove(fParent);
+					// don't keep children fetched before an element change, the refresh computes them again
+					if (children != null && generation == fFetchGeneration)
+						fFetchedChildren.put(fParent, children);
+				}
+			}
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			if (fViewer != null) {
+				List<Object> toRefresh= new ArrayList<>(1);
+				toRefresh.add(fParent);
+				ArrayList<Runnable> runnables= new ArrayList<>(1);
+				postRefresh(toRefresh, false, runnables);
+				executeRunnables(runnables);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Refreshes elements in the viewer, see {@link PackageExplorerContentProvider#coalesceUpdates(Collection)}.
+	 */
+	private class RefreshUpdate implements Runnable {
+
+		private final List<Object> fElements;
+		private final boolean fUpdateLabels;
+
+		public RefreshUpdate(List<Object> elements, boolean updateLabels) {
+			fElements= elements;
+			fUpdateLabels= updateLabels;
+		}
+
+		@Override
+		public void run() {
+			Object[] elements= fElements.toArray();
+			int count= 0;
+			for (int i= 0; i < elements.length; i++) {
+				Object element= elements[i];
+				if (element == null || fViewer.testFindItems(element).length > 0) {
+					fViewer.refresh(element, fUpdateLabels);
+					count++;
+				}
+			}
+			countViewerOperations(count);
+		}
+	}
+
+	private class AddUpdate implements Runnable {
+
+		private final Object fParent;
+		private final Object fElement;
+
+		public AddUpdate(Object parent, Object element) {
+			fParent= parent;
+			fElement= element;
+		}
+
+		@Override
+		public void run() {
+			Widget[] items= fViewer.testFindItems(fElement);
+			for (int i= 0; i < items.length; i++) {
+				Widget item= items[i];
+				if (item instanceof TreeItem && !item.isDisposed()) {
+					TreeItem parentItem= ((TreeItem) item).getParentItem();
+					if (parentItem != null && !parentItem.isDisposed() && fParent.equals(parentItem.getData())) {
+						return; // no add, element already added (most likely by a refresh)
+					}
+				}
+			}
+			countViewerOperations(1);
+			fViewer.add(fParent, fElement);
+		}
+	}
+
+	private class RemoveUpdate implements Runnable {
+
+		private final Object fElement;
+
+		public RemoveUpdate(Object element) {
+			fElement= element;
+		}
+
+		@Override
+		public void run() {
+			if (fViewer.testFindItems(fElement).length > 0) {
+				countViewerOperations(1);
+				fViewer.remove(fElement);
+			}
+		}
+	}
+
+	private class UpdateIconUpdate implements Runnable {
+
+		private final IJavaElement fElement;
+
+		public UpdateIconUpdate(IJavaElement element) {
+			fElement= element;
+		}
+
+		@Override
+		public void run() {
+			countViewerOperations(1);
+			// 1GF87WR: ITPUI:ALL - SWTEx + NPE closing a workbench window.
+			fViewer.update(fElement, new String[]{IBasicPropertyConstants.P_IMAGE});
+		}
+	}
+
 	/**
 	 * Creates a new content provider for Java elements.
 	 * @param provideMembers if set, members of compilation units and class files are shown
@@ -112,6 +302,11 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 
 	@Override
 	public void elementChanged(final ElementChangedEvent event) {
+		synchronized (this) {
+			fReceivedDeltaCount++;
+			fFetchGeneration++;
+			fFetchedChildren.clear();
+		}
 		final ArrayList<Runnable> runnables= new ArrayList<>();
 		try {
 			// 58952 delete project does not update Package Explorer [package explorer]
@@ -151,6 +346,15 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 			}
 		}
 	}
+
+	/**
+	 * Schedules the update job. The job is delayed by {@link #UPDATE_DELAY} so that the
+	 * updates of deltas arriving in the meantime are coalesced with the pending updates. A
+	 * waiting job is not rescheduled, so that a steady stream of deltas does not postpone
+	 * the updates indefinitely.
+	 *
+	 * @param display the display
+	 */
 	private void postAsyncUpdate(final Display display) {
 		if (fUpdateJob == null) {
 			fUpdateJob= new UIJob(display, PackagesMessages.PackageExplorerContentProvider_update_job_description) {
@@ -167,7 +371,9 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 			};
 			fUpdateJob.setSystem(true);
 		}
-		fUpdateJob.schedule();
+		int state= fUpdateJob.getState();
+		if (state != Job.WAITING && state != Job.SLEEPING)
+			fUpdateJob.schedule(UPDATE_DELAY);
 	}
 
 	/**
@@ -188,12 +394,170 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	private void runUpdates(Collection<Runnable> runnables) {
-		Iterator<Runnable> runnableIterator = runnables.iterator();
+		synchronized (this) {
+			fPostedUpdateCount+= runnables.size();
+		}
+		Iterator<Runnable> runnableIterator = coalesceUpdates(runnables).iterator();
 		while (runnableIterator.hasNext()){
 			runnableIterator.next().run();
 		}
 	}
 
+	/**
+	 * Removes the updates that are redundant in a batch of updates:
+	 * <ul>
+	 * <li>refreshes, adds and removes of elements below an element whose structure is refreshed,</li>
+	 * <li>label refreshes and icon updates of elements below or at an element whose labels are refreshed,</li>
+	 * <li>structure refreshes of elements whose labels are refreshed,</li>
+	 * <li>repeated refreshes and icon updates of the same element.</li>
+	 * </ul>
+	 * Adds and removes are kept in order since they don't commute. Other updates are kept as
+	 * they are.
+	 *
+	 * @param runnables the updates of the batch
+	 * @return the updates to run
+	 */
+	private List<Runnable> coalesceUpdates(Collection<Runnable> runnables) {
+		List<Runnable> result= new ArrayList<>(runnables.size());
+		if (runnables.size() < 2) {
+			result.addAll(runnables);
+			return result;
+		}
+		Set<Object> refreshed= new HashSet<>();
+		Set<Object> labelsRefreshed= new HashSet<>();
+		for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				RefreshUpdate update= (RefreshUpdate) runnable;
+				refreshed.addAll(update.fElements);
+				if (update.fUpdateLabels)
+					labelsRefreshed.addAll(update.fElements);
+			}
+		}
+		if (refreshed.isEmpty())
+			return new ArrayList<>(runnables);
+
+		Map<Object, Boolean> belowRefreshed= new HashMap<>();
+		Map<Object, Boolean> belowLabelsRefreshed= new HashMap<>();
+		Set<Object> emittedRefreshes= new HashSet<>();
+		Set<Object> emittedLabelRefreshes= new HashSet<>();
+		Set<Object> emittedIconUpdates= new HashSet<>();
+		for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				RefreshUpdate update= (RefreshUpdate) runnable;
+				List<Object> elements= new ArrayList<>(update.fElements.size());
+				for (Iterator<Object> elementIter= update.fElements.iterator(); elementIter.hasNext();) {
+					Object element= elementIter.next();
+					if (update.fUpdateLabels) {
+						if (!isBelowRefreshed(element, labelsRefreshed, belowLabelsRefreshed) && emittedLabelRefreshes.add(element))
+							elements.add(element);
+					} else {
+						if (!isBelowRefreshed(element, refreshed, belowRefreshed) && !labelsRefreshed.contains(element) && emittedRefreshes.add(element))
+							elements.add(element);
+					}
+				}
+				if (elements.size() == update.fElements.size())
+					result.add(update);
+				else if (!elements.isEmpty())
+					result.add(new RefreshUpdate(elements, update.fUpdateLabels));
+			} else if (runnable instanceof AddUpdate) {
+				Object parent= ((AddUpdate) runnable).fParent;
+				if (!refreshed.contains(parent) && !isBelowRefreshed(parent, refreshed, belowRefreshed))
+					result.add(runnable);
+			} else if (runnable instanceof RemoveUpdate) {
+				if (!isBelowRefreshed(((RemoveUpdate) runnable).fElement, refreshed, belowRefreshed))
+					result.add(runnable);
+			} else if (runnable instanceof UpdateIconUpdate) {
+				Object element= ((UpdateIconUpdate) runnable).fElement;
+				if (!labelsRefreshed.contains(element) && !isBelowRefreshed(element, labelsRefreshed, belowLabelsRefreshed) && emittedIconUpdates.add(element))
+					result.add(runnable);
+			} else {
+				result.add(runnable);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tells whether one of the ancestors of the given element is refreshed.
+	 *
+	 * @param element the element
+	 * @param refreshed the refreshed elements, <code>null</code> stands for the viewer's input
+	 * @param known the elements known to be refreshed or below a refreshed element, filled
+	 *            by this method so that common ancestors are only visited once per batch
+	 * @return <code>true</code> if a refresh of one of the given elements also refreshes the element
+	 */
+	private boolean isBelowRefreshed(Object element, Set<Object> refreshed, Map<Object, Boolean> known) {
+		if (element == null || element.equals(fInput))
+			return false;
+		if (refreshed.contains(null) || refreshed.contains(fInput))
+			return true;
+		boolean result= false;
+		List<Object> visited= new ArrayList<>();
+		Object parent= getParent(element);
+		while (parent != null && !parent.equals(fInput)) {
+			Boolean isKnown= known.get(parent);
+			if (isKnown != null) {
+				result= isKnown.booleanValue();
+				break;
+			}
+			visited.add(parent);
+			if (refreshed.contains(parent)) {
+				result= true;
+				break;
+			}
+			parent= getParent(parent);
+		}
+		for (int i= 0; i < visited.size(); i++) {
+			known.put(visited.get(i), Boolean.valueOf(result));
+		}
+		return result;
+	}
+
+	private synchronized void countViewerOperations(int count) {
+		fViewerOperationCount+= count;
+	}
+
+	/**
+	 * Returns the number of element changed events received since the last call to
+	 * {@link #resetCounters()}.
+	 *
+	 * @return the number of deltas
+	 */
+	public synchronized int getReceivedDeltaCount() {
+		return fReceivedDeltaCount;
+	}
+
+	/**
+	 * Returns the number of viewer updates posted for the received deltas since the last call
+	 * to {@link #resetCounters()}, before redundant updates have been removed.
+	 *
+	 * @return the number of posted updates
+	 */
+	public synchronized int getPostedUpdateCount() {
+		return fPostedUpdateCount;
+	}
+
+	/**
+	 * Returns the number of refresh, add, remove and update operations issued to the viewer
+	 * since the last call to {@link #resetCounters()}.
+	 *
+	 * @return the number of viewer operations
+	 */
+	public synchronized int getViewerOperationCount() {
+		return fViewerOperationCount;
+	}
+
+	/**
+	 * Resets the counters of received deltas, posted updates and viewer operations.
+	 */
+	public synchronized void resetCounters() {
+		fReceivedDeltaCount= 0;
+		fPostedUpdateCount= 0;
+		fViewerOperationCount= 0;
+	}
+
 
 	private boolean inputDeleted(Collection<Runnable> runnables) {
 		if (fInput == null)
@@ -215,6 +579,11 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		super.dispose();
 		JavaCore.removeElementChangedListener(this);
 		JavaPlugin.getDefault().getPreferenceStore().removePropertyChangeListener(this);
+		Job.getJobManager().cancel(this);
+		synchronized (this) {
+			fPendingFetches.clear();
+			fFetchedChildren.clear();
+		}
 	}
 
 	@Override
@@ -274,8 +643,75 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 
+	/**
+	 * Sets the label provider whose labels and images of children fetched in the background
+	 * are computed in the background as well.
+	 *
+	 * @param labelProvider the label provider, or <code>null</code>
+	 */
+	void setPrefetchLabelProvider(JavaUILabelProvider labelProvider) {
+		fPrefetchLabelProvider= labelProvider;
+	}
+
+	/**
+	 * Sets the element that is being expanded by the user. If the children of this element
+	 * are expensive to compute, {@link #getChildren(Object)} returns a placeholder and fetches
+	 * the children in the background. Other requests, like revealing an element, are always
+	 * answered synchronously. Must be called in the display thread.
+	 *
+	 * @param parent the element that is being expanded, or <code>null</code> when the expansion
+	 *            is done
+	 */
+	void setBackgroundFetchParent(Object parent) {
+		fBackgroundFetchParent= parent;
+	}
+
 	@Override
 	public Object[] getChildren(Object parentElement) {
+		if (isFetchedInBackground(parentElement)) {
+			synchronized (this) {
+				Object[] fetched= fFetchedChildren.remove(parentElement);
+				if (fetched != null)
+					return fetched;
+				if (parentElement.equals(fBackgroundFetchParent) && isDisplayThread() && isExpensive(parentElement)) {
+					if (fPendingFetches.add(parentElement))
+						new FetchChildrenJob(parentElement).schedule();
+					return new Object[] { new PendingUpdateAdapter() };
+				}
+			}
+		}
+		return internalGetChildren(parentElement);
+	}
+
+	private static boolean isFetchedInBackground(Object element) {
+		return element instanceof PackageFragmentRootContainer || element instanceof IPackageFragmentRoot || element instanceof IPackageFragment;
+	}
+
+	/**
+	 * Tells whether computing the children of the given element requires opening Java
+	 * elements, like an archive or a package with many class files.
+	 *
+	 * @param element a container, package fragment root or package fragment
+	 * @return <code>true</code> if the children should be fetched in the background
+	 */
+	private static boolean isExpensive(Object element) {
+		if (element instanceof PackageFragmentRootContainer) {
+			IPackageFragmentRoot[] roots= ((PackageFragmentRootContainer) element).getPackageFragmentRoots();
+			for (int i= 0; i < roots.length; i++) {
+				if (!roots[i].isOpen())
+					return true;
+			}
+			return false;
+		}
+		return !((IOpenable) element).isOpen();
+	}
+
+	private boolean isDisplayThread() {
+		Control control= fViewer != null ? fViewer.getControl() : null;
+		return control != null && !control.isDisposed() && control.getDisplay().getThread() == Thread.currentThread();
+	}
+
+	private Object[] internalGetChildren(Object parentElement) {
 		try {
 			if (parentElement instanceof IJavaModel)
 				return concatenate(getJavaProjects((IJavaModel)parentElement), getNonJavaProjects((IJavaModel)parentElement));
@@ -811,13 +1247,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * @param runnables the resulting view changes as runnables (type {@link Runnable})
 	 */
 	 private void postUpdateIcon(final IJavaElement element, Collection<Runnable> runnables) {
-		 runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				// 1GF87WR: ITPUI:ALL - SWTEx + NPE closing a workbench window.
-				fViewer.update(element, new String[]{IBasicPropertyConstants.P_IMAGE});
-			}
-		});
+		 runnables.add(new UpdateIconUpdate(element));
 	 }
 
 	/**
@@ -929,54 +1359,22 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	protected void postRefresh(final List<Object> toRefresh, final boolean updateLabels, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Object[] elements= toRefresh.toArray();
-				for (int i= 0; i < elements.length; i++) {
-					Object element= elements[i];
-					if (element == null || fViewer.testFindItems(element).length > 0) {
-						fViewer.refresh(element, updateLabels);
-					}
-				}
-			}
-		});
+		runnables.add(new RefreshUpdate(toRefresh, updateLabels));
 	}
 
 	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Widget[] items= fViewer.testFindItems(element);
-				for (int i= 0; i < items.length; i++) {
-					Widget item= items[i];
-					if (item instanceof TreeItem && !item.isDisposed()) {
-						TreeItem parentItem= ((TreeItem) item).getParentItem();
-						if (parentItem != null && !parentItem.isDisposed() && parent.equals(parentItem.getData())) {
-							return; // no add, element already added (most likely by a refresh)
-						}
-					}
-				}
-				fViewer.add(parent, element);
-			}
-		});
+		runnables.add(new AddUpdate(parent, element));
 	}
 
 	protected void postRemove(final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				if (fViewer.testFindItems(element).length > 0) {
-					fViewer.remove(element);
-				}
-			}
-		});
+		runnables.add(new RemoveUpdate(element));
 	}
 
 	protected void postProjectStateChanged(final Object root, Collection<Runnable> runnables) {
 		runnables.add(new Runnable() {
 			@Override
 			public void run() {
+				countViewerOperations(1);
 				fViewer.refresh(root, true);
 				// trigger a synthetic selection change so that action refresh their
 				// enable state.
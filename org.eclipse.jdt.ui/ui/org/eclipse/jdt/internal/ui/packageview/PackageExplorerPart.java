@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.help.IContextProvider;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.KeyAdapter;
 import org.eclipse.swt.events.KeyEvent;
+import org.eclipse.swt.events.TreeEvent;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Menu;
@@ -268,6 +269,17 @@ public class PackageExplorerPart extends ViewPart
 			}
 		}
 
+		@Override
+		protected void handleTreeExpand(TreeEvent event) {
+			// expensive children of elements expanded by the user are fetched in the background
+			fContentProvider.setBackgroundFetchParent(event.item.getData());
+			try {
+				super.handleTreeExpand(event);
+			} finally {
+				fContentProvider.setBackgroundFetchParent(null);
+			}
+		}
+
 		@Override
 		protected boolean evaluateExpandableWithFilters(Object parent) {
 			if (parent instanceof IJavaProject
@@ -595,6 +607,7 @@ public class PackageExplorerPart extends ViewPart
 
 		fLabelProvider= createLabelProvider();
 		fLabelProvider.setIsFlatLayout(fIsCurrentLayoutFlat);
+		fContentProvider.setPrefetchLabelProvider(fLabelProvider);
 		fDecoratingLabelProvider= new DecoratingJavaLabelProvider(fLabelProvider, false, fIsCurrentLayoutFlat);
 		fViewer.setLabelProvider(fDecoratingLabelProvider);
 		// problem decoration provided by PackageLabelProvider
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,6 +54,7 @@ public final class PackagesMessages extends NLS {
 	public static String PackageExplorer_notFound;
 	public static String PackageExplorer_removeFilters;
 	public static String PackageExplorerContentProvider_update_job_description;
+	public static String PackageExplorerContentProvider_fetch_job_name;
 	public static String SelectionTransferDropAdapter_error_title;
 	public static String SelectionTransferDropAdapter_error_message;
 	public static String LayoutActionGroup_label;
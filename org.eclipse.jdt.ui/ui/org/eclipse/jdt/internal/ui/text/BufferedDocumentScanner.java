@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -137,6 +137,31 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 		}
 	}
 
+	/**
+	 * Skips the characters that are not marked in the given table, up to the end of the buffer.
+	 * The next character read is the first marked character, or the first character after the
+	 * buffer.
+	 *
+	 * @param stops the table of characters to stop at, indexed by character; characters beyond
+	 *            the length of the table are skipped
+	 * @return the number of characters skipped
+	 * @since 3.13
+	 */
+	public final int skip(boolean[] stops) {
+		final char[] buffer= fBuffer;
+		final int start= fOffset;
+		final int end= fBufferLength;
+		int offset= start;
+		while (offset < end) {
+			char ch= buffer[offset];
+			if (ch < stops.length && stops[ch])
+				break;
+			offset++;
+		}
+		fOffset= offset;
+		return offset - start;
+	}
+
 	/*
 	 * @see ICharacterScanner#unread
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -43,8 +43,23 @@ public class FastJavaPartitionScanner implements IPartitionTokenScanner, IJavaPa
 	private static final int STAR= 5; // postfix for MULTI_LINE_COMMENT or JAVADOC
 	private static final int CARRIAGE_RETURN=6; // postfix for STRING, CHARACTER and SINGLE_LINE_COMMENT
 
+	/**
+	 * The characters that can change the state or end a partition, by state. All other
+	 * characters are consumed in bulk if the last significant character is <code>NONE</code>.
+	 * @since 3.13
+	 */
+	private static final boolean[][] STOPS= new boolean[6][];
+	static {
+		STOPS[JAVA]= createStops("/*'\"\r"); //$NON-NLS-1$
+		STOPS[SINGLE_LINE_COMMENT]= createStops("\r\n"); //$NON-NLS-1$
+		STOPS[MULTI_LINE_COMMENT]= createStops("*\r"); //$NON-NLS-1$
+		STOPS[JAVADOC]= createStops("*\r"); //$NON-NLS-1$
+		STOPS[CHARACTER]= createStops("\\'\r\n"); //$NON-NLS-1$
+		STOPS[STRING]= createStops("\\\"\r\n"); //$NON-NLS-1$
+	}
+
 	/** The scanner. */
-	private final BufferedDocumentScanner fScanner= new BufferedDocumentScanner(1000);	// faster implementation
+	private final BufferedDocumentScanner fScanner= new BufferedDocumentScanner(4096);	// faster implementation
 
 	/** The offset of the last returned token. */
 	private int fTokenOffset;
@@ -101,6 +116,11 @@ public class FastJavaPartitionScanner implements IPartitionTokenScanner, IJavaPa
 		fTokenLength= fPrefixLength;
 
 		while (true) {
+			if (fLast == NONE) {
+				// consume the characters that do not change the state at once
+				fTokenLength+= fScanner.skip(STOPS[fState]);
+			}
+
 			final int ch= fScanner.read();
 
 			// characters
@@ -394,6 +414,13 @@ public class FastJavaPartitionScanner implements IPartitionTokenScanner, IJavaPa
 		}
  	}
 
+	private static boolean[] createStops(String chars) {
+		boolean[] stops= new boolean[128];
+		for (int i= 0; i < chars.length(); i++)
+			stops[chars.charAt(i)]= true;
+		return stops;
+	}
+
 	private static final int getLastLength(int last) {
 		switch (last) {
 		default:
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.DocumentPartitioningChangedEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension3;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.IDocumentPartitioningListenerExtension2;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ISynchronizable;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextUtilities;
+
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+
+/**
+ * An index of the braces, parentheses and brackets in the Java code of a document, that is, in
+ * the default partition of the {@link IJavaPartitions#JAVA_PARTITIONING Java partitioning}.
+ * <p>
+ * The index stores the sorted offsets of the brackets and the matching peer of each bracket. It
+ * is updated from the document events: the brackets after a change are moved, and only the
+ * changed text and the range whose partitioning changed are scanned again before the next
+ * lookup. Brackets of each kind are matched independently, as by
+ * {@link org.eclipse.jface.text.source.DefaultCharacterPairMatcher}.
+ * </p>
+ * <p>
+ * This class is thread safe. Lookups hold the lock of the document, see {@link ISynchronizable}.
+ * </p>
+ *
+ * @since 3.13
+ */
+public final class JavaBracketIndex implements IDocumentListener, IDocumentPartitioningListener, IDocumentPartitioningListenerExtension2 {
+
+	/** The indexed brackets, the opening bracket of each pair precedes the closing one */
+	private static final String BRACKETS= "{}()[]"; //$NON-NLS-1$
+
+	/** The indexes of the documents */
+	private static final Map<IDocument, JavaBracketIndex> fgIndexes= new WeakHashMap<>();
+
+	/**
+	 * Returns the bracket index of the given document. The index is created on first access and
+	 * lives as long as the document.
+	 *
+	 * @param document the document
+	 * @return the index, or <code>null</code> if the document has no Java partitioning
+	 */
+	public static JavaBracketIndex getIndex(IDocument document) {
+		if (!(document instanceof IDocumentExtension3) || ((IDocumentExtension3) document).getDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING) == null)
+			return null;
+
+		synchronized (fgIndexes) {
+			JavaBracketIndex index= fgIndexes.get(document);
+			if (index == null) {
+				// the index must not reference the document, which is the key of the weak map
+				index= new JavaBracketIndex();
+				document.addDocumentListener(index);
+				document.addDocumentPartitioningListener(index);
+				fgIndexes.put(document, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Tells whether the given characters are a pair of brackets kept in the index.
+	 *
+	 * @param opening the opening bracket
+	 * @param closing the closing bracket
+	 * @return <code>true</code> if the brackets are indexed
+	 */
+	public static boolean isIndexed(char opening, char closing) {
+		int index= BRACKETS.indexOf(opening);
+		return index != -1 && index % 2 == 0 && BRACKETS.charAt(index + 1) == closing;
+	}
+
+	/** The sorted offsets of the brackets */
+	private int[] fOffsets= new int[64];
+	/** The index of the bracket kind, i.e. the index of the opening bracket in {@link #BRACKETS} */
+	private byte[] fKinds= new byte[64];
+	/** The indexes of the matching brackets, or <code>-1</code> */
+	private int[] fPeers= new int[64];
+	/** The number of brackets */
+	private int fCount;
+
+	/** <code>true</code> if the brackets have been read from the document */
+	private boolean fBuilt;
+	/** <code>true</code> if the peers are up to date */
+	private boolean fMatched;
+	/** The start of the range that has to be scanned again, or <code>-1</code> */
+	private int fDirtyStart= -1;
+	/** The end of the range that has to be scanned again */
+	private int fDirtyEnd;
+
+	private JavaBracketIndex() {
+	}
+
+	/**
+	 * Returns the matching peer of a bracket.
+	 *
+	 * @param document the document of the index
+	 * @param offset the offset of a bracket in the Java code
+	 * @return the offset of the matching bracket, or <code>-1</code> if there is no matching
+	 *         bracket or <code>offset</code> is not the offset of an indexed bracket
+	 * @throws BadLocationException if the document is modified concurrently
+	 */
+	public int findPeer(IDocument document, int offset) throws BadLocationException {
+		// the document notifies the index while holding its lock, which is therefore taken first
+		synchronized (getLockObject(document)) {
+			synchronized (this) {
+				update(document);
+				int index= lowerBound(offset);
+				if (index == fCount || fOffsets[index] != offset || fPeers[index] == -1)
+					return -1;
+				return fOffsets[fPeers[index]];
+			}
+		}
+	}
+
+	/**
+	 * @param document the document
+	 * @return the document's lock object
+	 */
+	private static Object getLockObject(IDocument document) {
+		if (document instanceof ISynchronizable) {
+			Object lock= ((ISynchronizable) document).getLockObject();
+			if (lock != null)
+				return lock;
+		}
+		return document;
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	@Override
+	public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+		if (!fBuilt)
+			return;
+
+		// the partitioning change is reported in the coordinates of the modified document,
+		// therefore the brackets are moved before the partitioners are updated
+		int offset= event.getOffset();
+		int end= offset + event.getLength();
+		int textLength= event.getText() == null ? 0 : event.getText().length();
+		int delta= textLength - event.getLength();
+
+		int from= lowerBound(offset);
+		int to= lowerBound(end);
+		remove(from, to);
+		for (int i= from; i < fCount; i++)
+			fOffsets[i]+= delta;
+
+		if (fDirtyStart != -1) {
+			// positions inside the replaced text are covered by the new dirty range below
+			fDirtyStart= fDirtyStart >= end ? fDirtyStart + delta : Math.min(fDirtyStart, offset);
+			fDirtyEnd= fDirtyEnd >= end ? fDirtyEnd + delta : Math.min(fDirtyEnd, offset);
+		}
+		addDirtyRange(offset, offset + textLength);
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	@Override
+	public void documentChanged(DocumentEvent event) {
+		// the index has been updated in documentAboutToBeChanged
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentPartitioningListenerExtension2#documentPartitioningChanged(org.eclipse.jface.text.DocumentPartitioningChangedEvent)
+	 */
+	@Override
+	public synchronized void documentPartitioningChanged(DocumentPartitioningChangedEvent event) {
+		IRegion region= event.getChangedRegion(IJavaPartitions.JAVA_PARTITIONING);
+		if (region != null && fBuilt)
+			addDirtyRange(region.getOffset(), region.getOffset() + region.getLength());
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentPartitioningListener#documentPartitioningChanged(org.eclipse.jface.text.IDocument)
+	 */
+	@Override
+	public synchronized void documentPartitioningChanged(IDocument document) {
+		fBuilt= false;
+	}
+
+	private void addDirtyRange(int start, int end) {
+		if (fDirtyStart == -1) {
+			fDirtyStart= start;
+			fDirtyEnd= end;
+		} else {
+			fDirtyStart= Math.min(fDirtyStart, start);
+			fDirtyEnd= Math.max(fDirtyEnd, end);
+		}
+		fMatched= false;
+	}
+
+	private void update(IDocument document) throws BadLocationException {
+		int length= document.getLength();
+		if (!fBuilt) {
+			fCount= 0;
+			fDirtyStart= 0;
+			fDirtyEnd= length;
+			fBuilt= true;
+		}
+
+		if (fDirtyStart != -1) {
+			int start= Math.max(0, Math.min(fDirtyStart, length));
+			int end= Math.max(start, Math.min(fDirtyEnd, length));
+			fDirtyStart= -1;
+			try {
+				int from= lowerBound(start);
+				remove(from, lowerBound(end));
+				scan(document, start, end, from);
+			} catch (BadLocationException e) {
+				fBuilt= false;
+				throw e;
+			}
+			fMatched= false;
+		}
+
+		if (!fMatched) {
+			match();
+			fMatched= true;
+		}
+	}
+
+	/**
+	 * Inserts the brackets in the Java code of the given range at the given index.
+	 *
+	 * @param document the document
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @param index the index of the first bracket after <code>start</code>
+	 * @throws BadLocationException if the range is not in the document
+	 */
+	private void scan(IDocument document, int start, int end, int index) throws BadLocationException {
+		if (start == end)
+			return;
+		ITypedRegion[] partitions= TextUtilities.computePartitioning(document, IJavaPartitions.JAVA_PARTITIONING, start, end - start, false);
+		for (int i= 0; i < partitions.length; i++) {
+			ITypedRegion partition= partitions[i];
+			if (!IDocument.DEFAULT_CONTENT_TYPE.equals(partition.getType()))
+				continue;
+			int offset= partition.getOffset();
+			String text= document.get(offset, partition.getLength());
+			for (int j= 0; j < text.length(); j++) {
+				int kind= BRACKETS.indexOf(text.charAt(j));
+				if (kind != -1)
+					insert(index++, offset + j, kind);
+			}
+		}
+	}
+
+	private void insert(int index, int offset, int kind) {
+		if (fCount == fOffsets.length) {
+			int[] offsets= new int[2 * fCount];
+			byte[] kinds= new byte[2 * fCount];
+			System.arraycopy(fOffsets, 0, offsets, 0, fCount);
+			System.arraycopy(fKinds, 0, kinds, 0, fCount);
+			fOffsets= offsets;
+			fKinds= kinds;
+			fPeers= new int[2 * fCount];
+		}
+		System.arraycopy(fOffsets, index, fOffsets, index + 1, fCount - index);
+		System.arraycopy(fKinds, index, fKinds, index + 1, fCount - index);
+		fOffsets[index]= offset;
+		fKinds[index]= (byte) kind;
+		fCount++;
+	}
+
+	private void remove(int from, int to) {
+		if (from == to)
+			return;
+		System.arraycopy(fOffsets, to, fOffsets, from, fCount - to);
+		System.arraycopy(fKinds, to, fKinds, from, fCount - to);
+		fCount-= to - from;
+		fMatched= false;
+	}
+
+	/**
+	 * Returns the index of the first bracket at or after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first bracket whose offset is not smaller than <code>offset</code>
+	 */
+	private int lowerBound(int offset) {
+		int low= 0;
+		int high= fCount;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (fOffsets[mid] < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Matches the brackets of each kind. While matching, the peer of an unmatched opening
+	 * bracket links to the previous unmatched opening bracket of the same kind.
+	 */
+	private void match() {
+		int[] open= new int[] { -1, -1, -1, -1, -1, -1 };
+		for (int i= 0; i < fCount; i++) {
+			int kind= fKinds[i];
+			if (kind % 2 == 0) {
+				fPeers[i]= open[kind];
+				open[kind]= i;
+			} else {
+				int opening= open[kind - 1];
+				if (opening == -1) {
+					fPeers[i]= -1;
+				} else {
+					open[kind - 1]= fPeers[opening];
+					fPeers[opening]= i;
+					fPeers[i]= opening;
+				}
+			}
+		}
+		for (int kind= 0; kind < open.length; kind+= 2) {
+			for (int i= open[kind]; i != -1;) {
+				int previous= fPeers[i];
+				fPeers[i]= -1;
+				i= previous;
+			}
+		}
+	}
+}
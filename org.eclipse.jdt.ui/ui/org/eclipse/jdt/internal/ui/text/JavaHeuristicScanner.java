@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,10 @@ import java.util.Arrays;
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Region;
@@ -29,6 +32,15 @@ import org.eclipse.jdt.ui.text.IJavaPartitions;
  *
  * <p>An instance holds some internal position in the document and is therefore not threadsafe.</p>
  *
+ * <p>Characters and partitions are read from windows of the document that are cached until the
+ * modification stamp of the document changes, so that scanning a document that is not modified
+ * neither creates strings nor asks the partitioner for every character. The opening peers found
+ * by {@link #findOpeningPeer(int, int, char, char)} are remembered as well, so that scopes
+ * which have been skipped once are skipped in constant time afterwards, for example when the
+ * indentation of consecutive lines is computed. If the document has been modified once since
+ * the caches were filled, the cached state before the modified offset is kept, so that
+ * correcting the indentation line by line does not drop the scopes of the preceding lines.</p>
+ *
  * @since 3.0
  */
 public final class JavaHeuristicScanner implements Symbols {
@@ -62,6 +74,12 @@ public final class JavaHeuristicScanner implements Symbols {
 	private static final char PLUS= '+';
 	private static final char AT= '@';
 
+	/**
+	 * The number of characters read from the document at once.
+	 * @since 3.13
+	 */
+	private static final int BUFFER_SIZE= 4096;
+
 	/**
 	 * Specifies the stop condition, upon which the <code>scanXXX</code> methods will decide whether
 	 * to keep scanning or not. This interface may implemented by clients.
@@ -114,7 +132,7 @@ public final class JavaHeuristicScanner implements Symbols {
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return super.stop(ch, position, true) && isDefaultPartition(position);
+			return super.stop(ch, position, true) && isDefault(position);
 		}
 
 		/*
@@ -163,7 +181,7 @@ public final class JavaHeuristicScanner implements Symbols {
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return super.stop(ch, position, true) || !isDefaultPartition(position);
+			return super.stop(ch, position, true) || !isDefault(position);
 		}
 
 		/*
@@ -192,7 +210,7 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * Stops upon a character in the default partition that matches the given character list.
 	 */
 	private final class CharacterMatch extends StopCondition {
-		private final char[] fChars;
+		private char[] fChars;
 
 		/**
 		 * Creates a new instance.
@@ -213,12 +231,26 @@ public final class JavaHeuristicScanner implements Symbols {
 			Arrays.sort(chars);
 		}
 
+		/**
+		 * Sets the characters to match.
+		 *
+		 * @param ch1 the first character to match
+		 * @param ch2 the second character to match, can be the same as <code>ch1</code>
+		 * @since 3.13
+		 */
+		public void setChars(char ch1, char ch2) {
+			if (fChars.length != 2)
+				fChars= new char[2];
+			fChars[0]= ch1 < ch2 ? ch1 : ch2;
+			fChars[1]= ch1 < ch2 ? ch2 : ch1;
+		}
+
 		/*
 		 * @see org.eclipse.jdt.internal.ui.text.JavaHeuristicScanner.StopCondition#stop(char, int)
 		 */
 		@Override
 		public boolean stop(char ch, int position, boolean forward) {
-			return Arrays.binarySearch(fChars, ch) >= 0 && isDefaultPartition(position);
+			return Arrays.binarySearch(fChars, ch) >= 0 && isDefault(position);
 		}
 
 		/*
@@ -262,10 +294,109 @@ public final class JavaHeuristicScanner implements Symbols {
 	 */
 	private ITypedRegion fCachedPartition= new TypedRegion(-1, 0, "__no_partition_at_all"); //$NON-NLS-1$
 
+	/* cached document state, valid as long as the modification stamp does not change */
+
+	/**
+	 * The modification stamp of the document when the caches were filled.
+	 * @since 3.13
+	 */
+	private long fCacheStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * The characters of the document starting at {@link #fBufferOffset}, or <code>null</code>.
+	 * @since 3.13
+	 */
+	private char[] fBuffer;
+	/**
+	 * The document offset of the first character in {@link #fBuffer}.
+	 * @since 3.13
+	 */
+	private int fBufferOffset;
+	/**
+	 * The number of valid characters in {@link #fBuffer}.
+	 * @since 3.13
+	 */
+	private int fBufferLength;
+	/**
+	 * The sorted partitions covering the range [{@link #fPartitionsStart}, {@link #fPartitionsEnd}).
+	 * @since 3.13
+	 */
+	private ITypedRegion[] fPartitions;
+	/**
+	 * The first offset covered by {@link #fPartitions}.
+	 * @since 3.13
+	 */
+	private int fPartitionsStart;
+	/**
+	 * The end of the range covered by {@link #fPartitions}.
+	 * @since 3.13
+	 */
+	private int fPartitionsEnd;
+	/**
+	 * Open addressing table of the positions of closing peers, or <code>-1</code>.
+	 * @since 3.13
+	 */
+	private int[] fPeerKeys;
+	/**
+	 * The positions of the opening peers of the closing peers in {@link #fPeerKeys}.
+	 * @since 3.13
+	 */
+	private int[] fPeerValues;
+	/**
+	 * The number of entries in {@link #fPeerKeys}.
+	 * @since 3.13
+	 */
+	private int fPeerCount;
+	/**
+	 * The positions of the closing peers whose opening peer is being searched.
+	 * @since 3.13
+	 */
+	private int[] fOpenScopes= new int[16];
+
+	/* the first modification of the document after the caches were filled, guarded by fEditListener */
+
+	/**
+	 * <code>true</code> if {@link #fEditListener} is registered with the document.
+	 * @since 3.13
+	 */
+	private boolean fIsListening;
+	/**
+	 * The offset of the first modification, valid if {@link #fEditStamp} is known.
+	 * @since 3.13
+	 */
+	private int fEditOffset;
+	/**
+	 * The modification stamp of the document after the first modification.
+	 * @since 3.13
+	 */
+	private long fEditStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * Records the first modification of the document after the caches were filled and removes
+	 * itself, so that a scanner which is no longer used does not stay registered.
+	 * @since 3.13
+	 */
+	private final IDocumentListener fEditListener= new IDocumentListener() {
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+		}
+
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			synchronized (this) {
+				if (!fIsListening)
+					return;
+				fIsListening= false;
+				fEditOffset= event.getOffset();
+				fEditStamp= ((IDocumentExtension4) event.getDocument()).getModificationStamp();
+			}
+			event.getDocument().removeDocumentListener(this);
+		}
+	};
+
 	/* preset stop conditions */
 	private final StopCondition fNonWSDefaultPart= new NonWhitespaceDefaultPartition();
 	private final static StopCondition fNonWS= new NonWhitespace();
 	private final StopCondition fNonIdent= new NonJavaIdentifierPartDefaultPartition();
+	private final CharacterMatch fCharMatch= new CharacterMatch(new char[2]);
 
 	/**
 	 * Creates a new instance.
@@ -361,15 +492,12 @@ public final class JavaHeuristicScanner implements Symbols {
 			else
 				to= pos;
 
-			String identOrKeyword;
 			try {
-				identOrKeyword= fDocument.get(from, to - from);
+				return getToken(from, to);
 			} catch (BadLocationException e) {
 				return TokenEOF;
 			}
 
-			return getToken(identOrKeyword);
-
 
 		} else {
 			// operators, number literals etc
@@ -437,15 +565,12 @@ public final class JavaHeuristicScanner implements Symbols {
 			else
 				from= pos + 1;
 
-			String identOrKeyword;
 			try {
-				identOrKeyword= fDocument.get(from, to - from);
+				return getToken(from, to);
 			} catch (BadLocationException e) {
 				return TokenEOF;
 			}
 
-			return getToken(identOrKeyword);
-
 
 		} else {
 			// operators, number literals etc
@@ -457,75 +582,92 @@ public final class JavaHeuristicScanner implements Symbols {
 	/**
 	 * Returns one of the keyword constants or <code>TokenIDENT</code> for a scanned identifier.
 	 *
-	 * @param s a scanned identifier
+	 * @param from the start of a scanned identifier
+	 * @param to the end of the scanned identifier
 	 * @return one of the constants defined in {@link Symbols}
+	 * @throws BadLocationException if the range is not in the document
 	 */
-	private int getToken(String s) {
-		Assert.isNotNull(s);
-
-		switch (s.length()) {
+	private int getToken(int from, int to) throws BadLocationException {
+		switch (to - from) {
 			case 2:
-				if ("if".equals(s)) //$NON-NLS-1$
+				if (matches(from, "if")) //$NON-NLS-1$
 					return TokenIF;
-				if ("do".equals(s)) //$NON-NLS-1$
+				if (matches(from, "do")) //$NON-NLS-1$
 					return TokenDO;
 				break;
 			case 3:
-				if ("for".equals(s)) //$NON-NLS-1$
+				if (matches(from, "for")) //$NON-NLS-1$
 					return TokenFOR;
-				if ("try".equals(s)) //$NON-NLS-1$
+				if (matches(from, "try")) //$NON-NLS-1$
 					return TokenTRY;
-				if ("new".equals(s)) //$NON-NLS-1$
+				if (matches(from, "new")) //$NON-NLS-1$
 					return TokenNEW;
 				break;
 			case 4:
-				if ("case".equals(s)) //$NON-NLS-1$
+				if (matches(from, "case")) //$NON-NLS-1$
 					return TokenCASE;
-				if ("else".equals(s)) //$NON-NLS-1$
+				if (matches(from, "else")) //$NON-NLS-1$
 					return TokenELSE;
-				if ("enum".equals(s)) //$NON-NLS-1$
+				if (matches(from, "enum")) //$NON-NLS-1$
 					return TokenENUM;
-				if ("goto".equals(s)) //$NON-NLS-1$
+				if (matches(from, "goto")) //$NON-NLS-1$
 					return TokenGOTO;
 				break;
 			case 5:
-				if ("break".equals(s)) //$NON-NLS-1$
+				if (matches(from, "break")) //$NON-NLS-1$
 					return TokenBREAK;
-				if ("catch".equals(s)) //$NON-NLS-1$
+				if (matches(from, "catch")) //$NON-NLS-1$
 					return TokenCATCH;
-				if ("class".equals(s)) //$NON-NLS-1$
+				if (matches(from, "class")) //$NON-NLS-1$
 					return TokenCLASS;
-				if ("while".equals(s)) //$NON-NLS-1$
+				if (matches(from, "while")) //$NON-NLS-1$
 					return TokenWHILE;
 				break;
 			case 6:
-				if ("return".equals(s)) //$NON-NLS-1$
+				if (matches(from, "return")) //$NON-NLS-1$
 					return TokenRETURN;
-				if ("static".equals(s)) //$NON-NLS-1$
+				if (matches(from, "static")) //$NON-NLS-1$
 					return TokenSTATIC;
-				if ("switch".equals(s)) //$NON-NLS-1$
+				if (matches(from, "switch")) //$NON-NLS-1$
 					return TokenSWITCH;
-				if ("throws".equals(s)) //$NON-NLS-1$
+				if (matches(from, "throws")) //$NON-NLS-1$
 					return TokenTHROWS;
 				break;
 			case 7:
-				if ("default".equals(s)) //$NON-NLS-1$
+				if (matches(from, "default")) //$NON-NLS-1$
 					return TokenDEFAULT;
-				if ("finally".equals(s)) //$NON-NLS-1$
+				if (matches(from, "finally")) //$NON-NLS-1$
 					return TokenFINALLY;
 				break;
 			case 9:
-				if ("interface".equals(s)) //$NON-NLS-1$
+				if (matches(from, "interface")) //$NON-NLS-1$
 					return TokenINTERFACE;
 				break;
 			case 12:
-				if ("synchronized".equals(s)) //$NON-NLS-1$
+				if (matches(from, "synchronized")) //$NON-NLS-1$
 					return TokenSYNCHRONIZED;
 				break;
 		}
 		return TokenIDENT;
 	}
 
+	/**
+	 * Tells whether the document contains the given keyword at <code>from</code>.
+	 *
+	 * @param from the start of a scanned identifier with the length of <code>keyword</code>
+	 * @param keyword the keyword
+	 * @return <code>true</code> if the identifier is the keyword
+	 * @throws BadLocationException if the range is not in the document
+	 * @since 3.13
+	 */
+	private boolean matches(int from, String keyword) throws BadLocationException {
+		for (int i= 0; i < keyword.length(); i++) {
+			if (getChar(from + i, true) != keyword.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the position of the closing peer character (forward search). Any scopes introduced by opening peers
 	 * are skipped. All peers accounted for must reside in the default partition.
@@ -558,26 +700,21 @@ public final class JavaHeuristicScanner implements Symbols {
 	public int findClosingPeer(int start, int bound, final char openingPeer, final char closingPeer) {
 		Assert.isLegal(start >= 0);
 
-		try {
-			CharacterMatch match= new CharacterMatch(new char[] {openingPeer, closingPeer});
-			int depth= 1;
-			start -= 1;
-			while (true) {
-				start= scanForward(start + 1, bound, match);
-				if (start == NOT_FOUND)
-					return NOT_FOUND;
-
-				if (fDocument.getChar(start) == openingPeer)
-					depth++;
-				else
-					depth--;
-
-				if (depth == 0)
-					return start;
-			}
+		fCharMatch.setChars(openingPeer, closingPeer);
+		int depth= 1;
+		start -= 1;
+		while (true) {
+			start= scanForward(start + 1, bound, fCharMatch);
+			if (start == NOT_FOUND)
+				return NOT_FOUND;
 
-		} catch (BadLocationException e) {
-			return NOT_FOUND;
+			if (fChar == openingPeer)
+				depth++;
+			else
+				depth--;
+
+			if (depth == 0)
+				return start;
 		}
 	}
 
@@ -613,27 +750,131 @@ public final class JavaHeuristicScanner implements Symbols {
 	public int findOpeningPeer(int start, int bound, char openingPeer, char closingPeer) {
 		Assert.isLegal(start < fDocument.getLength());
 
-		try {
-			final CharacterMatch match= new CharacterMatch(new char[] {openingPeer, closingPeer});
-			int depth= 1;
-			start += 1;
-			while (true) {
-				start= scanBackward(start - 1, bound, match);
-				if (start == NOT_FOUND)
-					return NOT_FOUND;
-
-				if (fDocument.getChar(start) == closingPeer)
-					depth++;
-				else
-					depth--;
-
-				if (depth == 0)
+		validateCache();
+		boolean remember= fBuffer != null && isBracketPair(openingPeer, closingPeer);
+		int closing= start + 1;
+		if (remember) {
+			int opening= getOpeningPeer(closing);
+			if (opening != NOT_FOUND && isClosingPeer(closing, closingPeer))
+				return opening > bound ? opening : NOT_FOUND;
+		}
+
+		fCharMatch.setChars(openingPeer, closingPeer);
+		int depth= 1;
+		start += 1;
+		while (true) {
+			start= scanBackward(start - 1, bound, fCharMatch);
+			if (start == NOT_FOUND)
+				return NOT_FOUND;
+
+			if (fChar == closingPeer) {
+				if (remember) {
+					int opening= getOpeningPeer(start);
+					if (opening != NOT_FOUND) {
+						// skip the known scope, the next scan starts before its opening peer
+						start= opening;
+						continue;
+					}
+					if (depth > fOpenScopes.length)
+						fOpenScopes= Arrays.copyOf(fOpenScopes, 2 * depth);
+					fOpenScopes[depth - 1]= start;
+				}
+				depth++;
+			} else {
+				depth--;
+				if (depth == 0) {
+					if (remember && isClosingPeer(closing, closingPeer))
+						putOpeningPeer(closing, start);
 					return start;
+				}
+				if (remember)
+					putOpeningPeer(fOpenScopes[depth - 1], start);
 			}
+		}
+	}
 
+	/**
+	 * Tells whether the given characters are one of the bracket pairs whose peers are remembered.
+	 *
+	 * @param openingPeer the opening peer character
+	 * @param closingPeer the closing peer character
+	 * @return <code>true</code> if the characters are a pair of braces, parentheses or brackets
+	 * @since 3.13
+	 */
+	private static boolean isBracketPair(char openingPeer, char closingPeer) {
+		return openingPeer == LBRACE && closingPeer == RBRACE
+				|| openingPeer == LPAREN && closingPeer == RPAREN
+				|| openingPeer == LBRACKET && closingPeer == RBRACKET;
+	}
+
+	/**
+	 * Tells whether the given position contains the closing peer in the default partition.
+	 *
+	 * @param position the position
+	 * @param closingPeer the closing peer character
+	 * @return <code>true</code> if <code>closingPeer</code> is at <code>position</code>
+	 * @since 3.13
+	 */
+	private boolean isClosingPeer(int position, char closingPeer) {
+		try {
+			return position < fDocument.getLength() && getChar(position, false) == closingPeer && isDefault(position);
 		} catch (BadLocationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the remembered opening peer of a closing peer.
+	 *
+	 * @param closing the position of the closing peer
+	 * @return the position of the opening peer, or <code>NOT_FOUND</code> if it is not known
+	 * @since 3.13
+	 */
+	private int getOpeningPeer(int closing) {
+		if (fPeerKeys == null)
 			return NOT_FOUND;
+		int mask= fPeerKeys.length - 1;
+		for (int slot= (closing * 0x9E3779B9) >>> 16 & mask; fPeerKeys[slot] != -1; slot= (slot + 1) & mask) {
+			if (fPeerKeys[slot] == closing)
+				return fPeerValues[slot];
 		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Remembers the opening peer of a closing peer until the document changes.
+	 *
+	 * @param closing the position of the closing peer
+	 * @param opening the position of the opening peer
+	 * @since 3.13
+	 */
+	private void putOpeningPeer(int closing, int opening) {
+		if (fPeerKeys == null || 2 * (fPeerCount + 1) > fPeerKeys.length) {
+			int[] keys= fPeerKeys;
+			int[] values= fPeerValues;
+			fPeerKeys= new int[keys == null ? 64 : 2 * keys.length];
+			fPeerValues= new int[fPeerKeys.length];
+			Arrays.fill(fPeerKeys, -1);
+			fPeerCount= 0;
+			if (keys != null) {
+				for (int i= 0; i < keys.length; i++) {
+					if (keys[i] != -1)
+						putOpeningPeer(keys[i], values[i]);
+				}
+			}
+		}
+		int mask= fPeerKeys.length - 1;
+		int slot= (closing * 0x9E3779B9) >>> 16 & mask;
+		while (fPeerKeys[slot] != -1) {
+			if (fPeerKeys[slot] == closing) {
+				fPeerValues[slot]= opening;
+				return;
+			}
+			slot= (slot + 1) & mask;
+		}
+		fPeerKeys[slot]= closing;
+		fPeerValues[slot]= opening;
+		fPeerCount++;
 	}
 
 	/**
@@ -725,6 +966,7 @@ public final class JavaHeuristicScanner implements Symbols {
 	 */
 	public int scanForward(int start, int bound, StopCondition condition) {
 		Assert.isLegal(start >= 0);
+		validateCache();
 
 		if (bound == UNBOUND)
 			bound= fDocument.getLength();
@@ -735,7 +977,7 @@ public final class JavaHeuristicScanner implements Symbols {
 			fPos= start;
 			while (fPos < bound) {
 
-				fChar= fDocument.getChar(fPos);
+				fChar= getChar(fPos, true);
 				if (condition.stop(fChar, fPos, true))
 					return fPos;
 
@@ -758,7 +1000,8 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @return the lowest position of <code>ch</code> in (<code>bound</code>, <code>position</code>] that resides in a Java partition, or <code>NOT_FOUND</code> if none can be found
 	 */
 	public int scanForward(int position, int bound, char ch) {
-		return scanForward(position, bound, new CharacterMatch(ch));
+		fCharMatch.setChars(ch, ch);
+		return scanForward(position, bound, fCharMatch);
 	}
 
 	/**
@@ -790,12 +1033,13 @@ public final class JavaHeuristicScanner implements Symbols {
 
 		Assert.isLegal(bound >= -1);
 		Assert.isLegal(start < fDocument.getLength() );
+		validateCache();
 
 		try {
 			fPos= start;
 			while (fPos > bound) {
 
-				fChar= fDocument.getChar(fPos);
+				fChar= getChar(fPos, false);
 				if (condition.stop(fChar, fPos, false))
 					return fPos;
 
@@ -817,7 +1061,8 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @return the highest position of one element in <code>chars</code> in (<code>bound</code>, <code>position</code>] that resides in a Java partition, or <code>NOT_FOUND</code> if none can be found
 	 */
 	public int scanBackward(int position, int bound, char ch) {
-		return scanBackward(position, bound, new CharacterMatch(ch));
+		fCharMatch.setChars(ch, ch);
+		return scanBackward(position, bound, fCharMatch);
 	}
 
 	/**
@@ -841,9 +1086,128 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @return <code>true</code> if <code>position</code> is in the default partition of <code>fDocument</code>, <code>false</code> otherwise
 	 */
 	public boolean isDefaultPartition(int position) {
+		validateCache();
+		return isDefault(position);
+	}
+
+	/**
+	 * Checks whether <code>position</code> resides in a default (Java) partition of
+	 * <code>fDocument</code>, using the caches without validating them.
+	 *
+	 * @param position the position to be checked
+	 * @return <code>true</code> if <code>position</code> is in the default partition
+	 * @since 3.13
+	 */
+	private boolean isDefault(int position) {
 		return fPartition.equals(getPartition(position).getType());
 	}
 
+	/**
+	 * Clears the cached characters, partitions and peers if the document has been modified since
+	 * they have been read.
+	 *
+	 * @since 3.13
+	 */
+	private void validateCache() {
+		long stamp= fDocument instanceof IDocumentExtension4 ? ((IDocumentExtension4) fDocument).getModificationStamp() : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		if (stamp == fCacheStamp && stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return;
+
+		int editOffset;
+		boolean listen;
+		synchronized (fEditListener) {
+			// the edit offset is only known if the document has been modified once since the caches were filled
+			editOffset= fEditStamp == stamp && stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP ? fEditOffset : 0;
+			fEditStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+			listen= !fIsListening && stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+			fIsListening|= listen;
+		}
+		if (listen)
+			fDocument.addDocumentListener(fEditListener);
+
+		fCacheStamp= stamp;
+		fCachedPartition= new TypedRegion(-1, 0, "__no_partition_at_all"); //$NON-NLS-1$
+		truncateCache(editOffset);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+			// the caches cannot be validated, read from the document directly
+			fBuffer= null;
+		} else if (fBuffer == null) {
+			fBuffer= new char[BUFFER_SIZE];
+		}
+	}
+
+	/**
+	 * Removes the cached characters, partitions and peers at or after the given offset. The
+	 * cached state before a modified offset is still valid, as the partitioning of a position
+	 * only depends on the text before it.
+	 *
+	 * @param offset the offset of the first modified character
+	 * @since 3.13
+	 */
+	private void truncateCache(int offset) {
+		fBufferLength= Math.max(0, Math.min(fBufferLength, offset - fBufferOffset));
+
+		if (fPartitions != null && fPartitionsStart < offset) {
+			fPartitionsEnd= Math.min(fPartitionsEnd, offset);
+			int count= 0;
+			while (count < fPartitions.length && fPartitions[count].getOffset() < offset)
+				count++;
+			fPartitions= Arrays.copyOf(fPartitions, count);
+			if (count > 0) {
+				ITypedRegion last= fPartitions[count - 1];
+				if (last.getOffset() + last.getLength() > offset)
+					fPartitions[count - 1]= new TypedRegion(last.getOffset(), offset - last.getOffset(), last.getType());
+			}
+		} else {
+			fPartitions= null;
+			fPartitionsStart= 0;
+			fPartitionsEnd= 0;
+		}
+
+		if (fPeerCount > 0) {
+			int[] keys= fPeerKeys;
+			int[] values= fPeerValues;
+			fPeerKeys= new int[keys.length];
+			fPeerValues= new int[keys.length];
+			Arrays.fill(fPeerKeys, -1);
+			fPeerCount= 0;
+			for (int i= 0; i < keys.length; i++) {
+				// the opening peer precedes the closing peer
+				if (keys[i] != -1 && keys[i] < offset)
+					putOpeningPeer(keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the character at <code>position</code>, reading the document in windows of
+	 * {@link #BUFFER_SIZE} characters.
+	 *
+	 * @param position the position
+	 * @param forward <code>true</code> if the characters after <code>position</code> will be read
+	 *            next, <code>false</code> if the characters before it will be read next
+	 * @return the character at <code>position</code>
+	 * @throws BadLocationException if <code>position</code> is not in the document
+	 * @since 3.13
+	 */
+	private char getChar(int position, boolean forward) throws BadLocationException {
+		int index= position - fBufferOffset;
+		if (index >= 0 && index < fBufferLength)
+			return fBuffer[index];
+		if (fBuffer == null)
+			return fDocument.getChar(position);
+
+		int length= fDocument.getLength();
+		if (position < 0 || position >= length)
+			throw new BadLocationException();
+		int offset= forward ? position : Math.max(0, position - BUFFER_SIZE + 1);
+		int end= Math.min(length, offset + BUFFER_SIZE);
+		fDocument.get(offset, end - offset).getChars(0, end - offset, fBuffer, 0);
+		fBufferOffset= offset;
+		fBufferLength= end - offset;
+		return fBuffer[position - offset];
+	}
+
 	/**
 	 * Returns the partition at <code>position</code>.
 	 *
@@ -856,6 +1220,12 @@ public final class JavaHeuristicScanner implements Symbols {
 			Assert.isTrue(position >= 0);
 			Assert.isTrue(position <= fDocument.getLength());
 
+			ITypedRegion partition= findPartition(position);
+			if (partition != null) {
+				fCachedPartition= partition;
+				return partition;
+			}
+
 			try {
 				fCachedPartition= TextUtilities.getPartition(fDocument, fPartitioning, position, false);
 			} catch (BadLocationException e) {
@@ -866,6 +1236,53 @@ public final class JavaHeuristicScanner implements Symbols {
 		return fCachedPartition;
 	}
 
+	/**
+	 * Returns the partition at <code>position</code> from the cached partitions of the window
+	 * around <code>position</code>.
+	 *
+	 * @param position the position to get the partition for
+	 * @return the partition, which might be clipped to the window, or <code>null</code> if the
+	 *         partitions cannot be cached
+	 * @since 3.13
+	 */
+	private ITypedRegion findPartition(int position) {
+		if (fBuffer == null)
+			return null;
+		if (position < fPartitionsStart || position >= fPartitionsEnd) {
+			int length= fDocument.getLength();
+			if (position >= length)
+				return null;
+			int start= Math.max(0, position - BUFFER_SIZE / 2);
+			int end= Math.min(length, start + BUFFER_SIZE);
+			try {
+				fPartitions= TextUtilities.computePartitioning(fDocument, fPartitioning, start, end - start, false);
+				fPartitionsStart= start;
+				fPartitionsEnd= end;
+			} catch (BadLocationException e) {
+				fPartitions= null;
+			}
+			if (fPartitions == null) {
+				fPartitionsStart= 0;
+				fPartitionsEnd= 0;
+				return null;
+			}
+		}
+
+		int low= 0;
+		int high= fPartitions.length - 1;
+		while (low <= high) {
+			int mid= (low + high) >>> 1;
+			ITypedRegion partition= fPartitions[mid];
+			if (position < partition.getOffset())
+				high= mid - 1;
+			else if (position >= partition.getOffset() + partition.getLength())
+				low= mid + 1;
+			else
+				return partition;
+		}
+		return null;
+	}
+
 	/**
 	 * Returns <code>true</code> if <code>region</code> contains <code>position</code>.
 	 *
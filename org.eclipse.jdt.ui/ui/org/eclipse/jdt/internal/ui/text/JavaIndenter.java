@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -766,7 +766,7 @@ public final class JavaIndenter {
 				IRegion line= fDocument.getLineInformationOfOffset(offset);
 				int lineOffset= line.getOffset();
 				int prevPos= Math.max(offset - 1, 0);
-				boolean isFirstTokenOnLine= fDocument.get(lineOffset, prevPos + 1 - lineOffset).trim().length() == 0;
+				boolean isFirstTokenOnLine= isWhitespace(lineOffset, prevPos + 1);
 				int prevToken= fScanner.previousToken(prevPos, JavaHeuristicScanner.UNBOUND);
 				boolean bracelessBlockStart= fScanner.isBracelessBlockStart(prevPos, JavaHeuristicScanner.UNBOUND);
 
@@ -970,7 +970,7 @@ public final class JavaIndenter {
 				try {
 					// align with the opening brace that is on a line by its own
 					int lineOffset= fDocument.getLineOffset(fLine);
-					if (lineOffset <= fPosition && fDocument.get(lineOffset, fPosition - lineOffset).trim().length() == 0)
+					if (lineOffset <= fPosition && isWhitespace(lineOffset, fPosition))
 						return fPosition;
 				} catch (BadLocationException e) {
 					// concurrent modification - walk default path
@@ -2145,9 +2145,31 @@ public final class JavaIndenter {
 		return fToken == Symbols.TokenIDENT; // method name
 	}
 
+	/**
+	 * Tells whether the document contains only whitespace in the given range.
+	 *
+	 * @param offset the start of the range
+	 * @param end the end of the range
+	 * @return <code>true</code> if the range contains only characters that would be removed by
+	 *         {@link String#trim()}
+	 * @throws BadLocationException if the range is not in the document
+	 * @since 3.13
+	 */
+	private boolean isWhitespace(int offset, int end) throws BadLocationException {
+		for (int i= offset; i < end; i++) {
+			if (fDocument.getChar(i) > ' ')
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Scans tokens for the matching opening peer. The internal cursor
 	 * (<code>fPosition</code>) is set to the offset of the opening peer if found.
+	 * <p>
+	 * Braces, parentheses and brackets are matched by the scanner, which remembers the scopes it
+	 * has skipped while the document is not modified.
+	 * </p>
 	 *
 	 * @param openToken the opening peer token
 	 * @param closeToken the closing peer token
@@ -2155,6 +2177,54 @@ public final class JavaIndenter {
 	 *         otherwise
 	 */
 	private boolean skipScope(int openToken, int closeToken) {
+		char openingPeer;
+		char closingPeer;
+		switch (openToken) {
+			case Symbols.TokenLBRACE:
+				openingPeer= '{';
+				closingPeer= '}';
+				break;
+			case Symbols.TokenLPAREN:
+				openingPeer= '(';
+				closingPeer= ')';
+				break;
+			case Symbols.TokenLBRACKET:
+				openingPeer= '[';
+				closingPeer= ']';
+				break;
+			default:
+				return skipTokenScope(openToken, closeToken);
+		}
+
+		int opening= fScanner.findOpeningPeer(fPosition - 1, openingPeer, closingPeer);
+		if (opening == JavaHeuristicScanner.NOT_FOUND) {
+			// let the token scan leave the state at the start of the document
+			return skipTokenScope(openToken, closeToken);
+		}
+
+		// the same state as after reading the opening peer with nextToken()
+		int next= fScanner.findNonWhitespaceForward(opening + 1, JavaHeuristicScanner.UNBOUND);
+		fToken= openToken;
+		fPreviousPos= next == JavaHeuristicScanner.NOT_FOUND ? fPosition : next;
+		fPosition= opening;
+		try {
+			fLine= fDocument.getLineOfOffset(fPosition);
+		} catch (BadLocationException e) {
+			fLine= -1;
+		}
+		return true;
+	}
+
+	/**
+	 * Scans tokens for the matching opening peer, see {@link #skipScope(int, int)}.
+	 *
+	 * @param openToken the opening peer token
+	 * @param closeToken the closing peer token
+	 * @return <code>true</code> if a matching token was found, <code>false</code>
+	 *         otherwise
+	 * @since 3.13
+	 */
+	private boolean skipTokenScope(int openToken, int closeToken) {
 
 		int depth= 1;
 
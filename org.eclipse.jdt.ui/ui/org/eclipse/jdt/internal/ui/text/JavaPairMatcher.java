@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,10 @@ package org.eclipse.jdt.internal.ui.text;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.source.DefaultCharacterPairMatcher;
+import org.eclipse.jface.text.source.ICharacterPairMatcher;
 
 import org.eclipse.jdt.core.JavaCore;
 
@@ -32,9 +34,23 @@ public final class JavaPairMatcher extends DefaultCharacterPairMatcher implement
 	 */
 	private boolean fHighlightAngularBrackets= false;
 
+	/**
+	 * The matched characters, the opening character of each pair precedes the closing one.
+	 * @since 3.13
+	 */
+	private final char[] fPairs;
+
+	/**
+	 * The anchor of the last match found with the {@link JavaBracketIndex}, or <code>-1</code> if
+	 * the last match has been computed by the super class.
+	 * @since 3.13
+	 */
+	private int fIndexAnchor= -1;
+
 
 	public JavaPairMatcher(char[] pairs) {
 		super(pairs, IJavaPartitions.JAVA_PARTITIONING, true);
+		fPairs= pairs.clone();
 	}
 
 	/* @see ICharacterPairMatcher#match(IDocument, int) */
@@ -69,7 +85,7 @@ public final class JavaPairMatcher extends DefaultCharacterPairMatcher implement
 			return null;
 		if (prevChar == '<' && isLessThanOperator(document, offset - 1))
 			return null;
-		final IRegion region= super.match(document, offset);
+		final IRegion region= matchBracket(document, offset);
 		if (region == null) return region;
 		if (currChar == '>') {
 			final int peer= region.getOffset();
@@ -78,6 +94,71 @@ public final class JavaPairMatcher extends DefaultCharacterPairMatcher implement
 		return region;
 	}
 
+	/**
+	 * Matches the bracket next to the given offset like {@link DefaultCharacterPairMatcher}, but
+	 * looks up the peer of braces, parentheses and brackets in the Java code in the
+	 * {@link JavaBracketIndex} of the document instead of scanning the document.
+	 *
+	 * @param document the document
+	 * @param offset the offset
+	 * @return the region of the matching pair, or <code>null</code>
+	 * @throws BadLocationException if offset is invalid in the document
+	 * @since 3.13
+	 */
+	private IRegion matchBracket(IDocument document, int offset) throws BadLocationException {
+		fIndexAnchor= -1;
+		JavaBracketIndex index= JavaBracketIndex.getIndex(document);
+		if (index == null || offset > document.getLength())
+			return super.match(document, offset);
+
+		int caret= offset;
+		char prevChar= caret > 0 ? document.getChar(caret - 1) : Character.MIN_VALUE;
+		char currChar= caret != document.getLength() ? document.getChar(caret) : Character.MIN_VALUE;
+		if (isClosing(prevChar) && !isClosing(currChar)) {
+			caret--;
+			currChar= prevChar;
+			prevChar= document.getChar(Math.max(caret - 1, 0));
+		} else if (isOpening(currChar) && getPairIndex(prevChar) == -1) {
+			caret++;
+			prevChar= currChar;
+			currChar= document.getChar(caret);
+		}
+
+		boolean forward= isOpening(prevChar);
+		boolean backward= isClosing(currChar);
+		if (!forward && !backward)
+			return null;
+
+		int bracket= forward ? caret - 1 : caret;
+		int pair= getPairIndex(forward ? prevChar : currChar) & ~1;
+		if (!JavaBracketIndex.isIndexed(fPairs[pair], fPairs[pair + 1])
+				|| !IDocument.DEFAULT_CONTENT_TYPE.equals(TextUtilities.getContentType(document, IJavaPartitions.JAVA_PARTITIONING, bracket, false)))
+			return super.match(document, offset);
+
+		int peer= index.findPeer(document, bracket);
+		if (peer == -1)
+			return null;
+		fIndexAnchor= forward ? ICharacterPairMatcher.LEFT : ICharacterPairMatcher.RIGHT;
+		return new Region(Math.min(bracket, peer), Math.abs(peer - bracket) + 1);
+	}
+
+	private int getPairIndex(char ch) {
+		for (int i= 0; i < fPairs.length; i++) {
+			if (fPairs[i] == ch)
+				return i;
+		}
+		return -1;
+	}
+
+	private boolean isOpening(char ch) {
+		int index= getPairIndex(ch);
+		return index != -1 && index % 2 == 0;
+	}
+
+	private boolean isClosing(char ch) {
+		return getPairIndex(ch) % 2 == 1;
+	}
+
 	/**
 	 * Returns <code>true</code> if the character at the specified offset is a less-than sign, rather than
 	 * the opening angle bracket of a type parameter list.
@@ -245,4 +326,35 @@ public final class JavaPairMatcher extends DefaultCharacterPairMatcher implement
 		}
 		return super.isMatchedChar(ch, document, offset);
 	}
+
+	/*
+	 * @see org.eclipse.jface.text.source.ICharacterPairMatcherExtension#findEnclosingPeerCharacters(org.eclipse.jface.text.IDocument, int, int)
+	 * @since 3.13
+	 */
+	@Override
+	public IRegion findEnclosingPeerCharacters(IDocument document, int offset, int length) {
+		IRegion region= super.findEnclosingPeerCharacters(document, offset, length);
+		// the super class sets the anchor of the enclosing peers
+		fIndexAnchor= -1;
+		return region;
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.source.ICharacterPairMatcher#getAnchor()
+	 * @since 3.13
+	 */
+	@Override
+	public int getAnchor() {
+		return fIndexAnchor != -1 ? fIndexAnchor : super.getAnchor();
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.source.ICharacterPairMatcher#clear()
+	 * @since 3.13
+	 */
+	@Override
+	public void clear() {
+		fIndexAnchor= -1;
+		super.clear();
+	}
 }
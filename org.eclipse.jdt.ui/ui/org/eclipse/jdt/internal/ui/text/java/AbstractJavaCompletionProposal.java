@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,6 +39,9 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 
 import org.eclipse.jface.internal.text.html.BrowserInformationControl;
 import org.eclipse.jface.internal.text.html.HTMLPrinter;
@@ -220,6 +223,20 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 
 	}
 
+	/**
+	 * The code assist options that control how proposals are matched.
+	 * @since 3.13
+	 */
+	private static final class MatchingOptions {
+		final boolean fCamelCase;
+		final boolean fSubstring;
+
+		MatchingOptions(boolean camelCase, boolean substring) {
+			fCamelCase= camelCase;
+			fSubstring= substring;
+		}
+	}
+
 	private StyledString fDisplayString;
 	private String fReplacementString;
 	private int fReplacementOffset;
@@ -235,6 +252,19 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 
 	private int fPatternMatchRule= -1;
 
+	/**
+	 * The pattern and string last matched by {@link #isPrefix(String, String)}, the resulting
+	 * match rule, and the matching options it was computed with. While the user types or deletes
+	 * characters, the next pattern mostly extends or shortens the last one, and the match can be
+	 * answered without matching the string again.
+	 *
+	 * @since 3.13
+	 */
+	private String fLastPattern;
+	private String fLastMatchedString;
+	private int fLastMatchRule= -1;
+	private MatchingOptions fLastMatchingOptions;
+
 	private StyleRange fRememberedStyleRange;
 
 	private boolean fToggleEating;
@@ -253,6 +283,13 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 	 */
 	private static String fgCSSStyles;
 
+	/**
+	 * The cached code assist matching options, <code>null</code> if not yet read.
+	 * @since 3.13
+	 */
+	private static volatile MatchingOptions fgMatchingOptions;
+	private static boolean fgListeningToOptions;
+
 	/**
 	 * The invocation context of this completion proposal. Can be <code>null</code>.
 	 */
@@ -894,10 +931,51 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 	protected boolean isPrefix(String pattern, String string) {
 		if (pattern == null || string == null || pattern.length() > string.length())
 			return false;
-		fPatternMatchRule= getPatternMatchRule(pattern, string);
+		fPatternMatchRule= getIncrementalPatternMatchRule(pattern, string);
 		return fPatternMatchRule != -1;
 	}
 
+	/**
+	 * Returns the match rule of <code>pattern</code> in <code>string</code>, reusing the last
+	 * match of the same string where possible:
+	 * <ul>
+	 * <li>a pattern that extends a pattern which did not match does not match either, since
+	 * prefix, CamelCase and substring matches of a pattern are also matches of its prefixes. The
+	 * patterns are compared case sensitively, as CamelCase matching is case sensitive</li>
+	 * <li>a pattern that a prefix match starts with is a prefix match, too</li>
+	 * </ul>
+	 *
+	 * @param pattern the pattern to match
+	 * @param string the string to look for the pattern
+	 * @return the match rule, or -1 if the pattern doesn't match
+	 * @since 3.13
+	 */
+	private int getIncrementalPatternMatchRule(String pattern, String string) {
+		MatchingOptions options= getMatchingOptions();
+		if (options == fLastMatchingOptions && string.equals(fLastMatchedString)) {
+			String lastPattern= fLastPattern;
+			if (fLastMatchRule == -1) {
+				if (pattern.startsWith(lastPattern))
+					return -1;
+			} else if (fLastMatchRule == SearchPattern.R_PREFIX_MATCH) {
+				if (startsWithIgnoreCase(lastPattern, pattern))
+					return SearchPattern.R_PREFIX_MATCH;
+			} else if (pattern.equals(lastPattern)) {
+				return fLastMatchRule;
+			}
+		}
+		int rule= getPatternMatchRule(pattern, string);
+		fLastPattern= pattern;
+		fLastMatchedString= string;
+		fLastMatchRule= rule;
+		fLastMatchingOptions= options;
+		return rule;
+	}
+
+	private static boolean startsWithIgnoreCase(String string, String prefix) {
+		return string.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
 	/**
 	 * Matches the given <code>pattern</code> in <code>string</code> and returns the match rule.
 	 * 
@@ -909,19 +987,24 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 	 * @since 3.12
 	 */
 	protected int getPatternMatchRule(String pattern, String string) {
-		String start;
-		try {
-			start= string.substring(0, pattern.length());
-		} catch (StringIndexOutOfBoundsException e) {
+		if (pattern.length() > string.length()) {
 			String message= "Error retrieving proposal text.\nDisplay string:\n" + string + "\nPattern:\n" + pattern; //$NON-NLS-1$//$NON-NLS-2$
-			JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IStatus.OK, message, e));
+			JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IStatus.OK, message, new StringIndexOutOfBoundsException(pattern.length())));
 			return -1;
 		}
-		if (start.equalsIgnoreCase(pattern)) {
+		if (startsWithIgnoreCase(string, pattern))
 			return SearchPattern.R_PREFIX_MATCH;
-		} else if (isCamelCaseMatching() && CharOperation.camelCaseMatch(pattern.toCharArray(), string.toCharArray())) {
+
+		boolean camelCase= isCamelCaseMatching();
+		boolean substring= isSubstringMatching();
+		if (!camelCase && !substring)
+			return -1;
+
+		char[] patternChars= pattern.toCharArray();
+		char[] stringChars= string.toCharArray();
+		if (camelCase && CharOperation.camelCaseMatch(patternChars, stringChars)) {
 			return SearchPattern.R_CAMELCASE_MATCH;
-		} else if (isSubstringMatching() && CharOperation.substringMatch(pattern.toCharArray(), string.toCharArray())) {
+		} else if (substring && CharOperation.substringMatch(patternChars, stringChars)) {
 			return SearchPattern.R_SUBSTRING_MATCH;
 		} else {
 			return -1;
@@ -971,8 +1054,7 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 	 * @since 3.2
 	 */
 	protected boolean isCamelCaseMatching() {
-		String value= JavaCore.getOption(JavaCore.CODEASSIST_CAMEL_CASE_MATCH);
-		return JavaCore.ENABLED.equals(value);
+		return getMatchingOptions().fCamelCase;
 	}
 
 	/**
@@ -982,8 +1064,44 @@ public abstract class AbstractJavaCompletionProposal implements IJavaCompletionP
 	 * @since 3.12
 	 */
 	protected boolean isSubstringMatching() {
-		String value= JavaCore.getOption(JavaCore.CODEASSIST_SUBSTRING_MATCH);
-		return JavaCore.ENABLED.equals(value);
+		return getMatchingOptions().fSubstring;
+	}
+
+	/**
+	 * Returns the code assist matching options. They are queried for every proposal each time
+	 * the user types a character, and are cached until the Java Core options change.
+	 *
+	 * @return the matching options
+	 * @since 3.13
+	 */
+	private static MatchingOptions getMatchingOptions() {
+		MatchingOptions options= fgMatchingOptions;
+		if (options != null)
+			return options;
+		synchronized (MatchingOptions.class) {
+			if (!fgListeningToOptions) {
+				InstanceScope.INSTANCE.getNode(JavaCore.PLUGIN_ID).addPreferenceChangeListener(new IPreferenceChangeListener() {
+					@Override
+					public void preferenceChange(PreferenceChangeEvent event) {
+						String key= event.getKey();
+						if (JavaCore.CODEASSIST_CAMEL_CASE_MATCH.equals(key) || JavaCore.CODEASSIST_SUBSTRING_MATCH.equals(key)) {
+							synchronized (MatchingOptions.class) {
+								fgMatchingOptions= null;
+							}
+						}
+					}
+				});
+				fgListeningToOptions= true;
+			}
+			options= fgMatchingOptions;
+			if (options == null) {
+				options= new MatchingOptions(
+						JavaCore.ENABLED.equals(JavaCore.getOption(JavaCore.CODEASSIST_CAMEL_CASE_MATCH)),
+						JavaCore.ENABLED.equals(JavaCore.getOption(JavaCore.CODEASSIST_SUBSTRING_MATCH)));
+				fgMatchingOptions= options;
+			}
+			return options;
+		}
 	}
 
 	protected static boolean insertCompletion() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -59,6 +59,18 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 public final class CompletionProposalCategory {
 	/** The extension schema name of the icon attribute. */
 	private static final String ICON= "icon"; //$NON-NLS-1$
+	/** The extension schema name of the concurrent attribute. */
+	private static final String CONCURRENT= "concurrent"; //$NON-NLS-1$
+	/** The extension schema name of the deadline attribute. */
+	private static final String DEADLINE= "deadline"; //$NON-NLS-1$
+
+	/**
+	 * The system property with the default deadline of concurrent categories in milliseconds. The
+	 * deadline of a single category can be set with the property followed by <code>.</code> and
+	 * the id of the category.
+	 */
+	private static final String DEADLINE_PROPERTY= "org.eclipse.jdt.ui.codeAssistCategoryDeadline"; //$NON-NLS-1$
+	private static final long DEFAULT_DEADLINE= Long.getLong(DEADLINE_PROPERTY, 500).longValue(); // ms
 
 	private final String fId;
 	private final String fName;
@@ -77,6 +89,22 @@ public final class CompletionProposalCategory {
 	private int fSortOrder= 0xffff - 1;
 	private String fLastError= null;
 
+	/**
+	 * Tells whether the computers of this category can run outside the UI thread.
+	 */
+	private final boolean fIsConcurrent;
+
+	/**
+	 * The time in milliseconds content assist waits for the proposals of this category, or
+	 * <code>0</code> if there is no deadline.
+	 */
+	private long fDeadline;
+
+	/**
+	 * The latencies of {@link #computeCompletionProposals(ContentAssistInvocationContext, String, SubProgressMonitor)}.
+	 */
+	private final LatencyHistogram fLatencies= new LatencyHistogram();
+
 	/**
 	 * Flag indicating whether any completion engine associated with this category requests
 	 * resorting of its proposals after filtering is triggered. Filtering is, e.g., triggered when a
@@ -119,6 +147,17 @@ public final class CompletionProposalCategory {
 		}
 		fImage= img;
 
+		fIsConcurrent= Boolean.valueOf(element.getAttribute(CONCURRENT)).booleanValue();
+		long deadline= fIsConcurrent ? DEFAULT_DEADLINE : 0;
+		String declared= element.getAttribute(DEADLINE);
+		if (declared != null) {
+			try {
+				deadline= Long.parseLong(declared);
+			} catch (NumberFormatException e) {
+				JavaPlugin.log(e);
+			}
+		}
+		fDeadline= Long.getLong(DEADLINE_PROPERTY + '.' + fId, deadline).longValue();
 	}
 
 	CompletionProposalCategory(String id, String name, CompletionProposalComputerRegistry registry) {
@@ -128,6 +167,8 @@ public final class CompletionProposalCategory {
 		fElement= null;
 		fEnablementExpression = null;
 		fImage= null;
+		fIsConcurrent= false;
+		fDeadline= Long.getLong(DEADLINE_PROPERTY + '.' + fId, 0).longValue();
 	}
 
 	private Bundle getBundle() {
@@ -287,6 +328,45 @@ public final class CompletionProposalCategory {
 		fSortOrder= sortOrder;
 	}
 	
+	/**
+	 * Returns whether the computers of this category can compute proposals outside the UI
+	 * thread, concurrently with other categories.
+	 *
+	 * @return <code>true</code> if the category has been declared as concurrent
+	 */
+	public boolean isConcurrent() {
+		return fIsConcurrent;
+	}
+
+	/**
+	 * Returns the time content assist waits for the proposals of this category. Proposals of
+	 * concurrent categories that take longer are added to the proposal popup when they arrive.
+	 * Categories that run in the UI thread only have a deadline if they declare one, and then get
+	 * a progress monitor that is canceled after the deadline.
+	 *
+	 * @return the deadline in milliseconds, or <code>0</code> if there is no deadline
+	 */
+	public long getDeadline() {
+		return fDeadline;
+	}
+
+	/**
+	 * @param deadline the deadline in milliseconds
+	 * @see #getDeadline()
+	 */
+	public void setDeadline(long deadline) {
+		fDeadline= deadline;
+	}
+
+	/**
+	 * Returns the latencies of computing the completion proposals of this category.
+	 *
+	 * @return the latency histogram
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return fLatencies;
+	}
+
 	/**
 	 * Determines if the project matches any enablement expression defined on the extension.
 	 * 
@@ -329,6 +409,7 @@ public final class CompletionProposalCategory {
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor) {
+		long start= System.currentTimeMillis();
 		fLastError= null;
 		List<ICompletionProposal> result= new ArrayList<>();
 		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition));
@@ -338,6 +419,7 @@ public final class CompletionProposalCategory {
 			if (fLastError == null && desc.getErrorMessage() != null)
 				fLastError= desc.getErrorMessage();
 		}
+		fLatencies.record(System.currentTimeMillis() - start);
 		return result;
 	}
 
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+/**
+ * Computes the proposals of several tasks in jobs. {@link #await()} waits for each task until
+ * its deadline. The proposals of tasks that finish later are reported with
+ * {@link #lateProposalsAvailable()}.
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @param <T> the type of the tasks
+ */
+public abstract class ConcurrentComputation<T> {
+
+	private final List<T> fTasks;
+	private final long fStart;
+	private final IProgressMonitor fMonitor= new NullProgressMonitor();
+
+	/** The proposals of finished tasks, guarded by <code>this</code> */
+	private final Map<T, List<ICompletionProposal>> fResults= new HashMap<>();
+	/** The error messages of tasks, guarded by <code>this</code> */
+	private final Map<T, String> fErrors= new HashMap<>();
+	/** The tasks that finished after their deadline and have not been taken, guarded by <code>this</code> */
+	private final List<T> fLateTasks= new ArrayList<>();
+	private boolean fIsAwaited;
+
+	/**
+	 * Creates a computation. The deadlines of the tasks start now.
+	 *
+	 * @param tasks the tasks to compute
+	 */
+	protected ConcurrentComputation(List<T> tasks) {
+		fTasks= tasks;
+		fStart= System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the name of the job that computes the given task.
+	 *
+	 * @param task the task
+	 * @return the name of the job
+	 */
+	protected abstract String getName(T task);
+
+	/**
+	 * Returns how long {@link #await()} waits for the given task.
+	 *
+	 * @param task the task
+	 * @return the deadline in milliseconds after the creation of this computation
+	 */
+	protected abstract long getDeadline(T task);
+
+	/**
+	 * Computes the proposals of the given task. Called in a job.
+	 *
+	 * @param task the task
+	 * @param monitor the progress monitor, canceled when this computation is canceled
+	 * @return the proposals
+	 */
+	protected abstract List<ICompletionProposal> compute(T task, IProgressMonitor monitor);
+
+	/**
+	 * Called in a job when a task has finished with proposals after {@link #await()} has
+	 * returned, unless this computation has been canceled.
+	 */
+	protected abstract void lateProposalsAvailable();
+
+	/**
+	 * Schedules the jobs that compute the tasks.
+	 */
+	public void schedule() {
+		for (final T task : fTasks) {
+			Job job= new Job(getName(task)) {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					computeTask(task);
+					return Status.OK_STATUS;
+				}
+			};
+			job.setSystem(true);
+			job.setPriority(Job.INTERACTIVE);
+			job.schedule();
+		}
+	}
+
+	/**
+	 * Cancels the computation of the tasks that have not finished yet.
+	 */
+	public void cancel() {
+		fMonitor.setCanceled(true);
+	}
+
+	private void computeTask(T task) {
+		List<ICompletionProposal> computed= Collections.emptyList();
+		if (!fMonitor.isCanceled())
+			computed= compute(task, fMonitor);
+		boolean isLate;
+		synchronized (this) {
+			fResults.put(task, computed);
+			isLate= fIsAwaited && !computed.isEmpty();
+			if (isLate)
+				fLateTasks.add(task);
+			notifyAll();
+		}
+		if (isLate && !fMonitor.isCanceled())
+			lateProposalsAvailable();
+	}
+
+	/**
+	 * Waits until all tasks have finished or their deadline has passed.
+	 */
+	public synchronized void await() {
+		try {
+			while (true) {
+				long now= System.currentTimeMillis();
+				long timeout= 0;
+				for (T task : fTasks) {
+					if (!fResults.containsKey(task))
+						timeout= Math.max(timeout, fStart + getDeadline(task) - now);
+				}
+				if (timeout <= 0)
+					break;
+				wait(timeout);
+			}
+		} catch (InterruptedException e) {
+			// return the proposals computed so far
+		}
+		fIsAwaited= true;
+	}
+
+	/**
+	 * Returns the proposals of the given task.
+	 *
+	 * @param task the task
+	 * @return the proposals, or <code>null</code> if the task has not finished yet
+	 */
+	public synchronized List<ICompletionProposal> getResult(T task) {
+		return fResults.get(task);
+	}
+
+	/**
+	 * Sets the error message of the given task. Called by {@link #compute(Object, IProgressMonitor)}.
+	 *
+	 * @param task the task
+	 * @param message the error message, or <code>null</code>
+	 */
+	protected synchronized void setErrorMessage(T task, String message) {
+		if (message != null)
+			fErrors.put(task, message);
+		else
+			fErrors.remove(task);
+	}
+
+	/**
+	 * Returns the error message of the given task.
+	 *
+	 * @param task the task
+	 * @return the error message, or <code>null</code>
+	 */
+	public synchronized String getErrorMessage(T task) {
+		return fErrors.get(task);
+	}
+
+	/**
+	 * Returns the tasks that finished with proposals after {@link #await()} and removes them
+	 * from the list of late tasks.
+	 *
+	 * @return the late tasks
+	 */
+	public synchronized List<T> takeLateTasks() {
+		List<T> result= new ArrayList<>(fLateTasks);
+		fLateTasks.clear();
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,9 +16,11 @@ package org.eclipse.jdt.internal.ui.text.java;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.SWT;
@@ -29,6 +31,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Shell;
 
@@ -37,6 +40,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.InvalidRegistryObjectException;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jface.action.LegacyActionTools;
@@ -177,6 +181,9 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 				cat.sessionEnded();
 			}
 
+			cancelConcurrentComputation();
+			fLastCollectedProposals= null;
+			fLastContext= null;
 			fSelectedProposal= null;
 			fCategoryIteration= null;
 			fRepetition= -1;
@@ -207,7 +214,68 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		 */
 		@Override
 		public void assistSessionRestarted(ContentAssistEvent event) {
-			fRepetition= 0;
+			if (!fIsShowingLateProposals)
+				fRepetition= 0;
+		}
+	}
+
+	/**
+	 * A progress monitor that is canceled after a deadline.
+	 *
+	 * @since 3.13
+	 */
+	private static final class DeadlineProgressMonitor extends ProgressMonitorWrapper {
+		private final long fDeadline;
+
+		DeadlineProgressMonitor(IProgressMonitor monitor, long deadline) {
+			super(monitor);
+			fDeadline= deadline;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || System.currentTimeMillis() > fDeadline;
+		}
+	}
+
+	/**
+	 * Computes the proposals of the concurrent categories in jobs, while the other categories
+	 * are computed in the UI thread. Proposals of categories that finish after their deadline
+	 * are added to the open proposal popup.
+	 *
+	 * @since 3.13
+	 */
+	private final class CategoryComputation extends ConcurrentComputation<CompletionProposalCategory> {
+		private final ContentAssistInvocationContext fContext;
+
+		CategoryComputation(List<CompletionProposalCategory> categories, ContentAssistInvocationContext context) {
+			super(categories);
+			fContext= context;
+		}
+
+		@Override
+		protected String getName(CompletionProposalCategory category) {
+			return Messages.format(JavaTextMessages.ContentAssistProcessor_computing_category, category.getDisplayName());
+		}
+
+		@Override
+		protected long getDeadline(CompletionProposalCategory category) {
+			return category.getDeadline();
+		}
+
+		@Override
+		protected List<ICompletionProposal> compute(CompletionProposalCategory category, IProgressMonitor monitor) {
+			// categories are shared by all processors, and keep the error of the last computation
+			synchronized (category) {
+				List<ICompletionProposal> computed= category.computeCompletionProposals(fContext, fPartition, new SubProgressMonitor(monitor, 0));
+				setErrorMessage(category, category.getErrorMessage());
+				return computed;
+			}
+		}
+
+		@Override
+		protected void lateProposalsAvailable() {
+			postLateProposals(this);
 		}
 	}
 
@@ -258,6 +326,30 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The computation of the concurrent categories of the current session, or <code>null</code>.
+	 *
+	 * @since 3.13
+	 */
+	private CategoryComputation fConcurrentComputation;
+
+	/**
+	 * The proposals collected by the last computation before sorting, the context and the
+	 * offset of the last computation. Used to add late proposals.
+	 *
+	 * @since 3.13
+	 */
+	private List<ICompletionProposal> fLastCollectedProposals;
+	private ContentAssistInvocationContext fLastContext;
+	private int fLastOffset= -1;
+
+	/**
+	 * Tells whether the proposal popup is updated with late proposals.
+	 *
+	 * @since 3.13
+	 */
+	private boolean fIsShowingLateProposals;
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -276,16 +368,22 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	public final ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
 		long start= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
 
-		clearState();
+		boolean addLateProposals= fIsShowingLateProposals && fLastCollectedProposals != null && offset == fLastOffset;
+		if (!addLateProposals) {
+			clearState();
+		}
 
 		IProgressMonitor monitor= createProgressMonitor();
 		monitor.beginTask(JavaTextMessages.ContentAssistProcessor_computing_proposals, fCategories.size() + 1);
 
-		ContentAssistInvocationContext context= createContext(viewer, offset);
+		ContentAssistInvocationContext context= addLateProposals ? fLastContext : createContext(viewer, offset);
 		long setup= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_collecting_proposals);
-		List<ICompletionProposal> proposals= collectProposals(viewer, offset, monitor, context);
+		List<ICompletionProposal> proposals= addLateProposals ? collectLateProposals() : collectProposals(viewer, offset, monitor, context);
+		fLastCollectedProposals= new ArrayList<>(proposals);
+		fLastContext= context;
+		fLastOffset= offset;
 		long collect= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_sorting_proposals);
@@ -304,6 +402,10 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			System.err.println("Code Assist (setup):\t" + (setup - start) ); //$NON-NLS-1$
 			System.err.println("Code Assist (collect):\t" + (collect - setup) ); //$NON-NLS-1$
 			System.err.println("Code Assist (sort):\t" + (filter - collect) ); //$NON-NLS-1$
+			for (CompletionProposalCategory cat : fCategories) {
+				if (cat.getLatencyHistogram().getCount() > 0)
+					System.err.println("Code Assist (" + cat.getId() + "):\t" + cat.getLatencyHistogram()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		}
 
 		return result;
@@ -324,15 +426,56 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 * @return the list of proposals
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
+		cancelConcurrentComputation();
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
 		List<CompletionProposalCategory> providers= getCategories();
+
+		List<CompletionProposalCategory> concurrent= new ArrayList<>();
 		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+			if (cat.isConcurrent())
+				concurrent.add(cat);
+		}
+		CategoryComputation computation= null;
+		if (!concurrent.isEmpty()) {
+			computation= new CategoryComputation(concurrent, context);
+			fConcurrentComputation= computation;
+			computation.schedule();
+		}
+
+		// categories that need the UI thread run while the concurrent categories are computed
+		Map<CompletionProposalCategory, List<ICompletionProposal>> computedInUIThread= new HashMap<>();
+		for (CompletionProposalCategory cat : providers) {
+			if (cat.isConcurrent()) {
+				monitor.worked(1);
+				continue;
+			}
+			IProgressMonitor catMonitor= monitor;
+			if (cat.getDeadline() > 0) // declared by the category
+				catMonitor= new DeadlineProgressMonitor(monitor, System.currentTimeMillis() + cat.getDeadline());
+			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(catMonitor, 1));
+			computedInUIThread.put(cat, computed);
+		}
+		if (computation != null)
+			computation.await();
+
+		// keep the order of the categories
+		for (CompletionProposalCategory cat : providers) {
+			List<ICompletionProposal> computed;
+			String errorMessage;
+			if (cat.isConcurrent()) {
+				computed= computation.getResult(cat);
+				errorMessage= computation.getErrorMessage(cat);
+				if (computed == null)
+					continue; // late
+			} else {
+				computed= computedInUIThread.get(cat);
+				errorMessage= cat.getErrorMessage();
+			}
 			proposals.addAll(computed);
 			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
 			if (fErrorMessage == null)
-				fErrorMessage= cat.getErrorMessage();
+				fErrorMessage= errorMessage;
 		}
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
@@ -340,6 +483,63 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		return proposals;
 	}
 
+	/**
+	 * Returns the proposals of the last computation together with the proposals of concurrent
+	 * categories that have finished after their deadline.
+	 *
+	 * @return the list of proposals
+	 * @since 3.13
+	 */
+	private List<ICompletionProposal> collectLateProposals() {
+		List<ICompletionProposal> proposals= new ArrayList<>(fLastCollectedProposals);
+		CategoryComputation computation= fConcurrentComputation;
+		if (computation != null) {
+			for (CompletionProposalCategory cat : computation.takeLateTasks()) {
+				List<ICompletionProposal> computed= computation.getResult(cat);
+				proposals.addAll(computed);
+				fNeedsSortingAfterFiltering= fNeedsSortingAfterFiltering || cat.isSortingAfterFilteringNeeded();
+				if (fErrorMessage == null)
+					fErrorMessage= computation.getErrorMessage(cat);
+			}
+		}
+		return proposals;
+	}
+
+	private void cancelConcurrentComputation() {
+		if (fConcurrentComputation != null) {
+			fConcurrentComputation.cancel();
+			fConcurrentComputation= null;
+		}
+	}
+
+	/**
+	 * Shows the proposals of the concurrent categories that have finished after their deadline
+	 * in the proposal popup, if the popup is still open. Can be called from any thread.
+	 *
+	 * @param computation the computation that has late proposals
+	 * @since 3.13
+	 */
+	private void postLateProposals(final CategoryComputation computation) {
+		Display display= Display.getDefault();
+		display.asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				if (computation != fConcurrentComputation || fCategoryIteration == null || fIsShowingLateProposals)
+					return;
+				// otherwise the proposals would be computed again, for the next category
+				ITextViewer viewer= fLastContext != null ? fLastContext.getViewer() : null;
+				if (viewer == null || viewer.getSelectedRange().x != fLastOffset)
+					return;
+				fIsShowingLateProposals= true;
+				try {
+					fAssistant.showPossibleCompletions();
+				} finally {
+					fIsShowingLateProposals= false;
+				}
+			}
+		});
+	}
+
 	/**
 	 * Filters and sorts the proposals. The passed list may be modified
 	 * and returned, or a new list may be created and returned.
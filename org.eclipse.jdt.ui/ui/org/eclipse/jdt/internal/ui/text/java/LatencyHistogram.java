@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+/**
+ * A histogram of latencies in milliseconds, with buckets growing in powers of two. Bucket
+ * <code>0</code> counts latencies below 1 ms, bucket <code>i</code> counts latencies from
+ * <code>2^(i-1)</code> ms to <code>2^i - 1</code> ms, and the last bucket counts all longer
+ * latencies.
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+	/** The number of buckets, the last bucket counts latencies of 8192 ms and more */
+	public static final int BUCKET_COUNT= 15;
+
+	private final long[] fCounts= new long[BUCKET_COUNT];
+	private long fCount;
+	private long fTotal;
+	private long fMax;
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param millis the latency in milliseconds
+	 */
+	public synchronized void record(long millis) {
+		if (millis < 0)
+			millis= 0;
+		fCounts[getBucket(millis)]++;
+		fCount++;
+		fTotal+= millis;
+		fMax= Math.max(fMax, millis);
+	}
+
+	private static int getBucket(long millis) {
+		int bucket= 64 - Long.numberOfLeadingZeros(millis);
+		return Math.min(bucket, BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Returns the smallest latency of the given bucket.
+	 *
+	 * @param bucket the bucket, between <code>0</code> and {@link #BUCKET_COUNT}
+	 * @return the lower bound of the bucket in milliseconds
+	 */
+	public static long getLowerBound(int bucket) {
+		return bucket == 0 ? 0 : 1L << (bucket - 1);
+	}
+
+	/**
+	 * Returns the number of recorded latencies in each bucket.
+	 *
+	 * @return a copy of the counts, of length {@link #BUCKET_COUNT}
+	 */
+	public synchronized long[] getCounts() {
+		return fCounts.clone();
+	}
+
+	public synchronized long getCount() {
+		return fCount;
+	}
+
+	public synchronized long getMax() {
+		return fMax;
+	}
+
+	/**
+	 * Returns the average latency.
+	 *
+	 * @return the average in milliseconds, or <code>0</code> if nothing has been recorded
+	 */
+	public synchronized long getAverage() {
+		return fCount == 0 ? 0 : fTotal / fCount;
+	}
+
+	/**
+	 * Returns an upper bound of the given percentile of the recorded latencies.
+	 *
+	 * @param percent the percentile, between <code>0</code> and <code>100</code>
+	 * @return the upper bound of the bucket containing the percentile in milliseconds, or
+	 *         <code>0</code> if nothing has been recorded
+	 */
+	public synchronized long getPercentile(int percent) {
+		long rank= (fCount * percent + 99) / 100;
+		long seen= 0;
+		for (int i= 0; i < BUCKET_COUNT - 1; i++) {
+			seen+= fCounts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(getLowerBound(i + 1) - 1, fMax);
+		}
+		return fMax;
+	}
+
+	public synchronized void reset() {
+		for (int i= 0; i < BUCKET_COUNT; i++) {
+			fCounts[i]= 0;
+		}
+		fCount= 0;
+		fTotal= 0;
+		fMax= 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("count=").append(fCount); //$NON-NLS-1$
+		buf.append(" avg=").append(getAverage()); //$NON-NLS-1$
+		buf.append(" p90=").append(getPercentile(90)); //$NON-NLS-1$
+		buf.append(" max=").append(fMax); //$NON-NLS-1$
+		return buf.toString();
+	}
+}
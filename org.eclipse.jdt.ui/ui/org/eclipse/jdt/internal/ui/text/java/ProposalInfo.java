@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,7 +19,7 @@ import org.eclipse.jdt.core.JavaModelException;
 
 import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
 
-import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentAccess2;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocContentCache;
 
 
 public class ProposalInfo {
@@ -87,7 +87,7 @@ public class ProposalInfo {
 	 * @throws CoreException if fetching the Javadoc for the given element failed connected
 	 */
 	private String extractJavadoc(IJavaElement element) throws CoreException {
-		return JavadocContentAccess2.getHTMLContent(element, true);
+		return JavadocContentCache.getDefault().getHTMLContent(element, true);
 	}
 
 }
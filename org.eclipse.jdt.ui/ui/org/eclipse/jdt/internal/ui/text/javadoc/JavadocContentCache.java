@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Caches the Javadoc HTML computed by {@link JavadocContentAccess2}, keyed by the handle
+ * identifier of the element. Elements without Javadoc are cached as well. Used by the Javadoc
+ * hover, the Javadoc view and the additional info of completion proposals, so that showing the
+ * Javadoc of the same element again neither reads and converts the source nor resolves
+ * inherited Javadoc or fetches attached Javadoc again.
+ * <p>
+ * The Javadoc of a source element can be inherited from any other compilation unit, so the
+ * entries of all source elements are removed when a compilation unit changes or is reconciled.
+ * The entries of binary elements are only removed when class files, package fragment roots or
+ * the classpath change.
+ * </p>
+ * <p>
+ * {@link #prefetch(ITypeRoot, int, int)} computes the Javadoc of the element at the caret in
+ * the background, so that a hover over it is answered from the cache.
+ * </p>
+ */
+public final class JavadocContentCache {
+
+	/** Maximal number of cached elements */
+	private static final int MAX_ENTRIES= 500;
+
+	/** Time to wait after the last caret move before computing the Javadoc at the caret */
+	private static final long PREFETCH_DELAY= 300;
+
+	/** Cached value of elements without Javadoc */
+	private static final String NO_CONTENT= new String();
+
+	/** A change that affects the entries of source elements */
+	private static final int SOURCE_CHANGED= 1;
+
+	/** A change that affects all entries */
+	private static final int ALL_CHANGED= 2;
+
+	private static final class Entry {
+		final String fContent;
+		final boolean fIsSource;
+
+		Entry(String content, boolean isSource) {
+			fContent= content;
+			fIsSource= isSource;
+		}
+	}
+
+	private static JavadocContentCache fgInstance;
+
+	private final Map<String, Entry> fEntries= new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** The keys of the elements whose Javadoc is being computed */
+	private final Set<String> fComputing= new HashSet<>();
+
+	private long fGeneration;
+
+	private int fHitCount;
+	private int fMissCount;
+
+	private ITypeRoot fPrefetchInput;
+	private int fPrefetchOffset;
+	private int fPrefetchLength;
+
+	private final Job fPrefetchJob= new Job(JavaDocMessages.JavadocContentCache_prefetch) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			ITypeRoot input;
+			int offset;
+			int length;
+			synchronized (JavadocContentCache.this) {
+				input= fPrefetchInput;
+				offset= fPrefetchOffset;
+				length= fPrefetchLength;
+				fPrefetchInput= null;
+			}
+			if (input != null)
+				prefetch(input, offset, length, monitor);
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	};
+
+	private JavadocContentCache() {
+		fPrefetchJob.setSystem(true);
+		fPrefetchJob.setPriority(Job.DECORATE);
+		JavaCore.addElementChangedListener(new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				invalidate(event.getDelta());
+			}
+		}, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	public static synchronized JavadocContentCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new JavadocContentCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Returns the Javadoc of the given element in HTML, see
+	 * {@link JavadocContentAccess2#getHTMLContent(IJavaElement, boolean)}. If the Javadoc of the
+	 * element is being computed in another thread, waits for that computation.
+	 *
+	 * @param element the element to get the Javadoc of
+	 * @param useAttachedJavadoc if <code>true</code> Javadoc will be extracted from attached
+	 *            Javadoc if there's no source
+	 * @return the Javadoc in HTML or <code>null</code> if the element does not have a Javadoc
+	 *         comment or if no source is available
+	 * @throws CoreException if the Javadoc cannot be accessed
+	 */
+	public String getHTMLContent(IJavaElement element, boolean useAttachedJavadoc) throws CoreException {
+		String key= getKey(element, useAttachedJavadoc);
+		if (key == null)
+			return JavadocContentAccess2.getHTMLContent(element, useAttachedJavadoc);
+		long generation;
+		synchronized (this) {
+			while (true) {
+				Entry entry= fEntries.get(key);
+				if (entry != null) {
+					fHitCount++;
+					return entry.fContent == NO_CONTENT ? null : entry.fContent;
+				}
+				if (!fComputing.contains(key))
+					break;
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return JavadocContentAccess2.getHTMLContent(element, useAttachedJavadoc);
+				}
+			}
+			fMissCount++;
+			fComputing.add(key);
+			generation= fGeneration;
+		}
+		Entry entry= null;
+		try {
+			String content= JavadocContentAccess2.getHTMLContent(element, useAttachedJavadoc);
+			entry= new Entry(content != null ? content : NO_CONTENT, isSource(element));
+			return content;
+		} finally {
+			synchronized (this) {
+				fComputing.remove(key);
+				if (entry != null && generation == fGeneration)
+					fEntries.put(key, entry);
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the Javadoc of the given element is cached.
+	 *
+	 * @param element the element
+	 * @param useAttachedJavadoc whether attached Javadoc is used
+	 * @return <code>true</code> if the Javadoc is cached
+	 */
+	public synchronized boolean isCached(IJavaElement element, boolean useAttachedJavadoc) {
+		String key= getKey(element, useAttachedJavadoc);
+		return key != null && fEntries.containsKey(key);
+	}
+
+	/**
+	 * Computes the Javadoc of the elements at the given range in the background. Replaces a
+	 * pending request, so that only the Javadoc at the last caret position is computed while the
+	 * caret moves.
+	 *
+	 * @param input the editor input
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 */
+	public void prefetch(ITypeRoot input, int offset, int length) {
+		synchronized (this) {
+			fPrefetchInput= input;
+			fPrefetchOffset= offset;
+			fPrefetchLength= length;
+		}
+		fPrefetchJob.cancel();
+		fPrefetchJob.schedule(PREFETCH_DELAY);
+	}
+
+	private void prefetch(ITypeRoot input, int offset, int length, IProgressMonitor monitor) {
+		try {
+			// don't compete with the reconciler for a compilation unit that is being edited
+			if (input instanceof ICompilationUnit && !((ICompilationUnit) input).isConsistent())
+				return;
+			IJavaElement[] elements= input.codeSelect(offset, length);
+			for (int i= 0; i < elements.length; i++) {
+				if (monitor.isCanceled())
+					return;
+				getHTMLContent(elements[i], true);
+			}
+		} catch (JavaModelException e) {
+			// the element at the caret cannot be resolved, nothing to prefetch
+		} catch (CoreException e) {
+			// the hover reports the failure when it needs the Javadoc
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		fEntries.clear();
+		fGeneration++;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache since the last call to
+	 * {@link #resetCounters()}.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized int getHitCount() {
+		return fHitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that had to compute the Javadoc since the last call to
+	 * {@link #resetCounters()}.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized int getMissCount() {
+		return fMissCount;
+	}
+
+	public synchronized void resetCounters() {
+		fHitCount= 0;
+		fMissCount= 0;
+	}
+
+	/**
+	 * Returns the string identifying the Javadoc of the given element in the cache.
+	 *
+	 * @param element the element
+	 * @param useAttachedJavadoc whether attached Javadoc is used
+	 * @return the key, or <code>null</code> if the Javadoc of the element must not be cached
+	 */
+	private static String getKey(IJavaElement element, boolean useAttachedJavadoc) {
+		ICompilationUnit cu= (ICompilationUnit) element.getAncestor(IJavaElement.COMPILATION_UNIT);
+		if (cu != null && cu.getOwner() != null)
+			return null; // working copies of other owners have the handles of the primary elements
+		if (element instanceof IPackageFragment)
+			useAttachedJavadoc= true; // the Javadoc of packages always includes attached Javadoc
+		String handle= element.getHandleIdentifier();
+		return useAttachedJavadoc ? handle : handle + "|source"; //$NON-NLS-1$
+	}
+
+	private static boolean isSource(IJavaElement element) {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		try {
+			return root == null || root.getKind() == IPackageFragmentRoot.K_SOURCE;
+		} catch (JavaModelException e) {
+			return true;
+		}
+	}
+
+	private void invalidate(IJavaElementDelta delta) {
+		int change= getChange(delta);
+		if (change == 0)
+			return;
+		synchronized (this) {
+			fGeneration++;
+			if (change == ALL_CHANGED) {
+				fEntries.clear();
+				return;
+			}
+			for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+				if (iter.next().fIsSource)
+					iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns which entries are affected by the given delta.
+	 *
+	 * @param delta the delta
+	 * @return <code>0</code> if no entry is affected, {@link #SOURCE_CHANGED} if the entries of
+	 *         source elements are affected, or {@link #ALL_CHANGED} if all entries are affected
+	 */
+	private static int getChange(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.CLASS_FILE:
+				return ALL_CHANGED;
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0)
+					return ALL_CHANGED;
+				// package.html and other non-Java resources
+				int change= (delta.getFlags() & IJavaElementDelta.F_CONTENT) != 0 ? SOURCE_CHANGED : 0;
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length && change != ALL_CHANGED; i++) {
+					change= Math.max(change, getChange(children[i]));
+				}
+				return change;
+			case IJavaElement.COMPILATION_UNIT:
+				if (delta.getKind() == IJavaElementDelta.CHANGED && delta.getFlags() == IJavaElementDelta.F_AST_AFFECTED)
+					return 0; // reconciled without changes
+				return SOURCE_CHANGED;
+			default:
+				// Javadoc can be inherited across compilation units
+				return SOURCE_CHANGED;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,19 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import org.eclipse.jface.preference.IPreferenceStore;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
@@ -25,6 +35,9 @@ import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.IJavaPartitions;
 
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEvent;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.RankedWordProposal;
 
 
 /**
@@ -34,6 +47,141 @@ import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
  */
 public class JavaSpellingEngine extends SpellingEngine {
 
+	/**
+	 * The spelling problems found in the partitions of a document by the last check, keyed by the
+	 * partition type and content. A partition whose type and content did not change is not checked
+	 * again, its problems are reported at the new partition offset.
+	 *
+	 * @since 3.13
+	 */
+	private static final class PartitionResults {
+
+		/** The spell checker that found the problems */
+		final ISpellChecker fChecker;
+
+		/** The modification stamp of the spell checker */
+		final long fModificationStamp;
+
+		/** The spelling preferences */
+		final String fSettings;
+
+		/** The results by partition key */
+		final Map<String, PartitionResult> fResults= new HashMap<>();
+
+		PartitionResults(ISpellChecker checker, long modificationStamp, String settings) {
+			fChecker= checker;
+			fModificationStamp= modificationStamp;
+			fSettings= settings;
+		}
+
+		boolean isValid(ISpellChecker checker, String settings) {
+			return fChecker == checker && fModificationStamp == checker.getModificationStamp() && fSettings.equals(settings);
+		}
+	}
+
+	/**
+	 * The spell events of a partition.
+	 *
+	 * @since 3.13
+	 */
+	private static final class PartitionResult implements ISpellEventListener {
+
+		/** The offset of the partition when it was checked */
+		final int fOffset;
+
+		/** The spell events */
+		final List<ISpellEvent> fEvents= new ArrayList<>(2);
+
+		PartitionResult(int offset) {
+			fOffset= offset;
+		}
+
+		@Override
+		public void handle(ISpellEvent event) {
+			fEvents.add(event);
+		}
+
+		void report(ISpellEventListener listener, int offset) {
+			for (int i= 0; i < fEvents.size(); i++) {
+				ISpellEvent event= fEvents.get(i);
+				listener.handle(offset == fOffset ? event : new MovedSpellEvent(event, offset - fOffset));
+			}
+		}
+	}
+
+	/**
+	 * A spell event of a partition that moved since it was checked.
+	 *
+	 * @since 3.13
+	 */
+	private static final class MovedSpellEvent implements ISpellEvent {
+
+		private final ISpellEvent fEvent;
+		private final int fDelta;
+
+		MovedSpellEvent(ISpellEvent event, int delta) {
+			fEvent= event;
+			fDelta= delta;
+		}
+
+		@Override
+		public int getBegin() {
+			return fEvent.getBegin() + fDelta;
+		}
+
+		@Override
+		public int getEnd() {
+			return fEvent.getEnd() + fDelta;
+		}
+
+		@Override
+		public Set<RankedWordProposal> getProposals() {
+			return fEvent.getProposals();
+		}
+
+		@Override
+		public String getWord() {
+			return fEvent.getWord();
+		}
+
+		@Override
+		public boolean isMatch() {
+			return fEvent.isMatch();
+		}
+
+		@Override
+		public boolean isStart() {
+			return fEvent.isStart();
+		}
+	}
+
+	/**
+	 * The results of the last check by document.
+	 *
+	 * @since 3.13
+	 */
+	private static final Map<IDocument, PartitionResults> fgResults= Collections.synchronizedMap(new WeakHashMap<IDocument, PartitionResults>());
+
+	/**
+	 * Returns the spelling preferences that influence the problems found in a partition.
+	 *
+	 * @return the preferences
+	 * @since 3.13
+	 */
+	private static String getSettings() {
+		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
+		StringBuffer buffer= new StringBuffer();
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_DIGITS));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_MIXED));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_SENTENCE));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_UPPER));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_URLS));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_NON_LETTERS));
+		buffer.append(store.getBoolean(PreferenceConstants.SPELLING_IGNORE_SINGLE_LETTERS));
+		buffer.append(store.getInt(PreferenceConstants.SPELLING_PROBLEMS_THRESHOLD));
+		return buffer.toString();
+	}
+
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.spelling.SpellingEngine#check(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IRegion[], org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker, org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector, org.eclipse.core.runtime.IProgressMonitor)
@@ -42,6 +190,13 @@ public class JavaSpellingEngine extends SpellingEngine {
 	protected void check(IDocument document, IRegion[] regions, ISpellChecker checker, ISpellingProblemCollector collector, IProgressMonitor monitor) {
 		SpellEventListener listener= new SpellEventListener(collector, document);
 		boolean isIgnoringJavaStrings= PreferenceConstants.getPreferenceStore().getBoolean(PreferenceConstants.SPELLING_IGNORE_JAVA_STRINGS);
+
+		// only the partitions that changed since the last check are checked
+		String settings= getSettings();
+		PartitionResults previous= fgResults.get(document);
+		if (previous != null && !previous.isValid(checker, settings))
+			previous= null;
+		PartitionResults results= new PartitionResults(checker, checker.getModificationStamp(), settings);
 		try {
 			for (int i= 0; i < regions.length; i++) {
 				IRegion region= regions[i];
@@ -59,14 +214,29 @@ public class JavaSpellingEngine extends SpellingEngine {
 					if (isIgnoringJavaStrings && type.equals(IJavaPartitions.JAVA_STRING))
 						continue;
 
-					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER))
-						checker.execute(listener, new SpellCheckIterator(document, partition, checker.getLocale()));
+					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER)) {
+						// the key and the checked words come from the same content
+						String content= document.get(partition.getOffset(), partition.getLength());
+						String key= type + ':' + content;
+						PartitionResult result= previous != null ? previous.fResults.get(key) : null;
+						if (result == null)
+							result= results.fResults.get(key);
+						if (result == null) {
+							result= new PartitionResult(partition.getOffset());
+							checker.execute(result, new SpellCheckIterator(document, partition, content, checker.getLocale()));
+						}
+						results.fResults.put(key, result);
+						result.report(listener, partition.getOffset());
+					}
 				}
 			}
 		} catch (BadLocationException x) {
 			// ignore: the document has been changed in another thread and will be checked again
 		} catch (AssertionFailedException x) {
 			// ignore: the document has been changed in another thread and will be checked again
+		} finally {
+			// partitions not checked in this pass are checked again by the next one
+			fgResults.put(document, results);
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -95,20 +95,29 @@ public class SpellCheckIterator implements ISpellCheckIterator {
 	 * @param breakIterator the break-iterator
 	 */
 	public SpellCheckIterator(IDocument document, IRegion region, Locale locale, BreakIterator breakIterator) {
+		this(document, region, getContent(document, region), locale, breakIterator);
+	}
+
+	/**
+	 * Creates a new spell check iterator for the given content of a region.
+	 *
+	 * @param document the document containing the specified partition
+	 * @param region the region to spell check
+	 * @param content the content of the region in the document
+	 * @param locale the locale to use for spell checking
+	 * @since 3.13
+	 */
+	public SpellCheckIterator(IDocument document, IRegion region, String content, Locale locale) {
+		this(document, region, content, locale, BreakIterator.getWordInstance(locale));
+	}
+
+	private SpellCheckIterator(IDocument document, IRegion region, String content, Locale locale, BreakIterator breakIterator) {
 		fOffset= region.getOffset();
 		fWordIterator= breakIterator;
 		fDelimiter= TextUtilities.getDefaultLineDelimiter(document);
 
-		String content;
-		try {
-
-			content= document.get(region.getOffset(), region.getLength());
-			if (content.startsWith(NLSElement.TAG_PREFIX))
-				content= ""; //$NON-NLS-1$
-
-		} catch (Exception exception) {
+		if (content.startsWith(NLSElement.TAG_PREFIX))
 			content= ""; //$NON-NLS-1$
-		}
 		fContent= content;
 
 		fWordIterator.setText(content);
@@ -126,6 +135,22 @@ public class SpellCheckIterator implements ISpellCheckIterator {
 		}
 	}
 
+	/**
+	 * Returns the content of the given region.
+	 *
+	 * @param document the document
+	 * @param region the region
+	 * @return the content, or an empty string if the region is not in the document
+	 * @since 3.13
+	 */
+	private static String getContent(IDocument document, IRegion region) {
+		try {
+			return document.get(region.getOffset(), region.getLength());
+		} catch (Exception exception) {
+			return ""; //$NON-NLS-1$
+		}
+	}
+
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellCheckIterator#setIgnoreSingleLetters(boolean)
 	 * @since 3.3
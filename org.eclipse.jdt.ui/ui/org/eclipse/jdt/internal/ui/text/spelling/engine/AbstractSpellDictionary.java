@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,8 +28,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -119,6 +123,18 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	protected static final float LOAD_FACTOR= 0.85f;
 
+	/**
+	 * The maximal number of cached results of {@link #isCorrect(String)}.
+	 * @since 3.13
+	 */
+	private static final int WORD_CACHE_SIZE= 2000;
+
+	/**
+	 * The stamp incremented whenever the words of a dictionary change.
+	 * @since 3.13
+	 */
+	private static final AtomicLong fgModificationStamp= new AtomicLong();
+
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
@@ -128,6 +144,32 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
+	/**
+	 * The memory-mapped index of the word list, or <code>null</code> if the words are hashed into
+	 * {@link #fHashBuckets}.
+	 * @since 3.13
+	 */
+	private SpellDictionaryIndex fIndex;
+
+	/**
+	 * The results of {@link #isCorrect(String)} by word, in access order.
+	 * @since 3.13
+	 */
+	private final Map<String, Boolean> fCorrectWords= new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > WORD_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The number of times {@link #fCorrectWords} has been cleared, guarded by {@link #fCorrectWords}.
+	 * @since 3.13
+	 */
+	private int fCorrectWordsGeneration;
+
 	/** Is the dictionary already loaded? */
 	private boolean fLoaded= false;
 	/**
@@ -152,6 +194,46 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return 32;
 	}
 
+	/**
+	 * Returns the file in which the phonetic index of the word list is stored. If the file does not
+	 * contain an up-to-date index, it is written after the word list has been loaded, and later
+	 * loads map it into memory instead of reading the word list.
+	 * <p>
+	 * The default implementation returns <code>null</code>, that is, the word list is always read.
+	 * Subclasses whose word list does not change at runtime may override.
+	 * </p>
+	 *
+	 * @return the index file, or <code>null</code> if no index is used
+	 * @since 3.13
+	 */
+	protected File getIndexFile() {
+		return null;
+	}
+
+	/**
+	 * Returns a stamp that changes whenever the words of a dictionary change.
+	 *
+	 * @return the modification stamp of all dictionaries
+	 * @since 3.13
+	 */
+	public static long getModificationStamp() {
+		return fgModificationStamp.get();
+	}
+
+	/**
+	 * Clears the cached results of {@link #isCorrect(String)} after the words of this dictionary
+	 * changed.
+	 *
+	 * @since 3.13
+	 */
+	private void wordsChanged() {
+		synchronized (fCorrectWords) {
+			fCorrectWords.clear();
+			fCorrectWordsGeneration++;
+		}
+		fgModificationStamp.incrementAndGet();
+	}
+
 	/**
 	 * Returns all candidates with the same phonetic hash.
 	 *
@@ -195,6 +277,25 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 			hash= hashs.get(index);
 
+			final SpellDictionaryIndex dictionaryIndex= fIndex;
+			if (dictionaryIndex != null) {
+				int bucket= dictionaryIndex.find(hash);
+				if (bucket >= 0) {
+					int candidateSize= Math.min(500, dictionaryIndex.getWordCount(bucket));
+					for (int offset= 0; offset < candidateSize; offset++) {
+						String candidate= dictionaryIndex.getWord(bucket, offset);
+						distance= fDistanceAlgorithm.getDistance(word, candidate);
+						if (distance < DISTANCE_THRESHOLD) {
+							buffer.setLength(0);
+							buffer.append(candidate);
+							if (sentence)
+								buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
+							result.add(new RankedWordProposal(buffer.toString(), -distance));
+						}
+					}
+				}
+			}
+
 			final Object candidates= getCandidates(hash);
 			if (candidates == null)
 				continue;
@@ -266,7 +367,32 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 		StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
+		final String hash= fHashProvider.getHash(word);
+		final SpellDictionaryIndex dictionaryIndex= fIndex;
+		if (dictionaryIndex != null) {
+			int bucket= dictionaryIndex.find(hash);
+			if (bucket >= 0) {
+				final ArrayList<RankedWordProposal> matches= new ArrayList<>();
+				for (int index= 0; index < dictionaryIndex.getWordCount(bucket); index++) {
+					String candidate= dictionaryIndex.getWord(bucket, index);
+					distance= fDistanceAlgorithm.getDistance(word, candidate);
+					if (distance <= minimum) {
+						if (distance < minimum)
+							matches.clear();
+						buffer.setLength(0);
+						buffer.append(candidate);
+						if (sentence)
+							buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
+						matches.add(new RankedWordProposal(buffer.toString(), -distance));
+						minimum= distance;
+					}
+				}
+				result.addAll(matches);
+				return;
+			}
+		}
+
+		final Object candidates= getCandidates(hash);
 		if (candidates == null)
 			return;
 		else if (candidates instanceof byte[]) {
@@ -325,7 +451,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		return fHashBuckets.size() == 0 && (fIndex == null || fIndex.getHashCount() == 0);
 	}
 
 	/**
@@ -477,6 +603,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	protected final void hashWord(final String word) {
 
+		wordsChanged();
 		final String hash= fHashProvider.getHash(word);
 		ByteArrayWrapper hashBytes;
 		byte[] wordBytes;
@@ -509,6 +636,31 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	@Override
 	public boolean isCorrect(String word) {
+		int generation;
+		synchronized (fCorrectWords) {
+			Boolean correct= fCorrectWords.get(word);
+			if (correct != null)
+				return correct.booleanValue();
+			generation= fCorrectWordsGeneration;
+		}
+
+		boolean correct= computeIsCorrect(word);
+		synchronized (fCorrectWords) {
+			// do not cache a result computed while the words changed
+			if (generation == fCorrectWordsGeneration)
+				fCorrectWords.put(word, Boolean.valueOf(correct));
+		}
+		return correct;
+	}
+
+	/**
+	 * Looks up whether the given word is correctly spelled.
+	 *
+	 * @param word the word to check
+	 * @return <code>true</code> if the word is correctly spelled
+	 * @since 3.13
+	 */
+	private boolean computeIsCorrect(String word) {
 		word= stripNonLetters(word);
 		try {
 
@@ -524,7 +676,15 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
+		final String hash= fHashProvider.getHash(word);
+		final SpellDictionaryIndex dictionaryIndex= fIndex;
+		if (dictionaryIndex != null) {
+			int bucket= dictionaryIndex.find(hash);
+			if (bucket >= 0 && (dictionaryIndex.contains(bucket, word) || dictionaryIndex.contains(bucket, word.toLowerCase())))
+				return true;
+		}
+
+		final Object candidates= getCandidates(hash);
 		if (candidates == null)
 			return false;
 		else if (candidates instanceof byte[]) {
@@ -565,7 +725,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	@Override
 	public void setStripNonLetters(boolean state) {
-		fIsStrippingNonLetters= state;
+		if (fIsStrippingNonLetters != state) {
+			fIsStrippingNonLetters= state;
+			wordsChanged();
+		}
 	}
 
 	/**
@@ -616,6 +779,15 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			 return fLoaded;
 
 		if (url != null) {
+			File indexFile= getIndexFile();
+			if (indexFile != null) {
+				fIndex= SpellDictionaryIndex.open(indexFile, getIndexKey(url));
+				if (fIndex != null) {
+					fMustLoad= false;
+					return true;
+				}
+			}
+
 			InputStream stream= null;
 			int line= 0;
 			try {
@@ -651,6 +823,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (indexFile != null)
+						createIndex(indexFile, url);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -683,6 +857,61 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the key of the index of the given word list. The index is outdated if the URL, the
+	 * encoding, the phonetic hash provider or the version of this plug-in changes.
+	 *
+	 * @param url the URL of the word list
+	 * @return the key of the index
+	 * @since 3.13
+	 */
+	private String getIndexKey(URL url) {
+		StringBuffer key= new StringBuffer();
+		key.append(url.toExternalForm()).append('|');
+		key.append(getEncoding()).append('|');
+		key.append(fHashProvider.getClass().getName()).append('|');
+		key.append(JavaPlugin.getDefault().getBundle().getVersion());
+		return key.toString();
+	}
+
+	/**
+	 * Writes the index of the loaded words and replaces the hash buckets with it.
+	 *
+	 * @param file the index file
+	 * @param url the URL of the word list
+	 * @since 3.13
+	 */
+	private void createIndex(File file, URL url) {
+		Map<String, List<String>> buckets= new LinkedHashMap<>(fHashBuckets.size());
+		try {
+			for (Map.Entry<ByteArrayWrapper, Object> entry : fHashBuckets.entrySet()) {
+				List<String> words;
+				Object bucket= entry.getValue();
+				if (bucket instanceof byte[]) {
+					words= new ArrayList<>(1);
+					words.add(new String((byte[]) bucket, UTF_8));
+				} else {
+					@SuppressWarnings("unchecked")
+					ArrayList<byte[]> bucketList= (ArrayList<byte[]>) bucket;
+					words= new ArrayList<>(bucketList.size());
+					for (int index= 0; index < bucketList.size(); index++)
+						words.add(new String(bucketList.get(index), UTF_8));
+				}
+				buckets.put(new String(entry.getKey().byteArray, UTF_8), words);
+			}
+			String key= getIndexKey(url);
+			SpellDictionaryIndex.write(file, key, buckets);
+			SpellDictionaryIndex index= SpellDictionaryIndex.open(file, key);
+			if (index != null) {
+				fIndex= index;
+				fHashBuckets.clear();
+			}
+		} catch (IOException e) {
+			// keep the hashed words
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
@@ -725,6 +954,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fIndex= null;
+		wordsChanged();
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -107,4 +107,13 @@ public interface ISpellChecker {
 	 * @since 3.3
 	 */
 	Locale getLocale();
+
+	/**
+	 * Returns a stamp that changes whenever the result of checking a word may change, for example
+	 * when a word is added to a dictionary or ignored.
+	 *
+	 * @return the modification stamp
+	 * @since 3.13
+	 */
+	long getModificationStamp();
 }
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A read-only phonetic index of a word list, stored in a memory-mapped file.
+ * <p>
+ * The file contains an open addressing hash table of the phonetic hashes, whose slots point into
+ * offset arrays of the sorted hashes and of their words. Opening an index takes constant time and
+ * does not copy the word list into the heap. Finding a phonetic hash and testing whether its
+ * bucket contains a word do not allocate. Only {@link #getWord(int, int)} creates a string, since
+ * the phonetic distance algorithms compare strings.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @since 3.13
+ */
+public final class SpellDictionaryIndex {
+
+	/** The first int of an index file */
+	private static final int MAGIC= 0x4A53504C;
+
+	/** The version of the file format */
+	private static final int VERSION= 1;
+
+	/** The hash table of the phonetic hashes, containing the hash index plus one, or <code>0</code> */
+	private final IntBuffer fTable;
+
+	/** The offsets of the phonetic hashes in {@link #fHashChars}, one more than hashes */
+	private final IntBuffer fHashOffsets;
+
+	/** The index of the first word of each phonetic hash, one more than hashes */
+	private final IntBuffer fFirstWords;
+
+	/** The offsets of the words in {@link #fWordChars}, one more than words */
+	private final IntBuffer fWordOffsets;
+
+	/** The characters of the phonetic hashes */
+	private final CharBuffer fHashChars;
+
+	/** The characters of the words */
+	private final CharBuffer fWordChars;
+
+	private SpellDictionaryIndex(ByteBuffer buffer) {
+		int hashCount= buffer.getInt();
+		int wordCount= buffer.getInt();
+		int tableLength= buffer.getInt();
+		fTable= slice(buffer, tableLength).asIntBuffer();
+		fHashOffsets= slice(buffer, 4 * (hashCount + 1)).asIntBuffer();
+		fFirstWords= slice(buffer, 4 * (hashCount + 1)).asIntBuffer();
+		fWordOffsets= slice(buffer, 4 * (wordCount + 1)).asIntBuffer();
+		fHashChars= slice(buffer, 2 * fHashOffsets.get(hashCount)).asCharBuffer();
+		fWordChars= slice(buffer, 2 * fWordOffsets.get(wordCount)).asCharBuffer();
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		if (length < 0 || length > buffer.remaining())
+			throw new IllegalArgumentException();
+		ByteBuffer slice= buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		return slice;
+	}
+
+	/**
+	 * Opens the index stored in the given file.
+	 *
+	 * @param file the index file
+	 * @param key the key of the word list, see {@link #write(File, String, Map)}
+	 * @return the index, or <code>null</code> if the file does not exist, is invalid or has been
+	 *         written for a different key
+	 */
+	public static SpellDictionaryIndex open(File file, String key) {
+		if (!file.isFile())
+			return null;
+		// the header is read before the file is mapped, since a mapped file can not be replaced on all platforms
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != key.length())
+				return null;
+			for (int index= 0; index < key.length(); index++) {
+				if (in.readChar() != key.charAt(index))
+					return null;
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		long headerLength= 12 + 2 * key.length();
+		try (RandomAccessFile stream= new RandomAccessFile(file, "r"); FileChannel channel= stream.getChannel()) { //$NON-NLS-1$
+			// the mapping stays valid after the channel is closed
+			ByteBuffer buffer= channel.map(FileChannel.MapMode.READ_ONLY, headerLength, channel.size() - headerLength);
+			return new SpellDictionaryIndex(buffer);
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			// truncated or corrupt file
+			return null;
+		}
+	}
+
+	/**
+	 * Writes an index file.
+	 *
+	 * @param file the file to write
+	 * @param key the key of the word list, used to detect an outdated index, for example the URL,
+	 *            encoding and version of the word list
+	 * @param buckets the words by phonetic hash, in the order in which they are proposed
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file, String key, Map<String, List<String>> buckets) throws IOException {
+		String[] hashes= buckets.keySet().toArray(new String[buckets.size()]);
+		Arrays.sort(hashes);
+
+		int tableSize= 2;
+		while (tableSize < 2 * hashes.length)
+			tableSize<<= 1;
+		int[] table= new int[tableSize];
+		int wordCount= 0;
+		for (int index= 0; index < hashes.length; index++) {
+			int slot= getSlot(hashes[index].hashCode(), tableSize);
+			while (table[slot] != 0)
+				slot= (slot + 1) & (tableSize - 1);
+			table[slot]= index + 1;
+			wordCount+= buckets.get(hashes[index]).size();
+		}
+
+		File parent= file.getParentFile();
+		if (parent != null)
+			parent.mkdirs();
+		File temp= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(key.length());
+			out.writeChars(key);
+			out.writeInt(hashes.length);
+			out.writeInt(wordCount);
+			out.writeInt(4 * tableSize);
+			for (int slot= 0; slot < tableSize; slot++)
+				out.writeInt(table[slot]);
+
+			int offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				out.writeInt(offset);
+				offset+= hashes[index].length();
+			}
+			out.writeInt(offset);
+
+			offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				out.writeInt(offset);
+				offset+= buckets.get(hashes[index]).size();
+			}
+			out.writeInt(offset);
+
+			offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				for (String word : buckets.get(hashes[index])) {
+					out.writeInt(offset);
+					offset+= word.length();
+				}
+			}
+			out.writeInt(offset);
+
+			for (int index= 0; index < hashes.length; index++)
+				out.writeChars(hashes[index]);
+			for (int index= 0; index < hashes.length; index++) {
+				for (String word : buckets.get(hashes[index]))
+					out.writeChars(word);
+			}
+		}
+
+		if ((file.exists() && !file.delete()) || !temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Could not replace " + file); //$NON-NLS-1$
+		}
+	}
+
+	private static int getSlot(int hashCode, int tableSize) {
+		return (hashCode ^ (hashCode >>> 16)) & (tableSize - 1);
+	}
+
+	private static boolean equals(CharBuffer chars, int start, int end, String string) {
+		if (end - start != string.length())
+			return false;
+		for (int index= 0; index < string.length(); index++) {
+			if (chars.get(start + index) != string.charAt(index))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of phonetic hashes.
+	 *
+	 * @return the number of phonetic hashes
+	 */
+	public int getHashCount() {
+		return fHashOffsets.limit() - 1;
+	}
+
+	/**
+	 * Finds a phonetic hash.
+	 *
+	 * @param hash the phonetic hash
+	 * @return the bucket of the hash, or <code>-1</code> if no word has this hash
+	 */
+	public int find(String hash) {
+		int tableSize= fTable.limit();
+		int slot= getSlot(hash.hashCode(), tableSize);
+		while (true) {
+			int bucket= fTable.get(slot) - 1;
+			if (bucket < 0)
+				return -1;
+			if (equals(fHashChars, fHashOffsets.get(bucket), fHashOffsets.get(bucket + 1), hash))
+				return bucket;
+			slot= (slot + 1) & (tableSize - 1);
+		}
+	}
+
+	/**
+	 * Returns the number of words in a bucket.
+	 *
+	 * @param bucket the bucket returned by {@link #find(String)}
+	 * @return the number of words with the phonetic hash of the bucket
+	 */
+	public int getWordCount(int bucket) {
+		return fFirstWords.get(bucket + 1) - fFirstWords.get(bucket);
+	}
+
+	/**
+	 * Returns a word of a bucket. Creates a new string for each call.
+	 *
+	 * @param bucket the bucket returned by {@link #find(String)}
+	 * @param index the index of the word, smaller than {@link #getWordCount(int)}
+	 * @return the word
+	 */
+	public String getWord(int bucket, int index) {
+		int word= fFirstWords.get(bucket) + index;
+		int start= fWordOffsets.get(word);
+		char[] chars= new char[fWordOffsets.get(word + 1) - start];
+		for (int offset= 0; offset < chars.length; offset++)
+			chars[offset]= fWordChars.get(start + offset);
+		return new String(chars);
+	}
+
+	/**
+	 * Tells whether a bucket contains the given word.
+	 *
+	 * @param bucket the bucket returned by {@link #find(String)}
+	 * @param word the word
+	 * @return <code>true</code> if the bucket contains the word
+	 */
+	public boolean contains(int bucket, String word) {
+		int end= fFirstWords.get(bucket + 1);
+		for (int index= fFirstWords.get(bucket); index < end; index++) {
+			if (equals(fWordChars, fWordOffsets.get(index), fWordOffsets.get(index + 1), word))
+				return true;
+		}
+		return false;
+	}
+}
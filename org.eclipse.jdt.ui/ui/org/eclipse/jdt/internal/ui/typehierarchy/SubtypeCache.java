@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.typehierarchy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ListenerList;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IParent;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Caches the direct subtypes of types, computed one type at a time with the search engine.
+ * Used by the {@link TypeHierarchyLifeCycle} to compute a subtype hierarchy level by level,
+ * see {@link TypeHierarchyLifeCycle#setLazySubtypes(boolean)}.
+ * <p>
+ * The cache is shared by all type hierarchy views and survives re-opening a view. It is
+ * updated incrementally on element changes: a changed compilation unit only invalidates the
+ * entries that contain its types and the entries of the types its types extend or implement.
+ * Changes of the classpath drop all entries.
+ * </p>
+ */
+public final class SubtypeCache {
+
+	/**
+	 * Listener notified after entries of the cache have been invalidated by an element change.
+	 */
+	public interface ISubtypeCacheListener {
+
+		/**
+		 * The subtypes of the given types have to be computed again.
+		 *
+		 * @param types the types, or <code>null</code> if the whole cache has been cleared
+		 */
+		void subtypesChanged(IType[] types);
+	}
+
+	private static final int MAX_ENTRIES= 2000;
+
+	private static final IType[] NO_TYPES= new IType[0];
+
+	private static SubtypeCache fgDefault;
+
+	/**
+	 * Returns the shared subtype cache.
+	 *
+	 * @return the shared cache
+	 */
+	public static synchronized SubtypeCache getDefault() {
+		if (fgDefault == null) {
+			fgDefault= new SubtypeCache();
+		}
+		return fgDefault;
+	}
+
+	private static class Entry {
+		final IType fType;
+		final IType[] fSubtypes;
+
+		Entry(IType type, IType[] subtypes) {
+			fType= type;
+			fSubtypes= subtypes;
+		}
+	}
+
+	/** Maps handle identifiers of types to their direct subtypes, guarded by <code>this</code> */
+	private final Map<String, Entry> fEntries= new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** Incremented on every invalidation, guarded by <code>this</code> */
+	private int fGeneration;
+
+	private int fSearchCount;
+
+	private final ListenerList<ISubtypeCacheListener> fListeners= new ListenerList<>();
+
+	private final IElementChangedListener fElementChangedListener;
+
+	private SubtypeCache() {
+		fElementChangedListener= new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				processDelta(event.getDelta());
+			}
+		};
+		JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE);
+	}
+
+	public void addListener(ISubtypeCacheListener listener) {
+		fListeners.add(listener);
+	}
+
+	public void removeListener(ISubtypeCacheListener listener) {
+		fListeners.remove(listener);
+	}
+
+	/**
+	 * Returns whether the subtypes of the given type are cached.
+	 *
+	 * @param type the type
+	 * @return <code>true</code> if {@link #getSubtypes(IType, IProgressMonitor)} returns
+	 *         without searching
+	 */
+	public synchronized boolean isCached(IType type) {
+		return fEntries.containsKey(type.getHandleIdentifier());
+	}
+
+	/**
+	 * Returns the direct subtypes of the given type, that is the types in the workspace that
+	 * extend or implement it. Searches for the subtypes if they are not cached.
+	 *
+	 * @param type the type
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the direct subtypes
+	 * @throws JavaModelException if the search fails
+	 * @throws org.eclipse.core.runtime.OperationCanceledException if the monitor has been
+	 *             canceled
+	 */
+	public IType[] getSubtypes(IType type, IProgressMonitor monitor) throws JavaModelException {
+		String handle= type.getHandleIdentifier();
+		int generation;
+		synchronized (this) {
+			Entry entry= fEntries.get(handle);
+			if (entry != null)
+				return entry.fSubtypes;
+			generation= fGeneration;
+			fSearchCount++;
+		}
+		IType[] subtypes= searchSubtypes(type, monitor);
+		synchronized (this) {
+			// don't store a result that may have been computed before a change
+			if (generation == fGeneration)
+				fEntries.put(handle, new Entry(type, subtypes));
+		}
+		return subtypes;
+	}
+
+	/*
+	 * An IMPLEMENTORS search only finds the types that extend or implement interfaces, so the
+	 * subclasses of a class are found by the references in extends and implements clauses.
+	 * Most subclasses of java.lang.Object have no such reference, they are taken from a type
+	 * hierarchy.
+	 */
+	private static IType[] searchSubtypes(final IType type, IProgressMonitor monitor) throws JavaModelException {
+		if ("java.lang.Object".equals(type.getFullyQualifiedName())) //$NON-NLS-1$
+			return type.newTypeHierarchy(monitor).getSubclasses(type);
+
+		final Set<IType> result= new HashSet<>();
+		final boolean isClass= !type.isInterface();
+		SearchRequestor requestor= new SearchRequestor() {
+			@Override
+			public void acceptSearchMatch(SearchMatch match) throws CoreException {
+				Object element= match.getElement();
+				if (element instanceof IType && !type.equals(element) && (!isClass || isDirectSubclass((IType) element, type)))
+					result.add((IType) element);
+			}
+		};
+		SearchPattern pattern;
+		if (isClass)
+			pattern= SearchPattern.createPattern(type, IJavaSearchConstants.REFERENCES | IJavaSearchConstants.SUPERTYPE_TYPE_REFERENCE);
+		else
+			pattern= SearchPattern.createPattern(type, IJavaSearchConstants.IMPLEMENTORS);
+		if (pattern == null)
+			return NO_TYPES;
+		try {
+			new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+					SearchEngine.createWorkspaceScope(), requestor, monitor);
+		} catch (CoreException e) {
+			throw new JavaModelException(e);
+		}
+		return result.toArray(new IType[result.size()]);
+	}
+
+	private static boolean isDirectSubclass(IType subtype, IType type) throws JavaModelException {
+		String signature= subtype.getSuperclassTypeSignature();
+		if (signature == null)
+			return false;
+		String name= JavaModelUtil.getResolvedTypeName(Signature.getTypeErasure(signature), subtype);
+		return name != null && (name.equals(type.getFullyQualifiedName('.')) || name.equals(type.getFullyQualifiedName()));
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		synchronized (this) {
+			fEntries.clear();
+			fGeneration++;
+		}
+		fireSubtypesChanged(null);
+	}
+
+	/**
+	 * Returns the number of searches performed since the last {@link #resetCounters()}.
+	 *
+	 * @return the number of cache misses
+	 */
+	public synchronized int getSearchCount() {
+		return fSearchCount;
+	}
+
+	public synchronized void resetCounters() {
+		fSearchCount= 0;
+	}
+
+	private void fireSubtypesChanged(IType[] types) {
+		for (ISubtypeCacheListener listener : fListeners) {
+			listener.subtypesChanged(types);
+		}
+	}
+
+	void processDelta(IJavaElementDelta delta) {
+		synchronized (this) {
+			if (fEntries.isEmpty())
+				return;
+		}
+		Set<String> changedHandles= new HashSet<>();
+		Set<String> superTypeNames= new HashSet<>();
+		if (collectChanges(delta, changedHandles, superTypeNames)) {
+			clear();
+			return;
+		}
+		if (changedHandles.isEmpty() && superTypeNames.isEmpty())
+			return;
+
+		List<IType> invalidated= new ArrayList<>();
+		synchronized (this) {
+			for (Iterator<Entry> iter= fEntries.values().iterator(); iter.hasNext();) {
+				Entry entry= iter.next();
+				if (superTypeNames.contains(entry.fType.getElementName()) || containsChanged(entry.fSubtypes, changedHandles)) {
+					invalidated.add(entry.fType);
+					iter.remove();
+				}
+			}
+			if (invalidated.isEmpty())
+				return;
+			fGeneration++;
+		}
+		fireSubtypesChanged(invalidated.toArray(new IType[invalidated.size()]));
+	}
+
+	private static boolean containsChanged(IType[] types, Set<String> changedHandles) {
+		for (int i= 0; i < types.length; i++) {
+			ICompilationUnit cu= types[i].getCompilationUnit();
+			if (cu != null && changedHandles.contains(cu.getHandleIdentifier()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Collects the handles of the changed compilation units and the simple names of the
+	 * types their types extend or implement.
+	 *
+	 * @param delta the delta
+	 * @param changedHandles the handles of changed compilation units
+	 * @param superTypeNames the simple names of the supertypes of the changed types
+	 * @return <code>true</code> if the whole cache has to be cleared
+	 */
+	private boolean collectChanges(IJavaElementDelta delta, Set<String> changedHandles, Set<String> superTypeNames) {
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit cu= (ICompilationUnit) element;
+				if (!JavaModelUtil.isPrimary(cu))
+					return false;
+				changedHandles.add(cu.getHandleIdentifier());
+				if (delta.getKind() != IJavaElementDelta.REMOVED && cu.exists()) {
+					try {
+						collectSuperTypeNames(cu, superTypeNames);
+					} catch (JavaModelException e) {
+						JavaPlugin.log(e);
+						return true;
+					}
+				}
+				return false;
+			case IJavaElement.CLASS_FILE:
+				return delta.getKind() != IJavaElementDelta.CHANGED || (flags & IJavaElementDelta.F_CONTENT) != 0;
+			default:
+				return false;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (collectChanges(children[i], changedHandles, superTypeNames))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Also visits local and anonymous types, which are children of members.
+	 */
+	private static void collectSuperTypeNames(IParent parent, Set<String> superTypeNames) throws JavaModelException {
+		IJavaElement[] children= parent.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElement child= children[i];
+			if (child instanceof IType) {
+				IType type= (IType) child;
+				addSimpleName(type.getSuperclassName(), superTypeNames);
+				String[] interfaceNames= type.getSuperInterfaceNames();
+				for (int j= 0; j < interfaceNames.length; j++) {
+					addSimpleName(interfaceNames[j], superTypeNames);
+				}
+				if (type.getSuperclassName() == null && !type.isInterface()) {
+					superTypeNames.add("Object"); //$NON-NLS-1$
+				}
+			}
+			if (child instanceof IParent) {
+				collectSuperTypeNames((IParent) child, superTypeNames);
+			}
+		}
+	}
+
+	private static void addSimpleName(String name, Set<String> names) {
+		if (name != null) {
+			String erasure= Signature.getTypeErasure(name);
+			int dot= Math.max(erasure.lastIndexOf('.'), erasure.lastIndexOf('$'));
+			names.add(erasure.substring(dot + 1));
+		}
+	}
+}
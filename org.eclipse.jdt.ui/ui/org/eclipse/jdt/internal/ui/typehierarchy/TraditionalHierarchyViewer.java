@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -124,7 +124,7 @@ public class TraditionalHierarchyViewer extends TypeHierarchyViewer {
 		protected final void getTypesInHierarchy(IType type, List<IType> res) {
 			ITypeHierarchy hierarchy= getHierarchy();
 			if (hierarchy != null) {
-				IType[] types= hierarchy.getSubtypes(type);
+				IType[] types= getSubtypes(type);
 				if (isObject(type)) {
 					for (int i= 0; i < types.length; i++) {
 						IType curr= types[i];
@@ -134,7 +134,7 @@ public class TraditionalHierarchyViewer extends TypeHierarchyViewer {
 					}
 				} else {
 					boolean isHierarchyOnType= (hierarchy.getType() != null);
-					boolean isClass= !Flags.isInterface(hierarchy.getCachedFlags(type));
+					boolean isClass= !Flags.isInterface(getCachedFlags(type));
 					if (isClass || isHierarchyOnType) {
 						for (int i= 0; i < types.length; i++) {
 							res.add(types[i]);
@@ -143,7 +143,7 @@ public class TraditionalHierarchyViewer extends TypeHierarchyViewer {
 						for (int i= 0; i < types.length; i++) {
 							IType curr= types[i];
 							// no classes implementing interfaces, only if anonymous
-							if (Flags.isInterface(hierarchy.getCachedFlags(curr)) || isAnonymous(curr)) {
+							if (Flags.isInterface(getCachedFlags(curr)) || isAnonymous(curr)) {
 								res.add(curr);
 							}
 						}
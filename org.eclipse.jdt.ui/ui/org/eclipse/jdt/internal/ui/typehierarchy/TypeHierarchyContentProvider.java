@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -161,6 +161,31 @@ public abstract class TypeHierarchyContentProvider implements ITreeContentProvid
 		return fTypeHierarchy.getHierarchy();
 	}
 
+	/**
+	 * Returns the direct subtypes of the given type. Use this instead of
+	 * {@link ITypeHierarchy#getSubtypes(IType)}, as the subtypes may be computed on demand.
+	 *
+	 * @param type the type
+	 * @return the subtypes
+	 * @see TypeHierarchyLifeCycle#getSubtypes(IType)
+	 */
+	protected final IType[] getSubtypes(IType type) {
+		return fTypeHierarchy.getSubtypes(type);
+	}
+
+	/**
+	 * Returns the flags of the given type. Use this instead of
+	 * {@link ITypeHierarchy#getCachedFlags(IType)}, as subtypes computed on demand are not part
+	 * of the hierarchy.
+	 *
+	 * @param type the type
+	 * @return the flags
+	 * @see TypeHierarchyLifeCycle#getCachedFlags(IType)
+	 */
+	protected final int getCachedFlags(IType type) {
+		return fTypeHierarchy.getCachedFlags(type);
+	}
+
 
 	@Override
 	public boolean providesWorkingCopies() {
@@ -257,6 +282,7 @@ public abstract class TypeHierarchyContentProvider implements ITreeContentProvid
 				}
 
 				addTypeChildren(type, children);
+				prefetchSubtypes(children);
 
 				return children.toArray();
 			} catch (JavaModelException e) {
@@ -274,6 +300,10 @@ public abstract class TypeHierarchyContentProvider implements ITreeContentProvid
 		if (element instanceof IType) {
 			try {
 				IType type= (IType) element;
+				if (fMemberFilter == null && !fTypeHierarchy.isSubtypesKnown(type)) {
+					// don't search for subtypes before the type is expanded
+					return true;
+				}
 				return hasTypeChildren(type) || (fMemberFilter != null && hasMemberFilterChildren(type));
 			} catch (JavaModelException e) {
 				return false;
@@ -295,6 +325,19 @@ public abstract class TypeHierarchyContentProvider implements ITreeContentProvid
 		}
 	}
 
+	private void prefetchSubtypes(List<IMember> children) {
+		if (fTypeHierarchy.hasLazySubtypes()) {
+			List<IType> types= new ArrayList<>(children.size());
+			for (int i= 0; i < children.size(); i++) {
+				IMember curr= children.get(i);
+				if (curr instanceof IType) {
+					types.add((IType) curr);
+				}
+			}
+			fTypeHierarchy.prefetchSubtypes(types.toArray(new IType[types.size()]));
+		}
+	}
+
 	private void addTypeChildren(IType type, List<IMember> children) throws JavaModelException {
 		ArrayList<IType> types= new ArrayList<>();
 		getTypesInHierarchy(type, types);
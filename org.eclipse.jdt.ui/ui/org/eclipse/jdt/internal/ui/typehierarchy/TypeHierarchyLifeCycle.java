@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,7 +13,10 @@ package org.eclipse.jdt.internal.ui.typehierarchy;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -47,12 +50,20 @@ import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.typehierarchy.SubtypeCache.ISubtypeCacheListener;
 
 /**
  * Manages a type hierarchy, to keep it refreshed, and to allow it to be shared.
+ * <p>
+ * If lazy subtypes are enabled, the hierarchy of a single type only contains its supertypes,
+ * and the subtypes are computed level by level when they are requested, see
+ * {@link #setLazySubtypes(boolean)}.
+ * </p>
  */
 public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IElementChangedListener {
 
+	private static final IType[] NO_TYPES= new IType[0];
+
 	private boolean fHierarchyRefreshNeeded;
 	private ITypeHierarchy fHierarchy;
 	private IJavaElement[] fInputElements;
@@ -81,6 +92,26 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 	 */
 	private boolean fRefreshJobCanceledExplicitly= true;
 
+	/**
+	 * Indicates whether subtypes should be computed on demand.
+	 */
+	private boolean fLazySubtypes;
+
+	/**
+	 * Indicates whether the current hierarchy is a supertype hierarchy whose subtypes are
+	 * computed on demand by the {@link SubtypeCache}.
+	 */
+	private volatile boolean fHierarchyHasLazySubtypes;
+
+	private ISubtypeCacheListener fSubtypeCacheListener;
+
+	/**
+	 * The types whose subtypes are computed in the background, guarded by <code>this</code>.
+	 */
+	private final Set<IType> fPrefetchQueue= new LinkedHashSet<>();
+
+	private Job fPrefetchJob;
+
 	/**
 	 * Creates the type hierarchy life cycle.
 	 *
@@ -121,11 +152,183 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			fHierarchy= null;
 			fInputElements= null;
 		}
+		removeSubtypeCacheListener();
+		fHierarchyHasLazySubtypes= false;
 		synchronized (this) {
 			if (fRefreshHierarchyJob != null) {
 				fRefreshHierarchyJob.cancel();
 				fRefreshHierarchyJob= null;
 			}
+			cancelPrefetch();
+		}
+	}
+
+	/**
+	 * Sets whether the subtypes of a hierarchy on a single type are computed level by level
+	 * when they are requested, instead of computing the complete hierarchy up front. This
+	 * makes opening the hierarchy of types with many subtypes fast. The subtypes are cached
+	 * in the {@link SubtypeCache} that is shared between views and updated incrementally on
+	 * changes.
+	 * <p>
+	 * Members of lazily computed subtypes are not part of the hierarchy returned by
+	 * {@link #getHierarchy()}. The new mode is used when the hierarchy is refreshed the next
+	 * time.
+	 * </p>
+	 *
+	 * @param lazy <code>true</code> to compute subtypes on demand
+	 */
+	public void setLazySubtypes(boolean lazy) {
+		if (fLazySubtypes != lazy) {
+			fLazySubtypes= lazy;
+			fHierarchyRefreshNeeded= true;
+		}
+	}
+
+	public boolean isLazySubtypes() {
+		return fLazySubtypes;
+	}
+
+	/**
+	 * Returns whether the subtypes of the current hierarchy are computed on demand.
+	 *
+	 * @return <code>true</code> if {@link #getSubtypes(IType)} may have to search for the
+	 *         subtypes
+	 */
+	public boolean hasLazySubtypes() {
+		return fHierarchyHasLazySubtypes;
+	}
+
+	/**
+	 * Returns the direct subtypes of the given type. If the subtypes are computed on demand
+	 * and are not cached, they are searched in the calling thread.
+	 *
+	 * @param type the type
+	 * @return the subtypes
+	 */
+	public IType[] getSubtypes(IType type) {
+		if (fHierarchyHasLazySubtypes) {
+			try {
+				return SubtypeCache.getDefault().getSubtypes(type, null);
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+				return NO_TYPES;
+			}
+		}
+		ITypeHierarchy hierarchy= fHierarchy;
+		return hierarchy != null ? hierarchy.getSubtypes(type) : NO_TYPES;
+	}
+
+	/**
+	 * Returns whether {@link #getSubtypes(IType)} returns without searching.
+	 *
+	 * @param type the type
+	 * @return <code>true</code> if the subtypes of the type are known
+	 */
+	public boolean isSubtypesKnown(IType type) {
+		return !fHierarchyHasLazySubtypes || SubtypeCache.getDefault().isCached(type);
+	}
+
+	/**
+	 * Returns the flags of the given type, also for lazily computed subtypes.
+	 *
+	 * @param type the type
+	 * @return the flags, or <code>-1</code> if they cannot be determined
+	 */
+	public int getCachedFlags(IType type) {
+		ITypeHierarchy hierarchy= fHierarchy;
+		int flags= hierarchy != null ? hierarchy.getCachedFlags(type) : -1;
+		if (flags == -1 && fHierarchyHasLazySubtypes) {
+			try {
+				flags= type.getFlags();
+			} catch (JavaModelException e) {
+				// ignore, type does not exist
+			}
+		}
+		return flags;
+	}
+
+	/**
+	 * Computes the subtypes of the given types in the background, so that they are known
+	 * when the types are expanded. Does nothing if the subtypes are not computed on demand.
+	 *
+	 * @param types the types
+	 */
+	public void prefetchSubtypes(IType[] types) {
+		if (!fHierarchyHasLazySubtypes)
+			return;
+		SubtypeCache cache= SubtypeCache.getDefault();
+		synchronized (this) {
+			for (int i= 0; i < types.length; i++) {
+				if (!cache.isCached(types[i]))
+					fPrefetchQueue.add(types[i]);
+			}
+			if (fPrefetchQueue.isEmpty())
+				return;
+			if (fPrefetchJob == null) {
+				fPrefetchJob= new Job(TypeHierarchyMessages.TypeHierarchyLifeCycle_prefetchSubtypes) {
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						return prefetch(monitor);
+					}
+				};
+				fPrefetchJob.setSystem(true);
+				fPrefetchJob.setPriority(Job.DECORATE);
+			}
+			fPrefetchJob.schedule();
+		}
+	}
+
+	private IStatus prefetch(IProgressMonitor monitor) {
+		SubtypeCache cache= SubtypeCache.getDefault();
+		while (true) {
+			IType type;
+			synchronized (this) {
+				Iterator<IType> iter= fPrefetchQueue.iterator();
+				if (!iter.hasNext())
+					return Status.OK_STATUS;
+				type= iter.next();
+				iter.remove();
+			}
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			try {
+				cache.getSubtypes(type, monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+		}
+	}
+
+	/*
+	 * Must be called while holding the lock on this.
+	 */
+	private void cancelPrefetch() {
+		fPrefetchQueue.clear();
+		if (fPrefetchJob != null) {
+			fPrefetchJob.cancel();
+		}
+	}
+
+	private void addSubtypeCacheListener() {
+		if (fSubtypeCacheListener == null) {
+			fSubtypeCacheListener= new ISubtypeCacheListener() {
+				@Override
+				public void subtypesChanged(IType[] types) {
+					if (fTypeHierarchyViewPart != null && fHierarchyHasLazySubtypes) {
+						fTypeHierarchyViewPart.doSubtypesChanged(types);
+					}
+				}
+			};
+			SubtypeCache.getDefault().addListener(fSubtypeCacheListener);
+		}
+	}
+
+	private void removeSubtypeCacheListener() {
+		if (fSubtypeCacheListener != null) {
+			SubtypeCache.getDefault().removeListener(fSubtypeCacheListener);
+			fSubtypeCacheListener= null;
 		}
 	}
 
@@ -297,6 +500,11 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			IType type= (IType)elements[0];
 			if (fIsSuperTypesOnly) {
 				return type.newSupertypeHierarchy(pm);
+			} else if (fLazySubtypes) {
+				ITypeHierarchy hierarchy= type.newSupertypeHierarchy(pm);
+				// the first level is shown expanded, compute it up front
+				SubtypeCache.getDefault().getSubtypes(type, pm);
+				return hierarchy;
 			} else {
 				return type.newTypeHierarchy(pm);
 			}
@@ -321,7 +529,8 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 
 
 	public void doHierarchyRefresh(IJavaElement[] elements, IProgressMonitor pm) throws JavaModelException {
-		boolean hierachyCreationNeeded= (fHierarchy == null || !Arrays.equals(elements, fInputElements));
+		boolean lazySubtypes= isLazySubtypesInput(elements);
+		boolean hierachyCreationNeeded= (fHierarchy == null || !Arrays.equals(elements, fInputElements) || lazySubtypes != fHierarchyHasLazySubtypes);
 		// to ensure the order of the two listeners always remove / add listeners on operations
 		// on type hierarchies
 		if (fHierarchy != null) {
@@ -329,11 +538,20 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			JavaCore.removeElementChangedListener(this);
 		}
 		if (hierachyCreationNeeded) {
+			synchronized (this) {
+				cancelPrefetch();
+			}
 			fHierarchy= createTypeHierarchy(elements, pm);
 			if (pm != null && pm.isCanceled()) {
 				throw new OperationCanceledException();
 			}
 			fInputElements= elements;
+			fHierarchyHasLazySubtypes= lazySubtypes;
+			if (lazySubtypes) {
+				addSubtypeCacheListener();
+			} else {
+				removeSubtypeCacheListener();
+			}
 		} else {
 			fHierarchy.refresh(pm);
 			if (pm != null && pm.isCanceled())
@@ -344,6 +562,10 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		fHierarchyRefreshNeeded= false;
 	}
 
+	private boolean isLazySubtypesInput(IJavaElement[] elements) {
+		return fLazySubtypes && !fIsSuperTypesOnly && elements.length == 1 && elements[0].getElementType() == IJavaElement.TYPE;
+	}
+
 	/*
 	 * @see ITypeHierarchyChangedListener#typeHierarchyChanged
 	 */
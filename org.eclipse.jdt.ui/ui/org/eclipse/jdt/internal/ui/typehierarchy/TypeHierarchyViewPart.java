@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -154,6 +154,7 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 	private static final String DIALOGSTORE_VIEWLAYOUT= "TypeHierarchyViewPart.orientation";	 //$NON-NLS-1$
 	private static final String DIALOGSTORE_QUALIFIED_NAMES= "TypeHierarchyViewPart.qualifiednames";	 //$NON-NLS-1$
 	private static final String DIALOGSTORE_LINKEDITORS= "TypeHierarchyViewPart.linkeditors";	 //$NON-NLS-1$
+	private static final String DIALOGSTORE_LAZY_SUBTYPES= "TypeHierarchyViewPart.lazysubtypes";	 //$NON-NLS-1$
 
 	private static final String TAG_INPUT= "input"; //$NON-NLS-1$
 	private static final String TAG_VIEW= "view"; //$NON-NLS-1$
@@ -295,6 +296,7 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 		};
 
 		fDialogSettings= JavaPlugin.getDefault().getDialogSettings();
+		fHierarchyLifeCycle.setLazySubtypes(fDialogSettings.getBoolean(DIALOGSTORE_LAZY_SUBTYPES));
 
 		fHistoryDropDownAction= new HistoryDropDownAction(this);
 		fHistoryDropDownAction.setEnabled(false);
@@ -1600,6 +1602,40 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 		}
 	}
 
+	/**
+	 * Called from the {@link TypeHierarchyLifeCycle} when subtypes that are computed on demand
+	 * have changed. Can be called from any thread.
+	 *
+	 * @param types the types whose subtypes have changed, or <code>null</code> if all subtypes
+	 *            may have changed
+	 */
+	protected void doSubtypesChanged(final IType[] types) {
+		if (!fIsVisible) {
+			fNeedRefresh= true;
+			return;
+		}
+		Display display= getDisplay();
+		if (display != null) {
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (fPagebook == null || fPagebook.isDisposed() || !fHierarchyLifeCycle.hasLazySubtypes()) {
+						return;
+					}
+					if (types == null) {
+						updateHierarchyViewer(false);
+					} else {
+						TypeHierarchyViewer viewer= getCurrentViewer();
+						for (int i= 0; i < types.length; i++) {
+							// only the changed nodes are refreshed, their siblings keep their subtypes
+							viewer.refresh(types[i]);
+						}
+					}
+				}
+			});
+		}
+	}
+
 	protected void doTypeHierarchyChangedOnViewers(IType[] changedTypes) {
 		if (fHierarchyLifeCycle.getHierarchy() == null || !fHierarchyLifeCycle.getHierarchy().exists()) {
 			clearInput();
@@ -1937,6 +1973,32 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 
 	}
 
+	/**
+	 * Sets whether the subtypes of a type are computed level by level when the nodes are
+	 * expanded. The setting is remembered for new views.
+	 *
+	 * @param lazy <code>true</code> to compute subtypes on demand
+	 * @see TypeHierarchyLifeCycle#setLazySubtypes(boolean)
+	 */
+	public void setLazySubtypes(boolean lazy) {
+		if (fHierarchyLifeCycle.isLazySubtypes() == lazy)
+			return;
+		fDialogSettings.put(DIALOGSTORE_LAZY_SUBTYPES, lazy);
+		fHierarchyLifeCycle.setLazySubtypes(lazy);
+		if (fInputElements != null) {
+			updateInput(fInputElements);
+		}
+	}
+
+	/**
+	 * Returns whether the subtypes of a type are computed level by level.
+	 *
+	 * @return <code>true</code> if subtypes are computed on demand
+	 */
+	public boolean isLazySubtypes() {
+		return fHierarchyLifeCycle.isLazySubtypes();
+	}
+
 	/**
 	 * Sets the input for all the hierarchy viewers with their respective viewer instances.
 	 *
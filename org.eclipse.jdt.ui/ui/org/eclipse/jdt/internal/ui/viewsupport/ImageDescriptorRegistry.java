@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,10 +26,17 @@ import org.eclipse.ui.PlatformUI;
 
 /**
  * A registry that maps <code>ImageDescriptors</code> to <code>Image</code>.
+ * <p>
+ * Equal descriptors share one image, even if they are looked up by several threads at
+ * the same time. Composite descriptors, such as {@link org.eclipse.jdt.ui.JavaElementImageDescriptor},
+ * are created for every element. Clients that keep descriptors can use {@link #getShared(ImageDescriptor)}
+ * so that equal descriptors are only kept once.
+ * </p>
  */
 public class ImageDescriptorRegistry {
 
 	private Map<ImageDescriptor, Image> fRegistry= Collections.synchronizedMap(new HashMap<ImageDescriptor, Image>(10));
+	private Map<ImageDescriptor, ImageDescriptor> fSharedDescriptors= new HashMap<>();
 	private Display fDisplay;
 
 	/**
@@ -58,12 +65,35 @@ public class ImageDescriptorRegistry {
 		if (result != null)
 			return result;
 
-		result= descriptor.createImage();
-		if (result != null)
-			fRegistry.put(descriptor, result);
+		synchronized (fRegistry) {
+			// don't create a second image if another thread created one in the meantime
+			result= fRegistry.get(descriptor);
+			if (result != null)
+				return result;
+			result= descriptor.createImage();
+			if (result != null)
+				fRegistry.put(descriptor, result);
+		}
 		return result;
 	}
 
+	/**
+	 * Returns the descriptor equal to the given one that has been passed to this method
+	 * first. The returned descriptor can be kept instead of the given one.
+	 *
+	 * @param descriptor the image descriptor
+	 * @return an equal descriptor, not <code>null</code>
+	 */
+	public ImageDescriptor getShared(ImageDescriptor descriptor) {
+		synchronized (fSharedDescriptors) {
+			ImageDescriptor shared= fSharedDescriptors.get(descriptor);
+			if (shared != null)
+				return shared;
+			fSharedDescriptors.put(descriptor, descriptor);
+			return descriptor;
+		}
+	}
+
 	/**
 	 * Disposes all images managed by this registry.
 	 */
@@ -73,6 +103,9 @@ public class ImageDescriptorRegistry {
 			image.dispose();
 		}
 		fRegistry.clear();
+		synchronized (fSharedDescriptors) {
+			fSharedDescriptors.clear();
+		}
 	}
 
 	private void hookDisplay() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -114,7 +114,7 @@ public class JavaElementImageProvider {
 
 	private ImageDescriptor computeDescriptor(Object element, int flags){
 		if (element instanceof IJavaElement) {
-			return getJavaImageDescriptor((IJavaElement) element, flags);
+			return JavaElementLabelCache.getDefault().getImageDescriptor((IJavaElement) element, flags, this);
 		} else if (element instanceof IFile) {
 			IFile file= (IFile) element;
 			if (JavaCore.isJavaLikeFileName(file.getName())) {
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.jface.viewers.StyledString;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.PreferenceConstants;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Caches the text labels, styled labels and image descriptors of Java elements, keyed by
+ * the handle identifier of the element and the label or image flags.
+ * <p>
+ * The entries of an element are removed when a Java element delta reports a change of the
+ * element. The entries of all elements inside a compilation unit or class file are removed
+ * on any change of the compilation unit or class file, and the entries of all elements
+ * inside a project, package fragment root or package are removed when it is added, removed,
+ * or changes in a way other than adding or removing children. All entries are removed when
+ * the preferences for package name compression and abbreviation change.
+ * </p>
+ * <p>
+ * The labels and images are computed outside of the cache lock, so that labels can be
+ * computed in the display thread and in background threads at the same time, see
+ * {@link JavaUILabelProvider#prefetchLabels(Object[])}. A result is only stored if no
+ * change has been reported since its computation started.
+ * </p>
+ */
+public final class JavaElementLabelCache {
+
+	/** Maximal number of cached labels and images */
+	private static final int MAX_ENTRIES= 5000;
+
+	/**
+	 * If a delta invalidates more than this number of subtrees, the whole cache is cleared
+	 * instead of checking every entry against every subtree.
+	 */
+	private static final int MAX_INVALIDATED_SUBTREES= 20;
+
+	private static final byte TEXT= 0;
+	private static final byte STYLED_TEXT= 1;
+	private static final byte IMAGE= 2;
+
+	private static final class Key {
+		final String fHandle;
+		final long fFlags;
+		final byte fKind;
+
+		Key(String handle, long flags, byte kind) {
+			fHandle= handle;
+			fFlags= flags;
+			fKind= kind;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fKind == other.fKind && fFlags == other.fFlags && fHandle.equals(other.fHandle);
+		}
+
+		@Override
+		public int hashCode() {
+			return (fHandle.hashCode() * 31 + (int) (fFlags ^ (fFlags >>> 32))) * 31 + fKind;
+		}
+	}
+
+	private static JavaElementLabelCache fgInstance;
+
+	private final Map<Key, Object> fEntries= new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private long fGeneration;
+
+	private int fHitCount;
+	private int fMissCount;
+
+	private final IElementChangedListener fElementChangedListener;
+	private final IPropertyChangeListener fPropertyChangeListener;
+
+	private JavaElementLabelCache() {
+		fElementChangedListener= new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				invalidate(event.getDelta());
+			}
+		};
+		fPropertyChangeListener= new IPropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent event) {
+				String property= event.getProperty();
+				if (PreferenceConstants.APPEARANCE_COMPRESS_PACKAGE_NAMES.equals(property)
+						|| PreferenceConstants.APPEARANCE_PKG_NAME_PATTERN_FOR_PKG_VIEW.equals(property)
+						|| PreferenceConstants.APPEARANCE_ABBREVIATE_PACKAGE_NAMES.equals(property)
+						|| PreferenceConstants.APPEARANCE_PKG_NAME_ABBREVIATION_PATTERN_FOR_PKG_VIEW.equals(property)) {
+					clear();
+				}
+			}
+		};
+		JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		PreferenceConstants.getPreferenceStore().addPropertyChangeListener(fPropertyChangeListener);
+	}
+
+	public static synchronized JavaElementLabelCache getDefault() {
+		if (fgInstance == null)
+			fgInstance= new JavaElementLabelCache();
+		return fgInstance;
+	}
+
+	/**
+	 * Removes the listeners of the cache and drops its entries.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance.fElementChangedListener);
+			PreferenceConstants.getPreferenceStore().removePropertyChangeListener(fgInstance.fPropertyChangeListener);
+			fgInstance.clear();
+			fgInstance= null;
+		}
+	}
+
+	/**
+	 * Returns the text label of the given element, see
+	 * {@link JavaElementLabels#getTextLabel(Object, long)}.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags
+	 * @return the label, not <code>null</code>
+	 */
+	public String getTextLabel(IJavaElement element, long flags) {
+		String handle= getHandle(element);
+		if (handle == null)
+			return JavaElementLabels.getTextLabel(element, flags);
+		Key key= new Key(handle, flags, TEXT);
+		long generation;
+		synchronized (this) {
+			Object result= fEntries.get(key);
+			if (result != null) {
+				fHitCount++;
+				return (String) result;
+			}
+			fMissCount++;
+			generation= fGeneration;
+		}
+		String result= JavaElementLabels.getTextLabel(element, flags);
+		put(key, result, generation);
+		return result;
+	}
+
+	/**
+	 * Returns the styled label of the given element, see
+	 * {@link JavaElementLabels#getStyledTextLabel(Object, long)}. The result is a copy that
+	 * can be modified by the caller.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags
+	 * @return the styled label, not <code>null</code>
+	 */
+	public StyledString getStyledTextLabel(IJavaElement element, long flags) {
+		String handle= getHandle(element);
+		if (handle == null)
+			return JavaElementLabels.getStyledTextLabel(element, flags);
+		Key key= new Key(handle, flags, STYLED_TEXT);
+		long generation;
+		synchronized (this) {
+			Object result= fEntries.get(key);
+			if (result != null) {
+				fHitCount++;
+				return copy((StyledString) result);
+			}
+			fMissCount++;
+			generation= fGeneration;
+		}
+		StyledString result= JavaElementLabels.getStyledTextLabel(element, flags);
+		put(key, copy(result), generation);
+		return result;
+	}
+
+	/**
+	 * Returns the image descriptor of the given element, see
+	 * {@link JavaElementImageProvider#getJavaImageDescriptor(IJavaElement, int)}.
+	 *
+	 * @param element the element
+	 * @param flags the image flags
+	 * @param imageProvider the image provider to compute missing descriptors with
+	 * @return the image descriptor
+	 */
+	public ImageDescriptor getImageDescriptor(IJavaElement element, int flags, JavaElementImageProvider imageProvider) {
+		String handle= getHandle(element);
+		if (handle == null)
+			return imageProvider.getJavaImageDescriptor(element, flags);
+		Key key= new Key(handle, flags, IMAGE);
+		long generation;
+		synchronized (this) {
+			Object result= fEntries.get(key);
+			if (result != null) {
+				fHitCount++;
+				return (ImageDescriptor) result;
+			}
+			fMissCount++;
+			generation= fGeneration;
+		}
+		ImageDescriptor result= imageProvider.getJavaImageDescriptor(element, flags);
+		if (result != null) {
+			// equal composite descriptors of different elements share one instance
+			result= JavaPlugin.getImageDescriptorRegistry().getShared(result);
+			put(key, result, generation);
+		}
+		return result;
+	}
+
+	/**
+	 * Tells whether the styled label and the image of the given element are cached.
+	 *
+	 * @param element the element
+	 * @param textFlags the rendering flags of the label
+	 * @param imageFlags the image flags
+	 * @return <code>true</code> if both are cached
+	 */
+	public boolean isCached(IJavaElement element, long textFlags, int imageFlags) {
+		String handle= getHandle(element);
+		if (handle == null)
+			return false;
+		synchronized (this) {
+			return fEntries.containsKey(new Key(handle, textFlags, STYLED_TEXT)) && fEntries.containsKey(new Key(handle, imageFlags, IMAGE));
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		fEntries.clear();
+		fGeneration++;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache since the last call to
+	 * {@link #resetCounters()}.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized int getHitCount() {
+		return fHitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that had to compute the label or image since the last call
+	 * to {@link #resetCounters()}.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized int getMissCount() {
+		return fMissCount;
+	}
+
+	public synchronized void resetCounters() {
+		fHitCount= 0;
+		fMissCount= 0;
+	}
+
+	/**
+	 * Returns the string identifying the given element in the cache. Resolved elements have
+	 * the same handle identifier as the corresponding source elements, but their labels show
+	 * type arguments, so their binding key is appended.
+	 *
+	 * @param element the element
+	 * @return the string, or <code>null</code> if the labels of the element must not be cached
+	 */
+	private static String getHandle(IJavaElement element) {
+		ICompilationUnit cu= (ICompilationUnit) element.getAncestor(IJavaElement.COMPILATION_UNIT);
+		if (cu != null && cu.getOwner() != null)
+			return null; // working copies of other owners have the handles of the primary elements
+		String handle= element.getHandleIdentifier();
+		String key= null;
+		switch (element.getElementType()) {
+			case IJavaElement.TYPE:
+				if (((IType) element).isResolved())
+					key= ((IType) element).getKey();
+				break;
+			case IJavaElement.METHOD:
+				if (((IMethod) element).isResolved())
+					key= ((IMethod) element).getKey();
+				break;
+			case IJavaElement.FIELD:
+				if (((IField) element).isResolved())
+					key= ((IField) element).getKey();
+				break;
+			default:
+				break;
+		}
+		return key != null ? handle + '|' + key : handle;
+	}
+
+	private synchronized void put(Key key, Object value, long generation) {
+		if (generation == fGeneration)
+			fEntries.put(key, value);
+	}
+
+	private static StyledString copy(StyledString string) {
+		StyledString result= new StyledString();
+		result.append(string);
+		return result;
+	}
+
+	private void invalidate(IJavaElementDelta delta) {
+		Set<String> elements= new HashSet<>();
+		List<String> subtrees= new ArrayList<>();
+		collectInvalidated(delta, elements, subtrees);
+		if (elements.isEmpty() && subtrees.isEmpty())
+			return;
+		synchronized (this) {
+			fGeneration++;
+			if (fEntries.isEmpty())
+				return;
+			if (subtrees.size() > MAX_INVALIDATED_SUBTREES) {
+				fEntries.clear();
+				return;
+			}
+			for (Iterator<Key> iter= fEntries.keySet().iterator(); iter.hasNext();) {
+				String handle= iter.next().fHandle;
+				if (elements.contains(handle) || isInSubtree(handle, subtrees))
+					iter.remove();
+			}
+		}
+	}
+
+	private static boolean isInSubtree(String handle, List<String> subtrees) {
+		for (int i= 0; i < subtrees.size(); i++) {
+			// the handle identifiers of children start with the handle identifier of their parent
+			if (handle.startsWith(subtrees.get(i)))
+				return true;
+		}
+		return false;
+	}
+
+	private static void collectInvalidated(IJavaElementDelta delta, Set<String> elements, List<String> subtrees) {
+		IJavaElement element= delta.getElement();
+		int type= element.getElementType();
+		if (type >= IJavaElement.COMPILATION_UNIT) {
+			IJavaElement typeRoot= type == IJavaElement.COMPILATION_UNIT || type == IJavaElement.CLASS_FILE ? element : element.getAncestor(IJavaElement.COMPILATION_UNIT);
+			if (typeRoot == null)
+				typeRoot= element.getAncestor(IJavaElement.CLASS_FILE);
+			subtrees.add((typeRoot != null ? typeRoot : element).getHandleIdentifier());
+			return;
+		}
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ~IJavaElementDelta.F_CHILDREN) != 0) {
+			subtrees.add(element.getHandleIdentifier());
+			return;
+		}
+		// the label or image of a container can depend on its children, e.g. empty packages
+		elements.add(element.getHandleIdentifier());
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			collectInvalidated(children[i], elements, subtrees);
+		}
+	}
+}
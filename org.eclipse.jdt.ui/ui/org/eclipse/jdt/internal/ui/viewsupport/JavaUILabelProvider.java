@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,8 @@ import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.StyledCellLabelProvider;
 import org.eclipse.jface.viewers.StyledString;
 
+import org.eclipse.jdt.core.IJavaElement;
+
 import org.eclipse.jdt.ui.JavaElementLabels;
 
 public class JavaUILabelProvider implements ILabelProvider, IColorProvider, IStyledLabelProvider {
@@ -163,7 +165,11 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 
 	@Override
 	public String getText(Object element) {
-		String result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
+		String result;
+		if (element instanceof IJavaElement)
+			result= JavaElementLabelCache.getDefault().getTextLabel((IJavaElement) element, evaluateTextFlags(element));
+		else
+			result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
 		if (result.length() == 0 && (element instanceof IStorage)) {
 			result= fStorageLabelProvider.getText(element);
 		}
@@ -172,7 +178,11 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 
 	@Override
 	public StyledString getStyledText(Object element) {
-		StyledString string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
+		StyledString string;
+		if (element instanceof IJavaElement)
+			string= JavaElementLabelCache.getDefault().getStyledTextLabel((IJavaElement) element, evaluateTextFlags(element) | JavaElementLabels.COLORIZE);
+		else
+			string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
 		if (string.length() == 0 && (element instanceof IStorage)) {
 			string= new StyledString(fStorageLabelProvider.getText(element));
 		}
@@ -183,6 +193,29 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 		return string;
 	}
 
+	/**
+	 * Computes the styled labels and the image descriptors of the given elements and stores
+	 * them in the {@link JavaElementLabelCache}, so that they don't have to be computed when
+	 * the elements are shown. Can be called in any thread, typically for elements that are
+	 * about to be shown in a viewer.
+	 *
+	 * @param elements the elements, elements other than Java elements are ignored
+	 */
+	public void prefetchLabels(Object[] elements) {
+		JavaElementLabelCache cache= JavaElementLabelCache.getDefault();
+		for (int i= 0; i < elements.length; i++) {
+			if (elements[i] instanceof IJavaElement) {
+				IJavaElement element= (IJavaElement) elements[i];
+				long textFlags= evaluateTextFlags(element) | JavaElementLabels.COLORIZE;
+				int imageFlags= evaluateImageFlags(element);
+				if (!cache.isCached(element, textFlags, imageFlags)) {
+					cache.getStyledTextLabel(element, textFlags);
+					cache.getImageDescriptor(element, imageFlags, fImageLabelProvider);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void dispose() {
 		if (fLabelDecorators != null) {
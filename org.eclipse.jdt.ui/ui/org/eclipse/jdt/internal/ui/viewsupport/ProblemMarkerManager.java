@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,11 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
@@ -21,6 +25,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IMarkerDelta;
@@ -47,6 +52,13 @@ import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitAnnotationModelEven
  * Listens to resource deltas and filters for marker changes of type IMarker.PROBLEM
  * Viewers showing error ticks should register as listener to
  * this type.
+ * <p>
+ * Marker changes are collected for the notification latency, see
+ * {@link #setNotificationLatency(long)}, and sent to the listeners as one set of resources.
+ * While listeners are registered, the manager also caches the maximal problem severity of
+ * resources, see {@link #findMaxProblemSeverity(IResource, int)}. The cached severities of
+ * changed resources are recomputed before the listeners are notified.
+ * </p>
  */
 public class ProblemMarkerManager implements IResourceChangeListener, IAnnotationModelListener , IAnnotationModelListenerExtension {
 
@@ -56,9 +68,11 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	private static class ProjectErrorVisitor implements IResourceDeltaVisitor {
 
 		private HashSet<IResource> fChangedElements;
+		private Set<IProject> fClosedProjects;
 
-		public ProjectErrorVisitor(HashSet<IResource> changedElements) {
+		public ProjectErrorVisitor(HashSet<IResource> changedElements, Set<IProject> closedProjects) {
 			fChangedElements= changedElements;
+			fClosedProjects= closedProjects;
 		}
 
 		@Override
@@ -67,7 +81,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 			if (res instanceof IProject && delta.getKind() == IResourceDelta.CHANGED) {
 				IProject project= (IProject) res;
 				if (!project.isAccessible()) {
-					// only track open Java projects
+					// only track open Java projects, but drop the severities cached for the project
+					fClosedProjects.add(project);
 					return false;
 				}
 			}
@@ -104,8 +119,35 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		}
 	}
 
+	/** Default delay in milliseconds before marker changes are sent to the listeners */
+	public static final long DEFAULT_NOTIFICATION_LATENCY= 200;
+
+	/** Maximal number of resources whose problem severities are cached */
+	private static final int MAX_CACHED_SEVERITIES= 20000;
+
+	/** Cached severity for a depth that has not been computed */
+	private static final int UNKNOWN= -2;
+
 	private ListenerList<IProblemChangedListener> fListeners;
 
+	/**
+	 * The maximal severities of problem markers per resource, indexed by depth. Only valid
+	 * while listening to resource changes. Guarded by <code>this</code>.
+	 */
+	private final Map<IResource, int[]> fSeverities= new LinkedHashMap<IResource, int[]>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IResource, int[]> eldest) {
+			return size() > MAX_CACHED_SEVERITIES;
+		}
+	};
+
+	/** Incremented whenever cached severities are invalidated. Guarded by <code>this</code>. */
+	private long fSeverityGeneration;
+
+	private volatile long fNotificationLatency= DEFAULT_NOTIFICATION_LATENCY;
+
 	private Set<IResource> fResourcesWithMarkerChanges;
 	private Set<IResource> fResourcesWithAnnotationChanges;
 
@@ -123,16 +165,21 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	@Override
 	public void resourceChanged(IResourceChangeEvent event) {
 		HashSet<IResource> changedElements= new HashSet<>();
+		Set<IProject> closedProjects= new HashSet<>();
 
 		try {
 			IResourceDelta delta= event.getDelta();
 			if (delta != null)
-				delta.accept(new ProjectErrorVisitor(changedElements));
+				delta.accept(new ProjectErrorVisitor(changedElements, closedProjects));
 		} catch (CoreException e) {
 			JavaPlugin.log(e.getStatus());
 		}
 
+		if (!closedProjects.isEmpty())
+			removeSeverities(closedProjects);
+
 		if (!changedElements.isEmpty()) {
+			updateSeverities(changedElements);
 			boolean hasChanges= false;
 			synchronized (this) {
 				if (fResourcesWithMarkerChanges.isEmpty()) {
@@ -143,11 +190,121 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 				}
 			}
 			if (hasChanges) {
-				fireChanges();
+				fireChanges(true);
 			}
 		}
 	}
 
+	/**
+	 * Removes the cached severities of the given projects, their resources and the workspace
+	 * root.
+	 *
+	 * @param projects the projects
+	 */
+	private synchronized void removeSeverities(Set<IProject> projects) {
+		fSeverityGeneration++;
+		for (Iterator<IResource> iter= fSeverities.keySet().iterator(); iter.hasNext();) {
+			IResource resource= iter.next();
+			if (resource.getType() == IResource.ROOT || projects.contains(resource.getProject()))
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Recomputes the cached severities of the given resources, so that they are known when
+	 * the listeners update their error ticks.
+	 *
+	 * @param changedResources the resources with marker changes, including their parents
+	 */
+	private void updateSeverities(Set<IResource> changedResources) {
+		Map<IResource, int[]> changed= new HashMap<>();
+		long generation;
+		synchronized (this) {
+			fSeverityGeneration++;
+			generation= fSeverityGeneration;
+			if (fSeverities.isEmpty())
+				return;
+			for (Iterator<IResource> iter= changedResources.iterator(); iter.hasNext();) {
+				IResource resource= iter.next();
+				int[] severities= fSeverities.remove(resource);
+				if (severities != null)
+					changed.put(resource, severities);
+			}
+		}
+		for (Iterator<Map.Entry<IResource, int[]>> iter= changed.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<IResource, int[]> entry= iter.next();
+			IResource resource= entry.getKey();
+			int[] severities= entry.getValue();
+			try {
+				for (int depth= IResource.DEPTH_ZERO; depth <= IResource.DEPTH_INFINITE; depth++) {
+					if (severities[depth] != UNKNOWN)
+						severities[depth]= computeMaxProblemSeverity(resource, depth);
+				}
+			} catch (CoreException e) {
+				continue; // resource removed, computed again if still shown
+			}
+			synchronized (this) {
+				if (generation != fSeverityGeneration)
+					return;
+				fSeverities.put(resource, severities);
+			}
+		}
+	}
+
+	/**
+	 * Returns the maximal severity of the problem markers on the given resource, see
+	 * {@link IResource#findMaxProblemSeverity(String, boolean, int)} with
+	 * {@link IMarker#PROBLEM} and subtypes. The result is cached while listeners are
+	 * registered, since the cache is updated by the resource changes received for them.
+	 *
+	 * @param resource the resource
+	 * @param depth the depth, one of the <code>IResource.DEPTH_*</code> constants
+	 * @return the maximal severity, or <code>-1</code> if there are no problem markers
+	 * @throws CoreException if the markers cannot be read
+	 */
+	public int findMaxProblemSeverity(IResource resource, int depth) throws CoreException {
+		long generation;
+		synchronized (this) {
+			if (fListeners.isEmpty())
+				return computeMaxProblemSeverity(resource, depth);
+			int[] severities= fSeverities.get(resource);
+			if (severities != null && severities[depth] != UNKNOWN)
+				return severities[depth];
+			generation= fSeverityGeneration;
+		}
+		int severity= computeMaxProblemSeverity(resource, depth);
+		synchronized (this) {
+			if (generation == fSeverityGeneration && !fListeners.isEmpty()) {
+				int[] severities= fSeverities.get(resource);
+				if (severities == null) {
+					severities= new int[] { UNKNOWN, UNKNOWN, UNKNOWN };
+					fSeverities.put(resource, severities);
+				}
+				severities[depth]= severity;
+			}
+		}
+		return severity;
+	}
+
+	private static int computeMaxProblemSeverity(IResource resource, int depth) throws CoreException {
+		return resource.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
+	}
+
+	/**
+	 * Sets the delay before marker changes are sent to the listeners. Marker changes that
+	 * arrive during this delay are sent together. Changes of the annotation models of open
+	 * editors are sent without delay.
+	 *
+	 * @param latency the delay in milliseconds
+	 */
+	public void setNotificationLatency(long latency) {
+		fNotificationLatency= latency;
+	}
+
+	public long getNotificationLatency() {
+		return fNotificationLatency;
+	}
+
 	@Override
 	public void modelChanged(IAnnotationModel model) {
 		// no action
@@ -164,7 +321,7 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 					hasChanges= fResourcesWithAnnotationChanges.add(changedResource);
 				}
 				if (hasChanges) {
-					fireChanges();
+					fireChanges(false);
 				}
 			}
 		}
@@ -180,7 +337,9 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 			JavaPlugin.getWorkspace().addResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().addGlobalAnnotationModelListener(this);
 		}
-		fListeners.add(listener);
+		synchronized (this) {
+			fListeners.add(listener);
+		}
 	}
 
 	/**
@@ -188,21 +347,28 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	 * @param listener the listener to remove
 	 */
 	public void removeListener(IProblemChangedListener listener) {
-		fListeners.remove(listener);
+		synchronized (this) {
+			fListeners.remove(listener);
+			if (fListeners.isEmpty()) {
+				// the severities are not updated without resource change listener
+				fSeverities.clear();
+				fSeverityGeneration++;
+			}
+		}
 		if (fListeners.isEmpty()) {
 			JavaPlugin.getWorkspace().removeResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().removeGlobalAnnotationModelListener(this);
 		}
 	}
 
-	private void fireChanges() {
+	private void fireChanges(boolean isMarkerChange) {
 		Display display= PlatformUI.getWorkbench().getDisplay();
 		if (display != null && !display.isDisposed()) {
-			postAsyncUpdate(display);
+			postAsyncUpdate(display, isMarkerChange);
 		}
 	}
 
-	private void postAsyncUpdate(final Display display) {
+	private void postAsyncUpdate(final Display display, boolean isMarkerChange) {
 		if (fNotifierJob == null) {
 			fNotifierJob= new UIJob(display, JavaUIMessages.ProblemMarkerManager_problem_marker_update_job_description) {
 				@Override
@@ -213,7 +379,14 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 			};
 			fNotifierJob.setSystem(true);
 		}
-		fNotifierJob.schedule();
+		if (!isMarkerChange) {
+			fNotifierJob.schedule();
+		} else {
+			// don't postpone a waiting job, so that a build does not delay the notification indefinitely
+			int state= fNotifierJob.getState();
+			if (state != Job.WAITING && state != Job.SLEEPING)
+				fNotifierJob.schedule(fNotificationLatency);
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -204,7 +204,8 @@ public class JavaElementImageDescriptor extends CompositeImageDescriptor {
 
 	@Override
 	public int hashCode() {
-		return fBaseImage.hashCode() | fFlags | fSize.hashCode();
+		// don't 'or' the hash codes, descriptors with the same base image would all collide
+		return (fBaseImage.hashCode() * 31 + fFlags) * 31 + fSize.hashCode();
 	}
 
 	@Override
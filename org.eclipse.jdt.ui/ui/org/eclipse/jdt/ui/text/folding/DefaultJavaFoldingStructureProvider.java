@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,6 @@ package org.eclipse.jdt.ui.text.folding;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -284,6 +283,48 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		}
 	}
 
+	/**
+	 * Annotations indexed by the offset of their position and their comment flag. Annotations
+	 * with the same offset and comment flag are returned in the order they were added.
+	 *
+	 * @since 3.13
+	 */
+	private static final class PositionIndex {
+		private final Map<Long, List<Tuple>> fTuples= new HashMap<>();
+
+		void add(JavaProjectionAnnotation annotation, Position position) {
+			Long key= getKey(annotation.isComment(), position.getOffset());
+			List<Tuple> tuples= fTuples.get(key);
+			if (tuples == null) {
+				tuples= new ArrayList<>(1);
+				fTuples.put(key, tuples);
+			}
+			tuples.add(new Tuple(annotation, position));
+		}
+
+		/**
+		 * Removes and returns the first annotation with the given comment flag and offset.
+		 *
+		 * @param isComment the comment flag
+		 * @param offset the offset of the position
+		 * @return the annotation and its position, or <code>null</code> if there is none
+		 */
+		Tuple remove(boolean isComment, int offset) {
+			Long key= getKey(isComment, offset);
+			List<Tuple> tuples= fTuples.get(key);
+			if (tuples == null)
+				return null;
+			Tuple tuple= tuples.remove(0);
+			if (tuples.isEmpty())
+				fTuples.remove(key);
+			return tuple;
+		}
+
+		private static Long getKey(boolean isComment, int offset) {
+			return Long.valueOf(((long) offset << 1) | (isComment ? 1 : 0));
+		}
+	}
+
 	/**
 	 * Filter for annotations.
 	 */
@@ -362,7 +403,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 				fUpdatingCount++;
 				try {
-					update(createContext(false));
+					update(createContext(false), delta);
 				} finally {
 					fUpdatingCount--;
 				}
@@ -839,7 +880,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 	public final void initialize() {
 		fUpdatingCount++;
 		try {
-			update(createInitialContext());
+			update(createInitialContext(), null);
 		} finally {
 			fUpdatingCount--;
 		}
@@ -886,17 +927,46 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		fCollapseHeaderComments= store.getBoolean(PreferenceConstants.EDITOR_FOLDING_HEADERS);
 	}
 
-	private void update(FoldingStructureComputationContext ctx) {
+	/**
+	 * Updates the projection annotations. If a reconcile delta of the input is given, only the
+	 * folding structure of the members it reports as added or changed is recomputed, and only the
+	 * annotations of these members and of removed members are updated. The positions of the
+	 * annotations of all other members are kept up to date by the document. If the delta reports
+	 * a content change without changed members, the whole structure is recomputed.
+	 *
+	 * @param ctx the computation context, may be <code>null</code>
+	 * @param delta the delta of the input, or <code>null</code> to recompute the whole structure
+	 */
+	private void update(FoldingStructureComputationContext ctx, IJavaElementDelta delta) {
 		if (ctx == null)
 			return;
 
+		IJavaElement[] changedElements= null;
+		Set<IJavaElement> scope= null;
+		if (delta != null) {
+			List<IJavaElement> changed= new ArrayList<>();
+			Set<IJavaElement> removed= new HashSet<>();
+			IType firstType= getFirstType();
+			if (firstType != null && collectChangedElements(delta, firstType, changed, removed)) {
+				if (!changed.isEmpty() || !removed.isEmpty()) {
+					changedElements= changed.toArray(new IJavaElement[changed.size()]);
+					scope= new HashSet<>(changed);
+					scope.addAll(removed);
+					ctx.setFirstType(firstType);
+				} else if ((delta.getFlags() & IJavaElementDelta.F_CONTENT) == 0) {
+					return;
+				}
+				// edits of member bodies and comments are only reported as content changes of the input
+			}
+		}
+
 		Map<JavaProjectionAnnotation, Position> additions= new HashMap<>();
 		List<JavaProjectionAnnotation> deletions= new ArrayList<>();
 		List<JavaProjectionAnnotation> updates= new ArrayList<>();
 
-		computeFoldingStructure(ctx);
+		computeFoldingStructure(changedElements, ctx);
 		Map<JavaProjectionAnnotation, Position> newStructure= ctx.fMap;
-		Map<IJavaElement, List<Tuple>> oldStructure= computeCurrentStructure(ctx);
+		Map<IJavaElement, List<Tuple>> oldStructure= computeCurrentStructure(ctx, scope);
 
 		Iterator<JavaProjectionAnnotation> e= newStructure.keySet().iterator();
 		while (e.hasNext()) {
@@ -967,8 +1037,81 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		ctx.fScanner.setSource(null);
     }
 
-	private void computeFoldingStructure(FoldingStructureComputationContext ctx) {
-		IParent parent= (IParent) fInput;
+	/**
+	 * Returns the first type of the input, which owns the header comment.
+	 *
+	 * @return the first type, or <code>null</code> if the input has no types
+	 * @since 3.13
+	 */
+	private IType getFirstType() {
+		try {
+			IJavaElement[] children= ((IParent) fInput).getChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (children[i] instanceof IType)
+					return (IType) children[i];
+			}
+		} catch (JavaModelException e) {
+			JavaPlugin.log(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Collects the members whose folding structure has to be recomputed for the given delta of
+	 * the input. Fails if the delta is not a fine grained reconcile delta, or if it affects the
+	 * header comment, the package declaration, the imports or a top-level type itself.
+	 *
+	 * @param delta the delta of the input
+	 * @param firstType the first type of the input
+	 * @param changed collects the added and changed members
+	 * @param removed collects the removed members
+	 * @return <code>true</code> if the changed members could be collected, <code>false</code>
+	 *         if the whole structure has to be recomputed
+	 * @since 3.13
+	 */
+	private boolean collectChangedElements(IJavaElementDelta delta, IType firstType, List<IJavaElement> changed, Set<IJavaElement> removed) {
+		if ((delta.getFlags() & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return false;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			if (child.getElement().getElementType() != IJavaElement.TYPE
+					|| child.getKind() != IJavaElementDelta.CHANGED
+					|| (child.getFlags() & ~IJavaElementDelta.F_CHILDREN) != 0)
+				return false;
+			collectChangedMembers(child, changed, removed);
+		}
+		return true;
+	}
+
+	private static void collectChangedMembers(IJavaElementDelta delta, List<IJavaElement> changed, Set<IJavaElement> removed) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			switch (child.getKind()) {
+				case IJavaElementDelta.ADDED:
+					changed.add(child.getElement());
+					break;
+				case IJavaElementDelta.REMOVED:
+					removed.add(child.getElement());
+					break;
+				default:
+					if ((child.getFlags() & ~IJavaElementDelta.F_CHILDREN) != 0)
+						changed.add(child.getElement()); // recompute the member and all its children
+					else
+						collectChangedMembers(child, changed, removed);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Computes the folding structure of the given elements and their children.
+	 *
+	 * @param elements the elements, or <code>null</code> for all children of the input
+	 * @param ctx the computation context
+	 */
+	private void computeFoldingStructure(IJavaElement[] elements, FoldingStructureComputationContext ctx) {
 		try {
 			if (!(fInput instanceof ISourceReference))
 				return;
@@ -977,12 +1120,14 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				return;
 
 			ctx.getScanner().setSource(source.toCharArray());
-			computeFoldingStructure(parent.getChildren(), ctx);
+			if (elements == null)
+				elements= ((IParent) fInput).getChildren();
+			computeFoldingStructureRecursively(elements, ctx);
 		} catch (JavaModelException x) {
 		}
 	}
 
-	private void computeFoldingStructure(IJavaElement[] elements, FoldingStructureComputationContext ctx) throws JavaModelException {
+	private void computeFoldingStructureRecursively(IJavaElement[] elements, FoldingStructureComputationContext ctx) throws JavaModelException {
 		for (int i= 0; i < elements.length; i++) {
 			IJavaElement element= elements[i];
 
@@ -990,7 +1135,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 			if (element instanceof IParent) {
 				IParent parent= (IParent) element;
-				computeFoldingStructure(parent.getChildren(), ctx);
+				computeFoldingStructureRecursively(parent.getChildren(), ctx);
 			}
 		}
 	}
@@ -1112,8 +1257,9 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				if (!SourceRange.isAvailable(range))
 					return new IRegion[0];
 
-				String contents= reference.getSource();
-				if (contents == null)
+				// the scanner already holds the source of the input, don't copy the member's source
+				char[] source= ctx.getScanner().getSource();
+				if (source == null || range.getOffset() + range.getLength() > source.length)
 					return new IRegion[0];
 
 				List<IRegion> regions= new ArrayList<>();
@@ -1309,6 +1455,20 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		List<JavaProjectionAnnotation> newDeletions= new ArrayList<>();
 		List<JavaProjectionAnnotation> newChanges= new ArrayList<>();
 
+		PositionIndex changeIndex= new PositionIndex();
+		for (int i= 0; i < changes.size(); i++) {
+			JavaProjectionAnnotation changed= changes.get(i);
+			Position position= ctx.getModel().getPosition(changed);
+			if (position != null)
+				changeIndex.add(changed, position);
+		}
+		PositionIndex additionIndex= new PositionIndex();
+		for (Iterator<Map.Entry<JavaProjectionAnnotation, Position>> iter= additions.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<JavaProjectionAnnotation, Position> entry= iter.next();
+			additionIndex.add(entry.getKey(), entry.getValue());
+		}
+		Set<JavaProjectionAnnotation> matchedChanges= new HashSet<>();
+
 		Iterator<JavaProjectionAnnotation> deletionIterator= deletions.iterator();
 		while (deletionIterator.hasNext()) {
 			JavaProjectionAnnotation deleted= deletionIterator.next();
@@ -1316,12 +1476,10 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			if (deletedPosition == null)
 				continue;
 
-			Tuple deletedTuple= new Tuple(deleted, deletedPosition);
-
-			Tuple match= findMatch(deletedTuple, changes, null, ctx);
+			Tuple match= changeIndex.remove(deleted.isComment(), deletedPosition.getOffset());
 			boolean addToDeletions= true;
 			if (match == null) {
-				match= findMatch(deletedTuple, additions.keySet(), additions, ctx);
+				match= additionIndex.remove(deleted.isComment(), deletedPosition.getOffset());
 				addToDeletions= false;
 			}
 
@@ -1337,59 +1495,30 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				deletionIterator.remove();
 				newChanges.add(deleted);
 
-				if (addToDeletions)
+				if (addToDeletions) {
+					matchedChanges.add(match.annotation);
 					newDeletions.add(match.annotation);
+				} else {
+					additions.remove(match.annotation);
+				}
 			}
 		}
 
+		if (!matchedChanges.isEmpty())
+			changes.removeAll(matchedChanges);
 		deletions.addAll(newDeletions);
 		changes.addAll(newChanges);
 	}
 
 	/**
-	 * Finds a match for <code>tuple</code> in a collection of
-	 * annotations. The positions for the
-	 * <code>JavaProjectionAnnotation</code> instances in
-	 * <code>annotations</code> can be found in the passed
-	 * <code>positionMap</code> or <code>fCachedModel</code> if
-	 * <code>positionMap</code> is <code>null</code>.
-	 * <p>
-	 * A tuple is said to match another if their annotations have the
-	 * same comment flag and their position offsets are equal.
-	 * </p>
-	 * <p>
-	 * If a match is found, the annotation gets removed from
-	 * <code>annotations</code>.
-	 * </p>
+	 * Returns the current annotations grouped by element, sorted by offset.
 	 *
-	 * @param tuple the tuple for which we want to find a match
-	 * @param annotations collection of
-	 *        <code>JavaProjectionAnnotation</code>
-	 * @param positionMap a <code>Map&lt;Annotation, Position&gt;</code>
-	 *        or <code>null</code>
 	 * @param ctx the context
-	 * @return a matching tuple or <code>null</code> for no match
+	 * @param scope the elements whose annotations and whose children's annotations are
+	 *            returned, or <code>null</code> for all annotations
+	 * @return the annotations and their positions
 	 */
-	private Tuple findMatch(Tuple tuple, Collection<JavaProjectionAnnotation> annotations, Map<JavaProjectionAnnotation, Position> positionMap, FoldingStructureComputationContext ctx) {
-		Iterator<JavaProjectionAnnotation> it= annotations.iterator();
-		while (it.hasNext()) {
-			JavaProjectionAnnotation annotation= it.next();
-			if (tuple.annotation.isComment() == annotation.isComment()) {
-				Position position= positionMap == null ? ctx.getModel().getPosition(annotation) : positionMap.get(annotation);
-				if (position == null)
-					continue;
-
-				if (tuple.position.getOffset() == position.getOffset()) {
-					it.remove();
-					return new Tuple(annotation, position);
-				}
-			}
-		}
-
-		return null;
-	}
-
-	private Map<IJavaElement, List<Tuple>> computeCurrentStructure(FoldingStructureComputationContext ctx) {
+	private Map<IJavaElement, List<Tuple>> computeCurrentStructure(FoldingStructureComputationContext ctx, Set<IJavaElement> scope) {
 		Map<IJavaElement, List<Tuple>> map= new HashMap<>();
 		ProjectionAnnotationModel model= ctx.getModel();
 		Iterator<Annotation> e= model.getAnnotationIterator();
@@ -1397,6 +1526,8 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 			Object annotation= e.next();
 			if (annotation instanceof JavaProjectionAnnotation) {
 				JavaProjectionAnnotation java= (JavaProjectionAnnotation) annotation;
+				if (scope != null && !isInScope(java.getElement(), scope))
+					continue;
 				Position position= model.getPosition(java);
 				Assert.isNotNull(position);
 				List<Tuple> list= map.get(java.getElement());
@@ -1421,6 +1552,15 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		return map;
 	}
 
+	private static boolean isInScope(IJavaElement element, Set<IJavaElement> scope) {
+		while (element != null) {
+			if (scope.contains(element))
+				return true;
+			element= element.getParent();
+		}
+		return false;
+	}
+
 	/*
 	 * @see IJavaFoldingStructureProviderExtension#collapseMembers()
 	 * @since 3.2
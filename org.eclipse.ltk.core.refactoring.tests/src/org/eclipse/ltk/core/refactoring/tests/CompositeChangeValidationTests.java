@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.text.edits.ReplaceEdit;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.PerformChangeOperation;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+
+public class CompositeChangeValidationTests extends TestCase {
+
+	private static final int FILE_COUNT= 40;
+
+	private SimpleTestProject fProject;
+	private IFolder fFolder;
+	private IFile[] fFiles;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= new SimpleTestProject();
+		fFolder= fProject.createFolder("test");
+		createFiles(FILE_COUNT);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fProject.delete();
+		super.tearDown();
+	}
+
+	private void createFiles(int count) throws CoreException {
+		int existing= fFiles == null ? 0 : fFiles.length;
+		IFile[] files= new IFile[count];
+		for (int i= 0; i < count; i++) {
+			files[i]= i < existing ? fFiles[i] : fProject.createFile(fFolder, "file" + i + ".txt", "section one");
+		}
+		fFiles= files;
+	}
+
+	private CompositeChange createChange() {
+		return createChange(fFiles);
+	}
+
+	private CompositeChange createChange(IFile[] files) {
+		CompositeChange result= new CompositeChange("composite");
+		for (int i= 0; i < files.length; i++) {
+			TextFileChange change= new TextFileChange("change" + i, files[i]);
+			change.setEdit(new ReplaceEdit(8, 3, "two"));
+			result.add(change);
+		}
+		result.initializeValidationData(new NullProgressMonitor());
+		return result;
+	}
+
+	private void assertPerformed(PerformChangeOperation op) throws Exception {
+		assertTrue(op.changeExecuted());
+		assertTrue(op.getValidationStatus().isOK());
+		for (int i= 0; i < fFiles.length; i++) {
+			assertEquals("section two", fProject.getContent(fFiles[i]));
+			assertNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFiles[i].getFullPath(), LocationKind.IFILE));
+		}
+	}
+
+	public void testBatchValidationAndPerform() throws Exception {
+		PerformChangeOperation op= new PerformChangeOperation(createChange());
+		ResourcesPlugin.getWorkspace().run(op, null);
+		assertPerformed(op);
+	}
+
+	public void testBatchPerformInSeveralWindows() throws Exception {
+		createFiles(600);
+		PerformChangeOperation op= new PerformChangeOperation(createChange());
+		ResourcesPlugin.getWorkspace().run(op, null);
+		assertPerformed(op);
+	}
+
+	public void testBatchPerformFollowedByOtherChange() throws Exception {
+		CompositeChange change= createChange();
+		final IFile file= fFiles[0];
+		change.add(new NullChange() {
+			@Override
+			public Change perform(IProgressMonitor pm) throws CoreException {
+				// the batch must have written its buffers before other changes get performed
+				assertNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE));
+				return super.perform(pm);
+			}
+		});
+		PerformChangeOperation op= new PerformChangeOperation(change);
+		ResourcesPlugin.getWorkspace().run(op, null);
+		assertPerformed(op);
+	}
+
+	public void testBatchValidationReportsChangedFile() throws Exception {
+		CompositeChange change= createChange();
+		fFiles[FILE_COUNT / 2].setContents(new ByteArrayInputStream("section three".getBytes()), true, false, null);
+		RefactoringStatus status= change.isValid(new NullProgressMonitor());
+		assertTrue(status.hasFatalError());
+		change.dispose();
+		for (int i= 0; i < FILE_COUNT; i++) {
+			assertNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFiles[i].getFullPath(), LocationKind.IFILE));
+		}
+	}
+
+	public void testFailedOperationKeepsBuffersOfOtherBatches() throws Exception {
+		CompositeChange validated= createChange();
+		assertTrue(validated.isValid(new NullProgressMonitor()).isOK());
+		assertNotNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFiles[0].getFullPath(), LocationKind.IFILE));
+
+		IFile[] others= new IFile[FILE_COUNT];
+		for (int i= 0; i < FILE_COUNT; i++) {
+			others[i]= fProject.createFile(fFolder, "other" + i + ".txt", "section one");
+		}
+		CompositeChange failing= createChange(others);
+		others[0].setContents(new ByteArrayInputStream("section three".getBytes()), true, false, null);
+		PerformChangeOperation op= new PerformChangeOperation(failing);
+		ResourcesPlugin.getWorkspace().run(op, null);
+		assertFalse(op.changeExecuted());
+		assertTrue(op.getValidationStatus().hasFatalError());
+		for (int i= 0; i < FILE_COUNT; i++) {
+			assertNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(others[i].getFullPath(), LocationKind.IFILE));
+		}
+
+		// the buffers of the other change tree are still connected
+		assertNotNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFiles[0].getFullPath(), LocationKind.IFILE));
+		validated.dispose();
+		assertNull(FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFiles[0].getFullPath(), LocationKind.IFILE));
+	}
+}
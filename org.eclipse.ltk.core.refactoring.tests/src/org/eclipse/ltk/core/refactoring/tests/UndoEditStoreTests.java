@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ltk.internal.core.refactoring.UndoEditStore;
+
+public class UndoEditStoreTests extends TestCase {
+
+	private static final String CONTENT= "section one section two section three";
+
+	private File fSwapFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fSwapFile= File.createTempFile("undo", ".swap");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fSwapFile.delete();
+		super.tearDown();
+	}
+
+	private UndoEdit createUndo(IDocument document) throws Exception {
+		MultiTextEdit edit= new MultiTextEdit();
+		edit.addChild(new ReplaceEdit(8, 3, "1"));
+		edit.addChild(new InsertEdit(12, "new "));
+		edit.addChild(new ReplaceEdit(20, 3, "2"));
+		return edit.apply(document, TextEdit.CREATE_UNDO);
+	}
+
+	public void testInMemory() throws Exception {
+		UndoEditStore store= new UndoEditStore(fSwapFile, Long.MAX_VALUE);
+		IDocument document= new Document(CONTENT);
+		UndoEditStore.Handle handle= store.register(createUndo(document));
+		assertTrue(store.getInMemorySize() > 0);
+		assertEquals(0, store.getSwappedSize());
+		store.getEdit(handle).apply(document);
+		assertEquals(CONTENT, document.get());
+		store.dispose(handle);
+		assertEquals(0, store.getInMemorySize());
+	}
+
+	public void testSwapped() throws Exception {
+		UndoEditStore store= new UndoEditStore(fSwapFile, 0);
+		IDocument document= new Document(CONTENT);
+		UndoEditStore.Handle handle= store.register(createUndo(document));
+		assertEquals(0, store.getInMemorySize());
+		assertTrue(store.getSwappedSize() > 0);
+		store.getEdit(handle).apply(document);
+		assertEquals(CONTENT, document.get());
+		store.dispose(handle);
+		assertEquals(0, store.getSwappedSize());
+		assertEquals(0, fSwapFile.length());
+	}
+
+	public void testSwappedRedo() throws Exception {
+		UndoEditStore store= new UndoEditStore(fSwapFile, 0);
+		IDocument document= new Document(CONTENT);
+		UndoEdit undo= createUndo(document);
+		String changed= document.get();
+		UndoEditStore.Handle handle= store.register(undo.apply(document, TextEdit.CREATE_UNDO));
+		assertTrue(store.getSwappedSize() > 0);
+		store.getEdit(handle).apply(document);
+		assertEquals(changed, document.get());
+		store.dispose(handle);
+	}
+
+	public void testSwapFileCompaction() throws Exception {
+		UndoEditStore store= new UndoEditStore(fSwapFile, 0);
+		Random random= new Random(7);
+		int count= 60;
+		String[] contents= new String[count];
+		IDocument[] documents= new IDocument[count];
+		UndoEditStore.Handle[] handles= new UndoEditStore.Handle[count];
+		for (int i= 0; i < count; i++) {
+			StringBuffer buffer= new StringBuffer();
+			for (int j= 0; j < 64 * 1024; j++)
+				buffer.append((char) ('a' + random.nextInt(26)));
+			contents[i]= buffer.toString();
+			documents[i]= new Document(contents[i]);
+			handles[i]= store.register(new ReplaceEdit(0, contents[i].length(), "x").apply(documents[i], TextEdit.CREATE_UNDO));
+		}
+		long length= store.getSwapFileLength();
+		assertEquals(store.getSwappedSize(), length);
+
+		// the space of released edits gets reused once most of the file is unused
+		for (int i= 0; i < count - 10; i++)
+			store.dispose(handles[i]);
+		assertTrue(store.getSwapFileLength() < length);
+		assertTrue(store.getSwapFileLength() - store.getSwappedSize() < 1024 * 1024);
+		assertEquals(store.getSwapFileLength(), fSwapFile.length());
+
+		for (int i= count - 10; i < count; i++) {
+			store.getEdit(handles[i]).apply(documents[i]);
+			assertEquals(contents[i], documents[i].get());
+			store.dispose(handles[i]);
+		}
+		assertEquals(0, store.getSwapFileLength());
+		assertEquals(0, fSwapFile.length());
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+import org.eclipse.ltk.core.refactoring.participants.IConcurrentParticipant;
+import org.eclipse.ltk.core.refactoring.participants.RefactoringParticipant;
+import org.eclipse.ltk.core.refactoring.participants.RenameArguments;
+import org.eclipse.ltk.core.refactoring.participants.RenameParticipant;
+import org.eclipse.ltk.core.refactoring.participants.RenameProcessor;
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+import org.eclipse.ltk.core.refactoring.participants.SharableParticipants;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
+
+public class ConcurrentParticipantTests extends TestCase {
+
+	private class TestParticipant extends RenameParticipant {
+		private final String fName;
+		private final boolean fFail;
+
+		TestParticipant(String name, boolean fail) {
+			fName= name;
+			fFail= fail;
+		}
+		@Override
+		protected boolean initialize(Object element) {
+			return true;
+		}
+		@Override
+		public String getName() {
+			return fName;
+		}
+		@Override
+		public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+			synchronized (fThreads) {
+				fThreads.add(Thread.currentThread());
+			}
+			if (fFail)
+				throw new RuntimeException(fName);
+			return RefactoringStatus.createWarningStatus(fName);
+		}
+		@Override
+		public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return null;
+		}
+	}
+
+	private class ConcurrentTestParticipant extends TestParticipant implements IConcurrentParticipant {
+		ConcurrentTestParticipant(String name, boolean fail) {
+			super(name, fail);
+		}
+		@Override
+		public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				// continue
+			}
+			return super.checkConditions(pm, context);
+		}
+	}
+
+	private class SlowTestParticipant extends TestParticipant implements IConcurrentParticipant {
+		SlowTestParticipant(String name) {
+			super(name, false);
+		}
+		@Override
+		public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+			long end= System.currentTimeMillis() + 30 * 1000;
+			while (System.currentTimeMillis() < end) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// continue
+				}
+			}
+			return super.checkConditions(pm, context);
+		}
+	}
+
+	private class TestProcessor extends RenameProcessor {
+		private Object fElement= Boolean.TRUE;
+		private final List<TestParticipant> fParticipants;
+
+		TestProcessor(List<TestParticipant> participants) {
+			fParticipants= participants;
+		}
+		@Override
+		public Object[] getElements() {
+			return new Object[] { fElement };
+		}
+		@Override
+		public String getIdentifier() {
+			return "org.eclipse.ltk.core.refactoring.tests.TestProcessor";
+		}
+		@Override
+		public String getProcessorName() {
+			return "processor";
+		}
+		@Override
+		public boolean isApplicable() throws CoreException {
+			return true;
+		}
+		@Override
+		public RefactoringStatus checkInitialConditions(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		@Override
+		public RefactoringStatus checkFinalConditions(IProgressMonitor pm, CheckConditionsContext context) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		@Override
+		public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new NullChange("test change");
+		}
+		@Override
+		public RefactoringParticipant[] loadParticipants(RefactoringStatus status, SharableParticipants sharedParticipants) throws CoreException {
+			for (TestParticipant participant : fParticipants) {
+				participant.initialize(this, fElement, new RenameArguments("", false));
+			}
+			return fParticipants.toArray(new RefactoringParticipant[fParticipants.size()]);
+		}
+	}
+
+	private Set<Thread> fThreads;
+
+	@Override
+	protected void setUp() {
+		fThreads= new HashSet<>();
+	}
+
+	private static List<String> getMessages(RefactoringStatus status) {
+		List<String> result= new ArrayList<>();
+		RefactoringStatusEntry[] entries= status.getEntries();
+		for (int i= 0; i < entries.length; i++) {
+			result.add(entries[i].getMessage());
+		}
+		return result;
+	}
+
+	public void testResultsInParticipantOrder() throws Exception {
+		List<TestParticipant> participants= new ArrayList<>();
+		participants.add(new TestParticipant("serial 1", false));
+		for (int i= 0; i < 8; i++) {
+			participants.add(new ConcurrentTestParticipant("concurrent " + i, false));
+		}
+		participants.add(new TestParticipant("serial 2", false));
+		RenameRefactoring refactoring= new RenameRefactoring(new TestProcessor(participants));
+
+		RefactoringStatus status= refactoring.checkAllConditions(new NullProgressMonitor());
+
+		List<String> expected= new ArrayList<>();
+		for (TestParticipant participant : participants) {
+			expected.add(participant.getName());
+		}
+		assertEquals(expected, getMessages(status));
+		if (Runtime.getRuntime().availableProcessors() > 2)
+			assertTrue(fThreads.size() > 1);
+	}
+
+	public void testFailingConcurrentParticipant() throws Exception {
+		List<TestParticipant> participants= new ArrayList<>();
+		participants.add(new ConcurrentTestParticipant("concurrent 1", false));
+		participants.add(new ConcurrentTestParticipant("concurrent 2", true));
+		participants.add(new ConcurrentTestParticipant("concurrent 3", false));
+		RenameRefactoring refactoring= new RenameRefactoring(new TestProcessor(participants));
+
+		RefactoringStatus status= refactoring.checkAllConditions(new NullProgressMonitor());
+
+		assertTrue(status.hasError());
+		assertFalse(status.hasFatalError());
+		List<String> messages= getMessages(status);
+		assertEquals(3, messages.size());
+		assertEquals("concurrent 1", messages.get(0));
+		assertEquals("concurrent 3", messages.get(2));
+	}
+
+	public void testParticipantsOverBudgetAreCanceled() throws Exception {
+		IEclipsePreferences preferences= InstanceScope.INSTANCE.getNode(RefactoringCorePlugin.getPluginId());
+		preferences.putLong(RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET, 200);
+		try {
+			List<TestParticipant> participants= new ArrayList<>();
+			// more participants than workers, so that the calling thread checks some of them
+			for (int i= 0; i < 8; i++) {
+				participants.add(new SlowTestParticipant("slow " + i));
+			}
+			RenameRefactoring refactoring= new RenameRefactoring(new TestProcessor(participants));
+
+			long start= System.currentTimeMillis();
+			RefactoringStatus status= refactoring.checkAllConditions(new NullProgressMonitor());
+			assertTrue(System.currentTimeMillis() - start < 20 * 1000);
+
+			assertFalse(status.hasError());
+			assertFalse(getMessages(status).contains("slow 0"));
+		} finally {
+			preferences.remove(RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET);
+		}
+	}
+}
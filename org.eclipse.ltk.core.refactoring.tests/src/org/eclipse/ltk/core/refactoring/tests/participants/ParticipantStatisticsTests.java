@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ltk.internal.core.refactoring.ParticipantStatistics;
+
+public class ParticipantStatisticsTests extends TestCase {
+
+	private static final String ID= "org.eclipse.ltk.core.refactoring.tests.participant";
+
+	private File fFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFile= File.createTempFile("participants", ".stats");
+		fFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		super.tearDown();
+	}
+
+	public void testRecord() throws Exception {
+		ParticipantStatistics statistics= new ParticipantStatistics(fFile);
+		statistics.record(ID, ParticipantStatistics.CHECK_CONDITIONS, 10, 0);
+		statistics.record(ID, ParticipantStatistics.CHECK_CONDITIONS, 30, 0);
+		ParticipantStatistics.Entry entry= statistics.getEntry(ID, ParticipantStatistics.CHECK_CONDITIONS);
+		assertEquals(2, entry.getCount());
+		assertEquals(40, entry.getTotalTime());
+		assertEquals(30, entry.getMaxTime());
+		assertNull(statistics.getEntry(ID, ParticipantStatistics.CREATE_CHANGE));
+	}
+
+	public void testSkipAfterConsecutiveRunsOverBudget() throws Exception {
+		ParticipantStatistics statistics= new ParticipantStatistics(fFile);
+		for (int i= 0; i < ParticipantStatistics.MAX_OVER_BUDGET - 1; i++) {
+			statistics.record(ID, ParticipantStatistics.CREATE_CHANGE, 200, 100);
+		}
+		statistics.record(ID, ParticipantStatistics.CREATE_CHANGE, 50, 100);
+		statistics.record(ID, ParticipantStatistics.CREATE_CHANGE, 200, 100);
+		assertFalse(statistics.skip(ID));
+		for (int i= 0; i < ParticipantStatistics.MAX_OVER_BUDGET - 1; i++) {
+			statistics.record(ID, ParticipantStatistics.CREATE_CHANGE, 200, 100);
+		}
+		for (int i= 0; i < ParticipantStatistics.RETRY_AFTER_SKIPS; i++) {
+			assertTrue(statistics.skip(ID));
+		}
+		assertFalse(statistics.skip(ID));
+	}
+
+	public void testSaveAndLoad() throws Exception {
+		ParticipantStatistics statistics= new ParticipantStatistics(fFile);
+		for (int i= 0; i < ParticipantStatistics.MAX_OVER_BUDGET; i++) {
+			statistics.record(ID, ParticipantStatistics.CHECK_CONDITIONS, 200, 100);
+		}
+		assertTrue(statistics.skip(ID));
+		statistics.save();
+
+		ParticipantStatistics loaded= new ParticipantStatistics(fFile);
+		ParticipantStatistics.Entry entry= loaded.getEntry(ID, ParticipantStatistics.CHECK_CONDITIONS);
+		assertEquals(ParticipantStatistics.MAX_OVER_BUDGET, entry.getCount());
+		assertEquals(ParticipantStatistics.MAX_OVER_BUDGET, entry.getOverBudget());
+		for (int i= 1; i < ParticipantStatistics.RETRY_AFTER_SKIPS; i++) {
+			assertTrue(loaded.skip(ID));
+		}
+		assertFalse(loaded.skip(ID));
+	}
+}
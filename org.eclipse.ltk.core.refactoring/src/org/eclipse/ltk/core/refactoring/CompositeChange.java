@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,6 +45,7 @@ public class CompositeChange extends Change {
 	private List<Change> fChanges;
 	private boolean fIsSynthetic;
 	private Change fUndoUntilException;
+	private TextFileChangeBatch fValidationBatch;
 
 	/**
 	 * Creates a new composite change with the given name.
@@ -227,6 +228,14 @@ public class CompositeChange extends Change {
 	 * will not receive the <code>isValid</code> call.
 	 * </p>
 	 * <p>
+	 * If the composite change has many {@link TextFileChange} children, these
+	 * are validated up front as one batch: their buffer states are checked
+	 * concurrently and the affected files are validated with a single
+	 * <code>validateEdit</code> call. The file buffers of valid text file changes
+	 * are connected while validating and stay connected until the change has been
+	 * performed or disposed.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
@@ -234,15 +243,25 @@ public class CompositeChange extends Change {
 	public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException {
 		RefactoringStatus result= new RefactoringStatus();
 		pm.beginTask("", fChanges.size()); //$NON-NLS-1$
+		releaseValidationBatch();
+		fValidationBatch= TextFileChangeBatch.create(this, fChanges);
+		RefactoringStatus batchStatus= null;
+		if (fValidationBatch != null)
+			batchStatus= fValidationBatch.validate(new SubProgressMonitor(pm, fValidationBatch.size()));
 		for (Iterator<Change> iter= fChanges.iterator(); iter.hasNext() && !result.hasFatalError();) {
 			Change change= iter.next();
-			if (change.isEnabled())
+			RefactoringStatus status= fValidationBatch != null ? fValidationBatch.getStatus(change) : null;
+			if (status != null)
+				result.merge(status);
+			else if (change.isEnabled())
 				result.merge(change.isValid(new SubProgressMonitor(pm, 1)));
 			else
 				pm.worked(1);
 			if (pm.isCanceled())
 				throw new OperationCanceledException();
 		}
+		if (batchStatus != null && !result.hasFatalError())
+			result.merge(batchStatus);
 		pm.done();
 		return result;
 	}
@@ -257,6 +276,13 @@ public class CompositeChange extends Change {
 	 * undo objects of all executed children.
 	 * </p>
 	 * <p>
+	 * Text file changes which have been validated as a batch by {@link #isValid(IProgressMonitor)}
+	 * are performed as a batch as well: their file buffers are connected in bulk, and the
+	 * modified buffers are written and released together. This happens at the latest when
+	 * this method returns, or before any other change gets performed which isn't a text
+	 * file change of a batch.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
@@ -275,6 +301,12 @@ public class CompositeChange extends Change {
 					continue;
 
 				if (change.isEnabled()) {
+					if (fValidationBatch != null && fValidationBatch.contains(change)) {
+						fValidationBatch.aboutToPerform(change);
+					} else if (!(change instanceof CompositeChange)) {
+						// the change might move or delete files whose buffers are held by a batch
+						TextFileChangeBatch.releaseBatches(this);
+					}
 					Change undoChange= null;
 					try {
 						undoChange= change.perform(new SubProgressMonitor(pm, 1));
@@ -310,6 +342,12 @@ public class CompositeChange extends Change {
 						RefactoringCorePlugin.log(exception);
 					}
 				});
+				if (fValidationBatch != null)
+					fValidationBatch.performed(change);
+			}
+			if (fValidationBatch != null) {
+				fValidationBatch.releaseAll();
+				fValidationBatch= null;
 			}
 			if (canceled)
 				throw new OperationCanceledException();
@@ -327,6 +365,19 @@ public class CompositeChange extends Change {
 			handleUndos(change, undos);
 			internalHandleException(change, e);
 			throw e;
+		} finally {
+			releaseValidationBatch();
+		}
+	}
+
+	private void releaseValidationBatch() {
+		if (fValidationBatch != null) {
+			try {
+				fValidationBatch.releaseAll();
+			} catch (CoreException e) {
+				RefactoringCorePlugin.log(e);
+			}
+			fValidationBatch= null;
 		}
 	}
 
@@ -416,6 +467,7 @@ public class CompositeChange extends Change {
 	 */
 	@Override
 	public void dispose() {
+		releaseValidationBatch();
 		for (Iterator<Change> iter= fChanges.iterator(); iter.hasNext(); ) {
 			final Change change= iter.next();
 			SafeRunner.run(new ISafeRunnable() {
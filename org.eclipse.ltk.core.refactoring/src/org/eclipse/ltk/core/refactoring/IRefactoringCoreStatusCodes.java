@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -102,5 +102,14 @@ public interface IRefactoringCoreStatusCodes {
 	 */
 	public static final int PARTICIPANT_DISABLED= 10009;
 
+	/**
+	 * Status code (value 10010) indicating that a participant needed a long time
+	 * to check conditions. The data of the status entry is the time in milliseconds
+	 * as a {@link Long}.
+	 *
+	 * @since 3.7
+	 */
+	public static final int PARTICIPANT_CHECK_CONDITIONS_TIME= 10010;
+
 
 }
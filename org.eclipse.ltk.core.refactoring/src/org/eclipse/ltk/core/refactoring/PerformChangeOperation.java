@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 
 import org.eclipse.ltk.internal.core.refactoring.NotCancelableProgressMonitor;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 
 /**
  * Operation that, when run, performs a {@link Change} object. The operation
@@ -298,6 +299,8 @@ public class PerformChangeOperation implements IWorkspaceRunnable {
 					fUndoChange= null;
 					throw e;
 				} finally {
+					// release the buffers connected while validating if the change hasn't been performed
+					releaseBatches();
 					monitor.done();
 				}
 			}
@@ -305,6 +308,14 @@ public class PerformChangeOperation implements IWorkspaceRunnable {
 		ResourcesPlugin.getWorkspace().run(runnable, fSchedulingRule, IWorkspace.AVOID_UPDATE, pm);
 	}
 
+	private void releaseBatches() {
+		try {
+			TextFileChangeBatch.releaseBatches(fChange);
+		} catch (CoreException e) {
+			RefactoringCorePlugin.log(e);
+		}
+	}
+
 	private boolean createChange() {
 		return fCreateChangeOperation != null;
 	}
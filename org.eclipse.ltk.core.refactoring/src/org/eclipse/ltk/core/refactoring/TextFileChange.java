@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -81,6 +81,7 @@ public class TextFileChange extends TextChange {
 	private ITextFileBuffer fBuffer;
 	private BufferValidationState fValidationState;
 	private ContentStamp fContentStamp;
+	private TextFileChangeBatch fExecutionBatch;
 
 	/**
 	 * Creates a new <code>TextFileChange</code> for the given file.
@@ -177,11 +178,8 @@ public class TextFileChange extends TextChange {
 			monitor= new NullProgressMonitor();
 		try {
 			monitor.beginTask("", 1); //$NON-NLS-1$
-			if (fValidationState == null)
-				throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), "TextFileChange has not been initialialized")); //$NON-NLS-1$
-
 			boolean needsSaving= needsSaving();
-			RefactoringStatus result= fValidationState.isValid(needsSaving);
+			RefactoringStatus result= validateBufferState(needsSaving);
 			if (needsSaving) {
 				result.merge(Changes.validateModifiesFiles(new IFile[] { fFile}));
 			} else {
@@ -194,6 +192,21 @@ public class TextFileChange extends TextChange {
 		}
 	}
 
+	/**
+	 * Validates the buffer state of this change without consulting the team
+	 * provider. Used by {@link TextFileChangeBatch} which checks the files of
+	 * all changes of a batch at once.
+	 *
+	 * @param needsSaving whether the change will save the file
+	 * @return the status of the buffer validation
+	 * @throws CoreException if the change has not been initialized
+	 */
+	RefactoringStatus validateBufferState(boolean needsSaving) throws CoreException {
+		if (fValidationState == null)
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), "TextFileChange has not been initialialized")); //$NON-NLS-1$
+		return fValidationState.isValid(needsSaving);
+	}
+
 	@Override
 	public void dispose() {
 		if (fValidationState != null) {
@@ -226,10 +239,23 @@ public class TextFileChange extends TextChange {
 	@Override
 	protected void commit(IDocument document, IProgressMonitor pm) throws CoreException {
 		if (needsSaving()) {
+			if (fExecutionBatch != null && fExecutionBatch.deferCommit(this, fBuffer))
+				return;
 			fBuffer.commit(pm, false);
 		}
 	}
 
+	/**
+	 * Sets the batch this change is currently performed in. While set, the batch
+	 * holds the file buffer of this change and writes it together with the
+	 * buffers of the other changes of the batch.
+	 *
+	 * @param batch the batch or <code>null</code>
+	 */
+	void setExecutionBatch(TextFileChangeBatch batch) {
+		fExecutionBatch= batch;
+	}
+
 	@Override
 	protected void releaseDocument(IDocument document, IProgressMonitor pm) throws CoreException {
 		Assert.isTrue(fAcquireCount > 0);
@@ -0,0 +1,535 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ltk.internal.core.refactoring.Changes;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Validates and performs the direct {@link TextFileChange} children of a
+ * {@link CompositeChange} as one batch.
+ * <p>
+ * Validation: the buffer validation states of the changes are checked concurrently
+ * by a small group of worker jobs, with the calling thread taking part in the work.
+ * The files touched by the batch are then passed to a single <code>validateEdit</code>
+ * resp. in-sync check instead of one call per file. While validating, the file buffers
+ * of valid changes are connected, so that performing the changes afterwards finds
+ * the documents already loaded.
+ * </p>
+ * <p>
+ * Execution: the file buffers are connected in windows of up to
+ * {@link #MAX_CONNECTED_BUFFERS} files, concurrently and ahead of the changes that
+ * need them. Changes whose buffer is held by the batch don't save their file when
+ * performed; the batch writes all modified buffers of a window at once and then
+ * releases the window. Writing happens in the thread performing the change, since
+ * that thread owns the scheduling rule of the surrounding workspace operation.
+ * </p>
+ * <p>
+ * Before a change gets performed that may modify the resource tree, all batches of
+ * the same change tree write and release their buffers, see {@link #releaseBatches(Change)}.
+ * Batches of other change trees, for example of a concurrent operation, are not affected.
+ * </p>
+ */
+class TextFileChangeBatch {
+
+	/**
+	 * Composite changes with fewer batchable children are validated and performed
+	 * child by child.
+	 */
+	static final int MIN_BATCH_SIZE= 16;
+
+	/**
+	 * Upper bound for the number of file buffers a batch keeps connected.
+	 */
+	private static final int MAX_CONNECTED_BUFFERS= 256;
+
+	private static final int MAX_WORKERS= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	/**
+	 * The batches which currently hold connected buffers, by the root of their change tree.
+	 */
+	private static final Map<Change, Set<TextFileChangeBatch>> fgActiveBatches= new HashMap<>();
+
+	private static abstract class Task {
+		abstract void run(TextFileChange change) throws CoreException;
+	}
+
+	private final Change fRoot;
+	private final List<TextFileChange> fChanges;
+
+	/* guarded by this */
+	private final Map<TextFileChange, RefactoringStatus> fStates;
+	private final List<IFile> fFilesToModify;
+	private final List<IFile> fFilesToRead;
+	private final Map<TextFileChange, IPath> fConnected;
+	private final Map<TextFileChange, ITextFileBuffer> fPendingCommits;
+	private LinkedList<TextFileChange> fQueue;
+	private Task fTask;
+	private int fInFlight;
+	private int fCompleted;
+	private boolean fCanceled;
+	private CoreException fCoreException;
+	private RuntimeException fRuntimeException;
+
+	/**
+	 * Creates a batch for the batchable children of the given list, or returns
+	 * <code>null</code> if there are too few of them for batching to pay off.
+	 *
+	 * @param composite the composite change
+	 * @param children the children of the composite change
+	 * @return the batch or <code>null</code>
+	 */
+	static TextFileChangeBatch create(CompositeChange composite, List<Change> children) {
+		List<TextFileChange> changes= new ArrayList<>();
+		Map<Class<?>, Boolean> batchableClasses= new HashMap<>();
+		for (Iterator<Change> iter= children.iterator(); iter.hasNext();) {
+			Change change= iter.next();
+			if (change instanceof TextFileChange && change.isEnabled() && isBatchable(change.getClass(), batchableClasses))
+				changes.add((TextFileChange) change);
+		}
+		if (changes.size() < MIN_BATCH_SIZE)
+			return null;
+		return new TextFileChangeBatch(getRoot(composite), changes);
+	}
+
+	/**
+	 * Writes and releases the buffers held by the active batches of the change tree
+	 * containing the given change. Called before a change gets performed which might
+	 * move or delete files with connected buffers, and when the changes of a tree
+	 * won't be performed.
+	 *
+	 * @param change a change of the tree
+	 * @throws CoreException if a modified buffer could not be written
+	 */
+	static void releaseBatches(Change change) throws CoreException {
+		TextFileChangeBatch[] batches;
+		synchronized (fgActiveBatches) {
+			Set<TextFileChangeBatch> active= fgActiveBatches.get(getRoot(change));
+			if (active == null)
+				return;
+			batches= active.toArray(new TextFileChangeBatch[active.size()]);
+		}
+		CoreException exception= null;
+		for (int i= 0; i < batches.length; i++) {
+			try {
+				batches[i].releaseAll();
+			} catch (CoreException e) {
+				if (exception == null)
+					exception= e;
+			}
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	private static Change getRoot(Change change) {
+		Change root= change;
+		while (root.getParent() != null)
+			root= root.getParent();
+		return root;
+	}
+
+	private static boolean isBatchable(Class<?> clazz, Map<Class<?>, Boolean> cache) {
+		Boolean result= cache.get(clazz);
+		if (result == null) {
+			// Only changes which use the standard validation and commit can be part of a batch.
+			try {
+				result= Boolean.valueOf(clazz.getMethod("isValid", IProgressMonitor.class).getDeclaringClass() == TextFileChange.class //$NON-NLS-1$
+						&& getDeclaringClass(clazz, "commit", IDocument.class, IProgressMonitor.class) == TextFileChange.class); //$NON-NLS-1$
+			} catch (NoSuchMethodException e) {
+				result= Boolean.FALSE;
+			}
+			cache.put(clazz, result);
+		}
+		return result.booleanValue();
+	}
+
+	private static Class<?> getDeclaringClass(Class<?> clazz, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+		for (Class<?> current= clazz; current != null; current= current.getSuperclass()) {
+			try {
+				current.getDeclaredMethod(name, parameterTypes);
+				return current;
+			} catch (NoSuchMethodException e) {
+				// look in the super class
+			}
+		}
+		throw new NoSuchMethodException(name);
+	}
+
+	private TextFileChangeBatch(Change root, List<TextFileChange> changes) {
+		fRoot= root;
+		fChanges= changes;
+		fStates= new HashMap<>(changes.size());
+		fFilesToModify= new ArrayList<>(changes.size());
+		fFilesToRead= new ArrayList<>();
+		fConnected= new HashMap<>();
+		fPendingCommits= new LinkedHashMap<>();
+	}
+
+	/**
+	 * Returns the number of changes validated by this batch.
+	 *
+	 * @return the number of changes in the batch
+	 */
+	int size() {
+		return fChanges.size();
+	}
+
+	/**
+	 * Validates all changes of the batch.
+	 *
+	 * @param pm a progress monitor, <code>size()</code> units of work are reported
+	 * @return the status for all files of the batch which is not specific to a single
+	 *  change, like the result of <code>validateEdit</code>
+	 * @throws CoreException if one of the changes throws an exception while being validated
+	 */
+	RefactoringStatus validate(IProgressMonitor pm) throws CoreException {
+		runConcurrently(fChanges, new Task() {
+			@Override
+			void run(TextFileChange change) throws CoreException {
+				validate(change);
+			}
+		}, pm);
+
+		RefactoringStatus result= new RefactoringStatus();
+		if (!fFilesToModify.isEmpty())
+			result.merge(Changes.validateModifiesFiles(fFilesToModify.toArray(new IFile[fFilesToModify.size()])));
+		if (!fFilesToRead.isEmpty())
+			result.merge(Changes.checkInSync(fFilesToRead.toArray(new IFile[fFilesToRead.size()])));
+		return result;
+	}
+
+	/**
+	 * Returns the validation status of the given change, or <code>null</code> if
+	 * the change is not part of this batch.
+	 *
+	 * @param change the change
+	 * @return the status or <code>null</code>
+	 */
+	synchronized RefactoringStatus getStatus(Change change) {
+		return fStates.get(change);
+	}
+
+	/**
+	 * Returns whether the given change is performed as part of this batch.
+	 *
+	 * @param change the change
+	 * @return <code>true</code> if the change is part of this batch
+	 */
+	synchronized boolean contains(Change change) {
+		return fStates.containsKey(change);
+	}
+
+	/**
+	 * Prepares the execution of the given change. If the buffer of the change is not
+	 * connected yet, the modified buffers of the current window are written and released,
+	 * and the buffers of the next window are connected.
+	 *
+	 * @param change the change about to be performed
+	 * @throws CoreException if a modified buffer could not be written
+	 */
+	void aboutToPerform(Change change) throws CoreException {
+		TextFileChange textFileChange= (TextFileChange) change;
+		synchronized (this) {
+			if (fConnected.containsKey(change)) {
+				textFileChange.setExecutionBatch(this);
+				return;
+			}
+		}
+		releaseAll();
+		int index= fChanges.indexOf(change);
+		List<TextFileChange> window= new ArrayList<>(MAX_CONNECTED_BUFFERS);
+		synchronized (this) {
+			for (int i= index; i < fChanges.size() && window.size() < MAX_CONNECTED_BUFFERS; i++) {
+				TextFileChange next= fChanges.get(i);
+				RefactoringStatus status= fStates.get(next);
+				if (status != null && !status.hasFatalError())
+					window.add(next);
+			}
+		}
+		runConcurrently(window, new Task() {
+			@Override
+			void run(TextFileChange next) {
+				connect(next);
+			}
+		}, new NullProgressMonitor());
+		synchronized (this) {
+			if (fConnected.containsKey(change))
+				textFileChange.setExecutionBatch(this);
+		}
+	}
+
+	/**
+	 * Called by a change of this batch instead of writing its buffer. The buffer gets
+	 * written when the batch releases its current window.
+	 *
+	 * @param change the change that has modified the buffer
+	 * @param buffer the modified buffer
+	 * @return <code>true</code> if the batch will write the buffer, <code>false</code>
+	 *  if the change has to write it itself
+	 */
+	synchronized boolean deferCommit(TextFileChange change, ITextFileBuffer buffer) {
+		if (!fConnected.containsKey(change))
+			return false;
+		fPendingCommits.put(change, buffer);
+		return true;
+	}
+
+	/**
+	 * Called after the given change has been performed. Releases the buffer of the change,
+	 * unless it has to be written first.
+	 *
+	 * @param change the change that has been performed
+	 */
+	void performed(Change change) {
+		IPath path;
+		synchronized (this) {
+			if (change instanceof TextFileChange)
+				((TextFileChange) change).setExecutionBatch(null);
+			if (fPendingCommits.containsKey(change))
+				return;
+			path= fConnected.remove(change);
+			if (path == null)
+				return;
+			if (fConnected.isEmpty())
+				unregister();
+		}
+		disconnect(path);
+	}
+
+	/**
+	 * Writes all modified buffers and releases all buffers connected by this batch.
+	 * All buffers get released, even if writing one of them fails.
+	 *
+	 * @throws CoreException if a modified buffer could not be written
+	 */
+	void releaseAll() throws CoreException {
+		ITextFileBuffer[] pending;
+		IPath[] paths;
+		synchronized (this) {
+			if (fConnected.isEmpty())
+				return;
+			pending= fPendingCommits.values().toArray(new ITextFileBuffer[fPendingCommits.size()]);
+			paths= fConnected.values().toArray(new IPath[fConnected.size()]);
+			fPendingCommits.clear();
+			fConnected.clear();
+			unregister();
+		}
+		CoreException exception= null;
+		for (int i= 0; i < pending.length; i++) {
+			try {
+				pending[i].commit(new NullProgressMonitor(), false);
+			} catch (CoreException e) {
+				if (exception == null)
+					exception= e;
+			}
+		}
+		for (int i= 0; i < paths.length; i++) {
+			disconnect(paths[i]);
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	private void validate(TextFileChange change) throws CoreException {
+		boolean needsSaving= change.needsSaving();
+		RefactoringStatus status= change.validateBufferState(needsSaving);
+		boolean connect;
+		synchronized (this) {
+			fStates.put(change, status);
+			if (status.hasFatalError())
+				return;
+			if (needsSaving)
+				fFilesToModify.add(change.getFile());
+			else
+				fFilesToRead.add(change.getFile());
+			connect= fConnected.size() < MAX_CONNECTED_BUFFERS && !fCanceled;
+		}
+		if (connect)
+			connect(change);
+	}
+
+	private void connect(TextFileChange change) {
+		IPath path= change.getFile().getFullPath();
+		try {
+			FileBuffers.getTextFileBufferManager().connect(path, LocationKind.IFILE, null);
+		} catch (CoreException e) {
+			// the change reports the problem when it gets performed
+			return;
+		}
+		boolean connected;
+		synchronized (this) {
+			connected= fConnected.size() < MAX_CONNECTED_BUFFERS;
+			if (connected) {
+				if (fConnected.isEmpty())
+					register();
+				fConnected.put(change, path);
+			}
+		}
+		if (!connected)
+			disconnect(path);
+	}
+
+	/**
+	 * Runs the given task for all changes. The changes are processed by a group of
+	 * worker jobs and the calling thread, which takes part in the work so that the
+	 * batch doesn't depend on the workers getting scheduled.
+	 *
+	 * @param changes the changes to process
+	 * @param task the task to run for each change
+	 * @param pm a progress monitor, one unit of work is reported per change
+	 * @throws CoreException the first exception thrown by the task
+	 */
+	private void runConcurrently(List<TextFileChange> changes, Task task, IProgressMonitor pm) throws CoreException {
+		synchronized (this) {
+			fQueue= new LinkedList<>(changes);
+			fTask= task;
+			fCanceled= false;
+			fCompleted= 0;
+			fCoreException= null;
+			fRuntimeException= null;
+		}
+		int workers= Math.min(MAX_WORKERS, changes.size() / MIN_BATCH_SIZE);
+		if (workers > 0) {
+			JobGroup group= new JobGroup(RefactoringCoreMessages.CompositeChange_validatingChangesJob_name, workers, workers);
+			for (int i= 0; i < workers; i++) {
+				Job worker= new Job(RefactoringCoreMessages.CompositeChange_validatingChangesJob_name) {
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						processQueue(null);
+						return Status.OK_STATUS;
+					}
+				};
+				worker.setSystem(true);
+				worker.setJobGroup(group);
+				worker.schedule();
+			}
+		}
+		processQueue(pm);
+		// only wait for the changes which are currently processed by a worker
+		synchronized (this) {
+			while (fInFlight > 0) {
+				try {
+					wait(50);
+				} catch (InterruptedException e) {
+					// continue waiting
+				}
+			}
+			pm.worked(fCompleted);
+			fCompleted= 0;
+			fQueue= null;
+			fTask= null;
+			if (fCoreException != null)
+				throw fCoreException;
+			if (fRuntimeException != null)
+				throw fRuntimeException;
+			if (fCanceled)
+				throw new OperationCanceledException();
+		}
+	}
+
+	private void processQueue(IProgressMonitor pm) {
+		while (true) {
+			TextFileChange change;
+			Task task;
+			synchronized (this) {
+				if (pm != null) {
+					pm.worked(fCompleted);
+					fCompleted= 0;
+					if (pm.isCanceled())
+						fCanceled= true;
+				}
+				if (fQueue == null || fQueue.isEmpty() || fCanceled || fCoreException != null || fRuntimeException != null)
+					return;
+				change= fQueue.removeFirst();
+				task= fTask;
+				fInFlight++;
+			}
+			try {
+				task.run(change);
+			} catch (CoreException e) {
+				synchronized (this) {
+					if (fCoreException == null)
+						fCoreException= e;
+				}
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (fRuntimeException == null)
+						fRuntimeException= e;
+				}
+			} finally {
+				synchronized (this) {
+					fInFlight--;
+					fCompleted++;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	private void register() {
+		synchronized (fgActiveBatches) {
+			Set<TextFileChangeBatch> active= fgActiveBatches.get(fRoot);
+			if (active == null) {
+				active= new HashSet<>();
+				fgActiveBatches.put(fRoot, active);
+			}
+			active.add(this);
+		}
+	}
+
+	private void unregister() {
+		synchronized (fgActiveBatches) {
+			Set<TextFileChangeBatch> active= fgActiveBatches.get(fRoot);
+			if (active != null && active.remove(this) && active.isEmpty())
+				fgActiveBatches.remove(fRoot);
+		}
+	}
+
+	private static void disconnect(IPath path) {
+		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
+		try {
+			manager.disconnect(path, LocationKind.IFILE, null);
+		} catch (CoreException e) {
+			RefactoringCorePlugin.log(e);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.participants;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.internal.core.refactoring.Messages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Checks the conditions of the participants tagged with {@link IConcurrentParticipant}
+ * concurrently. The participants are processed by worker jobs and by the calling thread,
+ * and all of them have to finish before a shared deadline. Participants which haven't
+ * finished in time, or which exceed the time budget of a single participant, are canceled.
+ * <p>
+ * The results are merged into the refactoring status in the participants' order by
+ * {@link #merge(RefactoringParticipant, RefactoringStatus)}.
+ * </p>
+ */
+final class ConcurrentConditionChecker {
+
+	/** Time in milliseconds the concurrent participants may take together */
+	static final long DEADLINE= 60 * 1000;
+
+	private static final int MAX_WORKERS= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	private final class Result {
+		final IProgressMonitor fMonitor;
+		boolean fStarted;
+		boolean fDone;
+		boolean fAborted;
+		long fStart;
+		long fTime;
+		RefactoringStatus fStatus;
+		RuntimeException fException;
+		boolean fCanceled;
+
+		Result(final IProgressMonitor parent) {
+			fMonitor= new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					// participants running in the calling thread are not observed by the wait loop
+					return super.isCanceled() || parent.isCanceled() || isTimedOut(Result.this);
+				}
+			};
+		}
+	}
+
+	private final String fRefactoringName;
+	private final String fPerfCheckConditions;
+	private final long fBudget;
+	private final Map<RefactoringParticipant, Result> fResults= new IdentityHashMap<>();
+	private LinkedList<RefactoringParticipant> fQueue;
+	private CheckConditionsContext fContext;
+	private long fDeadline;
+
+	/**
+	 * Creates a new checker.
+	 *
+	 * @param refactoringName the name of the refactoring
+	 * @param perfCheckConditions the performance event to report the condition checks to
+	 * @param budget the time in milliseconds a single participant may take, or <code>0</code>
+	 *  if participants are only limited by the shared deadline
+	 */
+	ConcurrentConditionChecker(String refactoringName, String perfCheckConditions, long budget) {
+		fRefactoringName= refactoringName;
+		fPerfCheckConditions= perfCheckConditions;
+		fBudget= budget;
+	}
+
+	/**
+	 * Returns the participants which can be checked concurrently.
+	 *
+	 * @param participants the participants of the refactoring
+	 * @return the concurrent participants
+	 */
+	static List<RefactoringParticipant> getConcurrentParticipants(List<RefactoringParticipant> participants) {
+		List<RefactoringParticipant> result= new LinkedList<>();
+		for (RefactoringParticipant participant : participants) {
+			if (participant instanceof IConcurrentParticipant)
+				result.add(participant);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks the conditions of the given participants and waits until all of them have
+	 * finished or the deadline has passed.
+	 *
+	 * @param participants the participants to check
+	 * @param context the condition checking context
+	 * @param pm a progress monitor to observe cancellation. No work is reported, but
+	 *  the cancellation is forwarded to the participants.
+	 * @throws OperationCanceledException if the progress monitor got canceled
+	 */
+	void check(List<RefactoringParticipant> participants, CheckConditionsContext context, final IProgressMonitor pm) throws OperationCanceledException {
+		long deadline= System.currentTimeMillis() + DEADLINE;
+		synchronized (this) {
+			fDeadline= deadline;
+			fQueue= new LinkedList<>(participants);
+			fContext= context;
+			for (RefactoringParticipant participant : participants) {
+				fResults.put(participant, new Result(pm));
+			}
+		}
+		int workers= Math.min(MAX_WORKERS, participants.size() - 1);
+		if (workers > 0) {
+			String name= Messages.format(RefactoringCoreMessages.ConcurrentConditionChecker_job_name, fRefactoringName);
+			JobGroup group= new JobGroup(name, workers, workers);
+			for (int i= 0; i < workers; i++) {
+				Job worker= new Job(name) {
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						processQueue();
+						return Status.OK_STATUS;
+					}
+				};
+				worker.setSystem(true);
+				worker.setJobGroup(group);
+				worker.schedule();
+			}
+		}
+		processQueue();
+		synchronized (this) {
+			while (!isDone()) {
+				if (pm.isCanceled()) {
+					cancelAll();
+					throw new OperationCanceledException();
+				}
+				long now= System.currentTimeMillis();
+				long remaining= deadline - now;
+				if (remaining <= 0) {
+					cancelAll();
+					break;
+				}
+				if (fBudget > 0)
+					cancelOverBudget(now);
+				try {
+					wait(Math.min(remaining, 50));
+				} catch (InterruptedException e) {
+					// continue waiting
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given participant has been checked by this checker.
+	 *
+	 * @param participant the participant
+	 * @return <code>true</code> if the participant has been checked concurrently
+	 */
+	synchronized boolean contains(RefactoringParticipant participant) {
+		return fResults.containsKey(participant);
+	}
+
+	/**
+	 * Returns the time in milliseconds the given participant needed to check
+	 * conditions, or the time until it got canceled.
+	 *
+	 * @param participant the participant
+	 * @return the time needed by the participant
+	 */
+	synchronized long getTime(RefactoringParticipant participant) {
+		return fResults.get(participant).fTime;
+	}
+
+	/**
+	 * Merges the result of the given participant into the given status.
+	 *
+	 * @param participant the participant
+	 * @param status the status to merge the result into
+	 * @return <code>false</code> if the participant has failed or hasn't finished in time,
+	 *  and must be removed from the refactoring
+	 * @throws OperationCanceledException if the participant has canceled the refactoring
+	 */
+	synchronized boolean merge(RefactoringParticipant participant, RefactoringStatus status) throws OperationCanceledException {
+		Result result= fResults.get(participant);
+		if (!result.fDone || result.fAborted && result.fStatus == null && result.fException == null) {
+			status.addWarning(Messages.format(
+				RefactoringCoreMessages.ConcurrentConditionChecker_participant_timed_out,
+				participant.getName()));
+			return false;
+		}
+		if (result.fCanceled)
+			throw new OperationCanceledException();
+		if (result.fException != null) {
+			// remove the participant so that it will be ignored during change execution.
+			RefactoringCorePlugin.log(result.fException);
+			status.merge(RefactoringStatus.createErrorStatus(Messages.format(
+				RefactoringCoreMessages.ProcessorBasedRefactoring_check_condition_participant_failed,
+				participant.getName())));
+			return false;
+		}
+		status.merge(result.fStatus);
+		return true;
+	}
+
+	private boolean isDone() {
+		for (Result result : fResults.values()) {
+			if (result.fStarted && !result.fDone)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the given participant has to stop because the deadline has passed
+	 * or the participant has exceeded its time budget. Aborts the participant if so.
+	 *
+	 * @param result the result of the participant
+	 * @return <code>true</code> if the participant has been aborted
+	 */
+	private synchronized boolean isTimedOut(Result result) {
+		if (result.fAborted)
+			return true;
+		long now= System.currentTimeMillis();
+		if (now < fDeadline && (fBudget <= 0 || !result.fStarted || now - result.fStart <= fBudget))
+			return false;
+		abort(result, now);
+		return true;
+	}
+
+	private void cancelAll() {
+		// participants which haven't been started yet are reported as timed out
+		fQueue.clear();
+		long now= System.currentTimeMillis();
+		for (Result result : fResults.values()) {
+			if (!result.fDone)
+				abort(result, now);
+		}
+	}
+
+	private void cancelOverBudget(long now) {
+		for (Result result : fResults.values()) {
+			if (result.fStarted && !result.fDone && !result.fAborted && now - result.fStart > fBudget)
+				abort(result, now);
+		}
+	}
+
+	private static void abort(Result result, long now) {
+		result.fAborted= true;
+		if (result.fStarted)
+			result.fTime= now - result.fStart;
+		result.fMonitor.setCanceled(true);
+	}
+
+	private void processQueue() {
+		while (true) {
+			RefactoringParticipant participant;
+			Result result;
+			CheckConditionsContext context;
+			synchronized (this) {
+				if (!fQueue.isEmpty() && System.currentTimeMillis() >= fDeadline)
+					cancelAll();
+				if (fQueue.isEmpty())
+					return;
+				participant= fQueue.removeFirst();
+				result= fResults.get(participant);
+				result.fStarted= true;
+				result.fStart= System.currentTimeMillis();
+				context= fContext;
+			}
+			PerformanceStats stats= PerformanceStats.getStats(fPerfCheckConditions, fRefactoringName + ", " + participant.getName()); //$NON-NLS-1$
+			stats.startRun();
+			RefactoringStatus status= null;
+			RuntimeException exception= null;
+			boolean canceled= false;
+			try {
+				status= participant.checkConditions(result.fMonitor, context);
+			} catch (OperationCanceledException e) {
+				canceled= true;
+			} catch (RuntimeException e) {
+				exception= e;
+			}
+			stats.endRun();
+			synchronized (this) {
+				result.fTime= System.currentTimeMillis() - result.fStart;
+				result.fStatus= status;
+				result.fException= exception;
+				// a participant aborted by the checker is reported as timed out
+				result.fCanceled= canceled && !result.fAborted;
+				result.fDone= true;
+				notifyAll();
+			}
+		}
+	}
+}
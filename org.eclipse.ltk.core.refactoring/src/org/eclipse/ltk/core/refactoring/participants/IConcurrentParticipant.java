@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.participants;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A tagging interface to mark a {@link RefactoringParticipant} whose condition checking
+ * is independent of other participants. The
+ * {@link RefactoringParticipant#checkConditions(IProgressMonitor, CheckConditionsContext) checkConditions}
+ * method of tagged participants may be called in a background thread, concurrently with
+ * the condition checking of other participants.
+ * <p>
+ * Participants implementing this interface must not acquire scheduling rules while checking
+ * conditions, and must synchronize on the {@link CheckConditionsContext} when accessing
+ * the condition checkers it contains. If a tagged participant doesn't finish checking
+ * conditions in time, it is canceled and removed from the refactoring.
+ * </p>
+ * <p>
+ * Clients may implement this interface to tag participants as concurrent.
+ * </p>
+ *
+ * @see RefactoringParticipant
+ * @since 3.7
+ */
+public interface IConcurrentParticipant {
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,7 @@ import org.eclipse.ltk.core.refactoring.TextChange;
 import org.eclipse.ltk.core.refactoring.TextFileChange;
 import org.eclipse.ltk.internal.core.refactoring.Messages;
 import org.eclipse.ltk.internal.core.refactoring.ParticipantDescriptor;
+import org.eclipse.ltk.internal.core.refactoring.ParticipantStatistics;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 
@@ -50,6 +51,12 @@ import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
  * This class can be subclassed by clients wishing to provide a special
  * refactoring which uses a processor/participant architecture.
  * </p>
+ * <p>
+ * The time participants need to check conditions and to create changes is recorded in
+ * workspace wide statistics. If a time budget for participants is configured, participants
+ * exceeding it are reported with a warning, and participants which exceeded it repeatedly
+ * are skipped with a warning.
+ * </p>
  * <p>Since 3.4, this class is non abstract and can be instantiated. {@link #getProcessor()} will
  * return the processor passed in {@link #ProcessorBasedRefactoring(RefactoringProcessor)} or
  * the processor set by {@link #setProcessor(RefactoringProcessor)}.
@@ -61,6 +68,12 @@ public class ProcessorBasedRefactoring extends Refactoring {
 	private static final String PERF_CHECK_CONDITIONS= "org.eclipse.ltk.core.refactoring/perf/participants/checkConditions"; //$NON-NLS-1$
 	private static final String PERF_CREATE_CHANGES= "org.eclipse.ltk.core.refactoring/perf/participants/createChanges"; //$NON-NLS-1$
 
+	/**
+	 * Participants which need more milliseconds to check conditions are reported
+	 * in the refactoring status.
+	 */
+	private static final long SLOW_CHECK_CONDITIONS_THRESHOLD= 1000;
+
 	private RefactoringProcessor fProcessor;
 
 	private List<RefactoringParticipant> fParticipants;
@@ -241,18 +254,41 @@ public class ProcessorBasedRefactoring extends Refactoring {
 			pm.done();
 			return result;
 		}
+		long budget= ParticipantStatistics.getTimeBudget();
+		if (budget > 0)
+			skipSlowParticipants(result, budget);
 		IProgressMonitor sm= new SubProgressMonitor(pm, 2);
 
 		sm.beginTask("", fParticipants.size()); //$NON-NLS-1$
+
+		// independent participants are checked first, concurrently among themselves
+		ConcurrentConditionChecker concurrentChecker= null;
+		List<RefactoringParticipant> concurrentParticipants= ConcurrentConditionChecker.getConcurrentParticipants(fParticipants);
+		if (concurrentParticipants.size() > 1) {
+			concurrentChecker= new ConcurrentConditionChecker(getName(), PERF_CHECK_CONDITIONS, budget);
+			concurrentChecker.check(concurrentParticipants, context, sm);
+		}
+
 		for (Iterator<RefactoringParticipant> iter= fParticipants.iterator(); iter.hasNext() && !result.hasFatalError(); ) {
 
 			RefactoringParticipant participant= iter.next();
 
+			if (concurrentChecker != null && concurrentChecker.contains(participant)) {
+				boolean checked= concurrentChecker.merge(participant, result);
+				recordCheckConditionsTime(result, participant, concurrentChecker.getTime(participant), budget);
+				if (!checked)
+					iter.remove();
+				sm.worked(1);
+				continue;
+			}
+
 			final PerformanceStats stats= PerformanceStats.getStats(PERF_CHECK_CONDITIONS, getName() + ", " + participant.getName()); //$NON-NLS-1$
 			stats.startRun();
+			long start= System.currentTimeMillis();
 
 			try {
 				result.merge(participant.checkConditions(new SubProgressMonitor(sm, 1), context));
+				recordCheckConditionsTime(result, participant, System.currentTimeMillis() - start, budget);
 			} catch (OperationCanceledException e) {
 				throw e;
 			} catch (RuntimeException e) {
@@ -295,15 +331,24 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		List<Change> changes= new ArrayList<>();
 		List<Change> preChanges= new ArrayList<>();
 		Map<Change, RefactoringParticipant> participantMap= new HashMap<>();
+		long budget= ParticipantStatistics.getTimeBudget();
 		for (Iterator<RefactoringParticipant> iter= fParticipants.iterator(); iter.hasNext();) {
 			final RefactoringParticipant participant= iter.next();
 
 			try {
 				final PerformanceStats stats= PerformanceStats.getStats(PERF_CREATE_CHANGES, getName() + ", " + participant.getName()); //$NON-NLS-1$
 				stats.startRun();
-
-				Change preChange= participant.createPreChange(new SubProgressMonitor(pm, 1));
-				Change change= participant.createChange(new SubProgressMonitor(pm, 1));
+				long start= System.currentTimeMillis();
+
+				Change preChange;
+				Change change;
+				try {
+					preChange= participant.createPreChange(new SubProgressMonitor(pm, 1));
+					change= participant.createChange(new SubProgressMonitor(pm, 1));
+				} finally {
+					// participants which fail slowly count against their budget as well
+					recordTime(participant, ParticipantStatistics.CREATE_CHANGE, System.currentTimeMillis() - start, budget);
+				}
 
 				stats.endRun();
 
@@ -418,6 +463,39 @@ public class ProcessorBasedRefactoring extends Refactoring {
 	}
 
 
+	private void skipSlowParticipants(RefactoringStatus status, long budget) {
+		ParticipantStatistics statistics= ParticipantStatistics.getDefault();
+		for (Iterator<RefactoringParticipant> iter= fParticipants.iterator(); iter.hasNext();) {
+			RefactoringParticipant participant= iter.next();
+			ParticipantDescriptor descriptor= participant.getDescriptor();
+			if (descriptor != null && statistics.skip(descriptor.getId())) {
+				status.addWarning(Messages.format(
+					RefactoringCoreMessages.ProcessorBasedRefactoring_participant_skipped,
+					new String[] { participant.getName(), Long.toString(budget) }));
+				iter.remove();
+			}
+		}
+	}
+
+	private static void recordCheckConditionsTime(RefactoringStatus status, RefactoringParticipant participant, long time, long budget) {
+		recordTime(participant, ParticipantStatistics.CHECK_CONDITIONS, time, budget);
+		if (budget > 0 && time > budget) {
+			status.addEntry(RefactoringStatus.WARNING,
+				Messages.format(RefactoringCoreMessages.ProcessorBasedRefactoring_participant_over_budget, new String[] { participant.getName(), Long.toString(time), Long.toString(budget) }),
+				null, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.PARTICIPANT_CHECK_CONDITIONS_TIME, Long.valueOf(time));
+		} else if (time >= SLOW_CHECK_CONDITIONS_THRESHOLD) {
+			status.addEntry(RefactoringStatus.INFO,
+				Messages.format(RefactoringCoreMessages.ProcessorBasedRefactoring_slow_participant, new String[] { participant.getName(), Long.toString(time) }),
+				null, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.PARTICIPANT_CHECK_CONDITIONS_TIME, Long.valueOf(time));
+		}
+	}
+
+	private static void recordTime(RefactoringParticipant participant, int phase, long time, long budget) {
+		ParticipantDescriptor descriptor= participant.getDescriptor();
+		if (descriptor != null)
+			ParticipantStatistics.getDefault().record(descriptor.getId(), phase, time, budget);
+	}
+
 	private static void disableParticipant(final RefactoringParticipant participant, Throwable e) {
 		ParticipantDescriptor descriptor= participant.getDescriptor();
 		descriptor.disable();
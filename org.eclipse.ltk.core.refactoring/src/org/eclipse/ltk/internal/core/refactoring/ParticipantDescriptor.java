@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,11 @@
  *******************************************************************************/
 package org.eclipse.ltk.internal.core.refactoring;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionConverter;
@@ -31,11 +36,22 @@ public class ParticipantDescriptor {
 	private IConfigurationElement fConfigurationElement;
 	private boolean fEnabled;
 
+	private Expression fExpression;
+	/* null until computed */
+	private Boolean fTypeBased;
+	/* enablement results of type based expressions, see #getCacheKey(IEvaluationContext) */
+	private Map<List<Object>, Boolean> fEnablementCache;
+
 	private static final String ID= "id"; //$NON-NLS-1$
 	private static final String NAME= "name";  //$NON-NLS-1$
 	private static final String CLASS= "class"; //$NON-NLS-1$
 	private static final String PROCESS_ON_CANCEL= "processOnCancel";  //$NON-NLS-1$
 
+	private static final String VARIABLE= "variable"; //$NON-NLS-1$
+	private static final String ELEMENT= "element"; //$NON-NLS-1$
+	private static final String AFFECTED_NATURES= "affectedNatures"; //$NON-NLS-1$
+	private static final String PROCESSOR_IDENTIFIER= "processorIdentifier"; //$NON-NLS-1$
+
 	public ParticipantDescriptor(IConfigurationElement element) {
 		fConfigurationElement= element;
 		fEnabled= true;
@@ -68,12 +84,7 @@ public class ParticipantDescriptor {
 	}
 
 	public boolean matches(IEvaluationContext context, IParticipantDescriptorFilter filter, RefactoringStatus status) throws CoreException {
-		IConfigurationElement[] elements= fConfigurationElement.getChildren(ExpressionTagNames.ENABLEMENT);
-		if (elements.length == 0)
-			return false;
-		Assert.isTrue(elements.length == 1);
-		Expression exp= ExpressionConverter.getDefault().perform(elements[0]);
-		if (!convert(exp.evaluate(context)))
+		if (!isEnabled(context))
 			return false;
 		if (filter != null && !filter.select(fConfigurationElement, status))
 			return false;
@@ -81,6 +92,82 @@ public class ParticipantDescriptor {
 		return true;
 	}
 
+	private synchronized boolean isEnabled(IEvaluationContext context) throws CoreException {
+		if (fTypeBased == null) {
+			IConfigurationElement[] elements= fConfigurationElement.getChildren(ExpressionTagNames.ENABLEMENT);
+			if (elements.length == 0) {
+				fTypeBased= Boolean.FALSE;
+			} else {
+				Assert.isTrue(elements.length == 1);
+				fExpression= ExpressionConverter.getDefault().perform(elements[0]);
+				fTypeBased= Boolean.valueOf(isTypeBased(elements[0], true));
+			}
+			if (fTypeBased.booleanValue())
+				fEnablementCache= new HashMap<>();
+		}
+		if (fExpression == null)
+			return false;
+		if (!fTypeBased.booleanValue())
+			return convert(fExpression.evaluate(context));
+
+		List<Object> key= getCacheKey(context);
+		Boolean result= fEnablementCache.get(key);
+		if (result == null) {
+			result= Boolean.valueOf(convert(fExpression.evaluate(context)));
+			fEnablementCache.put(key, result);
+		}
+		return result.booleanValue();
+	}
+
+	/*
+	 * The result of a type based expression only depends on the type of the element,
+	 * the affected natures and the processor.
+	 */
+	private static List<Object> getCacheKey(IEvaluationContext context) {
+		Object element= context.getDefaultVariable();
+		return Arrays.asList(element != null ? element.getClass() : null,
+			context.getVariable(AFFECTED_NATURES), context.getVariable(PROCESSOR_IDENTIFIER));
+	}
+
+	/**
+	 * Returns whether the given expression only tests the type of the element being
+	 * refactored, and the values of the affected natures and processor identifier.
+	 * Expressions testing properties, adapters or values of the element are not
+	 * type based.
+	 *
+	 * @param element the expression element
+	 * @param onElement whether the element being refactored is the current default variable
+	 * @return <code>true</code> if the result of the expression can be cached per type
+	 */
+	private static boolean isTypeBased(IConfigurationElement element, boolean onElement) {
+		String name= element.getName();
+		if (ExpressionTagNames.INSTANCEOF.equals(name))
+			return true;
+		if (ExpressionTagNames.EQUALS.equals(name) || ExpressionTagNames.COUNT.equals(name))
+			return !onElement;
+		if (ExpressionTagNames.WITH.equals(name)) {
+			String variable= element.getAttribute(VARIABLE);
+			if (ELEMENT.equals(variable))
+				onElement= true;
+			else if (AFFECTED_NATURES.equals(variable) || PROCESSOR_IDENTIFIER.equals(variable))
+				onElement= false;
+			else
+				return false;
+		} else if (ExpressionTagNames.ITERATE.equals(name)) {
+			if (onElement)
+				return false;
+		} else if (!ExpressionTagNames.ENABLEMENT.equals(name) && !ExpressionTagNames.AND.equals(name)
+				&& !ExpressionTagNames.OR.equals(name) && !ExpressionTagNames.NOT.equals(name)) {
+			return false;
+		}
+		IConfigurationElement[] children= element.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!isTypeBased(children[i], onElement))
+				return false;
+		}
+		return true;
+	}
+
 	public RefactoringParticipant createParticipant() throws CoreException {
 		return (RefactoringParticipant)fConfigurationElement.createExecutableExtension(CLASS);
 	}
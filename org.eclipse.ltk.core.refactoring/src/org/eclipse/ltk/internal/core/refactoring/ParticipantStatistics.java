@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Workspace wide statistics about the time refactoring participants need to check
+ * conditions and to create changes.
+ * <p>
+ * The statistics are kept per participant id and phase, and are stored in the
+ * plug-in's state location when the plug-in stops. Participants which exceeded the
+ * time budget set in the preference {@link RefactoringPreferenceConstants#PREFERENCE_PARTICIPANT_TIME_BUDGET}
+ * in {@link #MAX_OVER_BUDGET} consecutive runs are skipped by subsequent refactorings.
+ * After having been skipped {@link #RETRY_AFTER_SKIPS} times, such a participant gets
+ * another chance.
+ * </p>
+ */
+public final class ParticipantStatistics {
+
+	/** Phase for the time needed by <code>checkConditions</code> */
+	public static final int CHECK_CONDITIONS= 0;
+
+	/** Phase for the time needed by <code>createPreChange</code> and <code>createChange</code> */
+	public static final int CREATE_CHANGE= 1;
+
+	/** Number of consecutive runs over budget after which a participant is skipped */
+	public static final int MAX_OVER_BUDGET= 3;
+
+	/** Number of skips after which a skipped participant is run again */
+	public static final int RETRY_AFTER_SKIPS= 10;
+
+	private static final String[] PHASE_NAMES= { "checkConditions", "createChange" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final String SKIPPED= "skipped"; //$NON-NLS-1$
+
+	private static final String FILE_NAME= "participants.stats"; //$NON-NLS-1$
+
+	/**
+	 * The statistics of a participant in one phase.
+	 */
+	public static final class Entry {
+		private int fCount;
+		private long fTotalTime;
+		private long fMaxTime;
+		private int fOverBudget;
+
+		/**
+		 * Returns the number of recorded runs.
+		 *
+		 * @return the number of runs
+		 */
+		public int getCount() {
+			return fCount;
+		}
+
+		/**
+		 * Returns the total time of all recorded runs in milliseconds.
+		 *
+		 * @return the total time
+		 */
+		public long getTotalTime() {
+			return fTotalTime;
+		}
+
+		/**
+		 * Returns the time of the slowest recorded run in milliseconds.
+		 *
+		 * @return the maximal time
+		 */
+		public long getMaxTime() {
+			return fMaxTime;
+		}
+
+		/**
+		 * Returns the number of consecutive runs, up to the latest one, which exceeded
+		 * the time budget.
+		 *
+		 * @return the number of consecutive runs over budget
+		 */
+		public int getOverBudget() {
+			return fOverBudget;
+		}
+
+		private String encode() {
+			return fCount + "," + fTotalTime + "," + fMaxTime + "," + fOverBudget; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		private static Entry decode(String value) {
+			String[] parts= value.split(","); //$NON-NLS-1$
+			if (parts.length != 4)
+				return null;
+			try {
+				Entry result= new Entry();
+				result.fCount= Integer.parseInt(parts[0]);
+				result.fTotalTime= Long.parseLong(parts[1]);
+				result.fMaxTime= Long.parseLong(parts[2]);
+				result.fOverBudget= Integer.parseInt(parts[3]);
+				return result;
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	private static ParticipantStatistics fgDefault;
+
+	private final File fFile;
+	private final Map<String, Entry> fEntries= new HashMap<>();
+	private final Map<String, Integer> fSkipped= new HashMap<>();
+	private boolean fDirty;
+
+	/**
+	 * Returns the shared statistics, loading them from the state location if necessary.
+	 *
+	 * @return the shared statistics
+	 */
+	public static synchronized ParticipantStatistics getDefault() {
+		if (fgDefault == null) {
+			File file= null;
+			RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+			if (plugin != null)
+				file= plugin.getStateLocation().append(FILE_NAME).toFile();
+			fgDefault= new ParticipantStatistics(file);
+		}
+		return fgDefault;
+	}
+
+	/**
+	 * Saves the shared statistics if they have been loaded.
+	 */
+	public static synchronized void saveDefault() {
+		if (fgDefault != null)
+			fgDefault.save();
+	}
+
+	/**
+	 * Returns the time budget in milliseconds for a participant in one phase.
+	 *
+	 * @return the time budget, or <code>0</code> if participants have no budget
+	 */
+	public static long getTimeBudget() {
+		return Platform.getPreferencesService().getLong(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET, 0, null);
+	}
+
+	/**
+	 * Creates new statistics, initialized from the given file if it exists.
+	 *
+	 * @param file the file to store the statistics in, or <code>null</code>
+	 */
+	public ParticipantStatistics(File file) {
+		fFile= file;
+		load();
+	}
+
+	/**
+	 * Records a run of a participant.
+	 *
+	 * @param participantId the id of the participant
+	 * @param phase the phase, either {@link #CHECK_CONDITIONS} or {@link #CREATE_CHANGE}
+	 * @param time the time needed in milliseconds
+	 * @param budget the time budget, or <code>0</code> if there is no budget
+	 */
+	public synchronized void record(String participantId, int phase, long time, long budget) {
+		String key= getKey(participantId, phase);
+		Entry entry= fEntries.get(key);
+		if (entry == null) {
+			entry= new Entry();
+			fEntries.put(key, entry);
+		}
+		entry.fCount++;
+		entry.fTotalTime+= time;
+		entry.fMaxTime= Math.max(entry.fMaxTime, time);
+		if (budget > 0 && time > budget)
+			entry.fOverBudget++;
+		else
+			entry.fOverBudget= 0;
+		fDirty= true;
+	}
+
+	/**
+	 * Returns the statistics of a participant.
+	 *
+	 * @param participantId the id of the participant
+	 * @param phase the phase, either {@link #CHECK_CONDITIONS} or {@link #CREATE_CHANGE}
+	 * @return the statistics, or <code>null</code> if no run has been recorded
+	 */
+	public synchronized Entry getEntry(String participantId, int phase) {
+		return fEntries.get(getKey(participantId, phase));
+	}
+
+	/**
+	 * Decides whether the given participant is to be skipped because it has exceeded
+	 * the time budget too often. Each positive answer is counted, and the participant
+	 * is given another chance after {@link #RETRY_AFTER_SKIPS} skips.
+	 *
+	 * @param participantId the id of the participant
+	 * @return <code>true</code> if the participant is to be skipped
+	 */
+	public synchronized boolean skip(String participantId) {
+		boolean overBudget= false;
+		for (int phase= 0; phase < PHASE_NAMES.length; phase++) {
+			Entry entry= fEntries.get(getKey(participantId, phase));
+			if (entry != null && entry.fOverBudget >= MAX_OVER_BUDGET)
+				overBudget= true;
+		}
+		if (!overBudget)
+			return false;
+		fDirty= true;
+		Integer skipped= fSkipped.get(participantId);
+		int count= skipped != null ? skipped.intValue() + 1 : 1;
+		if (count > RETRY_AFTER_SKIPS) {
+			fSkipped.remove(participantId);
+			for (int phase= 0; phase < PHASE_NAMES.length; phase++) {
+				Entry entry= fEntries.get(getKey(participantId, phase));
+				if (entry != null)
+					entry.fOverBudget= 0;
+			}
+			return false;
+		}
+		fSkipped.put(participantId, Integer.valueOf(count));
+		return true;
+	}
+
+	/**
+	 * Removes all recorded statistics.
+	 */
+	public synchronized void clear() {
+		fEntries.clear();
+		fSkipped.clear();
+		fDirty= true;
+	}
+
+	private static String getKey(String participantId, int phase) {
+		return participantId + '/' + PHASE_NAMES[phase];
+	}
+
+	private void load() {
+		if (fFile == null || !fFile.isFile())
+			return;
+		Properties properties= new Properties();
+		try (InputStream stream= new FileInputStream(fFile)) {
+			properties.load(stream);
+		} catch (IOException e) {
+			RefactoringCorePlugin.log(e);
+			return;
+		}
+		for (Iterator<Map.Entry<Object, Object>> iter= properties.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Object, Object> property= iter.next();
+			String key= (String) property.getKey();
+			String value= (String) property.getValue();
+			if (key.endsWith('/' + SKIPPED)) {
+				try {
+					fSkipped.put(key.substring(0, key.length() - SKIPPED.length() - 1), Integer.valueOf(value));
+				} catch (NumberFormatException e) {
+					// ignore corrupt entry
+				}
+			} else {
+				Entry entry= Entry.decode(value);
+				if (entry != null)
+					fEntries.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Stores the statistics in the file, if they have changed.
+	 */
+	public synchronized void save() {
+		if (fFile == null || !fDirty)
+			return;
+		Properties properties= new Properties();
+		for (Iterator<Map.Entry<String, Entry>> iter= fEntries.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Entry> entry= iter.next();
+			properties.setProperty(entry.getKey(), entry.getValue().encode());
+		}
+		for (Iterator<Map.Entry<String, Integer>> iter= fSkipped.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Integer> entry= iter.next();
+			properties.setProperty(entry.getKey() + '/' + SKIPPED, entry.getValue().toString());
+		}
+		try (OutputStream stream= new FileOutputStream(fFile)) {
+			properties.store(stream, null);
+			fDirty= false;
+		} catch (IOException e) {
+			RefactoringCorePlugin.log(e);
+		}
+	}
+}
@@ -30,6 +30,12 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String CompositeChange_performingChangesTask_name;
 
+	public static String CompositeChange_validatingChangesJob_name;
+
+	public static String ConcurrentConditionChecker_job_name;
+
+	public static String ConcurrentConditionChecker_participant_timed_out;
+
 	public static String CreateChangeOperation_unknown_Refactoring;
 
 	public static String DefaultRefactoringDescriptor_cannot_create_refactoring;
@@ -140,6 +146,12 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String ProcessorBasedRefactoring_prechange_participants_removed;
 
+	public static String ProcessorBasedRefactoring_participant_over_budget;
+
+	public static String ProcessorBasedRefactoring_participant_skipped;
+
+	public static String ProcessorBasedRefactoring_slow_participant;
+
 	public static String Refactoring_execute_label;
 
 	public static String RenameResourceChange_name;
@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+/**
+ * Holds the undo edits of undo text file changes.
+ * <p>
+ * Undo edits are kept in memory as long as their estimated total size stays below a
+ * budget. When the budget is exceeded, the least recently registered edits are written
+ * to a compressed swap file in the plug-in's state location, and read back when the
+ * undo change gets performed. This keeps the undo stack small after refactorings which
+ * modify thousands of files.
+ * </p>
+ * <p>
+ * The store only references the handles weakly, so undo changes which are dropped
+ * without being disposed don't leak their edits. The space of released edits in the
+ * swap file is reclaimed by compacting the file once it is mostly unused.
+ * </p>
+ */
+public final class UndoEditStore {
+
+	/**
+	 * A handle to an undo edit registered with the store.
+	 */
+	public static final class Handle {
+		private UndoEdit fEdit;
+		private HandleReference fReference;
+
+		private Handle(UndoEdit edit) {
+			fEdit= edit;
+		}
+	}
+
+	private static final class HandleReference extends WeakReference<Handle> {
+		final long fSize;
+		boolean fSwappable= true;
+		long fSwapOffset= -1;
+		int fSwapLength;
+
+		HandleReference(Handle handle, long size, ReferenceQueue<Handle> queue) {
+			super(handle, queue);
+			fSize= size;
+		}
+
+		boolean isSwapped() {
+			return fSwapOffset != -1;
+		}
+	}
+
+	private static final long MAX_IN_MEMORY_SIZE= 8 * 1024 * 1024;
+
+	private static final String SWAP_FILE_NAME= "undo.swap"; //$NON-NLS-1$
+
+	/** The minimal number of unused bytes in the swap file before it gets compacted */
+	private static final long MIN_COMPACTION_SIZE= 1024 * 1024;
+
+	/** Rough estimate of the heap used by a replace edit without its text */
+	private static final int EDIT_OVERHEAD= 64;
+
+	private static UndoEditStore fgDefault;
+
+	private final File fSwapFile;
+	private final long fMaxInMemorySize;
+	private final ReferenceQueue<Handle> fQueue= new ReferenceQueue<>();
+
+	/* in registration order, used to swap out the oldest edits first */
+	private final Set<HandleReference> fInMemory= new LinkedHashSet<>();
+	private long fInMemorySize;
+	/* in swap file order */
+	private final Set<HandleReference> fSwapped= new LinkedHashSet<>();
+	private long fSwappedSize;
+	private long fSwapFileLength;
+
+	private RandomAccessFile fSwap;
+	private boolean fSwapFailed;
+
+	/**
+	 * Returns the shared store.
+	 *
+	 * @return the shared store
+	 */
+	public static synchronized UndoEditStore getDefault() {
+		if (fgDefault == null) {
+			File swapFile= null;
+			RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+			if (plugin != null)
+				swapFile= plugin.getStateLocation().append(SWAP_FILE_NAME).toFile();
+			fgDefault= new UndoEditStore(swapFile, MAX_IN_MEMORY_SIZE);
+		}
+		return fgDefault;
+	}
+
+	/**
+	 * Creates a new store.
+	 *
+	 * @param swapFile the file to swap out edits to, or <code>null</code> to keep all
+	 *  edits in memory
+	 * @param maxInMemorySize the estimated size in bytes of the edits to keep in memory
+	 */
+	public UndoEditStore(File swapFile, long maxInMemorySize) {
+		fSwapFile= swapFile;
+		fMaxInMemorySize= maxInMemorySize;
+	}
+
+	/**
+	 * Registers the given undo edit with the store.
+	 *
+	 * @param edit the undo edit
+	 * @return the handle to access the edit
+	 */
+	public synchronized Handle register(UndoEdit edit) {
+		processQueue();
+		TextEdit[] children= edit.getChildren();
+		long size= EDIT_OVERHEAD;
+		for (int i= 0; i < children.length; i++) {
+			size+= EDIT_OVERHEAD;
+			if (children[i] instanceof ReplaceEdit)
+				size+= 2 * ((ReplaceEdit) children[i]).getText().length();
+		}
+		Handle handle= new Handle(edit);
+		handle.fReference= new HandleReference(handle, size, fQueue);
+		fInMemory.add(handle.fReference);
+		fInMemorySize+= size;
+		if (fInMemorySize > fMaxInMemorySize)
+			swapOut();
+		return handle;
+	}
+
+	/**
+	 * Returns the edit of the given handle, reading it from the swap file if necessary.
+	 * An edit read from the swap file is a {@link MultiTextEdit} with the same effect
+	 * as the original undo edit.
+	 *
+	 * @param handle the handle
+	 * @return the edit
+	 * @throws CoreException if the edit can't be read from the swap file
+	 */
+	public synchronized TextEdit getEdit(Handle handle) throws CoreException {
+		if (handle.fEdit != null)
+			return handle.fEdit;
+		HandleReference reference= handle.fReference;
+		if (reference == null || !reference.isSwapped())
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), "Undo edit is no longer available")); //$NON-NLS-1$
+		try {
+			byte[] bytes= new byte[reference.fSwapLength];
+			fSwap.seek(reference.fSwapOffset);
+			fSwap.readFully(bytes);
+			return read(bytes);
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * Releases the edit of the given handle. Edits still in memory stay accessible.
+	 *
+	 * @param handle the handle
+	 */
+	public synchronized void dispose(Handle handle) {
+		HandleReference reference= handle.fReference;
+		if (reference == null)
+			return;
+		handle.fReference= null;
+		reference.clear();
+		release(reference);
+		processQueue();
+	}
+
+	/**
+	 * Returns the estimated number of bytes used on the heap by the registered edits
+	 * which are held in memory.
+	 *
+	 * @return the estimated heap usage
+	 */
+	public synchronized long getInMemorySize() {
+		processQueue();
+		return fInMemorySize;
+	}
+
+	/**
+	 * Returns the number of bytes used in the swap file by the registered edits
+	 * which have been swapped out.
+	 *
+	 * @return the size of the swapped out edits
+	 */
+	public synchronized long getSwappedSize() {
+		processQueue();
+		return fSwappedSize;
+	}
+
+	private void processQueue() {
+		HandleReference reference;
+		while ((reference= (HandleReference) fQueue.poll()) != null) {
+			release(reference);
+		}
+	}
+
+	private void release(HandleReference reference) {
+		if (fInMemory.remove(reference)) {
+			fInMemorySize-= reference.fSize;
+		} else if (fSwapped.remove(reference)) {
+			reference.fSwapOffset= -1;
+			fSwappedSize-= reference.fSwapLength;
+			long unused= fSwapFileLength - fSwappedSize;
+			if (fSwapped.isEmpty() || unused >= MIN_COMPACTION_SIZE && unused > fSwappedSize)
+				compactSwapFile();
+		}
+	}
+
+	private void swapOut() {
+		if (fSwapFile == null || fSwapFailed)
+			return;
+		for (Iterator<HandleReference> iter= fInMemory.iterator(); iter.hasNext() && fInMemorySize > fMaxInMemorySize / 2;) {
+			HandleReference reference= iter.next();
+			Handle handle= reference.get();
+			if (handle == null || !reference.fSwappable)
+				continue;
+			ReplaceEdit[] edits= toDisjointEdits(handle.fEdit);
+			if (edits == null) {
+				reference.fSwappable= false;
+				continue;
+			}
+			try {
+				byte[] bytes= write(edits);
+				if (fSwap == null) {
+					fSwapFile.getParentFile().mkdirs();
+					fSwap= new RandomAccessFile(fSwapFile, "rw"); //$NON-NLS-1$
+					fSwap.setLength(0);
+					fSwapFileLength= 0;
+				}
+				long offset= fSwapFileLength;
+				fSwap.seek(offset);
+				fSwap.write(bytes);
+				fSwapFileLength+= bytes.length;
+				reference.fSwapOffset= offset;
+				reference.fSwapLength= bytes.length;
+			} catch (IOException e) {
+				RefactoringCorePlugin.log(e);
+				fSwapFailed= true;
+				return;
+			}
+			iter.remove();
+			fInMemorySize-= reference.fSize;
+			fSwapped.add(reference);
+			fSwappedSize+= reference.fSwapLength;
+			handle.fEdit= null;
+		}
+	}
+
+	/**
+	 * Moves the swapped out edits to the start of the swap file, keeping their order,
+	 * and truncates the file after the last one.
+	 */
+	private void compactSwapFile() {
+		if (fSwap == null)
+			return;
+		try {
+			long position= 0;
+			for (Iterator<HandleReference> iter= fSwapped.iterator(); iter.hasNext();) {
+				HandleReference reference= iter.next();
+				if (reference.fSwapOffset != position) {
+					byte[] bytes= new byte[reference.fSwapLength];
+					fSwap.seek(reference.fSwapOffset);
+					fSwap.readFully(bytes);
+					fSwap.seek(position);
+					fSwap.write(bytes);
+					reference.fSwapOffset= position;
+				}
+				position+= reference.fSwapLength;
+			}
+			fSwap.setLength(position);
+			fSwapFileLength= position;
+		} catch (IOException e) {
+			RefactoringCorePlugin.log(e);
+			fSwapFailed= true;
+		}
+	}
+
+	/**
+	 * Returns the length of the swap file.
+	 *
+	 * @return the number of bytes in the swap file
+	 */
+	public synchronized long getSwapFileLength() {
+		processQueue();
+		return fSwapFileLength;
+	}
+
+	/**
+	 * Converts the children of the given undo edit into disjoint replace edits with the same
+	 * effect when applied simultaneously. An undo edit applies its children one after the
+	 * other in reverse order, each one in the coordinates of the document modified by the
+	 * previous ones. Undo edits of edit trees are applied either in ascending or in descending
+	 * offset order; other undo edits are not converted.
+	 *
+	 * @param edit the undo edit
+	 * @return the replace edits in ascending offset order, or <code>null</code> if the
+	 *  undo edit can't be converted
+	 */
+	private static ReplaceEdit[] toDisjointEdits(UndoEdit edit) {
+		TextEdit[] children= edit.getChildren();
+		int count= children.length;
+		ReplaceEdit[] result= new ReplaceEdit[count];
+		if (count == 0)
+			return result;
+		for (int i= 0; i < count; i++) {
+			if (!(children[i] instanceof ReplaceEdit) || children[i].hasChildren())
+				return null;
+		}
+		// children[count - 1] is applied first
+		boolean ascending= count == 1 || children[count - 2].getOffset() > children[count - 1].getOffset();
+		if (ascending) {
+			int delta= 0;
+			int previousEnd= -1;
+			for (int i= count - 1; i >= 0; i--) {
+				ReplaceEdit child= (ReplaceEdit) children[i];
+				if (child.getOffset() <= previousEnd)
+					return null;
+				result[count - 1 - i]= new ReplaceEdit(child.getOffset() - delta, child.getLength(), child.getText());
+				previousEnd= child.getOffset() + child.getText().length();
+				delta+= child.getText().length() - child.getLength();
+			}
+		} else {
+			int previousOffset= Integer.MAX_VALUE;
+			for (int i= count - 1; i >= 0; i--) {
+				ReplaceEdit child= (ReplaceEdit) children[i];
+				if (child.getOffset() + child.getLength() >= previousOffset)
+					return null;
+				result[i]= new ReplaceEdit(child.getOffset(), child.getLength(), child.getText());
+				previousOffset= child.getOffset();
+			}
+		}
+		return result;
+	}
+
+	private static byte[] write(ReplaceEdit[] edits) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		try (DataOutputStream out= new DataOutputStream(new DeflaterOutputStream(bytes))) {
+			out.writeInt(edits.length);
+			for (int i= 0; i < edits.length; i++) {
+				ReplaceEdit edit= edits[i];
+				out.writeInt(edit.getOffset());
+				out.writeInt(edit.getLength());
+				byte[] text= edit.getText().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(text.length);
+				out.write(text);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static TextEdit read(byte[] bytes) throws IOException {
+		MultiTextEdit result= new MultiTextEdit();
+		try (DataInputStream in= new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+			int count= in.readInt();
+			for (int i= 0; i < count; i++) {
+				int offset= in.readInt();
+				int length= in.readInt();
+				byte[] text= new byte[in.readInt()];
+				in.readFully(text);
+				result.addChild(new ReplaceEdit(offset, length, new String(text, StandardCharsets.UTF_8)));
+			}
+		}
+		return result;
+	}
+}
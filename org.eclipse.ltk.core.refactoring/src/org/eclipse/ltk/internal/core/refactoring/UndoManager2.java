@@ -177,6 +177,26 @@ public class UndoManager2 implements IUndoManager {
 		}
 	}
 
+	/**
+	 * Returns the estimated number of bytes the undo edits of text changes on the undo
+	 * and redo stacks hold on the heap.
+	 *
+	 * @return the estimated heap usage of the undo edits
+	 */
+	public long getUndoEditsInMemorySize() {
+		return UndoEditStore.getDefault().getInMemorySize();
+	}
+
+	/**
+	 * Returns the number of bytes used on disk by the undo edits of text changes
+	 * which have been swapped out.
+	 *
+	 * @return the size of the swapped out undo edits
+	 */
+	public long getUndoEditsSwappedSize() {
+		return UndoEditStore.getDefault().getSwappedSize();
+	}
+
 	@Override
 	public boolean anythingToUndo() {
 		return fOperationHistory.canUndo(RefactoringCorePlugin.getUndoContext());